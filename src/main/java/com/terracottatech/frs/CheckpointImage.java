@@ -0,0 +1,410 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.object.ObjectManager;
+import com.terracottatech.frs.recovery.Checkpoint;
+import com.terracottatech.frs.recovery.Filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * A checkpoint image on disk.  Entries are written in partitions, each with 
+ * its own checksum, so the image is read back by several readers at once.
+ * <pre>
+ *   partition*       entries of (id length, key length, value length, lsn, chunk count, id, key, value)
+ *                    streamed values carry (length, chunk lsns) in place of the value, 
+ *                    plain puts a chunk count of -1
+ *   table            (offset, length, entry count, crc) for each partition
+ *   tail             partition count, flags, checkpoint lsn, entry count, table crc, magic
+ * </pre>
+ * Entries of a batched put share its lsn.  Once puts are batched removes are
+ * keyed, and the image is flagged so its entries are skipped one by one.
+ * An image is written beside the live one and renamed over it once forced, 
+ * so the live image is always whole.
+ *
+ * @author mscott
+ */
+class CheckpointImage implements Checkpoint {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CheckpointImage.class);
+  private static final long MAGIC = 0x4652534350543031L;
+  private static final int ENTRY_HEADER = 4 * Integer.BYTES + Long.BYTES;
+  private static final int TABLE_ENTRY = 3 * Long.BYTES + Integer.BYTES;
+  private static final int TAIL = 2 * Integer.BYTES + 4 * Long.BYTES;
+  private static final int KEYED = 0x1;
+
+  private final File file;
+  private final ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager;
+  private final StreamedValues streams;
+  private final int readers;
+  private final boolean keyed;
+  private final long lsn;
+  private final long entries;
+  private final Partition[] partitions;
+
+  private CheckpointImage(File file, ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                          StreamedValues streams, int readers, boolean keyed, long lsn, long entries,
+                          Partition[] partitions) {
+    this.file = file;
+    this.objectManager = objectManager;
+    this.streams = streams;
+    this.readers = Math.max(1, readers);
+    this.keyed = keyed;
+    this.lsn = lsn;
+    this.entries = entries;
+    this.partitions = partitions;
+  }
+
+  /**
+   * @return the image in file, or null if there is none or it cannot be used
+   */
+  static CheckpointImage open(File file, ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                              StreamedValues streams, int readers) {
+    if (!file.exists()) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < TAIL) {
+        throw new IOException("truncated image");
+      }
+      ByteBuffer tail = readFully(channel, size - TAIL, TAIL);
+      int count = tail.getInt();
+      int flags = tail.getInt();
+      long lsn = tail.getLong();
+      long entries = tail.getLong();
+      long crc = tail.getLong();
+      if (tail.getLong() != MAGIC || count < 0 || size - TAIL < (long) count * TABLE_ENTRY) {
+        throw new IOException("not a checkpoint image");
+      }
+      ByteBuffer table = readFully(channel, size - TAIL - (long) count * TABLE_ENTRY, count * TABLE_ENTRY);
+      CRC32 check = new CRC32();
+      check.update(table.duplicate());
+      tail.rewind().limit(TAIL - 2 * Long.BYTES);
+      check.update(tail);
+      if (check.getValue() != crc) {
+        throw new IOException("image table is corrupt");
+      }
+      Partition[] partitions = new Partition[count];
+      for (int i = 0; i < count; i++) {
+        partitions[i] = new Partition(table.getLong(), table.getLong(), table.getInt(), table.getLong());
+      }
+      return new CheckpointImage(file, objectManager, streams, readers, (flags & KEYED) != 0, lsn, entries,
+                                 partitions);
+    } catch (IOException ioe) {
+      LOGGER.warn("ignoring checkpoint image " + file + ", recovering from the full log", ioe);
+      return null;
+    }
+  }
+
+  /**
+   * Start a new image to replace the one in file.
+   */
+  static Writer create(File file, long lsn, boolean keyed, int partitionSize) throws IOException {
+    return new Writer(file, lsn, keyed, partitionSize);
+  }
+
+  @Override
+  public long getLsn() {
+    return lsn;
+  }
+
+  long getEntryCount() {
+    return entries;
+  }
+
+  /**
+   * @return {@code true} if removes were keyed when the image was written
+   */
+  boolean isKeyed() {
+    return keyed;
+  }
+
+  @Override
+  public void replay(Filter<Action> filter, long lowestLsn) throws IOException, InterruptedException {
+    final AtomicInteger count = new AtomicInteger(1);
+    ExecutorService pool = Executors.newFixedThreadPool(readers, r -> {
+      Thread t = new Thread(r, "Checkpoint Reader - " + count.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    });
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+  //  partitions are decoded ahead on the readers and replayed in image order
+      ArrayDeque<Future<List<Decoded>>> ahead = new ArrayDeque<Future<List<Decoded>>>();
+      int next = 0;
+      while (next < partitions.length || !ahead.isEmpty()) {
+        while (next < partitions.length && ahead.size() < readers * 2) {
+          final Partition partition = partitions[next++];
+          ahead.add(pool.submit(() -> decode(channel, partition)));
+        }
+        for (Decoded entry : get(ahead.poll())) {
+          if (entry.lsn >= lowestLsn) {
+            filter.filter(entry.action, entry.lsn, false);
+          }
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static List<Decoded> get(Future<List<Decoded>> decoded) throws IOException, InterruptedException {
+    try {
+      return decoded.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private List<Decoded> decode(FileChannel channel, Partition partition) throws IOException {
+    if (partition.length > Integer.MAX_VALUE) {
+      throw new IOException("partition too large " + partition.length);
+    }
+    ByteBuffer data = readFully(channel, partition.offset, (int) partition.length);
+    CRC32 crc = new CRC32();
+    crc.update(data.duplicate());
+    if (crc.getValue() != partition.crc) {
+      throw new IOException("checkpoint image " + file + " is corrupt at " + partition.offset);
+    }
+    List<Decoded> decoded = new ArrayList<Decoded>(partition.count);
+    for (int i = 0; i < partition.count; i++) {
+      int idLength = data.getInt();
+      int keyLength = data.getInt();
+      int valueLength = data.getInt();
+      long entryLsn = data.getLong();
+      int chunkCount = data.getInt();
+      long length = 0;
+      long[] chunks = null;
+      if (chunkCount >= 0) {
+        length = data.getLong();
+        chunks = new long[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+          chunks[c] = data.getLong();
+        }
+      }
+      ByteBuffer id = copy(data, idLength);
+      ByteBuffer key = copy(data, keyLength);
+      ByteBuffer value = copy(data, valueLength);
+      if (chunks != null) {
+  //  streamed heads own their lsn, replaying one pins its chunks again
+        decoded.add(new Decoded(new StreamedPutAction(objectManager, null, streams, id, key, length, chunks, -1L),
+                                entryLsn));
+      } else if (keyed) {
+        decoded.add(new Decoded(MultiPutAction.restored(objectManager, id, key, value), entryLsn));
+      } else {
+        decoded.add(new Decoded(new PutAction(objectManager, null, id, key, value, -1L), entryLsn));
+      }
+    }
+    return decoded;
+  }
+
+  private static ByteBuffer copy(ByteBuffer data, int length) {
+    byte[] bytes = new byte[length];
+    data.get(bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static class Partition {
+    private final long offset;
+    private final long length;
+    private final int count;
+    private final long crc;
+
+    Partition(long offset, long length, int count, long crc) {
+      this.offset = offset;
+      this.length = length;
+      this.count = count;
+      this.crc = crc;
+    }
+  }
+
+  private static class Decoded {
+    private final Action action;
+    private final long lsn;
+
+    Decoded(Action action, long lsn) {
+      this.action = action;
+      this.lsn = lsn;
+    }
+  }
+
+  static class Writer implements Closeable {
+    private final File file;
+    private final File working;
+    private final FileChannel channel;
+    private final long lsn;
+    private final boolean keyed;
+    private final int partitionSize;
+    private final ByteBuffer staging = ByteBuffer.allocate(1024 * 1024);
+    private final List<Partition> partitions = new ArrayList<Partition>();
+    private final CRC32 crc = new CRC32();
+    private long position = 0;
+    private long start = 0;
+    private int count = 0;
+    private long entries = 0;
+    private boolean committed = false;
+
+    private Writer(File file, long lsn, boolean keyed, int partitionSize) throws IOException {
+      this.file = file;
+      this.working = new File(file.getParentFile(), file.getName() + ".tmp");
+      this.channel = FileChannel.open(working.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                      StandardOpenOption.TRUNCATE_EXISTING);
+      this.lsn = lsn;
+      this.keyed = keyed;
+      this.partitionSize = partitionSize;
+    }
+
+    void add(ByteBuffer id, ByteBuffer key, ByteBuffer value, long entryLsn) throws IOException {
+      ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER);
+      header.putInt(id.remaining()).putInt(key.remaining()).putInt(value.remaining()).putLong(entryLsn).putInt(-1);
+      header.flip();
+      put(header);
+      add(id, key, value);
+    }
+
+    void addStreamed(ByteBuffer id, ByteBuffer key, long length, long[] chunks, long entryLsn) throws IOException {
+      ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER + Long.BYTES * (1 + chunks.length));
+      header.putInt(id.remaining()).putInt(key.remaining()).putInt(0).putLong(entryLsn).putInt(chunks.length);
+      header.putLong(length);
+      for (long chunk : chunks) {
+        header.putLong(chunk);
+      }
+      header.flip();
+      put(header);
+      add(id, key, ByteBuffer.allocate(0));
+    }
+
+    private void add(ByteBuffer id, ByteBuffer key, ByteBuffer value) throws IOException {
+      put(id.duplicate());
+      put(key.duplicate());
+      put(value.duplicate());
+      count += 1;
+      entries += 1;
+      if (position - start >= partitionSize) {
+        endPartition();
+      }
+    }
+
+    private void put(ByteBuffer src) throws IOException {
+      crc.update(src.duplicate());
+      position += src.remaining();
+      while (src.hasRemaining()) {
+        if (!staging.hasRemaining()) {
+          flush();
+        }
+        int length = Math.min(src.remaining(), staging.remaining());
+        ByteBuffer part = src.duplicate();
+        part.limit(part.position() + length);
+        staging.put(part);
+        src.position(src.position() + length);
+      }
+    }
+
+    private void flush() throws IOException {
+      staging.flip();
+      while (staging.hasRemaining()) {
+        channel.write(staging);
+      }
+      staging.clear();
+    }
+
+    private void endPartition() {
+      if (count > 0) {
+        partitions.add(new Partition(start, position - start, count, crc.getValue()));
+      }
+      start = position;
+      count = 0;
+      crc.reset();
+    }
+
+    /**
+     * Finish the image, force it and put it in place of the live one.
+     */
+    void commit() throws IOException {
+      endPartition();
+      ByteBuffer table = ByteBuffer.allocate(partitions.size() * TABLE_ENTRY);
+      for (Partition partition : partitions) {
+        table.putLong(partition.offset).putLong(partition.length).putInt(partition.count).putLong(partition.crc);
+      }
+      table.flip();
+      ByteBuffer tail = ByteBuffer.allocate(TAIL);
+      tail.putInt(partitions.size()).putInt(keyed ? KEYED : 0).putLong(lsn).putLong(entries).flip();
+      CRC32 check = new CRC32();
+      check.update(table.duplicate());
+      check.update(tail.duplicate());
+      tail.limit(TAIL).position(TAIL - 2 * Long.BYTES);
+      tail.putLong(check.getValue()).putLong(MAGIC).flip();
+      put(table);
+      put(tail);
+      flush();
+      channel.force(true);
+      channel.close();
+      Files.move(working.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      committed = true;
+    }
+
+    long getEntryCount() {
+      return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (channel.isOpen()) {
+        channel.close();
+      }
+      if (!committed) {
+        Files.deleteIfExists(working.toPath());
+      }
+    }
+  }
+}
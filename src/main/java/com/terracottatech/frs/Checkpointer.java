@@ -0,0 +1,143 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.config.Configuration;
+import com.terracottatech.frs.config.FrsProperty;
+import com.terracottatech.frs.object.ObjectManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes checkpoint images of the object manager into the database home.
+ * <p>
+ * The image at an lsn holds every entry the object manager has at or below 
+ * that lsn.  Entries changed while the image is written carry newer lsns and 
+ * are left to the log, which recovery replays from just past the image.
+ *
+ * @author mscott
+ */
+class Checkpointer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(Checkpointer.class);
+  static final String IMAGE_NAME = "checkpoint.img";
+  private static final int PARTITION_SIZE = 8 * 1024 * 1024;
+
+  private final ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager;
+  private final StreamedValues streams;
+  private final File image;
+  private final long interval;
+  private final int readers;
+  private final int partitionSize;
+  private volatile ScheduledExecutorService timer;
+  private boolean supported = true;
+
+  Checkpointer(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager, StreamedValues streams,
+               Configuration configuration) {
+    this(objectManager, streams, new File(configuration.getDBHome(), IMAGE_NAME),
+         configuration.getLong(FrsProperty.CHECKPOINT_INTERVAL),
+         configuration.getInt(FrsProperty.CHECKPOINT_READERS), PARTITION_SIZE);
+  }
+
+  Checkpointer(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager, StreamedValues streams, File image,
+               long interval, int readers, int partitionSize) {
+    this.objectManager = objectManager;
+    this.streams = streams;
+    this.image = image;
+    this.interval = interval;
+    this.readers = readers;
+    this.partitionSize = partitionSize;
+  }
+
+  /**
+   * @return the last image written, or null if there is none to recover from
+   */
+  CheckpointImage latest() {
+    return CheckpointImage.open(image, objectManager, streams, readers);
+  }
+
+  /**
+   * Run task every interval until shutdown.
+   */
+  void startup(Runnable task) {
+    if (interval > 0 && timer == null) {
+      timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Checkpoint Timer - " + image.getParent());
+        t.setDaemon(true);
+        return t;
+      });
+      timer.scheduleWithFixedDelay(task, interval, interval, TimeUnit.SECONDS);
+    }
+  }
+
+  void shutdown() {
+    ScheduledExecutorService running = timer;
+    timer = null;
+    if (running != null) {
+      running.shutdown();
+    }
+  }
+
+  /**
+   * Write the image at lsn.  Every action at or below lsn must already be 
+   * recorded in the object manager and durable in the log.  Keyed images are
+   * written while removes are logged with their keys.
+   *
+   * @return {@code false} if the object manager cannot list its entries
+   */
+  synchronized boolean write(final long lsn, boolean keyed) throws IOException {
+    if (!supported) {
+      return false;
+    }
+    long start = System.nanoTime();
+    try (final CheckpointImage.Writer out = CheckpointImage.create(image, lsn, keyed, partitionSize)) {
+      boolean listed = objectManager.forEachEntry(entry -> {
+        if (entry.getLsn() <= lsn) {
+          try {
+            long[] chunks = (streams == null) ? null : streams.chunksOf(entry.getLsn());
+            if (chunks != null) {
+              out.addStreamed(entry.getId(), entry.getKey(), streams.lengthOf(entry.getLsn()), chunks, entry.getLsn());
+            } else {
+              out.add(entry.getId(), entry.getKey(), entry.getValue(), entry.getLsn());
+            }
+          } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+          }
+        }
+      });
+      if (!listed) {
+        LOGGER.warn("checkpoints disabled for " + image.getParent() + ", the object manager cannot list its entries");
+        supported = false;
+        return false;
+      }
+      out.commit();
+      LOGGER.info("Checkpoint of " + out.getEntryCount() + " entries at lsn " + lsn + " written in " +
+                  TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+      return true;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
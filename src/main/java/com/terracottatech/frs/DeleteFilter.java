@@ -40,6 +40,17 @@ public class DeleteFilter extends AbstractFilter<Action> {
       return delegate(element, lsn, true);
     } else if (element instanceof GettableAction && deleted.contains(((GettableAction) element).getIdentifier())) {
       return delegate(element, lsn, true);
+    } else if (element instanceof MultiPutAction && !deleted.isEmpty()) {
+      MultiPutAction multiPut = (MultiPutAction) element;
+      boolean live = false;
+      for (int i = 0; i < multiPut.getEntryCount(); i++) {
+        if (deleted.contains(multiPut.getIdentifier(i))) {
+          multiPut.skipEntry(i);
+        } else {
+          live |= !multiPut.isSkipped(i);
+        }
+      }
+      return delegate(element, lsn, filtered || !live);
     } else {
       return delegate(element, lsn, filtered);
     }
@@ -0,0 +1,88 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How far a write has to get before it is acknowledged.
+ * <ul>
+ * <li>{@link #NONE} - acknowledged once the log has accepted it</li>
+ * <li>{@link #OS_WRITE} - acknowledged once it is written to the operating system</li>
+ * <li>{@link #FSYNC} - acknowledged once it is written and synced</li>
+ * <li>{@link #boundedDelay(long, TimeUnit)} - acknowledged once written, the log 
+ *     syncs it no later than the given delay after that</li>
+ * </ul>
+ * Futures that report durability complete with the level the write actually 
+ * reached, a bounded delay write reports {@link #OS_WRITE}.
+ *
+ * @author mscott
+ */
+public final class Durability {
+  
+  public enum Level {
+    NONE, OS_WRITE, FSYNC, BOUNDED_DELAY
+  }
+  
+  public static final Durability NONE = new Durability(Level.NONE, 0);
+  public static final Durability OS_WRITE = new Durability(Level.OS_WRITE, 0);
+  public static final Durability FSYNC = new Durability(Level.FSYNC, 0);
+  
+  private final Level level;
+  private final long delayNanos;
+
+  private Durability(Level level, long delayNanos) {
+    this.level = level;
+    this.delayNanos = delayNanos;
+  }
+  
+  public static Durability boundedDelay(long delay, TimeUnit unit) {
+    if (delay < 0) {
+      throw new IllegalArgumentException("negative delay " + delay);
+    }
+    return new Durability(Level.BOUNDED_DELAY, unit.toNanos(delay));
+  }
+  
+  public Level getLevel() {
+    return level;
+  }
+
+  /**
+   * @return longest time a bounded delay write may go unsynced after it is 
+   *     written, 0 for the other levels
+   */
+  public long getDelay(TimeUnit unit) {
+    return unit.convert(delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    Durability that = (Durability) o;
+    return level == that.level && delayNanos == that.delayNanos;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * level.hashCode() + (int) (delayNanos ^ (delayNanos >>> 32));
+  }
+
+  @Override
+  public String toString() {
+    return ( level == Level.BOUNDED_DELAY ) ? level + "(" + TimeUnit.NANOSECONDS.toMillis(delayNanos) + "ms)" : level.toString();
+  }
+}
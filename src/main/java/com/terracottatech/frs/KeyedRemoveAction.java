@@ -0,0 +1,89 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.ActionCodec;
+import com.terracottatech.frs.action.ActionFactory;
+import com.terracottatech.frs.action.EntryAction;
+import com.terracottatech.frs.compaction.Compactor;
+import com.terracottatech.frs.object.ObjectManager;
+import com.terracottatech.frs.util.ByteBufferUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A remove that also logs the removed key.  Written once a store may hold
+ * multi-put records, so recovery can drop the one removed entry out of a
+ * record that carries many.
+ *
+ * @author mscott
+ */
+class KeyedRemoveAction extends RemoveAction implements EntryAction {
+  /* KeyedRemoveAction.getPayload
+  8 bytes - KeyedRemoveAction.invalidatedLsn
+  4 bytes - KeyedRemoveAction.idByteCount
+  4 bytes - KeyedRemoveAction.keyByteCount
+  */
+  public static final ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer> FACTORY =
+          new ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer>() {
+            @Override
+            public Action create(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                                 ActionCodec codec, ByteBuffer[] buffers) {
+              long invalidatedLsn = ByteBufferUtils.getLong(buffers);
+              int idLength = ByteBufferUtils.getInt(buffers);
+              int keyLength = ByteBufferUtils.getInt(buffers);
+              ByteBuffer id = ByteBufferUtils.getBytes(idLength, buffers);
+              ByteBuffer key = ByteBufferUtils.getBytes(keyLength, buffers);
+              return new KeyedRemoveAction(objectManager, null, id, key, invalidatedLsn);
+            }
+          };
+
+  private static final int HEADER_SIZE =
+          ByteBufferUtils.LONG_SIZE + ByteBufferUtils.INT_SIZE * 2;
+
+  KeyedRemoveAction(ObjectManager<ByteBuffer, ByteBuffer, ?> objectManager, Compactor compactor, ByteBuffer id, ByteBuffer key, boolean recovery) {
+    super(objectManager, compactor, id, key, recovery);
+  }
+
+  private KeyedRemoveAction(ObjectManager<ByteBuffer, ByteBuffer, ?> objectManager, Compactor compactor, ByteBuffer id, ByteBuffer key, long invalidatedLsn) {
+    super(objectManager, compactor, id, key, invalidatedLsn);
+  }
+
+  @Override
+  public long getInvalidatedLsn() {
+    return super.getInvalidatedLsn();
+  }
+
+  @Override
+  public long getEntryHash() {
+    return MapActions.entryHash(getIdentifier(), getKey());
+  }
+
+  @Override
+  public boolean isRemove() {
+    return true;
+  }
+
+  @Override
+  public ByteBuffer[] getPayload(ActionCodec codec) {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putLong(getInvalidatedLsn());
+    header.putInt(getIdentifier().remaining());
+    header.putInt(getKey().remaining()).flip();
+    return new ByteBuffer[] { header, getIdentifier().slice(), getKey().slice() };
+  }
+}
@@ -24,8 +24,35 @@ import java.nio.ByteBuffer;
  */
 public abstract class MapActions {
   public static void registerActions(int id, ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> codec) {
+    registerActions(id, codec, null, null);
+  }
+
+  static void registerActions(int id, ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> codec, PutBatching batching,
+                              StreamedValues streams) {
     codec.registerAction(id, 0, PutAction.class, PutAction.FACTORY);
     codec.registerAction(id, 1, RemoveAction.class, RemoveAction.FACTORY);
     codec.registerAction(id, 2, DeleteAction.class, DeleteAction.FACTORY);
+    codec.registerAction(id, 3, MultiPutAction.class, MultiPutAction.factory(batching));
+    codec.registerAction(id, 4, KeyedRemoveAction.class, KeyedRemoveAction.FACTORY);
+    codec.registerAction(id, 5, ValueChunkAction.class, ValueChunkAction.FACTORY);
+    codec.registerAction(id, 6, StreamedPutAction.class, StreamedPutAction.factory(streams));
+  }
+
+  /**
+   * 64 bit hash of an entry, used by recovery to tell the entries of one lsn
+   * apart.  Buffer positions are left untouched.
+   */
+  static long entryHash(ByteBuffer id, ByteBuffer key) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = id.position(); i < id.limit(); i++) {
+      hash = (hash ^ (id.get(i) & 0xff)) * 0x100000001b3L;
+    }
+    hash = (hash ^ id.remaining()) * 0x100000001b3L;
+    for (int i = key.position(); i < key.limit(); i++) {
+      hash = (hash ^ (key.get(i) & 0xff)) * 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    return hash ^ (hash >>> 33);
   }
 }
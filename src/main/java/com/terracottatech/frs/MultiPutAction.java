@@ -0,0 +1,280 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.ActionCodec;
+import com.terracottatech.frs.action.ActionFactory;
+import com.terracottatech.frs.action.MultiEntryAction;
+import com.terracottatech.frs.compaction.Compactor;
+import com.terracottatech.frs.object.ObjectManager;
+import com.terracottatech.frs.util.ByteBufferUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Many puts logged as a single record.  All entries share the lsn of the
+ * record but each invalidates its own previous lsn, so on recovery entries
+ * are skipped and replayed one by one.
+ *
+ * @author mscott
+ */
+class MultiPutAction implements MultiEntryAction, DisposableLifecycle {
+  /* MultiPutAction.getPayload
+  4 bytes - MultiPutAction.entryCount
+  per entry
+  4 bytes - idByteCount, -1 when the identifier is the previous entry's
+  4 bytes - keyByteCount
+  4 bytes - valueByteCount
+  8 bytes - invalidatedLsn
+  */
+  private static final int HEADER_SIZE =
+          ByteBufferUtils.INT_SIZE * 3 + ByteBufferUtils.LONG_SIZE;
+
+  static ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer> factory(final PutBatching batching) {
+    return new ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer>() {
+      @Override
+      public Action create(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                           ActionCodec codec, ByteBuffer[] buffers) {
+        int count = ByteBufferUtils.getInt(buffers);
+        ByteBuffer[] ids = new ByteBuffer[count];
+        ByteBuffer[] keys = new ByteBuffer[count];
+        ByteBuffer[] values = new ByteBuffer[count];
+        long[] invalidatedLsns = new long[count];
+        for (int i = 0; i < count; i++) {
+          int idLength = ByteBufferUtils.getInt(buffers);
+          int keyLength = ByteBufferUtils.getInt(buffers);
+          int valueLength = ByteBufferUtils.getInt(buffers);
+          invalidatedLsns[i] = ByteBufferUtils.getLong(buffers);
+          ids[i] = idLength < 0 ? ids[i - 1] : ByteBufferUtils.getBytes(idLength, buffers);
+          keys[i] = ByteBufferUtils.getBytes(keyLength, buffers);
+          values[i] = ByteBufferUtils.getBytes(valueLength, buffers);
+        }
+        if (batching != null) {
+          batching.recoveredMultiPut();
+        }
+        MultiPutAction action = new MultiPutAction(objectManager, null, ids, keys, values, invalidatedLsns);
+        //  recovery decodes on the unpack threads, build the set there
+        action.invalidated = action.collectInvalidatedLsns();
+        return action;
+      }
+    };
+  }
+
+  private final ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager;
+  private final Compactor                                         compactor;
+  private final ByteBuffer[]                                      ids;
+  private final ByteBuffer[]                                      keys;
+  private final ByteBuffer[]                                      values;
+  private final long[]                                            invalidatedLsns;
+  private final boolean[]                                         skipped;
+
+  private Set<Long>                                               invalidated;
+  private volatile boolean                                        guarded;
+  private Closeable                                               disposable;
+
+  MultiPutAction(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager, Compactor compactor,
+                 List<ByteBuffer> ids, List<ByteBuffer> keys, List<ByteBuffer> values, boolean recovery) {
+    this(objectManager, compactor, ids.toArray(new ByteBuffer[ids.size()]), keys.toArray(new ByteBuffer[keys.size()]),
+         values.toArray(new ByteBuffer[values.size()]), new long[ids.size()]);
+    for (int i = 0; i < this.ids.length; i++) {
+      invalidatedLsns[i] = RecoveringObjectManager.invalidatedLsn(objectManager, this.ids[i], this.keys[i], recovery);
+      if (invalidatedLsns[i] == -1L && recovery) {
+        throw new IllegalStateException(
+                "Put over an unrecovered key is unsupported during recovery.");
+      }
+    }
+  }
+
+  /**
+   * A single entry restored from a checkpoint image.  Image entries may share
+   * the lsn of a batched record, so they are skipped entry by entry and never
+   * replayed over a key the log suffix already restored.
+   */
+  static MultiPutAction restored(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                                 ByteBuffer id, ByteBuffer key, ByteBuffer value) {
+    MultiPutAction action = new MultiPutAction(objectManager, null, new ByteBuffer[] {id}, new ByteBuffer[] {key},
+                                               new ByteBuffer[] {value}, new long[] {-1L});
+    action.guardEntries();
+    return action;
+  }
+
+  private MultiPutAction(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager, Compactor compactor,
+                         ByteBuffer[] ids, ByteBuffer[] keys, ByteBuffer[] values, long[] invalidatedLsns) {
+    this.objectManager = objectManager;
+    this.compactor = compactor;
+    this.ids = ids;
+    this.keys = keys;
+    this.values = values;
+    this.invalidatedLsns = invalidatedLsns;
+    this.skipped = new boolean[ids.length];
+  }
+
+  @Override
+  public int getEntryCount() {
+    return ids.length;
+  }
+
+  @Override
+  public long getEntryHash(int entry) {
+    return MapActions.entryHash(ids[entry], keys[entry]);
+  }
+
+  @Override
+  public long getInvalidatedLsn(int entry) {
+    return invalidatedLsns[entry];
+  }
+
+  ByteBuffer getIdentifier(int entry) {
+    return ids[entry];
+  }
+
+  @Override
+  public void skipEntry(int entry) {
+    skipped[entry] = true;
+  }
+
+  @Override
+  public boolean isSkipped(int entry) {
+    return skipped[entry];
+  }
+
+  @Override
+  public void guardEntries() {
+    guarded = true;
+  }
+
+  @Override
+  public Set<Long> getInvalidatedLsns() {
+    return invalidated != null ? invalidated : collectInvalidatedLsns();
+  }
+
+  private Set<Long> collectInvalidatedLsns() {
+    Set<Long> lsns = new HashSet<Long>();
+    for (long lsn : invalidatedLsns) {
+      lsns.add(lsn);
+    }
+    return lsns;
+  }
+
+  @Override
+  public void setDisposable(Closeable c) {
+    disposable = c;
+  }
+
+  @Override
+  public void dispose() {
+    try {
+      this.close();
+    } catch ( IOException ioe ) {
+      throw new RuntimeException(ioe);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( disposable != null ) {
+      disposable.close();
+      disposable = null;
+    }
+  }
+
+  @Override
+  public void record(long lsn) {
+    for (int i = 0; i < ids.length; i++) {
+      objectManager.put(ids[i], keys[i], values[i], lsn);
+      if (invalidatedLsns[i] != -1) {
+        compactor.generatedGarbage(invalidatedLsns[i]);
+      }
+    }
+  }
+
+  @Override
+  public void replay(long lsn) {
+    for (int i = 0; i < ids.length; i++) {
+      if (!skipped[i]) {
+        replayEntry(i, lsn);
+      }
+    }
+  }
+
+  @Override
+  public void replayEntry(int entry, long lsn) {
+    //  newer records were replayed first, a key they restored is newer than
+    //  this entry
+    if (guarded && objectManager.getLsn(ids[entry], keys[entry]) != -1L) {
+      return;
+    }
+    objectManager.replayPut(ids[entry], keys[entry], values[entry], lsn);
+  }
+
+  @Override
+  public int replayConcurrency() {
+    return objectManager.replayConcurrency(ids[0], keys[0]);
+  }
+
+  @Override
+  public int replayConcurrency(int entry) {
+    return objectManager.replayConcurrency(ids[entry], keys[entry]);
+  }
+
+  @Override
+  public ByteBuffer[] getPayload(ActionCodec codec) {
+    ByteBuffer[] payload = new ByteBuffer[1 + ids.length * 4];
+    payload[0] = (ByteBuffer) ByteBuffer.allocate(ByteBufferUtils.INT_SIZE).putInt(ids.length).flip();
+    int index = 1;
+    for (int i = 0; i < ids.length; i++) {
+      boolean sameId = i > 0 && ids[i].equals(ids[i - 1]);
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(sameId ? -1 : ids[i].remaining());
+      header.putInt(keys[i].remaining());
+      header.putInt(values[i].remaining());
+      header.putLong(invalidatedLsns[i]).flip();
+      payload[index++] = header;
+      if (!sameId) {
+        payload[index++] = ids[i].slice();
+      }
+      payload[index++] = keys[i].slice();
+      payload[index++] = values[i].slice();
+    }
+    return index == payload.length ? payload : Arrays.copyOf(payload, index);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    MultiPutAction that = (MultiPutAction) o;
+
+    return Arrays.equals(ids, that.ids) && Arrays.equals(keys, that.keys) &&
+           Arrays.equals(values, that.values) && Arrays.equals(invalidatedLsns, that.invalidatedLsns);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Arrays.hashCode(ids);
+    result = 31 * result + Arrays.hashCode(keys);
+    result = 31 * result + Arrays.hashCode(values);
+    return result;
+  }
+}
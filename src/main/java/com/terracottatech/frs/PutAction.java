@@ -18,6 +18,7 @@ package com.terracottatech.frs;
 import com.terracottatech.frs.action.Action;
 import com.terracottatech.frs.action.ActionCodec;
 import com.terracottatech.frs.action.ActionFactory;
+import com.terracottatech.frs.action.EntryAction;
 import com.terracottatech.frs.compaction.Compactor;
 import com.terracottatech.frs.object.ObjectManager;
 import com.terracottatech.frs.util.ByteBufferUtils;
@@ -31,7 +32,7 @@ import java.util.Set;
 /**
  * @author tim
  */
-public class PutAction implements GettableAction {
+public class PutAction implements GettableAction, EntryAction {
   /* PutAction.getPayload
   4 bytes - PutAction.idByteCount
   4 bytes - PutAction.keyByteCount
@@ -71,7 +72,7 @@ public class PutAction implements GettableAction {
 
   PutAction(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager, Compactor compactor, ByteBuffer id,
             ByteBuffer key, ByteBuffer value, boolean recovery) {
-    this(objectManager, compactor, id, key, value, objectManager.getLsn(id, key));
+    this(objectManager, compactor, id, key, value, RecoveringObjectManager.invalidatedLsn(objectManager, id, key, recovery));
     if (invalidatedLsn == -1L && recovery) {
       throw new IllegalStateException(
               "Put over an unrecovered key is unsupported during recovery.");
@@ -113,6 +114,21 @@ public class PutAction implements GettableAction {
     return Collections.singleton(invalidatedLsn);
   }
 
+  @Override
+  public long getInvalidatedLsn() {
+    return invalidatedLsn;
+  }
+
+  @Override
+  public long getEntryHash() {
+    return MapActions.entryHash(id, key);
+  }
+
+  @Override
+  public boolean isRemove() {
+    return false;
+  }
+
   @Override
   public void setDisposable(Closeable c) {
     disposable = c;
@@ -138,7 +154,7 @@ public class PutAction implements GettableAction {
   @Override
   public void record(long lsn) {
     markedLsn = lsn;
-    objectManager.put(getIdentifier(), getKey(), getValue(), lsn);
+    objectManager.put(getIdentifier(), getKey(), value, lsn);
     if (invalidatedLsn != -1) {
       compactor.generatedGarbage(invalidatedLsn);
     }
@@ -146,7 +162,7 @@ public class PutAction implements GettableAction {
   
   @Override
   public void replay(long lsn) {
-    objectManager.replayPut(getIdentifier(), getKey(), getValue(), lsn);
+    objectManager.replayPut(getIdentifier(), getKey(), value, lsn);
   }
 
   @Override
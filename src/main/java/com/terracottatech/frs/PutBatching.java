@@ -0,0 +1,45 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+/**
+ * Per store state for batched transaction puts.  Once a store writes
+ * multi-put records, or recovers a log holding them, every remove has to log
+ * its key so that recovery can tell which entry of a batch it removed.
+ *
+ * @author mscott
+ */
+class PutBatching {
+  private final boolean enabled;
+  private volatile boolean keyedRemoves;
+
+  PutBatching(boolean enabled) {
+    this.enabled = enabled;
+    this.keyedRemoves = enabled;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  boolean isKeyedRemoves() {
+    return keyedRemoves;
+  }
+
+  void recoveredMultiPut() {
+    keyedRemoves = true;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.action.EntryAction;
+import com.terracottatech.frs.object.ObjectManager;
+import com.terracottatech.frs.object.ObjectManagerEntry;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Object manager of a store that takes writes while recovery is still
+ * replaying the log.  Every key written during the replay is remembered and
+ * older values replayed for it afterwards are dropped, so the newer write
+ * stays in place.
+ *
+ * @author mscott
+ */
+class RecoveringObjectManager implements ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> {
+  private static final int LOCK_STRIPES = 64;
+
+  private final ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> delegate;
+  private final Object[] locks = new Object[LOCK_STRIPES];
+  private volatile Map<ByteBuffer, Set<ByteBuffer>> written = new ConcurrentHashMap<ByteBuffer, Set<ByteBuffer>>();
+
+  RecoveringObjectManager(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> delegate) {
+    this.delegate = delegate;
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  /**
+   * The lsn a write of the key invalidates.  While the store recovers a key
+   * the replay has not reached yet has no lsn, the write is then marked as
+   * superseding whatever older record the log holds for it.
+   */
+  static long invalidatedLsn(ObjectManager<ByteBuffer, ByteBuffer, ?> objectManager, ByteBuffer id, ByteBuffer key,
+                             boolean recovery) {
+    long lsn = objectManager.getLsn(id, key);
+    if (lsn == -1L && recovery && objectManager instanceof RecoveringObjectManager) {
+      return EntryAction.UNRECOVERED;
+    }
+    return lsn;
+  }
+
+  /**
+   * Replay is over, writes and replayed puts go straight through.
+   */
+  void recovered() {
+    written = null;
+  }
+
+  private Object lockFor(ByteBuffer id, ByteBuffer key) {
+    return locks[(id.hashCode() * 31 + key.hashCode()) & (LOCK_STRIPES - 1)];
+  }
+
+  @Override
+  public long getLsn(ByteBuffer id, ByteBuffer key) {
+    return delegate.getLsn(id, key);
+  }
+
+  @Override
+  public boolean contains(ByteBuffer id) {
+    return delegate.contains(id);
+  }
+
+  @Override
+  public void put(ByteBuffer id, ByteBuffer key, ByteBuffer value, long lsn) {
+    if (written == null) {
+      delegate.put(id, key, value, lsn);
+    } else {
+      synchronized (lockFor(id, key)) {
+        written(id, key);
+        delegate.put(id, key, value, lsn);
+      }
+    }
+  }
+
+  @Override
+  public void remove(ByteBuffer id, ByteBuffer key) {
+    if (written == null) {
+      delegate.remove(id, key);
+    } else {
+      synchronized (lockFor(id, key)) {
+        written(id, key);
+        delegate.remove(id, key);
+      }
+    }
+  }
+
+  private void written(ByteBuffer id, ByteBuffer key) {
+    Map<ByteBuffer, Set<ByteBuffer>> keys = written;
+    if (keys != null) {
+      Set<ByteBuffer> set = keys.get(id);
+      if (set == null) {
+        set = ConcurrentHashMap.newKeySet();
+        Set<ByteBuffer> racer = keys.putIfAbsent(id, set);
+        if (racer != null) {
+          set = racer;
+        }
+      }
+      set.add(key);
+    }
+  }
+
+  @Override
+  public void replayPut(ByteBuffer id, ByteBuffer key, ByteBuffer value, long lsn) {
+    if (written == null) {
+      delegate.replayPut(id, key, value, lsn);
+    } else {
+  //  the write and the replay of one key are ordered by the stripe lock, a 
+  //  replayed value never lands over a newer write
+      synchronized (lockFor(id, key)) {
+        Map<ByteBuffer, Set<ByteBuffer>> keys = written;
+        Set<ByteBuffer> set = (keys == null) ? null : keys.get(id);
+        if (set == null || !set.contains(key)) {
+          delegate.replayPut(id, key, value, lsn);
+        }
+      }
+    }
+  }
+
+  @Override
+  public int replayConcurrency(ByteBuffer id, ByteBuffer key) {
+    return delegate.replayConcurrency(id, key);
+  }
+
+  @Override
+  public void delete(ByteBuffer id) {
+    delegate.delete(id);
+  }
+
+  @Override
+  public ObjectManagerEntry<ByteBuffer, ByteBuffer, ByteBuffer> acquireCompactionEntry(long ceilingLsn) {
+    return delegate.acquireCompactionEntry(ceilingLsn);
+  }
+
+  @Override
+  public void releaseCompactionEntry(ObjectManagerEntry<ByteBuffer, ByteBuffer, ByteBuffer> entry) {
+    delegate.releaseCompactionEntry(entry);
+  }
+
+  @Override
+  public void updateLsn(ObjectManagerEntry<ByteBuffer, ByteBuffer, ByteBuffer> entry, long newLsn) {
+    delegate.updateLsn(entry, newLsn);
+  }
+
+  @Override
+  public long size() {
+    return delegate.size();
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return delegate.sizeInBytes();
+  }
+
+  @Override
+  public long getLowestLsn() {
+    return delegate.getLowestLsn();
+  }
+
+  @Override
+  public boolean forEachEntry(Consumer<ObjectManagerEntry<ByteBuffer, ByteBuffer, ByteBuffer>> visitor) {
+    return delegate.forEachEntry(visitor);
+  }
+}
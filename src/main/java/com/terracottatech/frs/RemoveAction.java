@@ -46,18 +46,34 @@ class RemoveAction implements InvalidatingAction {
   
 
   RemoveAction(ObjectManager<ByteBuffer, ByteBuffer, ?> objectManager, Compactor compactor, ByteBuffer id, ByteBuffer key, boolean recovery) {
-    this.objectManager = objectManager;
-    this.compactor = compactor;
-    this.id = id;
-    this.key = key;
-    this.invalidatedLsn = objectManager.getLsn(id, key);
+    this(objectManager, compactor, id, key, RecoveringObjectManager.invalidatedLsn(objectManager, id, key, recovery));
 
     if (invalidatedLsn == -1L && recovery) {
       throw new IllegalStateException(
               "Removing a non-existent key is unsupported during recovery.");
     }
   }
-  
+
+  RemoveAction(ObjectManager<ByteBuffer, ByteBuffer, ?> objectManager, Compactor compactor, ByteBuffer id, ByteBuffer key, long invalidatedLsn) {
+    this.objectManager = objectManager;
+    this.compactor = compactor;
+    this.id = id;
+    this.key = key;
+    this.invalidatedLsn = invalidatedLsn;
+  }
+
+  ByteBuffer getIdentifier() {
+    return id;
+  }
+
+  ByteBuffer getKey() {
+    return key;
+  }
+
+  long getInvalidatedLsn() {
+    return invalidatedLsn;
+  }
+
   @Override
   public Set<Long> getInvalidatedLsns() {
     return Collections.singleton(invalidatedLsn);
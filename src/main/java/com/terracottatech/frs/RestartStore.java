@@ -18,6 +18,7 @@ package com.terracottatech.frs;
 import com.terracottatech.frs.recovery.RecoveryException;
 
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -58,6 +59,23 @@ public interface RestartStore<I, K, V> {
    * @return an auto-commit transaction context.
    */
   Transaction<I, K, V> beginAutoCommitTransaction(boolean synchronous);
+
+  /**
+   * Open a transaction whose commit is acknowledged once it has the given durability.
+   *
+   * @param durability how far the commit has to get before it is acknowledged
+   * @return a transaction context
+   */
+  Transaction<I, K, V> beginTransaction(Durability durability);
+
+  /**
+   * Open an auto-commit transaction whose actions are each acknowledged once they have 
+   * the given durability.
+   *
+   * @param durability how far each action has to get before it is acknowledged
+   * @return an auto-commit transaction context.
+   */
+  Transaction<I, K, V> beginAutoCommitTransaction(Durability durability);
   
   /**
    * randomly access a record from the log at a user provided marker
@@ -84,6 +102,35 @@ public interface RestartStore<I, K, V> {
    */
   Statistics getStatistics();
 
+  /**
+   * The highest lsn handed to the OS.  Every lsn at or below it is written, 
+   * though not necessarily forced to disk.
+   *
+   * @return highest written lsn
+   */
+  long writtenLsn();
+
+  /**
+   * The highest lsn forced to disk.  Every lsn at or below it survives a crash.
+   *
+   * @return highest durable lsn
+   */
+  long durableLsn();
+
+  /**
+   * Wait for every action up to and including the given lsn to be durable.  
+   * Acknowledging a batch of actions only takes one wait, on the highest lsn 
+   * in the batch.
+   *
+   * @param lsn lsn to wait for, as handed to the object managers
+   * @param timeout longest time to wait
+   * @param unit unit of the timeout
+   * @return {@code true} once lsn is durable, {@code false} if the timeout 
+   *     expired or the store was shutdown first
+   * @throws InterruptedException if interrupted while waiting
+   */
+  boolean awaitDurable(long lsn, long timeout, TimeUnit unit) throws InterruptedException;
+
   /**
    * Start the process of pausing incoming actions. Also, start the process of pausing compaction and return
    * a {@link Future} that can be used to check when the pause completes.
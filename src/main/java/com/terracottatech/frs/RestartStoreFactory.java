@@ -31,8 +31,10 @@ import com.terracottatech.frs.io.MaskingBufferSource;
 import com.terracottatech.frs.io.SLABBufferSource;
 import com.terracottatech.frs.io.SplittingBufferSource;
 import com.terracottatech.frs.io.nio.NIOManager;
+import com.terracottatech.frs.io.nio.StripedNIOManager;
 import com.terracottatech.frs.log.LogManager;
 import com.terracottatech.frs.log.MasterLogRecordFactory;
+import com.terracottatech.frs.log.SharedLogManager;
 import com.terracottatech.frs.log.StagingLogManager;
 import com.terracottatech.frs.object.ObjectManager;
 import com.terracottatech.frs.transaction.TransactionActions;
@@ -52,20 +54,84 @@ public abstract class RestartStoreFactory {
   private RestartStoreFactory() {
   }
 
-  private static ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> createCodec(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager) {
-    ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> codec =
-            new ActionCodecImpl<ByteBuffer, ByteBuffer, ByteBuffer>(objectManager);
-    MapActions.registerActions(0, codec);
+  private static ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> createCodec(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                                                                            PutBatching batching, StreamedValues streams) {
+    ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> codec = streams.getCodec();
+    MapActions.registerActions(0, codec, batching, streams);
     TransactionActions.registerActions(1, codec);
-    CompactionActions.registerActions(2, codec);
+    CompactionActions.registerActions(2, codec, streams);
     return codec;
   }
 
+  //  stores that take writes during recovery keep replayed values from landing 
+  //  over them
+  private static ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> recoveringObjectManager(
+          ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager, Configuration configuration) {
+    if (configuration.getBoolean(FrsProperty.RECOVERY_EARLY_AVAILABILITY)) {
+      return new RecoveringObjectManager(objectManager);
+    } else {
+      return objectManager;
+    }
+  }
+
+  private static StreamedValues createStreams(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                                              ReadManager readManager, Configuration configuration) {
+    return new StreamedValues(objectManager, readManager,
+                              new ActionCodecImpl<ByteBuffer, ByteBuffer, ByteBuffer>(objectManager),
+                              configuration.getInt(FrsProperty.STORE_STREAM_CHUNK_SIZE));
+  }
+
   public static RestartStore<ByteBuffer, ByteBuffer, ByteBuffer> createStore(
           ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
           File dbHome, Properties properties) throws IOException, RestartStoreException {
     Configuration configuration = Configuration.getConfiguration(dbHome, properties);
-    
+    objectManager = recoveringObjectManager(objectManager, configuration);
+    BufferSource writingSource = createBufferSource(configuration);
+    IOManager ioManager = createIOManager(configuration, writingSource);
+    ReadManager readManager = new ReadManagerImpl(ioManager, configuration.getString(FrsProperty.FORCE_LOG_REGION_FORMAT));
+    LogManager logManager = new StagingLogManager(ioManager,writingSource,configuration);
+    PutBatching batching = new PutBatching(configuration.getBoolean(FrsProperty.STORE_BATCH_TRANSACTION_PUTS));
+    StreamedValues streams = createStreams(objectManager, readManager, configuration);
+    ActionManager actionManager = new ActionManagerImpl(logManager, objectManager,
+                                                        createCodec(objectManager, batching, streams),
+                                                        new MasterLogRecordFactory());
+    TransactionManager transactionManager = new TransactionManagerImpl(actionManager);
+    return new RestartStoreImpl(objectManager, transactionManager, logManager,
+                                actionManager, readManager, ioManager, configuration, batching, streams);
+  }
+
+  /**
+   * Create one physical log to be shared by many stores in this JVM.  Open 
+   * every store with {@link #createStore(ObjectManager, SharedLogManager, int)} 
+   * before starting any of them.
+   */
+  public static SharedLogManager createSharedLog(File dbHome, Properties properties) throws IOException {
+    Configuration configuration = Configuration.getConfiguration(dbHome, properties);
+    BufferSource writingSource = createBufferSource(configuration);
+    IOManager ioManager = createIOManager(configuration, writingSource);
+    ReadManager readManager = new ReadManagerImpl(ioManager, configuration.getString(FrsProperty.FORCE_LOG_REGION_FORMAT));
+    LogManager logManager = new StagingLogManager(ioManager,writingSource,configuration);
+    return new SharedLogManager(configuration, logManager, readManager, ioManager);
+  }
+
+  public static RestartStore<ByteBuffer, ByteBuffer, ByteBuffer> createStore(
+          ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+          SharedLogManager sharedLog, int storeId) throws RestartStoreException {
+    Configuration configuration = sharedLog.getConfiguration();
+    objectManager = recoveringObjectManager(objectManager, configuration);
+    LogManager logManager = sharedLog.open(storeId);
+    PutBatching batching = new PutBatching(configuration.getBoolean(FrsProperty.STORE_BATCH_TRANSACTION_PUTS));
+    ReadManager readManager = sharedLog.reader(storeId);
+    StreamedValues streams = createStreams(objectManager, readManager, configuration);
+    ActionManager actionManager = new ActionManagerImpl(logManager, objectManager,
+                                                        createCodec(objectManager, batching, streams),
+                                                        new MasterLogRecordFactory());
+    TransactionManager transactionManager = new TransactionManagerImpl(actionManager);
+    return new RestartStoreImpl(objectManager, transactionManager, logManager, actionManager,
+                                readManager, sharedLog.statistics(storeId), configuration, batching, streams);
+  }
+
+  private static BufferSource createBufferSource(Configuration configuration) {
     int memorySize = configuration.getLong(FrsProperty.IO_NIO_POOL_MEMORY_SIZE).intValue();
     BufferSource writingSource = null;
     if ( configuration.getString(FrsProperty.IO_NIO_BUFFER_SOURCE).equals("HILO") ) {
@@ -76,16 +142,13 @@ public abstract class RestartStoreFactory {
       long timeout = configuration.getLong(FrsProperty.IO_NIO_MEMORY_TIMEOUT);
       writingSource = new MaskingBufferSource(new SplittingBufferSource(64, memorySize, timeout));
     }
-    
-    IOManager ioManager = new NIOManager(configuration,writingSource);
-    ReadManager readManager = new ReadManagerImpl(ioManager, configuration.getString(FrsProperty.FORCE_LOG_REGION_FORMAT));
-    LogManager logManager = new StagingLogManager(ioManager,writingSource,configuration);
-    ActionManager actionManager = new ActionManagerImpl(logManager, objectManager,
-                                                        createCodec(objectManager),
-                                                        new MasterLogRecordFactory());
-    TransactionManager transactionManager = new TransactionManagerImpl(actionManager);
-    return new RestartStoreImpl(objectManager, transactionManager, logManager,
-                                actionManager, readManager, ioManager, configuration);
+    return writingSource;
+  }
+
+  private static IOManager createIOManager(Configuration configuration, BufferSource writingSource) throws IOException {
+    return StripedNIOManager.isStriped(configuration) ? 
+        new StripedNIOManager(configuration, writingSource) : 
+        new NIOManager(configuration,writingSource);
   }
 
   public static RestartStore<ByteBuffer, ByteBuffer, ByteBuffer> createStore(
@@ -43,8 +43,15 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -71,11 +78,15 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
   private final ActionManager actionManager;
   private final ReadManager readManager;
   private final Configuration configuration;
+  private final PutBatching batching;
+  private final StreamedValues streams;
+  private final Checkpointer checkpointer;
 
   private final int maxPauseTime;
   private final ScheduledExecutorService pauseExecutionService;
   private volatile Future<Future<Snapshot>> pauseTaskRef;
   private volatile Future<Future<Void>> shutdownTaskRef;
+  private volatile Future<Void> recovery;
   private volatile ScheduledFuture<?> pauseTimerTaskRef;
 
   private volatile State state = State.INIT;
@@ -85,6 +96,16 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
                    TransactionManager transactionManager, LogManager logManager,
                    ActionManager actionManager, ReadManager read, Compactor compactor,
                    Configuration configuration) {
+    this(objectManager, transactionManager, logManager, actionManager, read, compactor, configuration,
+         new PutBatching(false), null);
+  }
+
+  RestartStoreImpl(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                   TransactionManager transactionManager, LogManager logManager,
+                   ActionManager actionManager, ReadManager read, Compactor compactor,
+                   Configuration configuration, PutBatching batching, StreamedValues streams) {
+    this.batching = batching;
+    this.streams = streams;
     this.transactionManager = transactionManager;
     this.objectManager = objectManager;
     this.logManager = logManager;
@@ -94,16 +115,26 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
     this.configuration = configuration;
     this.pauseExecutionService = Executors.newScheduledThreadPool(0);
     this.maxPauseTime = configuration.getInt(FrsProperty.STORE_MAX_PAUSE_TIME_IN_MILLIS);
+    this.checkpointer = configuration.getBoolean(FrsProperty.CHECKPOINT_ENABLED) ?
+        new Checkpointer(objectManager, streams, configuration) : null;
   }
 
   public RestartStoreImpl(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
                           TransactionManager transactionManager, LogManager logManager,
                           ActionManager actionManager, ReadManager read, IOManager ioManager,
                           Configuration configuration) throws RestartStoreException {
+    this(objectManager, transactionManager, logManager, actionManager, read, ioManager, configuration,
+         new PutBatching(false), null);
+  }
+
+  RestartStoreImpl(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                   TransactionManager transactionManager, LogManager logManager,
+                   ActionManager actionManager, ReadManager read, IOManager ioManager,
+                   Configuration configuration, PutBatching batching, StreamedValues streams) throws RestartStoreException {
     this(objectManager, transactionManager, logManager, actionManager, read, 
          new CompactorImpl(objectManager, transactionManager, logManager, ioManager, configuration,
-                           actionManager),
-         configuration);
+                           actionManager, streams),
+         configuration, batching, streams);
   }
 
   @Override
@@ -120,9 +151,14 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
       }
     }
     state = State.RECOVERING;
-    RecoveryManager recoveryManager = new RecoveryManagerImpl(logManager, actionManager,
-                                                              configuration);
-    return recoveryManager.recover(this);
+    CheckpointImage image = checkpointer == null ? null : checkpointer.latest();
+    if (image != null && image.isKeyed()) {
+  //  the batched records under the image are not replayed, removes stay keyed
+      batching.recoveredMultiPut();
+    }
+    RecoveryManager recoveryManager = new RecoveryManagerImpl(logManager, actionManager, configuration, image);
+    recovery = recoveryManager.recover(this);
+    return recovery;
   }
 
   @Override
@@ -131,32 +167,82 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
       LOGGER.warn("FRS Store is frozen. Waiting for a shutdown or resume");
       this.wait();
     }
+    if (objectManager instanceof RecoveringObjectManager) {
+      ((RecoveringObjectManager) objectManager).recovered();
+    }
     if (state == State.RECOVERING) {
       compactor.startup();
       state = State.RUNNING;
+      if (checkpointer != null) {
+        checkpointer.startup(this::checkpoint);
+      }
     }
   }
 
   @Override
-  public synchronized void shutdown() throws InterruptedException {
-    if (state != State.SHUTDOWN) {
-      state = State.SHUTDOWN;
-      compactor.shutdown();
-      logManager.shutdown();
-      pauseExecutionService.shutdown();
+  public void shutdown() throws InterruptedException {
+  //  a replay still running in the background completes before the log closes
+    Future<Void> replay = recovery;
+    if (replay != null) {
+      try {
+        replay.get();
+      } catch (ExecutionException e) {
+        LOGGER.warn("recovery failed before shutdown", e.getCause());
+      }
+    }
+    synchronized (this) {
+      if (state != State.SHUTDOWN) {
+        if (checkpointer != null) {
+          checkpointer.shutdown();
+          checkpoint();
+        }
+        state = State.SHUTDOWN;
+        compactor.shutdown();
+        logManager.shutdown();
+        pauseExecutionService.shutdown();
+      }
     }
   }
 
   @Override
   public Transaction<ByteBuffer, ByteBuffer, ByteBuffer> beginTransaction(boolean synchronous) {
-    checkReadyState();
-    return new TransactionImpl(synchronous);
+    return beginTransaction(synchronous ? Durability.FSYNC : Durability.NONE);
   }
 
   @Override
   public Transaction<ByteBuffer, ByteBuffer, ByteBuffer> beginAutoCommitTransaction(boolean synchronous) {
+    return beginAutoCommitTransaction(synchronous ? Durability.FSYNC : Durability.NONE);
+  }
+
+  @Override
+  public Transaction<ByteBuffer, ByteBuffer, ByteBuffer> beginTransaction(Durability durability) {
+    checkReadyState();
+    return new TransactionImpl(durability);
+  }
+
+  @Override
+  public Transaction<ByteBuffer, ByteBuffer, ByteBuffer> beginAutoCommitTransaction(Durability durability) {
     checkReadyState();
-    return new AutoCommitTransaction(synchronous);
+    return new AutoCommitTransaction(durability);
+  }
+
+  private static <T> T waitFor(Future<T> written) throws TransactionException {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return written.get();
+        } catch (ExecutionException e) {
+          throw new TransactionException(e);
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 
   @Override
@@ -193,6 +279,21 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
     }
   }
 
+  @Override
+  public long writtenLsn() {
+    return logManager.writtenLsn();
+  }
+
+  @Override
+  public long durableLsn() {
+    return logManager.durableLsn();
+  }
+
+  @Override
+  public boolean awaitDurable(long lsn, long timeout, TimeUnit unit) throws InterruptedException {
+    return logManager.awaitDurable(lsn, timeout, unit);
+  }
+
   @Override
   public Statistics getStatistics() {
       return new Statistics() {
@@ -226,6 +327,11 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
         public long getExpiredSize() {
           return delegate.getExpiredSize();
         }
+
+        @Override
+        public double getWritePressure() {
+          return logManager.writePressure();
+        }
       };
   }
 
@@ -327,6 +433,45 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
     state = State.RUNNING;
   }
 
+  private void checkpoint() {
+    try {
+      long lsn = markCheckpoint();
+      if (lsn > 0) {
+        checkpointer.write(lsn, batching.isKeyedRemoves());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      LOGGER.warn("Checkpoint failed for " + configuration.getDBHome(), e);
+    }
+  }
+
+  /**
+   * Sync a barrier once every action ahead of it has reached the object 
+   * manager.  Returns the barrier lsn, or -1 if the store is not running or a 
+   * transaction spanning the barrier is still open.
+   */
+  private long markCheckpoint() throws InterruptedException, ExecutionException {
+    LogRecord barrier = actionManager.barrierAction();
+    Future<Void> written;
+    synchronized (this) {
+      if (state != State.RUNNING) {
+        return -1;
+      }
+      actionManager.pause();
+      try {
+        written = logManager.appendAndSync(barrier);
+        if (transactionManager.getLowestOpenTransactionLsn() < barrier.getLsn()) {
+          return -1;
+        }
+      } finally {
+        actionManager.resume();
+      }
+    }
+    written.get();
+    return barrier.getLsn();
+  }
+
   private void checkReadyState() {
     if (isNotInReadyState(state)) {
       if (state != State.FROZEN || isNotInReadyState(prevState)) {
@@ -340,6 +485,32 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
     return (stateToCheck != State.RUNNING && stateToCheck != State.RECOVERING && stateToCheck != State.PAUSED);
   }
 
+  private RemoveAction removeAction(ByteBuffer id, ByteBuffer key) {
+    boolean recovering = isRecovering();
+  //  a remove taken while the replay runs may not know the lsn it removes, 
+  //  the key is logged so a later recovery can still find it
+    if (batching.isKeyedRemoves() || (recovering && objectManager instanceof RecoveringObjectManager)) {
+      return new KeyedRemoveAction(objectManager, compactor, id, key, recovering);
+    } else {
+      return new RemoveAction(objectManager, compactor, id, key, recovering);
+    }
+  }
+
+  //  the chunks are logged outside of any transaction, until the put itself is
+  //  logged they are unreferenced and recovery passes over them
+  private StreamedPutAction streamedPut(ByteBuffer id, ByteBuffer key, ReadableByteChannel value, long length)
+          throws TransactionException {
+    if (streams == null) {
+      throw new UnsupportedOperationException("Streamed values are not supported by this store.");
+    }
+    try {
+      long[] chunks = streams.write(actionManager, value, length);
+      return new StreamedPutAction(objectManager, compactor, streams, id, key, length, chunks, isRecovering());
+    } catch (IOException e) {
+      throw new TransactionException("Failed to stream value", e);
+    }
+  }
+
   private boolean isRecovering() {
     return state == State.RECOVERING || (state == State.FROZEN && prevState == State.RECOVERING);
   }
@@ -373,31 +544,25 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
 
   private class AutoCommitTransaction implements
           Transaction<ByteBuffer, ByteBuffer, ByteBuffer> {
-    private final boolean synchronous;
+    private final Durability durability;
+    private Durability reached;
 
-    private AutoCommitTransaction(boolean synchronous) {
-      this.synchronous = synchronous;
+    private AutoCommitTransaction(Durability durability) {
+      this.durability = durability;
     }
 
     private void happened(Action action) throws TransactionException {
-      if (synchronous) {
-        boolean interrupted = false;
-        Future<Void> written = actionManager.syncHappened(action);
-        while (true) {
-          try {
-            written.get();
-            break;
-          } catch (ExecutionException e) {
-            throw new TransactionException(e);
-          } catch (InterruptedException e) {
-            interrupted = true;
-          }
-        }
-        if (interrupted) {
-          Thread.currentThread().interrupt();
-        }
-      } else {
-        actionManager.happened(action);
+      switch (durability.getLevel()) {
+        case FSYNC:
+          waitFor(actionManager.syncHappened(action));
+          reached = Durability.FSYNC;
+          break;
+        case NONE:
+          actionManager.happened(action);
+          reached = Durability.NONE;
+          break;
+        default:
+          reached = waitFor(actionManager.happenedAsync(action, durability));
       }
     }
 
@@ -409,6 +574,14 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
       return this;
   }
 
+    @Override
+    public Transaction<ByteBuffer, ByteBuffer, ByteBuffer> put(ByteBuffer id, ByteBuffer key, ReadableByteChannel value,
+                                                               long length) throws TransactionException {
+      checkReadyState();
+      happened(streamedPut(id, key, value, length));
+      return this;
+    }
+
     @Override
     public Transaction<ByteBuffer, ByteBuffer, ByteBuffer> delete(ByteBuffer id) throws
             TransactionException {
@@ -421,38 +594,72 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
     public Transaction<ByteBuffer, ByteBuffer, ByteBuffer> remove(ByteBuffer id, ByteBuffer key) throws
             TransactionException {
       checkReadyState();
-      happened(new RemoveAction(objectManager, compactor, id, key, isRecovering()));
+      happened(removeAction(id, key));
       return this;
     }
 
     @Override
     public void commit() throws TransactionException {
     }
+
+    @Override
+    public CompletableFuture<Void> commitAsync() throws TransactionException {
+  //  every action was already written with this transaction's durability
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Durability> commitWithDurability() throws TransactionException {
+      return CompletableFuture.completedFuture(reached == null ? Durability.NONE : reached);
+    }
   }
 
   private class TransactionImpl implements
           Transaction<ByteBuffer, ByteBuffer, ByteBuffer> {
-    private final boolean synchronous;
+    private final Durability durability;
     private final TransactionHandle handle;
+    //  puts held back until commit and logged as a single record
+    private final Map<List<ByteBuffer>, ByteBuffer> puts;
     private boolean committed = false;
 
-    TransactionImpl(boolean synchronous) {
+    TransactionImpl(Durability durability) {
       this.handle = transactionManager.begin();
-      this.synchronous = synchronous;
+      this.durability = durability;
+      this.puts = batching.isEnabled() ? new LinkedHashMap<List<ByteBuffer>, ByteBuffer>() : null;
     }
 
     @Override
     public synchronized Transaction<ByteBuffer, ByteBuffer, ByteBuffer> put(ByteBuffer id, ByteBuffer key, ByteBuffer value) {
       checkReadyState();
       checkCommitted();
+      if (puts != null) {
+        puts.put(Arrays.asList(id, key), value);
+        return this;
+      }
       transactionManager.happened(handle, new PutAction(objectManager, compactor, id, key, value, isRecovering()));
       return this;
     }
 
+    @Override
+    public synchronized Transaction<ByteBuffer, ByteBuffer, ByteBuffer> put(ByteBuffer id, ByteBuffer key,
+                                                                            ReadableByteChannel value, long length)
+            throws TransactionException {
+      checkReadyState();
+      checkCommitted();
+      if (puts != null) {
+        puts.remove(Arrays.asList(id, key));
+      }
+      transactionManager.happened(handle, streamedPut(id, key, value, length));
+      return this;
+    }
+
     @Override
     public synchronized Transaction<ByteBuffer, ByteBuffer, ByteBuffer> delete(ByteBuffer id) {
       checkReadyState();
       checkCommitted();
+      if (puts != null) {
+        puts.keySet().removeIf(entry -> entry.get(0).equals(id));
+      }
       transactionManager.happened(handle, new DeleteAction(objectManager, compactor, id, isRecovering()));
       return this;
     }
@@ -461,7 +668,10 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
     public synchronized Transaction<ByteBuffer, ByteBuffer, ByteBuffer> remove(ByteBuffer id, ByteBuffer key) {
       checkReadyState();
       checkCommitted();
-      transactionManager.happened(handle, new RemoveAction(objectManager, compactor, id, key, isRecovering()));
+      if (puts != null) {
+        puts.remove(Arrays.asList(id, key));
+      }
+      transactionManager.happened(handle, removeAction(id, key));
       return this;
     }
 
@@ -469,13 +679,76 @@ public class RestartStoreImpl implements RestartStore<ByteBuffer, ByteBuffer, By
     public synchronized void commit() throws TransactionException {
       checkReadyState();
       checkCommitted();
-      transactionManager.commit(handle, synchronous);
+      flushPuts();
+      switch (durability.getLevel()) {
+        case FSYNC:
+          transactionManager.commit(handle, true);
+          break;
+        case NONE:
+          transactionManager.commit(handle, false);
+          break;
+        default:
+          waitFor(transactionManager.commitAsync(handle, durability));
+      }
       committed = true;
     }
 
+    @Override
+    public synchronized CompletableFuture<Void> commitAsync() throws TransactionException {
+      checkReadyState();
+      checkCommitted();
+      flushPuts();
+      CompletableFuture<Void> written;
+      switch (durability.getLevel()) {
+        case FSYNC:
+          written = transactionManager.commitAsync(handle, true);
+          break;
+        case NONE:
+          written = transactionManager.commitAsync(handle, false);
+          break;
+        default:
+          written = transactionManager.commitAsync(handle, durability).thenApply(reached -> null);
+      }
+      committed = true;
+      return written;
+    }
+
+    @Override
+    public synchronized CompletableFuture<Durability> commitWithDurability() throws TransactionException {
+      checkReadyState();
+      checkCommitted();
+      flushPuts();
+      CompletableFuture<Durability> written = transactionManager.commitAsync(handle, durability);
+      committed = true;
+      return written;
+    }
+
     private void checkCommitted() {
       if (committed) throw new IllegalStateException("Transaction is already committed.");
     }
+
+    private void flushPuts() {
+      if (puts == null || puts.isEmpty()) {
+        return;
+      }
+      if (puts.size() == 1) {
+        Map.Entry<List<ByteBuffer>, ByteBuffer> put = puts.entrySet().iterator().next();
+        transactionManager.happened(handle, new PutAction(objectManager, compactor, put.getKey().get(0),
+                                                          put.getKey().get(1), put.getValue(), isRecovering()));
+      } else {
+        List<ByteBuffer> ids = new ArrayList<ByteBuffer>(puts.size());
+        List<ByteBuffer> keys = new ArrayList<ByteBuffer>(puts.size());
+        List<ByteBuffer> values = new ArrayList<ByteBuffer>(puts.size());
+        for (Map.Entry<List<ByteBuffer>, ByteBuffer> put : puts.entrySet()) {
+          ids.add(put.getKey().get(0));
+          keys.add(put.getKey().get(1));
+          values.add(put.getValue());
+        }
+        transactionManager.happened(handle, new MultiPutAction(objectManager, compactor, ids, keys, values,
+                                                               isRecovering()));
+      }
+      puts.clear();
+    }
   }
 
   /**
@@ -22,5 +22,10 @@ import com.terracottatech.frs.io.IOStatistics;
  * @author mscott
  */
 public interface Statistics extends IOStatistics {
-  
+
+  /**
+   * @return bytes appended but not yet written as a fraction of the log's 
+   * admission budget, 0 when no budget is configured
+   */
+  double getWritePressure();
 }
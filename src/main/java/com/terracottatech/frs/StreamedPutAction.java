@@ -0,0 +1,181 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.ActionCodec;
+import com.terracottatech.frs.action.ActionFactory;
+import com.terracottatech.frs.compaction.Compactor;
+import com.terracottatech.frs.object.ObjectManager;
+import com.terracottatech.frs.util.ByteBufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A put whose value was streamed into the log as {@link ValueChunkAction}s 
+ * ahead of this record.  The object manager is handed an empty value, the 
+ * value itself is reassembled from the chunks the first time 
+ * {@link #getValue()} is called on an action read back through
+ * {@link RestartStore#get(long)}.
+ *
+ * @author mscott
+ */
+public class StreamedPutAction extends PutAction {
+  /* StreamedPutAction.getPayload
+  4 bytes - StreamedPutAction.idByteCount
+  4 bytes - StreamedPutAction.keyByteCount
+  8 bytes - StreamedPutAction.valueByteCount
+  8 bytes - StreamedPutAction.invalidatedLsn
+  4 bytes - StreamedPutAction.chunkCount
+  8 bytes per chunk - chunk lsn
+  */
+  private static final int HEADER_SIZE =
+          ByteBufferUtils.INT_SIZE * 3 + ByteBufferUtils.LONG_SIZE * 2;
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  public static ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer> factory(final StreamedValues streams) {
+    return new ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer>() {
+      @Override
+      public Action create(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                           ActionCodec codec, ByteBuffer[] buffers) {
+        int idLength = ByteBufferUtils.getInt(buffers);
+        int keyLength = ByteBufferUtils.getInt(buffers);
+        long length = ByteBufferUtils.getLong(buffers);
+        long invalidatedLsn = ByteBufferUtils.getLong(buffers);
+        long[] chunks = new long[ByteBufferUtils.getInt(buffers)];
+        for (int i = 0; i < chunks.length; i++) {
+          chunks[i] = ByteBufferUtils.getLong(buffers);
+        }
+        ByteBuffer id = ByteBufferUtils.getBytes(idLength, buffers);
+        ByteBuffer key = ByteBufferUtils.getBytes(keyLength, buffers);
+        return new StreamedPutAction(objectManager, null, streams, id, key, length, chunks, invalidatedLsn);
+      }
+    };
+  }
+
+  private final ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager;
+  private final StreamedValues streams;
+  private final long           length;
+  private final long[]         chunks;
+
+  private volatile ByteBuffer  value;
+
+  StreamedPutAction(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager, Compactor compactor,
+                    StreamedValues streams, ByteBuffer id, ByteBuffer key, long length, long[] chunks,
+                    boolean recovery) {
+    super(objectManager, compactor, id, key, EMPTY, recovery);
+    this.objectManager = objectManager;
+    this.streams = streams;
+    this.length = length;
+    this.chunks = chunks;
+  }
+
+  StreamedPutAction(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager, Compactor compactor,
+                    StreamedValues streams, ByteBuffer id, ByteBuffer key, long length, long[] chunks,
+                    long invalidatedLsn) {
+    super(objectManager, compactor, id, key, EMPTY, invalidatedLsn);
+    this.objectManager = objectManager;
+    this.streams = streams;
+    this.length = length;
+    this.chunks = chunks;
+  }
+
+  public long getValueLength() {
+    return length;
+  }
+
+  public long[] getChunkLsns() {
+    return chunks.clone();
+  }
+
+  @Override
+  public ByteBuffer getValue() {
+    ByteBuffer assembled = value;
+    if (assembled == null) {
+      if (streams == null) {
+        throw new IllegalStateException("streamed values are not readable through this codec");
+      }
+      try {
+        assembled = streams.read(length, chunks);
+      } catch (IOException ioe) {
+        throw new RuntimeException("unrecoverable", ioe);
+      }
+      value = assembled;
+    }
+    return assembled.duplicate();
+  }
+
+  @Override
+  public void record(long lsn) {
+    if (streams != null) {
+      streams.pin(lsn, getIdentifier(), getKey(), length, chunks, false);
+    }
+    super.record(lsn);
+    if (streams != null) {
+      streams.confirm(lsn);
+    }
+  }
+
+  @Override
+  public void replay(long lsn) {
+    super.replay(lsn);
+    if (streams != null && !superseded(lsn)) {
+      streams.pin(lsn, getIdentifier(), getKey(), length, chunks, true);
+    }
+  }
+
+  //  the replayed value was dropped for a newer write taken during recovery
+  private boolean superseded(long lsn) {
+    return objectManager instanceof RecoveringObjectManager &&
+           objectManager.getLsn(getIdentifier(), getKey()) != lsn;
+  }
+
+  @Override
+  public ByteBuffer[] getPayload(ActionCodec codec) {
+    return payload(getIdentifier(), getKey(), length, getInvalidatedLsn(), chunks);
+  }
+
+  public static ByteBuffer[] payload(ByteBuffer id, ByteBuffer key, long length, long invalidatedLsn,
+                                     long[] chunks) {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + ByteBufferUtils.LONG_SIZE * chunks.length);
+    header.putInt(id.remaining());
+    header.putInt(key.remaining());
+    header.putLong(length);
+    header.putLong(invalidatedLsn);
+    header.putInt(chunks.length);
+    for (long chunk : chunks) {
+      header.putLong(chunk);
+    }
+    header.flip();
+    return new ByteBuffer[] { header, id.slice(), key.slice() };
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!super.equals(o)) return false;
+
+    StreamedPutAction streamed = (StreamedPutAction) o;
+
+    return length == streamed.length && Arrays.equals(chunks, streamed.chunks);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * super.hashCode() + Arrays.hashCode(chunks);
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.ActionCodec;
+import com.terracottatech.frs.action.ActionManager;
+import com.terracottatech.frs.flash.ReadManager;
+import com.terracottatech.frs.log.LogRecord;
+import com.terracottatech.frs.object.ObjectManager;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Values too large to log as one record.  A streamed value is written as a 
+ * run of chunk records, each no larger than the chunk size, followed by a 
+ * {@link StreamedPutAction} listing their lsns.  The head is durable only once
+ * every chunk is, a stream cut short by a crash leaves unreferenced chunks 
+ * that recovery passes over.
+ * <p>
+ * Chunks sit below the lsn of their head, so while a head is live its chunks
+ * are pinned and {@link #lowestLsn(long)} holds the log's lowest lsn down to 
+ * the first of them.
+ *
+ * @author mscott
+ */
+public class StreamedValues {
+
+  private final ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager;
+  private final ReadManager reads;
+  private final ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> codec;
+  private final int chunkSize;
+  //  head lsn -> stream
+  private final Map<Long, Stream> pins = new ConcurrentHashMap<Long, Stream>();
+
+  public StreamedValues(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager, ReadManager reads,
+                        ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> codec, int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunk size must be positive " + chunkSize);
+    }
+    this.objectManager = objectManager;
+    this.reads = reads;
+    this.codec = codec;
+    this.chunkSize = chunkSize;
+  }
+
+  ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> getCodec() {
+    return codec;
+  }
+
+  /**
+   * Stream {@code length} bytes of {@code value} into the log as chunks.
+   *
+   * @return lsns of the chunks in value order
+   */
+  long[] write(ActionManager actionManager, ReadableByteChannel value, long length) throws IOException {
+    if (length < 0) {
+      throw new IllegalArgumentException("negative value length " + length);
+    }
+    long[] chunks = new long[(int) ((length + chunkSize - 1) / chunkSize)];
+    long left = length;
+    for (int i = 0; i < chunks.length; i++) {
+      ByteBuffer data = ByteBuffer.allocate((int) Math.min(chunkSize, left));
+      while (data.hasRemaining()) {
+        if (value.read(data) < 0) {
+          throw new EOFException("value ended after " + (length - left + data.position()) + " of " + length + " bytes");
+        }
+      }
+      data.flip();
+      left -= data.remaining();
+      chunks[i] = append(actionManager, data);
+    }
+    return chunks;
+  }
+
+  /**
+   * Reassemble a value from its chunks.
+   */
+  ByteBuffer read(long length, long[] chunks) throws IOException {
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("value of " + length + " bytes does not fit in one buffer");
+    }
+    ByteBuffer value = ByteBuffer.allocate((int) length);
+    for (long lsn : chunks) {
+      ValueChunkAction chunk = chunk(lsn);
+      try {
+        chunk.copyTo(value);
+      } finally {
+        chunk.dispose();
+      }
+    }
+    if (value.hasRemaining()) {
+      throw new IOException("chunks hold " + value.position() + " of " + length + " bytes");
+    }
+    value.flip();
+    return value;
+  }
+
+  /**
+   * Copy chunks forward in the log one at a time, for compaction.
+   *
+   * @return lsns of the copies in value order
+   */
+  public long[] copy(ActionManager actionManager, long[] chunks) throws IOException {
+    long[] copies = new long[chunks.length];
+    for (int i = 0; i < chunks.length; i++) {
+      ValueChunkAction chunk = chunk(chunks[i]);
+      try {
+        ByteBuffer data = ByteBuffer.allocate(chunk.length());
+        chunk.copyTo(data);
+        data.flip();
+        copies[i] = append(actionManager, data);
+      } finally {
+        chunk.dispose();
+      }
+    }
+    return copies;
+  }
+
+  private long append(ActionManager actionManager, ByteBuffer data) {
+    ValueChunkAction chunk = new ValueChunkAction(data);
+    actionManager.happened(chunk);
+    return chunk.getLsn();
+  }
+
+  private ValueChunkAction chunk(long lsn) throws IOException {
+    LogRecord record = reads.get(lsn);
+    if (record == null) {
+      throw new IOException("value chunk at lsn " + lsn + " is missing");
+    }
+    Action action = codec.decode(record.getPayload());
+    if (!(action instanceof ValueChunkAction)) {
+      record.close();
+      throw new IOException("lsn " + lsn + " is not a value chunk");
+    }
+    ValueChunkAction chunk = (ValueChunkAction) action;
+    chunk.setDisposable(record);
+    return chunk;
+  }
+
+  /**
+   * Chunk lsns of the streamed value whose head is at {@code lsn}.
+   *
+   * @return chunk lsns or {@code null} if {@code lsn} is not a pinned head
+   */
+  public long[] chunksOf(long lsn) {
+    Stream stream = pins.get(lsn);
+    return stream == null ? null : stream.chunks;
+  }
+
+  public long lengthOf(long lsn) {
+    Stream stream = pins.get(lsn);
+    if (stream == null) {
+      throw new IllegalArgumentException("lsn " + lsn + " is not a streamed value");
+    }
+    return stream.length;
+  }
+
+  /**
+   * Pin the chunks of a head.  Pins not yet confirmed are kept until they are,
+   * a live pin is dropped once the object manager moves past its head.
+   */
+  void pin(long lsn, ByteBuffer id, ByteBuffer key, long length, long[] chunks, boolean live) {
+  //  replayed keys live in log buffers that are recycled after replay
+    pins.put(lsn, new Stream(copy(id), copy(key), length, chunks, live));
+  }
+
+  void confirm(long lsn) {
+    Stream stream = pins.get(lsn);
+    if (stream != null) {
+      stream.live = true;
+    }
+  }
+
+  /**
+   * A compacted head and its chunks were copied to new lsns.
+   */
+  public void moved(long from, long to, long[] chunks) {
+    Stream stream = pins.remove(from);
+    if (stream != null) {
+      pins.put(to, new Stream(stream.id, stream.key, stream.length, chunks, true));
+    }
+  }
+
+  /**
+   * Lower {@code lowest} to the first chunk of any live streamed value.
+   *
+   * @param lowest lowest lsn of the object manager, or {@link Constants#ISEMPTY_LSN}
+   * @return lowest lsn the log has to keep
+   */
+  public long lowestLsn(long lowest) {
+    for (Iterator<Map.Entry<Long, Stream>> it = pins.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<Long, Stream> pin = it.next();
+      Stream stream = pin.getValue();
+      if (stream.live && liveLsn(stream) != pin.getKey()) {
+        it.remove();
+      } else if (stream.chunks.length > 0 && (lowest == Constants.ISEMPTY_LSN || stream.chunks[0] < lowest)) {
+        lowest = stream.chunks[0];
+      }
+    }
+    return lowest;
+  }
+
+  private static ByteBuffer copy(ByteBuffer buffer) {
+    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+    copy.put(buffer.duplicate()).flip();
+    return copy;
+  }
+
+  /**
+   * Number of chunk records held by pinned streamed values, each takes an lsn
+   * of its own in the log.
+   */
+  public long pinnedChunks() {
+    long count = 0;
+    for (Stream stream : pins.values()) {
+      count += stream.chunks.length;
+    }
+    return count;
+  }
+
+  private long liveLsn(Stream stream) {
+  //  the identifier may no longer be registered with the object manager
+    if (!objectManager.contains(stream.id)) {
+      return Constants.ISEMPTY_LSN;
+    }
+    return objectManager.getLsn(stream.id, stream.key);
+  }
+
+  private static final class Stream {
+    private final ByteBuffer id;
+    private final ByteBuffer key;
+    private final long length;
+    private final long[] chunks;
+    private volatile boolean live;
+
+    Stream(ByteBuffer id, ByteBuffer key, long length, long[] chunks, boolean live) {
+      this.id = id;
+      this.key = key;
+      this.length = length;
+      this.chunks = chunks;
+      this.live = live;
+    }
+  }
+}
@@ -15,6 +15,9 @@
  */
 package com.terracottatech.frs;
 
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.CompletableFuture;
+
 /**
  *
  * @author cdennis
@@ -32,6 +35,23 @@ public interface Transaction<I, K, V> {
    */
   Transaction<I, K, V> put(I id, K key, V value) throws TransactionException;
 
+  /**
+   * Record a put of a value streamed from a channel.  The value is logged in
+   * chunks as it is read, so it never has to fit in a single log record.  The
+   * object manager is handed an empty value, the value is read back through
+   * {@link RestartStore#get(long)} with the lsn of the put.
+   *
+   * @param id identifier to be put into
+   * @param key key for the put
+   * @param value channel to read the value from
+   * @param length number of bytes of the value
+   * @return this
+   * @throws TransactionException if the value could not be read
+   */
+  default Transaction<I, K, V> put(I id, K key, ReadableByteChannel value, long length) throws TransactionException {
+    throw new UnsupportedOperationException("Streamed values are not supported.");
+  }
+
   /**
    * Record a delete on the id
    *
@@ -57,4 +77,25 @@ public interface Transaction<I, K, V> {
    * @throws TransactionException
    */
   void commit() throws TransactionException;
+
+  /**
+   * Commit this transaction without waiting for it to reach disk
+   *
+   * @return future completed once the commit has the durability this transaction 
+   *     was started with, or exceptionally if the write fails
+   * @throws TransactionException
+   */
+  CompletableFuture<Void> commitAsync() throws TransactionException;
+
+  /**
+   * Commit this transaction without waiting, reporting how durable the commit got
+   *
+   * @return future completed with the {@link Durability} the commit reached once it 
+   *     has the durability this transaction was started with, or exceptionally if 
+   *     the write fails
+   * @throws TransactionException
+   */
+  default CompletableFuture<Durability> commitWithDurability() throws TransactionException {
+    throw new UnsupportedOperationException("Durability levels are not supported.");
+  }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.ActionCodec;
+import com.terracottatech.frs.action.ActionFactory;
+import com.terracottatech.frs.object.ObjectManager;
+import com.terracottatech.frs.util.ByteBufferUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One piece of a value streamed into the log ahead of its
+ * {@link StreamedPutAction}.  A chunk carries no key, it only means something 
+ * to the put that lists its lsn, so there is nothing to replay.
+ *
+ * @author mscott
+ */
+class ValueChunkAction implements Action, DisposableLifecycle {
+  /* ValueChunkAction.getPayload
+  4 bytes - ValueChunkAction.dataByteCount
+  */
+  static final ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer> FACTORY =
+          new ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer>() {
+            @Override
+            public Action create(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                                 ActionCodec codec, ByteBuffer[] buffers) {
+              int length = ByteBufferUtils.getInt(buffers);
+              return new ValueChunkAction(buffers, length);
+            }
+          };
+
+  private final ByteBuffer[] data;
+  private final int          length;
+
+  private volatile long      lsn;
+  private Closeable          disposable;
+
+  ValueChunkAction(ByteBuffer data) {
+    this(new ByteBuffer[] { data }, data.remaining());
+  }
+
+  private ValueChunkAction(ByteBuffer[] data, int length) {
+    this.data = data;
+    this.length = length;
+  }
+
+  long getLsn() {
+    return lsn;
+  }
+
+  int length() {
+    return length;
+  }
+
+  /**
+   * Copy the bytes of this chunk into {@code dest}, buffer positions of the 
+   * chunk are left untouched.
+   */
+  void copyTo(ByteBuffer dest) {
+    for (ByteBuffer part : slices()) {
+      dest.put(part);
+    }
+  }
+
+  private ByteBuffer[] slices() {
+    ByteBuffer[] slices = new ByteBuffer[data.length];
+    int left = length;
+    int count = 0;
+    for (ByteBuffer buffer : data) {
+      if (left == 0) {
+        break;
+      }
+      ByteBuffer part = buffer.slice();
+      if (part.remaining() > left) {
+        part.limit(left);
+      }
+      left -= part.remaining();
+      slices[count++] = part;
+    }
+    return count == slices.length ? slices : Arrays.copyOf(slices, count);
+  }
+
+  @Override
+  public void record(long lsn) {
+    this.lsn = lsn;
+  }
+
+  @Override
+  public void replay(long lsn) {
+  }
+
+  @Override
+  public ByteBuffer[] getPayload(ActionCodec codec) {
+    ByteBuffer header = ByteBuffer.allocate(ByteBufferUtils.INT_SIZE);
+    header.putInt(length).flip();
+    return ByteBufferUtils.concatenate(header, slices());
+  }
+
+  @Override
+  public void setDisposable(Closeable c) {
+    disposable = c;
+  }
+
+  @Override
+  public void dispose() {
+    try {
+      this.close();
+    } catch ( IOException ioe ) {
+      throw new RuntimeException(ioe);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( disposable != null ) {
+      disposable.close();
+      disposable = null;
+    }
+  }
+}
@@ -15,8 +15,11 @@
  */
 package com.terracottatech.frs.action;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.log.LogRecord;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 /**
@@ -41,6 +44,41 @@ public interface ActionManager {
    */
   Future<Void> happened(Action action);
 
+  /**
+   * Record the given {@link Action}s into the log stream in order, sequenced 
+   * as one contiguous range.
+   *
+   * @param actions {@link Action}s to record
+   * @param sync initiate a sync once the last {@link Action} is written
+   * @return {@link Future} that represents when all the {@link Action}s are written to disk.
+   */
+  Future<Void> happenedAll(List<Action> actions, boolean sync);
+
+  /**
+   * Record the action and initiate a sync without blocking on the write.
+   *
+   * @param action {@link Action} to record into the log stream
+   * @return {@link CompletableFuture} completed once the action is durable.
+   */
+  CompletableFuture<Void> syncHappenedAsync(Action action);
+
+  /**
+   * Record the given {@link Action} without blocking on the write.
+   *
+   * @param action {@link Action} to record
+   * @return {@link CompletableFuture} completed once the {@link Action} is written to disk.
+   */
+  CompletableFuture<Void> happenedAsync(Action action);
+
+  /**
+   * Record the given {@link Action} without blocking, acknowledged once it has the given durability.
+   *
+   * @param action {@link Action} to record
+   * @param durability how far the write has to get before the future completes
+   * @return {@link CompletableFuture} completed with the {@link Durability} the {@link Action} reached.
+   */
+  CompletableFuture<Durability> happenedAsync(Action action, Durability durability);
+
   /**
    * Extract the {@link Action} from the given {@link LogRecord}
    *
@@ -16,12 +16,16 @@
 package com.terracottatech.frs.action;
 
 import com.terracottatech.frs.DisposableLifecycle;
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.log.LogManager;
 import com.terracottatech.frs.log.LogRecord;
 import com.terracottatech.frs.log.LogRecordFactory;
 import com.terracottatech.frs.object.ObjectManager;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
@@ -87,6 +91,50 @@ public class ActionManagerImpl implements ActionManager {
     }
   }
 
+  @Override
+  public Future<Void> happenedAll(List<Action> actions, boolean sync) {
+    enterHappened();
+    try {
+      List<LogRecord> records = new ArrayList<LogRecord>(actions.size());
+      for (Action action : actions) {
+        records.add(wrapAction(action));
+      }
+      return logManager.appendAll(records, sync);
+    } finally {
+      exitHappened();
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> syncHappenedAsync(Action action) {
+    enterHappened();
+    try {
+      return logManager.appendAndSyncAsync(wrapAction(action));
+    } finally {
+      exitHappened();
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> happenedAsync(Action action) {
+    enterHappened();
+    try {
+      return logManager.appendAsync(wrapAction(action));
+    } finally {
+      exitHappened();
+    }
+  }
+
+  @Override
+  public CompletableFuture<Durability> happenedAsync(Action action, Durability durability) {
+    enterHappened();
+    try {
+      return logManager.appendAsync(wrapAction(action), durability);
+    } finally {
+      exitHappened();
+    }
+  }
+
   @Override
   public Action extract(LogRecord record) {
     Action a = actionCodec.decode(record.getPayload());
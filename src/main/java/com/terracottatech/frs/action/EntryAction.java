@@ -0,0 +1,39 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.action;
+
+/**
+ * An action that writes or removes a single map entry.  Entries are
+ * identified by a hash of their identifier and key so that recovery can
+ * follow the invalidation chain of one entry through records that carry
+ * many.
+ *
+ * @author mscott
+ */
+public interface EntryAction extends InvalidatingAction {
+  /**
+   * Invalidated lsn of an entry written while recovery was still replaying
+   * and had not reached the key.  The entry supersedes every older record of
+   * the key, whatever its lsn.
+   */
+  long UNRECOVERED = -2L;
+
+  long getEntryHash();
+
+  long getInvalidatedLsn();
+
+  boolean isRemove();
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.action;
+
+/**
+ * An action that writes many map entries under a single lsn.  Each entry
+ * invalidates its own previous lsn, so recovery may find some entries of the
+ * record dead while others are still live.
+ *
+ * @author mscott
+ */
+public interface MultiEntryAction extends InvalidatingAction {
+  int getEntryCount();
+
+  long getEntryHash(int entry);
+
+  long getInvalidatedLsn(int entry);
+
+  void skipEntry(int entry);
+
+  boolean isSkipped(int entry);
+
+  /**
+   * Some entries of this record were overwritten by newer records.  Live
+   * entries must then only be replayed over keys the newer records have not
+   * already restored.
+   */
+  void guardEntries();
+
+  int replayConcurrency(int entry);
+
+  void replayEntry(int entry, long lsn);
+}
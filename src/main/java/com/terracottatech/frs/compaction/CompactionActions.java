@@ -16,6 +16,8 @@
 package com.terracottatech.frs.compaction;
 
 import com.terracottatech.frs.PutAction;
+import com.terracottatech.frs.StreamedPutAction;
+import com.terracottatech.frs.StreamedValues;
 import com.terracottatech.frs.action.ActionCodec;
 
 import java.nio.ByteBuffer;
@@ -27,6 +29,12 @@ public abstract class CompactionActions {
   private CompactionActions() {}
 
   public static void registerActions(int id, ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> codec) {
+    registerActions(id, codec, null);
+  }
+
+  public static void registerActions(int id, ActionCodec<ByteBuffer, ByteBuffer, ByteBuffer> codec,
+                                     StreamedValues streams) {
     codec.registerAction(id, 0, CompactionAction.class, PutAction.FACTORY);
+    codec.registerAction(id, 1, StreamedCompactionAction.class, StreamedPutAction.factory(streams));
   }
 }
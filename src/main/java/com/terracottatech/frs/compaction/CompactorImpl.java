@@ -20,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.terracottatech.frs.RestartStoreException;
+import com.terracottatech.frs.StreamedValues;
 import com.terracottatech.frs.action.ActionManager;
 import com.terracottatech.frs.action.NullAction;
 import com.terracottatech.frs.config.Configuration;
@@ -29,6 +30,7 @@ import com.terracottatech.frs.object.ObjectManager;
 import com.terracottatech.frs.object.ObjectManagerEntry;
 import com.terracottatech.frs.transaction.TransactionManager;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -52,6 +54,7 @@ public class CompactorImpl implements Compactor {
   private final TransactionManager transactionManager;
   private final ActionManager actionManager;
   private final LogManager logManager;
+  private final StreamedValues streams;
   private final boolean useLimiting = !Boolean.getBoolean("frs.compactor.limiter.disable");
 
   private final Semaphore compactionCondition = new Semaphore(0);
@@ -71,7 +74,16 @@ public class CompactorImpl implements Compactor {
                 TransactionManager transactionManager, ActionManager actionManager, final LogManager logManager,
                 CompactionPolicy policy, long runIntervalSeconds, long retryIntervalSeconds,
                 long compactActionThrottle, int startThreshold) {
+    this(objectManager, transactionManager, actionManager, logManager, policy, runIntervalSeconds,
+         retryIntervalSeconds, compactActionThrottle, startThreshold, null);
+  }
+
+  CompactorImpl(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                TransactionManager transactionManager, ActionManager actionManager, final LogManager logManager,
+                CompactionPolicy policy, long runIntervalSeconds, long retryIntervalSeconds,
+                long compactActionThrottle, int startThreshold, StreamedValues streams) {
     this.objectManager = objectManager;
+    this.streams = streams;
     this.transactionManager = transactionManager;
     this.actionManager = actionManager;
     this.logManager = logManager;
@@ -85,20 +97,28 @@ public class CompactorImpl implements Compactor {
   public CompactorImpl(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
                        TransactionManager transactionManager, LogManager logManager,
                        IOManager ioManager, Configuration configuration, ActionManager actionManager) throws RestartStoreException {
+    this(objectManager, transactionManager, logManager, ioManager, configuration, actionManager, null);
+  }
+
+  public CompactorImpl(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                       TransactionManager transactionManager, LogManager logManager,
+                       IOManager ioManager, Configuration configuration, ActionManager actionManager,
+                       StreamedValues streams) throws RestartStoreException {
     this(objectManager, transactionManager, actionManager, logManager,
-         getPolicy(configuration, objectManager, logManager, ioManager),
+         getPolicy(configuration, objectManager, logManager, ioManager, streams),
          configuration.getLong(COMPACTOR_RUN_INTERVAL),
          configuration.getLong(COMPACTOR_RETRY_INTERVAL),
          configuration.getLong(COMPACTOR_THROTTLE_AMOUNT),
-         configuration.getInt(COMPACTOR_START_THRESHOLD));
+         configuration.getInt(COMPACTOR_START_THRESHOLD), streams);
   }
 
   private static CompactionPolicy getPolicy(Configuration configuration,
                                             ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
-                                            LogManager logManager, IOManager ioManager) throws RestartStoreException{
+                                            LogManager logManager, IOManager ioManager,
+                                            StreamedValues streams) throws RestartStoreException{
     String policy = configuration.getString(COMPACTOR_POLICY);
     if ("LSNGapCompactionPolicy".equals(policy)) {
-      return new LSNGapCompactionPolicy(objectManager, logManager, configuration);
+      return new LSNGapCompactionPolicy(objectManager, logManager, configuration, streams);
     } else if ("SizeBasedCompactionPolicy".equals(policy)) {
       return new SizeBasedCompactionPolicy(ioManager, objectManager, configuration);
     } else if ("LegacySizeBasedCompactionPolicy".equals(policy)) {
@@ -150,9 +170,10 @@ public class CompactorImpl implements Compactor {
           // If ObjectManager is empty, use the barrier lsn to invalidate the log
           
           NullAction barrier = new NullAction();
+          logManager.awaitBackgroundTurn();
           actionManager.happened(barrier).get();
           
-          long lowLsn = objectManager.getLowestLsn();
+          long lowLsn = lowestLsn();
           
           if ( lowLsn == Constants.ISEMPTY_LSN ) {
               lowLsn = barrier.getLsn();
@@ -169,6 +190,7 @@ public class CompactorImpl implements Compactor {
           logManager.updateLowestLsn(lowLsn);
 
           // Flush the new lowest LSN with a dummy record
+          logManager.awaitBackgroundTurn();
           actionManager.syncHappened(new NullAction()).get();
         } catch (InterruptedException e) {
           LOGGER.info("Compactor is interrupted. Shutting down.");
@@ -185,7 +207,7 @@ public class CompactorImpl implements Compactor {
     }
   }
 
-  private void compact() throws ExecutionException, InterruptedException {
+  private void compact() throws ExecutionException, InterruptedException, IOException {
     compactionCondition.drainPermits();
     long ceilingLsn = transactionManager.getLowestOpenTransactionLsn();
     long liveSize = objectManager.size();
@@ -193,18 +215,20 @@ public class CompactorImpl implements Compactor {
     long baseLsn = logManager.lowestLsn();
     long startTime = System.currentTimeMillis();
 
+     //  multi-put records hold many live entries under one lsn, so the live
+     //  count can exceed the lsn range
      long rangeLsn = (logManager.currentLsn() - baseLsn - liveSize)/1000L;
-     if ( rangeLsn == 0 ) {
+     if ( rangeLsn <= 0 ) {
        rangeLsn = 1;
      }
-     if ( rangeLsn < 0 ) {
-       throw new AssertionError("not all LSNs accounted for");
-     }
      long startLsn = 0;
      long lastLsn = 0;
  
       LOGGER.debug("range is " + rangeLsn + " ceiling:" + ceilingLsn + " base:" + baseLsn + " live:" + liveSize);
       while (compactedCount < liveSize && !signalPause) {
+        // Take a background turn before the compaction entry, the entry holds a
+        // segment lock foreground writers may be waiting on.
+        logManager.awaitBackgroundTurn();
         ObjectManagerEntry<ByteBuffer, ByteBuffer, ByteBuffer> compactionEntry = objectManager.acquireCompactionEntry((useLimiting)?baseLsn + rangeLsn:ceilingLsn);
         if (compactionEntry == null) {
           if (useLimiting && baseLsn + rangeLsn <= Math.min(logManager.currentLsn(), ceilingLsn) ) {
@@ -222,8 +246,11 @@ public class CompactorImpl implements Compactor {
         compactedCount++;
         Future<Void> written;
         try {
-          CompactionAction compactionAction =
-                  new CompactionAction(objectManager, compactionEntry);
+          long[] chunks = (streams == null) ? null : streams.chunksOf(compactionEntry.getLsn());
+          CompactionAction compactionAction = (chunks == null) ?
+                  new CompactionAction(objectManager, compactionEntry) :
+                  new StreamedCompactionAction(objectManager, compactionEntry, streams,
+                                               streams.copy(actionManager, chunks));
           written = actionManager.happened(compactionAction);
           // We can't update the object manager on Action.record() because the compactor
           // is holding onto the segment lock. Since we want to wait for the action to be
@@ -246,7 +273,7 @@ public class CompactorImpl implements Compactor {
           // While we're waiting, might as well update the lowest lsn so compaction provides continuous benefit.
           written.get();
           written = null;
-          logManager.updateLowestLsn(objectManager.getLowestLsn());
+          logManager.updateLowestLsn(lowestLsn());
         }
       }
       LOGGER.debug("compaction base lsn:" + baseLsn + " start lsn:" + baseLsn + " end lsn:" + lastLsn + " live size:" + liveSize);
@@ -254,6 +281,12 @@ public class CompactorImpl implements Compactor {
     }
   }
 
+  //  streamed values keep their chunks below the lsn the object manager knows
+  private long lowestLsn() {
+    long lowest = objectManager.getLowestLsn();
+    return (streams == null) ? lowest : streams.lowestLsn(lowest);
+  }
+
   @Override
   public void generatedGarbage(long lsn) {
     try {
@@ -15,6 +15,7 @@
  */
 package com.terracottatech.frs.compaction;
 
+import com.terracottatech.frs.StreamedValues;
 import com.terracottatech.frs.config.Configuration;
 import com.terracottatech.frs.log.LogManager;
 import com.terracottatech.frs.object.ObjectManager;
@@ -35,6 +36,7 @@ public class LSNGapCompactionPolicy implements CompactionPolicy {
   
   private final ObjectManager<?, ?, ?> objectManager;
   private final LogManager logManager;
+  private final StreamedValues streams;
   private final double minLoad;
   private final double maxLoad;
   private final int windowSize;
@@ -47,7 +49,13 @@ public class LSNGapCompactionPolicy implements CompactionPolicy {
 
   public LSNGapCompactionPolicy(ObjectManager<?, ?, ?> objectManager, LogManager logManager,
                                 Configuration configuration) {
+    this(objectManager, logManager, configuration, null);
+  }
+
+  public LSNGapCompactionPolicy(ObjectManager<?, ?, ?> objectManager, LogManager logManager,
+                                Configuration configuration, StreamedValues streams) {
     this.objectManager = objectManager;
+    this.streams = streams;
     this.logManager = logManager;
     this.minLoad = configuration.getDouble(COMPACTOR_LSNGAP_MIN_LOAD);
     this.maxLoad = configuration.getDouble(COMPACTOR_LSNGAP_MAX_LOAD);
@@ -63,7 +71,7 @@ public class LSNGapCompactionPolicy implements CompactionPolicy {
     if (isCompacting) {
       throw new IllegalStateException("Compaction is already started.");
     }
-    liveSize = objectManager.size();
+    liveSize = objectManager.size() + (streams == null ? 0 : streams.pinnedChunks());
     currentLsn = logManager.currentLsn();
     long lowestLsn = objectManager.getLowestLsn();
     float ratio = calculateRatio(liveSize, currentLsn - lowestLsn);
@@ -103,7 +111,8 @@ public class LSNGapCompactionPolicy implements CompactionPolicy {
     } else {
       if (++windowCount >= windowSize) {
         long officialLowestLsn = objectManager.getLowestLsn();
-        logManager.updateLowestLsn(officialLowestLsn); // might as well send it through to the log manager.
+        // might as well send it through to the log manager, below any pinned chunks of streamed values.
+        logManager.updateLowestLsn(streams == null ? officialLowestLsn : streams.lowestLsn(officialLowestLsn));
         estimatedRatio = estimateRatio(officialLowestLsn);
         if (estimatedRatio <= maxLoad) {
           windowCount = 0;
@@ -0,0 +1,59 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.compaction;
+
+import com.terracottatech.frs.StreamedPutAction;
+import com.terracottatech.frs.StreamedValues;
+import com.terracottatech.frs.action.ActionCodec;
+import com.terracottatech.frs.object.ObjectManager;
+import com.terracottatech.frs.object.ObjectManagerEntry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compaction of a streamed value.  The chunks are copied forward first, this 
+ * record then takes the place of the old head and reads back as a 
+ * {@link StreamedPutAction}.
+ *
+ * @author mscott
+ */
+class StreamedCompactionAction extends CompactionAction {
+  private final StreamedValues streams;
+  private final long fromLsn;
+  private final long length;
+  private final long[] chunks;
+
+  StreamedCompactionAction(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager,
+                           ObjectManagerEntry<ByteBuffer, ByteBuffer, ByteBuffer> entry, StreamedValues streams,
+                           long[] chunks) {
+    super(objectManager, entry);
+    this.streams = streams;
+    this.fromLsn = entry.getLsn();
+    this.length = streams.lengthOf(fromLsn);
+    this.chunks = chunks;
+  }
+
+  @Override
+  public void record(long lsn) {
+    streams.moved(fromLsn, lsn, chunks);
+    super.record(lsn);
+  }
+
+  @Override
+  public ByteBuffer[] getPayload(ActionCodec codec) {
+    return StreamedPutAction.payload(getIdentifier(), getKey(), length, getInvalidatedLsn(), chunks);
+  }
+}
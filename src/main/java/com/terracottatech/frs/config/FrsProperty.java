@@ -20,11 +20,25 @@ public enum FrsProperty {
   IO_RANDOM_ACCESS("io.randomAccess", Type.BOOLEAN, false),
   IO_COMMIT_QUEUE_SIZE("io.commitQueueSize", Type.INTEGER, 1024),
   IO_RECOVERY_QUEUE_SIZE("io.recoveryQueueSize", Type.INTEGER, 16),
+  IO_RECOVERY_READ_AHEAD("io.recoveryReadAhead", Type.LONG, 0L),
+  IO_RECOVERY_PREFETCH_SEGMENTS("io.recoveryPrefetchSegments", Type.INTEGER, 4),
   IO_COMMITLIST("io.commitList", Type.STRING, "ATOMIC"),
+  IO_COMMITLIST_WAIT_STRATEGY("io.commitList.waitStrategy", Type.STRING, "PARK"),
   IO_WAIT("io.wait", Type.INTEGER, 200),
+  IO_PACKING_THREADS("io.packingThreads", Type.INTEGER, 0),
+  IO_COMPLETION_THREADS("io.completionThreads", Type.INTEGER, 2),
   IO_DISABLE_SYNC("io.disableSync", Type.BOOLEAN, false),
+  IO_GROUP_COMMIT_LATENCY_TARGET("io.groupCommit.latencyTarget", Type.LONG, 0L),
+  IO_ADMISSION_BUDGET("io.admission.budget", Type.LONG, 0L),
+  IO_ADMISSION_LOW_WATERMARK("io.admission.lowWatermark", Type.DOUBLE, 0.75),
+  IO_ADMISSION_POLICY("io.admission.policy", Type.STRING, "BLOCK"),
+  IO_ADMISSION_TIMEOUT("io.admission.timeout", Type.LONG, 1000L),
+  IO_BACKGROUND_YIELD("io.background.yield", Type.BOOLEAN, false),
+  IO_BACKGROUND_MIN_SHARE("io.background.minShare", Type.DOUBLE, 0.10),
   
   IO_NIO_SEGMENT_SIZE("io.nio.segmentSize", Type.LONG, 512L * 1024 * 1024),
+  IO_NIO_SEGMENT_PREALLOCATE("io.nio.segmentPreallocate", Type.BOOLEAN, false),
+  IO_NIO_SEGMENT_RECYCLE("io.nio.segmentRecycle", Type.INTEGER, 2),
   IO_NIO_RECOVERY_MEMORY_SIZE("io.nio.recoveryMemorySize", Type.LONG, -1L),
   IO_NIO_POOL_MEMORY_SIZE("io.nio.memorySize", Type.LONG, 64L * 1024 * 1024),
   IO_NIO_RANDOM_ACCESS_MEMORY_SIZE("io.nio.randomAccessMemorySize", Type.LONG, -1L),
@@ -33,10 +47,20 @@ public enum FrsProperty {
   IO_NIO_BUFFER_BUILDER("io.nio.bufferBuilder", Type.STRING, null),
   IO_NIO_ACCESS_METHOD("io.nio.accessMethod", Type.STRING, "STREAM"),
   IO_NIO_BUFFER_SOURCE("io.nio.bufferSource", Type.STRING, "HILO"),
+  IO_NIO_GATHER_WRITES("io.nio.gatherWrites", Type.BOOLEAN, false),
+  IO_NIO_PIPELINED_SYNC("io.nio.pipelinedSync", Type.BOOLEAN, false),
+  IO_NIO_DIRECT_WRITES("io.nio.directWrites", Type.BOOLEAN, false),
+  IO_NIO_DIRECT_BLOCK_SIZE("io.nio.directBlockSize", Type.INTEGER, 4096),
+  IO_NIO_MAPPED_WRITES("io.nio.mappedWrites", Type.BOOLEAN, false),
+  IO_NIO_LANES("io.nio.lanes", Type.STRING, null),
   
   RECOVERY_COMPRESSED_SKIP_SET("recovery.compressedSkipSet", Type.BOOLEAN, true),
+  //  replay threads each queue up to replayPerBatchSize records, with at most
+  //  replayTotalBatchSize outstanding across all of them
   RECOVERY_REPLAY_PER_BATCH_SIZE("recovery.replayPerBatchSize", Type.INTEGER, 512),
   RECOVERY_REPLAY_TOTAL_BATCH_SIZE_MAX("recovery.replayTotalBatchSize", Type.INTEGER, 2048),
+  //  take writes once the log tail is found, replay continues in the background
+  RECOVERY_EARLY_AVAILABILITY("recovery.earlyAvailability", Type.BOOLEAN, false),
   
   COMPACTOR_POLICY("compactor.policy", Type.STRING, "SizeBasedCompactionPolicy"),
   COMPACTOR_THROTTLE_AMOUNT("compactor.throttleAmount", Type.LONG,  1000L),
@@ -52,8 +76,24 @@ public enum FrsProperty {
   COMPACTOR_SIZEBASED_AMOUNT("compactor.sizeBased.amount", Type.DOUBLE, 0.05),
 
   STORE_MAX_PAUSE_TIME_IN_MILLIS("store.maxPauseTimeInMillis", Type.INTEGER, 1000),
+  //  log the puts of a transaction as one multi-put record at commit, values
+  //  are then no longer readable by lsn through RestartStore.get
+  STORE_BATCH_TRANSACTION_PUTS("store.batchTransactionPuts", Type.BOOLEAN, false),
+  //  largest chunk record of a value streamed into the log
+  STORE_STREAM_CHUNK_SIZE("store.streamChunkSize", Type.INTEGER, 256 * 1024),
 
-  FORCE_LOG_REGION_FORMAT("log.forceRegionFormat", Type.STRING, "FILE");
+  //  write an image of the live entries next to the log at shutdown and every
+  //  interval seconds (0 for shutdown only), recovery then replays the image
+  //  and only the log written after it.  not available on a shared log
+  CHECKPOINT_ENABLED("checkpoint.enabled", Type.BOOLEAN, false),
+  CHECKPOINT_INTERVAL("checkpoint.interval", Type.LONG, 0L),
+  CHECKPOINT_READERS("checkpoint.readers", Type.INTEGER, 4),
+
+  FORCE_LOG_REGION_FORMAT("log.forceRegionFormat", Type.STRING, "FILE"),
+  LOG_COMPRESS_REGIONS("log.compressRegions", Type.BOOLEAN, false),
+  //  records held per store while a shared log is recovered, past this only
+  //  the lsn is kept and the record read again
+  LOG_SHARED_RECOVERY_BUFFER("log.shared.recoveryBuffer", Type.INTEGER, 4096);
 
   private static final String SYSTEM_PROPERTY_PREFIX = "com.tc.frs.";
 
@@ -170,6 +170,21 @@ public class FileBuffer extends AbstractChunk implements Closeable {
         return lt;
     }    
 
+    //  hand the whole list to the channel in as few gathering writes as it will take
+    public long gather(ByteBuffer... list) throws IOException {
+        long goal = 0;
+        for (ByteBuffer b : list) {
+            goal += b.remaining();
+        }
+        long lt = 0;
+        while (lt < goal) {
+            lt += channel.write(list);
+        }
+        offset = channel.position();
+        total += lt;
+        return lt;
+    }
+
     private ByteBuffer coalesce(ByteBuffer scratch, ByteBuffer[] list, int start, int count) {
 //  use the remaining buffer space as scratch space for small buffer aggregation and
 //  making sure the memory is direct memory
@@ -0,0 +1,68 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import com.terracottatech.frs.io.BufferSource;
+import com.terracottatech.frs.io.FileBuffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * File buffer over a {@link DirectWriteChannel}.  Each write call, however 
+ * many buffers it hands the channel, reaches the disk as one aligned write.
+ *
+ * @author mscott
+ */
+class DirectFileBuffer extends FileBuffer {
+  
+    private final DirectWriteChannel writer;
+
+    DirectFileBuffer(DirectWriteChannel channel, BufferSource src, int size) throws IOException {
+        super(channel, src, size);
+        this.writer = channel;
+    }
+
+    @Override
+    public long write(int count) throws IOException {
+        writer.hold();
+        try {
+            return super.write(count);
+        } finally {
+            writer.release();
+        }
+    }
+
+    @Override
+    public long writeFully(ByteBuffer buffer) throws IOException {
+        writer.hold();
+        try {
+            return super.writeFully(buffer);
+        } finally {
+            writer.release();
+        }
+    }
+
+    @Override
+    public long gather(ByteBuffer... list) throws IOException {
+        writer.hold();
+        try {
+            return super.gather(list);
+        } finally {
+            writer.release();
+        }
+    }
+}
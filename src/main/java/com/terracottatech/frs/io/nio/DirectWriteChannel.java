@@ -0,0 +1,327 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import com.terracottatech.frs.io.BufferSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A segment channel whose writes bypass the page cache.  Appends are staged in 
+ * an aligned direct buffer and handed to a second channel opened with 
+ * O_DIRECT as whole blocks at block aligned offsets.  A partial tail block is 
+ * written zero padded and kept staged so the next append rewrites it in place.
+ * The bytes past the logical end are therefore zeros, the same tail a 
+ * preallocated segment has, and the readers stop on them the same way.
+ * <p>
+ * Rewriting the tail block means bytes that were already forced are written 
+ * again with every append that lands in the same block.  A torn write of 
+ * that block can lose them, just as a torn page written back from the page 
+ * cache can on the buffered path.  The block size should therefore be the 
+ * device's atomic write unit, its physical sector, so a block either 
+ * reaches the media whole or not at all.
+ * <p>
+ * Reads, positioning, size, truncate and force go to the ordinary channel.
+ * Writes inside a {@link #hold()} are only staged, the staged blocks go out 
+ * when the last hold is released.  Only the appending thread touches the 
+ * stage, {@link #force(boolean)} may be called from another thread while it 
+ * appends and covers whatever was written before the call.
+ *
+ * @author mscott
+ */
+class DirectWriteChannel extends FileChannel {
+  
+    private static final byte[] ZEROS = new byte[64 * 1024];
+  
+    private final FileChannel buffered;
+    private final FileChannel direct;
+    private final BufferSource source;
+    private final ByteBuffer raw;
+    private final ByteBuffer stage;
+    private final int block;
+    private long stageStart = -1;
+    private boolean dirty = false;
+    private int holds = 0;
+
+    DirectWriteChannel(FileChannel buffered, FileChannel direct, BufferSource source, int size, int block) throws IOException {
+        if ( block <= 0 || Integer.bitCount(block) != 1 || block > ZEROS.length ) {
+            throw new IllegalArgumentException("block size must be a power of two no larger than " + ZEROS.length);
+        }
+        this.buffered = buffered;
+        this.direct = direct;
+        this.block = block;
+        size = Math.max(block, size - (size % block));
+        ByteBuffer pooled = ( source != null ) ? source.getBuffer(size + block) : null;
+        if ( pooled != null && !pooled.isDirect() ) {
+            source.returnBuffer(pooled);
+            pooled = null;
+        }
+        if ( pooled == null ) {
+            this.source = null;
+            this.raw = ByteBuffer.allocateDirect(size + block);
+        } else {
+            this.source = source;
+            this.raw = pooled;
+        }
+        ByteBuffer aligned = alignedSlice(raw.duplicate(), block);
+        aligned.limit(size);
+        this.stage = aligned.slice();
+    }
+    
+    //  the write half of the pair, null if the platform cannot open files with O_DIRECT
+    static FileChannel openDirect(File file) throws IOException {
+        OpenOption option = directOption();
+        if ( option == null ) {
+            return null;
+        }
+        try {
+            return FileChannel.open(file.toPath(), StandardOpenOption.WRITE, option);
+        } catch ( UnsupportedOperationException unsupported ) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static OpenOption directOption() {
+        try {
+            Class ext = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+            return (OpenOption)Enum.valueOf(ext, "DIRECT");
+        } catch ( ClassNotFoundException notfound ) {
+            return null;
+        } catch ( IllegalArgumentException noconstant ) {
+            return null;
+        }
+    }
+    
+    private static ByteBuffer alignedSlice(ByteBuffer buffer, int block) throws IOException {
+        try {
+            Method slice = ByteBuffer.class.getMethod("alignedSlice", int.class);
+            return (ByteBuffer)slice.invoke(buffer, block);
+        } catch ( Exception e ) {
+            throw new IOException("aligned buffers are not available", e);
+        }
+    }
+    
+    void hold() {
+        holds += 1;
+    }
+    
+    void release() throws IOException {
+        if ( --holds == 0 ) {
+            flush();
+        }
+    }
+    
+    private long stageEnd() {
+        return stageStart + stage.position();
+    }
+
+    //  make the stage end at pos, staging the head of pos's block from the file
+    private void seek(long pos) throws IOException {
+        if ( stageStart >= 0 && stageEnd() == pos ) {
+            return;
+        }
+        flush();
+        stageStart = pos - (pos % block);
+        stage.clear();
+        stage.limit((int)(pos - stageStart));
+        while ( stage.hasRemaining() ) {
+            if ( buffered.read(stage, stageEnd()) < 0 ) {
+                stage.put(ZEROS, 0, stage.remaining());
+            }
+        }
+        stage.limit(stage.capacity());
+    }
+    
+    private void writeStage(int length) throws IOException {
+        ByteBuffer out = stage.duplicate();
+        out.position(0).limit(length);
+        long at = stageStart;
+        while ( out.hasRemaining() ) {
+            at += direct.write(out, at);
+        }
+    }
+
+    //  write out the stage, a partial tail block zero padded, and keep only that
+    //  tail block staged
+    private void flush() throws IOException {
+        if ( !dirty ) {
+            return;
+        }
+        int used = stage.position();
+        int tail = used % block;
+        int padded = ( tail == 0 ) ? used : used - tail + block;
+        stage.put(ZEROS, 0, padded - used);
+        writeStage(padded);
+        int full = used - tail;
+        ByteBuffer keep = stage.duplicate();
+        keep.position(full).limit(used);
+        stage.clear();
+        stage.put(keep);
+        stageStart += full;
+        dirty = false;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        return (int)write(new ByteBuffer[] {src}, 0, 1);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long pos = buffered.position();
+        seek(pos);
+        long total = 0;
+        for (int x = offset; x < offset + length; x++) {
+            ByteBuffer src = srcs[x];
+            while ( src.hasRemaining() ) {
+                if ( !stage.hasRemaining() ) {
+                    writeStage(stage.capacity());
+                    stageStart += stage.capacity();
+                    stage.clear();
+                }
+                int move = Math.min(src.remaining(), stage.remaining());
+                ByteBuffer part = src.duplicate();
+                part.limit(part.position() + move);
+                stage.put(part);
+                src.position(src.position() + move);
+                total += move;
+                dirty = true;
+            }
+        }
+        buffered.position(pos + total);
+        if ( holds == 0 ) {
+            flush();
+        }
+        return total;
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+        long pos = buffered.position();
+        buffered.position(position);
+        try {
+            return write(src);
+        } finally {
+            buffered.position(pos);
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        flush();
+        return buffered.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        flush();
+        return buffered.read(dsts, offset, length);
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        flush();
+        return buffered.read(dst, position);
+    }
+
+    @Override
+    public long position() throws IOException {
+        return buffered.position();
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+        buffered.position(newPosition);
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        flush();
+        return buffered.size();
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+        flush();
+        buffered.truncate(size);
+        stageStart = -1;
+        return this;
+    }
+
+    //  no flush, the stage belongs to the appending thread and outside a hold 
+    //  it has already been written.  a pipelined sync forces from its own thread
+    @Override
+    public void force(boolean metaData) throws IOException {
+        buffered.force(metaData);
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        flush();
+        return buffered.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        flush();
+        stageStart = -1;
+        return buffered.transferFrom(src, position, count);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+        flush();
+        return buffered.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+        return buffered.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        return buffered.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        try {
+            flush();
+        } finally {
+            try {
+                direct.close();
+            } finally {
+                buffered.close();
+                if ( source != null ) {
+                    source.returnBuffer(raw);
+                }
+            }
+        }
+    }
+}
@@ -40,10 +40,18 @@ public class IntegrityReadbackStrategy extends AbstractReadbackStrategy {
     private boolean primed = false;
     private boolean done = false;
     private int exitStatus;
+    private final long markerLimit;
     
 
     public IntegrityReadbackStrategy(FileBuffer src) {
+        this(src, Long.MAX_VALUE);
+    }
+    
+    //  stop at the first chunk whose marker is above the limit, that chunk and 
+    //  everything after it is treated as if it was never written
+    public IntegrityReadbackStrategy(FileBuffer src, long markerLimit) {
         buffer = src;
+        this.markerLimit = markerLimit;
     }
 
     public FileBuffer getFileBuffer() {
@@ -106,7 +114,12 @@ public class IntegrityReadbackStrategy extends AbstractReadbackStrategy {
                 if (clen != size) {
                     throw new IOException("inconsistent");
                 }
-                lastMarker = buffer.getLong();
+                long marker = buffer.getLong();
+                if (marker > markerLimit) {
+                    done = true;
+                    return null;
+                }
+                lastMarker = marker;
                 if (SegmentHeaders.FILE_CHUNK.validate(buffer.getInt())) {
                     lastGood = buffer.position();
                 }
@@ -0,0 +1,282 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A segment channel that appends by copying into a read-write mapping of the 
+ * segment region and forces only the range dirtied since the last force.  
+ * Small frequent appends cost a memory copy rather than a write call.  The 
+ * mapping shares the page cache with every other reader of the file, so 
+ * random access readers see the tail as soon as it is copied in.
+ * <p>
+ * Bytes past the end of the mapping, the tail of a chunk that overruns the 
+ * segment size, go through the channel.  A truncate forces and drops the 
+ * mapping, everything after it goes through the channel.
+ * <p>
+ * With a pipelined sync force is called from the fsync helper while the 
+ * appending thread keeps copying in.  The dirty range and the spilled flag are 
+ * swapped out under a lock and only that snapshot is forced, anything dirtied 
+ * while the force runs is left for the next one.
+ *
+ * @author mscott
+ */
+class MappedWriteChannel extends FileChannel {
+  
+    private static final Method FORCE_RANGE = forceRange();
+  
+    private final FileChannel channel;
+    private final Object dirty = new Object();
+    private volatile MappedByteBuffer mapping;
+    private long position = 0;
+    //  guarded by dirty
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo = 0;
+    private boolean spilled = false;
+
+    MappedWriteChannel(FileChannel channel, long size) throws IOException {
+        this.channel = channel;
+        this.mapping = channel.map(MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+    }
+    
+    //  MappedByteBuffer.force(int, int) arrived in 13, force the whole mapping before that
+    private static Method forceRange() {
+        try {
+            return MappedByteBuffer.class.getMethod("force", int.class, int.class);
+        } catch ( NoSuchMethodException nsm ) {
+            return null;
+        }
+    }
+    
+    private int copyIn(ByteBuffer src) {
+        if ( mapping == null || position >= mapping.capacity() ) {
+            return 0;
+        }
+        int at = (int)position;
+        int move = (int)Math.min(src.remaining(), mapping.capacity() - position);
+        ByteBuffer part = src.duplicate();
+        part.limit(part.position() + move);
+        ByteBuffer target = mapping.duplicate();
+        target.position(at);
+        target.put(part);
+        src.position(src.position() + move);
+        synchronized (dirty) {
+            dirtyFrom = Math.min(dirtyFrom, at);
+            dirtyTo = Math.max(dirtyTo, at + move);
+        }
+        return move;
+    }
+    
+    private void forceMapping() throws IOException {
+        MappedByteBuffer target;
+        int from;
+        int to;
+        synchronized (dirty) {
+            target = mapping;
+            from = dirtyFrom;
+            to = dirtyTo;
+            if ( target == null || to <= from ) {
+                return;
+            }
+            dirtyFrom = Integer.MAX_VALUE;
+            dirtyTo = 0;
+        }
+        try {
+            forceMapped(target, from, to);
+        } catch ( IOException ioe ) {
+            //  put the range back so a retry forces it
+            synchronized (dirty) {
+                dirtyFrom = Math.min(dirtyFrom, from);
+                dirtyTo = Math.max(dirtyTo, to);
+            }
+            throw ioe;
+        }
+    }
+    
+    void forceMapped(MappedByteBuffer target, int from, int to) throws IOException {
+        if ( FORCE_RANGE != null ) {
+            try {
+                FORCE_RANGE.invoke(target, from, to - from);
+            } catch ( Exception e ) {
+                throw new IOException(e);
+            }
+        } else {
+            target.force();
+        }
+    }
+    
+    private void spilled() {
+        synchronized (dirty) {
+            spilled = true;
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int total = copyIn(src);
+        while ( src.hasRemaining() ) {
+            total += channel.write(src, position + total);
+            spilled();
+        }
+        position += total;
+        return total;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long total = 0;
+        for (int x = offset; x < offset + length; x++) {
+            total += write(srcs[x]);
+        }
+        return total;
+    }
+
+    @Override
+    public int write(ByteBuffer src, long at) throws IOException {
+        long pos = position;
+        position = at;
+        try {
+            return write(src);
+        } finally {
+            position = pos;
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int read = channel.read(dst, position);
+        if ( read > 0 ) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        long total = 0;
+        for (int x = offset; x < offset + length; x++) {
+            while ( dsts[x].hasRemaining() ) {
+                int read = read(dsts[x]);
+                if ( read < 0 ) {
+                    return ( total == 0 ) ? -1 : total;
+                } else if ( read == 0 ) {
+                    return total;
+                }
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long at) throws IOException {
+        return channel.read(dst, at);
+    }
+
+    @Override
+    public long position() throws IOException {
+        return position;
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+        forceMapping();
+        mapping = null;
+        channel.truncate(size);
+        if ( position > size ) {
+            position = size;
+        }
+        return this;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+        forceMapping();
+        boolean was;
+        synchronized (dirty) {
+            was = spilled;
+            spilled = false;
+        }
+        if ( was || metaData ) {
+            try {
+                channel.force(metaData);
+            } catch ( IOException ioe ) {
+                if ( was ) {
+                    spilled();
+                }
+                throw ioe;
+            }
+        }
+    }
+
+    @Override
+    public long transferTo(long at, long count, WritableByteChannel target) throws IOException {
+        return channel.transferTo(at, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long at, long count) throws IOException {
+        try {
+            return channel.transferFrom(src, at, count);
+        } finally {
+            spilled();
+        }
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long at, long size) throws IOException {
+        return channel.map(mode, at, size);
+    }
+
+    @Override
+    public FileLock lock(long at, long size, boolean shared) throws IOException {
+        return channel.lock(at, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long at, long size, boolean shared) throws IOException {
+        return channel.tryLock(at, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        try {
+            forceMapping();
+        } finally {
+            mapping = null;
+            channel.close();
+        }
+    }
+}
@@ -102,7 +102,11 @@ public class NIOManager implements IOManager {
     }
     
     public NIOManager(Configuration config, BufferSource writer) throws IOException {
-        this(config.getDBHome().getAbsolutePath(),
+        this(config.getDBHome(), config, writer);
+    }
+
+    public NIOManager(File home, Configuration config, BufferSource writer) throws IOException {
+        this(home.getAbsolutePath(),
             config.getString(FrsProperty.IO_NIO_ACCESS_METHOD),
             config.getString(FrsProperty.IO_NIO_BUFFER_SOURCE),
             config.getLong(FrsProperty.IO_NIO_SEGMENT_SIZE),
@@ -133,6 +137,31 @@ public class NIOManager implements IOManager {
         if ( config.getBoolean(FrsProperty.IO_DISABLE_SYNC) ) {
           this.backend.disableSync(true);
         }
+        
+        if ( config.getBoolean(FrsProperty.IO_NIO_GATHER_WRITES) ) {
+          this.backend.useGatherWrites(true);
+        }
+        
+        if ( config.getBoolean(FrsProperty.IO_NIO_DIRECT_WRITES) ) {
+          this.backend.useDirectWrites(config.getInt(FrsProperty.IO_NIO_DIRECT_BLOCK_SIZE));
+        }
+        
+        if ( config.getBoolean(FrsProperty.IO_NIO_MAPPED_WRITES) ) {
+          this.backend.useMappedWrites(true);
+        }
+        
+        if ( config.getBoolean(FrsProperty.IO_NIO_PIPELINED_SYNC) ) {
+          this.backend.usePipelinedSync(true);
+        }
+        
+        long readAhead = config.getLong(FrsProperty.IO_RECOVERY_READ_AHEAD);
+        if ( readAhead > 0 ) {
+          this.backend.useReadAhead(readAhead, config.getInt(FrsProperty.IO_RECOVERY_PREFETCH_SEGMENTS));
+        }
+        
+        if ( config.getBoolean(FrsProperty.IO_NIO_SEGMENT_PREALLOCATE) ) {
+          this.backend.preallocateSegments(config.getInt(FrsProperty.IO_NIO_SEGMENT_RECYCLE));
+        }
     }
 // for tests
     void setBufferBuilder(BufferBuilder builder) {
@@ -194,6 +223,22 @@ public class NIOManager implements IOManager {
         long pos = backend.sync();
     }
     
+    //  syncs are forced on a helper thread, see waitForSync
+    public boolean isPipelinedSync() {
+        return backend != null && backend.isPipelinedSync();
+    }
+    
+    /**
+     * When sync is pipelined {@link #sync()} only queues the request, a writer 
+     * that needs durability waits here for the marker to reach disk.
+     */
+    public void waitForSync(long marker) throws IOException, InterruptedException {
+        if (backend == null) {
+            throw new IOException("stream is closed");
+        }
+        backend.waitForSyncOf(marker);
+    }
+    
     @Override
     public long seek(long marker) throws IOException {
         if (backend == null) {
@@ -253,6 +298,36 @@ public class NIOManager implements IOManager {
         }
     }
     
+    //  non-blocking scan used by the striped log, the marker may live in another lane
+    Chunk probe(long marker) throws IOException {
+        if (backend == null) {
+            throw new IOException("stream is closed");
+        }
+        if ( marker > backend.getMarker() ) {
+            return null;
+        }
+        if ( reader == null ) {
+            this.reader = backend.createRandomAccess(getRandomAccessBufferSource());
+        }
+        return this.reader.scan(marker);
+    }
+
+    void truncate(long marker) throws IOException {
+        if (backend == null) {
+            throw new IOException("stream is closed");
+        }
+        backend.truncate(marker);
+    }
+
+    //  closes the current segment so the returned file list is stable
+    synchronized Snapshot snapshot() throws IOException {
+        if (backend == null) {
+            throw new IOException("stream is closed");
+        }
+        backend.closeCurrentSegment();
+        return new NIOSnapshot();
+    }
+
     @Override
     public Chunk read(Direction dir) throws IOException {         
         if (backend == null) {
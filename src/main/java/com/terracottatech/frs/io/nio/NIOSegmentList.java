@@ -34,6 +34,7 @@ class NIOSegmentList implements Iterable<File> {
     private int                           position;
     private int                           segmentId;
     private long                           cachedTotalSize; 
+    private SegmentAllocator               allocator;
     private static final Logger LOGGER = LoggerFactory.getLogger(NIOSegmentList.class);
 
     NIOSegmentList(File directory) throws IOException {
@@ -63,6 +64,11 @@ class NIOSegmentList implements Iterable<File> {
         return size;
     }
     
+    //  segments trimmed from the tail are offered to the allocator before being deleted
+    synchronized void recycleWith(SegmentAllocator allocator) {
+        this.allocator = allocator;
+    }
+    
     synchronized File appendFile() throws IOException {
         int seg = segmentId + segments.size();
         
@@ -122,6 +128,10 @@ class NIOSegmentList implements Iterable<File> {
         while ( count < position ) {
             File f = segments.remove(0);
             size += f.length();
+            if ( allocator != null && allocator.recycle(f) ) {
+                count++;
+                continue;
+            }
             if ( !f.delete() ) {
                 size -= f.length();
                 segments.add(0,f);
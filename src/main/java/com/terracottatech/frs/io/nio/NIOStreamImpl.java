@@ -26,6 +26,7 @@ import com.terracottatech.frs.io.HeapBufferSource;
 import com.terracottatech.frs.io.IOManager;
 import com.terracottatech.frs.io.Stream;
 import com.terracottatech.frs.util.Log2LatencyBins;
+import com.terracottatech.frs.util.LsnWatermark;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,7 +41,8 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.Exchanger;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BooleanSupplier;
@@ -66,19 +68,25 @@ class NIOStreamImpl implements Stream {
     private final long segmentSize;
     
     private boolean syncDisabled = false;
+    private boolean gatherWrites = false;
+    private int directBlockSize = 0;
+    private boolean mappedWrites = false;
 
     private UUID streamId;
     private volatile long lowestMarker = Constants.GENESIS_LSN;
     private volatile long lowestMarkerOnDisk = 0;
-    private volatile long fsyncdMarker = 0;
-    private volatile long currentMarker = Constants.GENESIS_LSN;  //  init lsn is 100
-    private int  markerWaiters = 0;
+    private final LsnWatermark fsyncdMarker = new LsnWatermark(0);
+    private final LsnWatermark currentMarker = new LsnWatermark(Constants.GENESIS_LSN);  //  init lsn is 100
     private WritingSegment writeHead;
     private ReadOnlySegment readHead;
     private long offset = 0;
     private final BufferSource filePool;
     private BufferSource replayPool;
+    private SegmentPrefetcher prefetcher;
+    private long readAheadBytes = 0;
+    private int readAheadSegments = 1;
     private FSyncer syncer;
+    private SegmentAllocator allocator;
     private volatile boolean closed = false;
     private BufferBuilder createBuffer;
     private final NIOAccessMethod method;
@@ -165,6 +173,72 @@ class NIOStreamImpl implements Stream {
       syncDisabled = disabled;
     }
     
+    void useGatherWrites(boolean gather) {
+      gatherWrites = gather;
+    }
+    
+    boolean isGatherWrites() {
+      return gatherWrites;
+    }
+    
+    //  segment appends bypass the page cache, written as whole blocks of blockSize
+    void useDirectWrites(int blockSize) {
+      directBlockSize = blockSize;
+    }
+    
+    boolean isDirectWrites() {
+      return directBlockSize > 0;
+    }
+    
+    //  new segments are appended to through a mapping of the whole segment region
+    void useMappedWrites(boolean mapped) {
+      mappedWrites = mapped;
+    }
+    
+    boolean isMappedWrites() {
+      return mappedWrites;
+    }
+    
+    //  syncs are handed to a helper thread so the next regions can be written 
+    //  while the previous ones are forced.  callers wait with waitForSyncOf
+    synchronized void usePipelinedSync(boolean pipelined) {
+      if ( pipelined && syncer == null ) {
+        syncer = new FSyncer();
+        syncer.start();
+      } else if ( !pipelined && syncer != null ) {
+        throw new IllegalStateException("pipelined sync cannot be turned off");
+      }
+    }
+    
+    boolean isPipelinedSync() {
+      return syncer != null;
+    }
+    
+    //  new segments come from a background allocator, up to recycled trimmed 
+    //  segments are kept for reuse
+    synchronized void preallocateSegments(int recycled) {
+      if ( allocator == null ) {
+        allocator = new SegmentAllocator(directory, segmentSize, recycled);
+        segments.recycleWith(allocator);
+      }
+    }
+    
+    //  replay opens and loads the next segments on helper threads, holding at 
+    //  most bytes of segments ahead of the reader
+    void useReadAhead(long bytes, int segments) {
+      readAheadBytes = bytes;
+      readAheadSegments = segments;
+    }
+    
+    boolean isReadAhead() {
+      return readAheadBytes > 0;
+    }
+    
+    // for tests
+    SegmentAllocator getSegmentAllocator() {
+      return allocator;
+    }
+    
     private void hintRandomAccess(long marker, int segmentId) {
         if ( randomAccess != null ) {
             randomAccess.hint(marker, segmentId);
@@ -186,6 +260,38 @@ class NIOStreamImpl implements Stream {
         
         return created;
     }
+    
+    //  a write buffer over channel that appends to file with O_DIRECT, or a plain 
+    //  one if the platform or the file system will not open the file that way
+    FileBuffer createDirectBuffer(File file, FileChannel channel, int bufferSize) throws IOException {
+        if ( directBlockSize > 0 ) {
+            FileChannel direct = null;
+            try {
+                direct = DirectWriteChannel.openDirect(file);
+            } catch ( IOException ioe ) {
+                LOGGER.debug("direct open of " + file + " failed", ioe);
+            }
+            if ( direct != null ) {
+                return new DirectFileBuffer(new DirectWriteChannel(channel, direct, this.filePool, bufferSize, directBlockSize), this.filePool, bufferSize);
+            }
+            LOGGER.warn("direct writes are not available for " + directory + ", using buffered writes");
+            directBlockSize = 0;
+        }
+        return createFileBuffer(channel, bufferSize);
+    }
+    
+    //  a write buffer over channel that appends into a mapping of the segment region
+    FileBuffer createMappedBuffer(FileChannel channel, int bufferSize) throws IOException {
+        if ( mappedWrites ) {
+            try {
+                return createFileBuffer(new MappedWriteChannel(channel, segmentSize), bufferSize);
+            } catch ( IOException ioe ) {
+                LOGGER.warn("mapped writes are not available for " + directory + ", using buffered writes", ioe);
+                mappedWrites = false;
+            }
+        }
+        return createFileBuffer(channel, bufferSize);
+    }
 
     @Override
     public UUID getStreamId() {
@@ -197,11 +303,11 @@ class NIOStreamImpl implements Stream {
     }
 
     public long getMarker() {
-        return currentMarker;
+        return currentMarker.get();
     }
 
     public long getSyncdMarker() {
-        return fsyncdMarker;
+        return fsyncdMarker.get();
     }
     
     public long getMinimumMarker() {
@@ -226,10 +332,6 @@ class NIOStreamImpl implements Stream {
         }
 
     boolean open() throws IOException {
-/* TODO:   disable fsyncer for now.  validate for speed and accuracy
-        syncer = new FSyncer();
-        syncer.start();
-*/
         if (segments.isEmpty()) {
             return false;
         }
@@ -298,6 +400,38 @@ class NIOStreamImpl implements Stream {
         }
     }
 
+//  drop everything written above marker.  used by the striped log to make
+//  all lanes agree on one contiguous end of log before recovery
+    void truncate(long marker) throws IOException {
+        if ( marker >= currentMarker.get() ) {
+            return;
+        }
+        segments.setReadPosition(-1);
+        File f = segments.nextReadFile(Direction.REVERSE);
+        long last = Constants.GENESIS_LSN;
+        while (f != null) {
+            WritingSegment seg = new WritingSegment(this, f);
+            try {
+                seg.open();
+                if (!seg.getStreamId().equals(streamId)) {
+                    throw new IOException(BAD_STREAM_ID);
+                }
+                if (seg.getBaseMarker() <= marker && seg.truncate(marker)) {
+                    last = seg.getMaximumMarker();
+                    break;
+                }
+            } catch ( HeaderException header ) {
+            //  something is wrong with this file, it is removed below
+            } finally {
+                seg.close();
+            }
+            f = segments.nextReadFile(Direction.REVERSE);
+        }
+        segments.removeFilesFromHead();
+        currentMarker.reset(last);
+        fsyncdMarker.reset(last);
+    }
+
 //  make sure this segment backets lowest marker
     private boolean doubleCheck(File f) throws IOException {
         WritingSegment segment = new WritingSegment(this, f);
@@ -418,62 +552,136 @@ class NIOStreamImpl implements Stream {
     public long append(Chunk c, long marker) throws IOException {
       if (writeHead == null || writeHead.isClosed()) {
             File f = segments.appendFile();
+            boolean preallocated = allocator != null && allocator.claim(f);
             
             try {
-                writeHead = new WritingSegment(this, f).open();
+                writeHead = new WritingSegment(this, f, preallocated).open();
             } catch ( HeaderException header ) {
                 throw new IOException(header);
             }
             
-            writeHead.insertFileHeader(lowestMarker, currentMarker+1);
-            hintRandomAccess(currentMarker+1, writeHead.getSegmentId());
+            writeHead.insertFileHeader(lowestMarker, currentMarker.get()+1);
+            hintRandomAccess(currentMarker.get()+1, writeHead.getSegmentId());
         }
 
         long w = writeHead.append(c, marker);
         updateCurrentMarker(marker);
-        if (writeHead.size() > segmentSize || c instanceof SnapshotRequest ) {
+        if (writeHead.size() > segmentSize ) {
             closeSegment(writeHead);
+        } else if ( c instanceof SnapshotRequest ) {
+            closeCurrentSegment();
         }
         return w;
 
     }
 
+    //  the segment is fully closed on disk when this returns
+    void closeCurrentSegment() throws IOException {
+        if (writeHead != null && !writeHead.isClosed()) {
+            closeSegment(writeHead);
+        }
+        if ( syncer != null ) {
+            try {
+                waitForSyncOf(currentMarker.get());
+            } catch ( InterruptedException ie ) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private static class SyncRequest {
+        private static final SyncRequest STOP = new SyncRequest(null, 0, false);
+        
+        private final WritingSegment segment;
+        private final long marker;
+        private final boolean close;
+
+        SyncRequest(WritingSegment segment, long marker, boolean close) {
+            this.segment = segment;
+            this.marker = marker;
+            this.close = close;
+        }
+    }
+
+    /**
+     * Forces segments on behalf of the writing thread.  Requests are handled in 
+     * the order they were made so the sync marker only moves forward.  Back to 
+     * back requests against the same open segment are answered by one fsync.
+     */
     class FSyncer extends Thread {
 
-        private Exchanger<WritingSegment> pivot = new Exchanger<WritingSegment>();
+        private final BlockingQueue<SyncRequest> requests = new LinkedBlockingQueue<SyncRequest>();
+        private volatile IOException failure;
+        private volatile boolean done = false;
+        private long requested = 0;
 
         public FSyncer() {
-            setName("fsync helper");
+            setName("fsync helper - " + directory);
             setDaemon(true);
         }
 
-        WritingSegment pivot(WritingSegment target) {
+        void request(WritingSegment seg, long marker, boolean close) throws IOException {
+            checkFailure();
+            if ( close || marker > requested ) {
+                requested = marker;
+                requests.add(new SyncRequest(seg, marker, close));
+            }
+        }
+        
+        void finish() throws IOException {
+            requests.add(SyncRequest.STOP);
             try {
-                return pivot.exchange(target);
-            } catch (InterruptedException ie) {
-            } 
-            return null;
+                join();
+            } catch ( InterruptedException ie ) {
+                throw new InterruptedIOException();
+            }
+            checkFailure();
+        }
+        
+        void checkFailure() throws IOException {
+            IOException ioe = failure;
+            if ( ioe != null ) {
+                throw new IOException("background sync failed", ioe);
+            }
         }
 
+        @Override
         public void run() {
             try {
-                WritingSegment seg = null;
-                seg = pivot.exchange(seg);
-                while (!Thread.interrupted()) {
-                    if ( seg == null ) {
-                        
-                    } else if (seg.isClosed()) {
-                        seg.close();
-                    } else {
-                        seg.fsync(false);
+                SyncRequest current = requests.take();
+                while ( current != SyncRequest.STOP ) {
+                    SyncRequest next = requests.peek();
+                    while ( !current.close && next != null && next.segment == current.segment ) {
+                        current = requests.poll();
+                        next = requests.peek();
                     }
-                    updateSyncMarker(seg.getMaximumMarker());
-                    lowestMarkerOnDisk = seg.getMinimumMarker();
-                    seg = pivot.exchange(seg);
+                    if ( failure == null ) {
+                        try {
+                            if ( current.close ) {
+                                current.segment.close();
+                            } else if ( !current.segment.isClosed() ) {
+                                current.segment.fsync(false);
+                            }
+                            lowestMarkerOnDisk = current.segment.getMinimumMarker();
+                            updateSyncMarker(current.marker);
+                        } catch ( IOException ioe ) {
+                            failSync(ioe);
+                        }
+                    }
+                    current = requests.take();
                 }
             } catch (InterruptedException ie) {
-            } catch (IOException ioe) {
-            } 
+                failSync(new InterruptedIOException());
+            } finally {
+                done = true;
+                fsyncdMarker.release();
+            }
+        }
+        
+        private void failSync(IOException ioe) {
+            LOGGER.error("background sync failed", ioe);
+            failure = ioe;
+            fsyncdMarker.release();
         }
     }
     //  fsync current segment.  old segments are fsyncd on close
@@ -484,14 +692,11 @@ class NIOStreamImpl implements Stream {
           return -2;
         }
         if (writeHead != null && !writeHead.isClosed()) {
-            if (this.currentMarker == this.fsyncdMarker) {
+            if (currentMarker.get() == fsyncdMarker.get()) {
               return writeHead.position();
             } else if (syncer != null) {
-                syncer.pivot(writeHead);
-            //  get it back
-                WritingSegment check = syncer.pivot(null);
-                assert(check == writeHead);
-                return  writeHead.position();
+                syncer.request(writeHead, currentMarker.get(), false);
+                return writeHead.position();
             } else {
                 long pos = writeHead.fsync(false);
                 updateSyncMarker(writeHead.getMaximumMarker());
@@ -519,20 +724,21 @@ class NIOStreamImpl implements Stream {
             readHead.close();
         }
         readHead = null;
+        closePrefetcher();
 
         if (this.reporterThread != null) {
             this.reporterThread.interrupt();
         }
 
         if (syncer != null) {
-            syncer.interrupt();
-            try {
-                syncer.join();
-            } catch ( InterruptedException ie ) {
-                throw new IOException(ie);
-            }
+            syncer.finish();
         } 
         
+        if ( allocator != null ) {
+            segments.recycleWith(null);
+            allocator.close();
+        }
+        
         if ( randomAccess != null ) {
           randomAccess.close();
         }
@@ -561,14 +767,12 @@ class NIOStreamImpl implements Stream {
             }
 
             try {
-                File f = segments.nextReadFile(dir);
-                if (f == null) {
+                ReadOnlySegment nextHead = nextReadSegment(dir);
+                if (nextHead == null) {
                     readHead = null;
                     return null;
                 }
 
-                ReadOnlySegment nextHead = new ReadOnlySegment(this, method, f, dir);
-                nextHead.load(replayPool);
                 hintRandomAccess(nextHead.getBaseMarker(), nextHead.getSegmentId());
                                 
                 if ( readHead != null ) {
@@ -603,28 +807,61 @@ class NIOStreamImpl implements Stream {
         return readHead.next(dir);
     }
     
-    private synchronized void updateSyncMarker(long marker) {
-      this.fsyncdMarker = marker;
-      if ( this.currentMarker != this.fsyncdMarker ) {
+    private ReadOnlySegment nextReadSegment(Direction dir) throws IOException, HeaderException {
+        if ( readAheadBytes > 0 && dir != Direction.RANDOM ) {
+            if ( prefetcher != null && prefetcher.getDirection() != dir ) {
+                closePrefetcher();
+            }
+            if ( prefetcher == null ) {
+                prefetcher = new SegmentPrefetcher(this, method, dir, replayPool, readAheadBytes, readAheadSegments);
+            }
+            ReadOnlySegment next = prefetcher.next(segments);
+            if ( next == null ) {
+                closePrefetcher();
+            }
+            return next;
+        }
+        File f = segments.nextReadFile(dir);
+        if (f == null) {
+            return null;
+        }
+        ReadOnlySegment nextHead = new ReadOnlySegment(this, method, f, dir);
+        nextHead.load(replayPool);
+        return nextHead;
+    }
+    
+    private void closePrefetcher() throws IOException {
+        if ( prefetcher != null ) {
+            try {
+                prefetcher.close();
+            } finally {
+                prefetcher = null;
+            }
+        }
+    }
+    
+    private void updateSyncMarker(long marker) {
+      if ( marker > currentMarker.get() || ( syncer == null && marker != currentMarker.get() ) ) {
           throw new AssertionError("IO race");
       }
-      if (markerWaiters > 0) {
-        notifyAll();
-      }
+      fsyncdMarker.advance(marker);
+    }
+    
+    //  with a pipelined sync, wait for the helper to force everything up to lsn
+    void waitForSyncOf(long lsn) throws InterruptedException, IOException {
+        if ( syncer == null || syncDisabled ) {
+            return;
+        }
+  //  the helper releases the marker once it fails or stops
+        if ( !fsyncdMarker.await(lsn) ) {
+            syncer.checkFailure();
+            throw new IOException("stream is closed");
+        }
     }
     
     boolean waitForWriteOf(long lsn) throws InterruptedException, IOException {
-        if (lsn > this.currentMarker) {
-            synchronized (this) {
-                markerWaiters += 1;
-                try {
-                    while (lsn > this.currentMarker) {
-                        wait();
-                    }
-                } finally {
-                    markerWaiters -= 1;
-                }
-            }
+        if (lsn > currentMarker.get()) {
+            currentMarker.await(lsn);
             return true;
         } else {
             return false;
@@ -632,15 +869,10 @@ class NIOStreamImpl implements Stream {
     }
 
     private void updateCurrentMarker(long lsn) throws IOException {
-        if ( lsn < currentMarker ) {
+        if ( lsn < currentMarker.get() ) {
             throw new IllegalArgumentException("markers must always be increasing");
         }
-        currentMarker = lsn;
-        if (markerWaiters > 0) {
-            synchronized (this) {
-                notifyAll();
-            }
-        }
+        currentMarker.advance(lsn);
     }
 
     void checkStreamId(NIOSegment segment) throws IOException {
@@ -675,6 +907,15 @@ class NIOStreamImpl implements Stream {
             segmentId = (int)loc;  //  ( <= 0 )
         }
 
+        if ( prefetcher != null ) {
+            //  the segment list has been read past the head, start over from the seek
+            closePrefetcher();
+            if ( readHead != null ) {
+                readHead.close();
+                readHead = null;
+            }
+        }
+
         if ( readHead != null ) {
             if ( offset < 0 || segmentId != segments.getSegmentPosition() ) {
                 readHead.close();
@@ -738,11 +979,15 @@ class NIOStreamImpl implements Stream {
     private void closeSegment(WritingSegment nio) throws IOException {
         nio.prepareForClose();
         if ( syncer != null ) {
-          syncer.pivot(nio);
+  //  the helper closes the segment once it is forced, nothing more is written to it
+          syncer.request(nio, nio.getMaximumMarker(), true);
+          if ( nio == writeHead ) {
+            writeHead = null;
+          }
         } else {
           nio.close();
-          this.currentMarker = nio.getMaximumMarker();
-          updateSyncMarker(this.currentMarker);
+          currentMarker.advance(nio.getMaximumMarker());
+          updateSyncMarker(currentMarker.get());
           lowestMarkerOnDisk = nio.getMinimumMarker();
         }
     }
@@ -0,0 +1,221 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps zero filled, fully allocated segment files ready in the stream 
+ * directory so rolling over to a new segment is a rename instead of a file 
+ * create that grows with every write.  Segments trimmed from the tail of the 
+ * log are renamed into spares and wiped for reuse instead of being deleted.
+ * <p>
+ * Spares are wiped rather than just reused so a crash part way through the 
+ * head segment never leaves chunks from an older segment behind the last 
+ * valid write.  Recovery stops at the first zero where a chunk header should 
+ * be and cuts the file back to its last valid chunk.
+ *
+ * @author mscott
+ */
+class SegmentAllocator implements Closeable {
+    
+    static final String SPARE_NAME_FORMAT = "spare%09d.tmp";
+    
+    static final FilenameFilter SPARE_FILENAME_FILTER = new FilenameFilter() {
+        @Override
+        public boolean accept(File file, String string) {
+            return string.startsWith("spare") && string.endsWith(".tmp");
+        }
+    };
+    
+    private static final int WIPE_SIZE = 1024 * 1024;
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentAllocator.class);
+
+    private final File directory;
+    private final long segmentSize;
+    private final int recycled;
+    private final ExecutorService worker;
+    private final Deque<File> ready = new ArrayDeque<File>();
+    private int pending = 0;
+    private int spareId = 0;
+    private boolean closed = false;
+
+    SegmentAllocator(final File directory, long segmentSize, int recycled) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.recycled = Math.max(0, recycled);
+        this.worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "segment allocator - " + directory);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+  //  a spare left over from the last run may only be partly wiped
+        removeSpares();
+        synchronized (this) {
+            prepare();
+        }
+    }
+    
+    /**
+     * Moves a ready spare into place as the named segment.  Returns false when 
+     * no spare is ready and the caller should create the file itself.  The 
+     * writer never waits on the background work.
+     */
+    synchronized boolean claim(File segment) {
+        File spare = ready.poll();
+        prepare();
+        if ( spare == null ) {
+            return false;
+        }
+        if ( !spare.renameTo(segment) ) {
+            LOGGER.warn("unable to use spare segment " + spare);
+            spare.delete();
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Takes a segment that is no longer part of the log as a future spare.  
+     * Returns false if enough spares are already kept, the caller deletes the 
+     * file as usual.
+     */
+    synchronized boolean recycle(File segment) {
+        if ( closed || ready.size() + pending >= recycled ) {
+            return false;
+        }
+        File spare = nextSpare();
+        if ( !segment.renameTo(spare) ) {
+            return false;
+        }
+        schedule(spare);
+        return true;
+    }
+    
+    // for tests
+    synchronized int available() {
+        return ready.size();
+    }
+    
+    //  keep one spare ready or on the way
+    private void prepare() {
+        if ( !closed && ready.size() + pending == 0 ) {
+            schedule(nextSpare());
+        }
+    }
+    
+    private void schedule(final File spare) {
+        pending += 1;
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean wiped = false;
+                try {
+                    wipe(spare);
+                    wiped = true;
+                } catch ( IOException ioe ) {
+                    LOGGER.warn("unable to preallocate segment " + spare, ioe);
+                } finally {
+                    synchronized (SegmentAllocator.this) {
+                        pending -= 1;
+                        if ( wiped && !closed ) {
+                            ready.add(spare);
+                        } else {
+                            spare.delete();
+                        }
+                    }
+                }
+            }
+        });
+    }
+    
+    private File nextSpare() {
+        File f = new File(directory, String.format(SPARE_NAME_FORMAT, spareId++));
+        while ( f.exists() ) {
+            f = new File(directory, String.format(SPARE_NAME_FORMAT, spareId++));
+        }
+        return f;
+    }
+    
+    //  write real zeros, a sparse file would still allocate blocks on every write
+    private void wipe(File spare) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(spare, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer zeros = ByteBuffer.allocateDirect(WIPE_SIZE);
+            long pos = 0;
+            while ( pos < segmentSize ) {
+                zeros.clear();
+                if ( segmentSize - pos < WIPE_SIZE ) {
+                    zeros.limit((int)(segmentSize - pos));
+                }
+                pos += channel.write(zeros, pos);
+            }
+            channel.truncate(segmentSize);
+            channel.force(true);
+        } finally {
+            raf.close();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        worker.shutdownNow();
+        try {
+            if ( !worker.awaitTermination(1, TimeUnit.MINUTES) ) {
+                LOGGER.warn("segment allocator did not finish");
+            }
+        } catch ( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            ready.clear();
+        }
+        removeSpares();
+    }
+    
+    private void removeSpares() {
+        File[] spares = directory.listFiles(SPARE_FILENAME_FILTER);
+        if ( spares != null ) {
+            for ( File f : spares ) {
+                if ( !f.delete() ) {
+                    LOGGER.warn("unable to remove spare segment " + f);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import com.terracottatech.frs.io.BufferSource;
+import com.terracottatech.frs.io.Direction;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens, indexes and loads the segments ahead of replay on a few helper 
+ * threads so the reader never waits on a segment open.  Segments are handed 
+ * back in the order the segment list gives them out.  The segments read ahead 
+ * are held to a byte budget, though the next segment is always let through so 
+ * one larger than the budget still gets read.
+ *
+ * @author mscott
+ */
+class SegmentPrefetcher implements Closeable {
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentPrefetcher.class);
+    private static final int LOAD_BLOCK = 1024 * 1024;
+    
+    private final NIOStreamImpl parent;
+    private final NIOAccessMethod method;
+    private final Direction dir;
+    private final BufferSource source;
+    private final long budget;
+    private final int depth;
+    private final ExecutorService loaders;
+    private final ArrayDeque<Ahead> ahead = new ArrayDeque<Ahead>();
+    private final ThreadLocal<ByteBuffer> scratch = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(LOAD_BLOCK);
+        }
+    };
+    private File waiting;
+    private long held = 0;
+    private boolean exhausted = false;
+
+    SegmentPrefetcher(NIOStreamImpl parent, NIOAccessMethod method, Direction dir, BufferSource source, long budget, int depth) {
+        this.parent = parent;
+        this.method = method;
+        this.dir = dir;
+        this.source = source;
+        this.budget = budget;
+        this.depth = Math.max(1, depth);
+        this.loaders = Executors.newFixedThreadPool(this.depth, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+            
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("segment prefetch - " + count.getAndIncrement());
+                return t;
+            }
+        });
+    }
+    
+    Direction getDirection() {
+        return dir;
+    }
+
+        //  the next segment in list order, null once the list runs out
+    ReadOnlySegment next(NIOSegmentList segments) throws IOException {
+        fill(segments);
+        Ahead next = ahead.poll();
+        if ( next == null ) {
+            return null;
+        }
+        held -= next.size;
+        //  keep the loaders busy while the caller waits on this one
+        fill(segments);
+        try {
+            return next.segment.get();
+        } catch ( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch ( ExecutionException ee ) {
+            Throwable cause = ee.getCause();
+            if ( cause instanceof IOException ) {
+                throw (IOException)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+    
+    private void fill(NIOSegmentList segments) throws IOException {
+        while ( !exhausted && ahead.size() < depth ) {
+            if ( waiting == null ) {
+                waiting = segments.nextReadFile(dir);
+                if ( waiting == null ) {
+                    exhausted = true;
+                    return;
+                }
+            }
+            long size = waiting.length();
+            if ( !ahead.isEmpty() && held + size > budget ) {
+                return;
+            }
+            final File f = waiting;
+            waiting = null;
+            held += size;
+            ahead.add(new Ahead(size, loaders.submit(() -> load(f))));
+        }
+    }
+    
+    private ReadOnlySegment load(File f) throws IOException, HeaderException {
+        ReadOnlySegment segment = new ReadOnlySegment(parent, method, f, dir);
+        try {
+            segment.load(source);
+            warm(f);
+        } catch ( IOException | RuntimeException e ) {
+            segment.close();
+            throw e;
+        }
+        return segment;
+    }
+
+        //  pull the whole file through once so the reads behind it are served from 
+        //  the page cache instead of waiting on the device one chunk at a time
+    private void warm(File f) throws IOException {
+        ByteBuffer buffer = scratch.get();
+        try (FileInputStream in = new FileInputStream(f)) {
+            FileChannel channel = in.getChannel();
+            long position = 0;
+            long size = channel.size();
+            while ( position < size ) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if ( read < 0 ) {
+                    break;
+                }
+                position += read;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        loaders.shutdown();
+        for ( Ahead left : ahead ) {
+            try {
+                left.segment.get().close();
+            } catch ( ExecutionException ee ) {
+                LOGGER.debug("prefetched segment failed to load", ee.getCause());
+            } catch ( InterruptedException ie ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ahead.clear();
+        held = 0;
+    }
+    
+    private static class Ahead {
+        private final long size;
+        private final Future<ReadOnlySegment> segment;
+
+        Ahead(long size, Future<ReadOnlySegment> segment) {
+            this.size = size;
+            this.segment = segment;
+        }
+    }
+}
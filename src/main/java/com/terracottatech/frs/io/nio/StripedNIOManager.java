@@ -0,0 +1,456 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import com.terracottatech.frs.Constants;
+import com.terracottatech.frs.Snapshot;
+import com.terracottatech.frs.SnapshotRequest;
+import com.terracottatech.frs.config.Configuration;
+import com.terracottatech.frs.config.FrsProperty;
+import com.terracottatech.frs.io.BufferSource;
+import com.terracottatech.frs.io.Chunk;
+import com.terracottatech.frs.io.Direction;
+import com.terracottatech.frs.io.IOManager;
+import com.terracottatech.frs.io.IOStatistics;
+import com.terracottatech.frs.io.WrappingChunk;
+import com.terracottatech.frs.log.LogRegionPacker;
+import com.terracottatech.frs.util.NullFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log striped over several independent NIO streams (lanes), each in its own
+ * directory.  Regions are written whole to a single lane so each lane holds an
+ * ordered but sparse subset of the log.  Readback merges the lanes by region lsn.
+ * <p>
+ * After a crash the lanes may disagree on how far the log got.  On open the
+ * lanes are cut back to the highest lsn that is contiguous across all of them.
+ *
+ * @author mscott
+ */
+public class StripedNIOManager implements IOManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IOManager.class);
+
+    private final NIOManager[] lanes;
+    private final String forceLogRegionFormat;
+    private final Chunk[] heads;
+    private final long[] headLsn;
+    private final boolean[] exhausted;
+
+    public StripedNIOManager(Configuration config, BufferSource writer) throws IOException {
+        this(openLanes(config, writer), config.getString(FrsProperty.FORCE_LOG_REGION_FORMAT));
+    }
+
+    StripedNIOManager(NIOManager[] lanes, String forceLogRegionFormat) throws IOException {
+        this.lanes = lanes;
+        this.forceLogRegionFormat = forceLogRegionFormat;
+        this.heads = new Chunk[lanes.length];
+        this.headLsn = new long[lanes.length];
+        this.exhausted = new boolean[lanes.length];
+        reconcile();
+    }
+
+    /**
+     * the first lane is always the database home, additional lanes come from
+     * {@link FrsProperty#IO_NIO_LANES}.  Relative lane paths are resolved
+     * against the database home.
+     */
+    static List<File> laneDirectories(Configuration config) {
+        List<File> dirs = new ArrayList<File>();
+        dirs.add(config.getDBHome());
+        String list = config.getString(FrsProperty.IO_NIO_LANES);
+        if ( list != null ) {
+            for ( String path : list.split(File.pathSeparator) ) {
+                path = path.trim();
+                if ( path.isEmpty() ) {
+                    continue;
+                }
+                File dir = new File(path);
+                if ( !dir.isAbsolute() ) {
+                    dir = new File(config.getDBHome(), path);
+                }
+                dirs.add(dir);
+            }
+        }
+        return dirs;
+    }
+
+    public static boolean isStriped(Configuration config) {
+        return laneDirectories(config).size() > 1;
+    }
+
+    private static NIOManager[] openLanes(Configuration config, BufferSource writer) throws IOException {
+        List<File> dirs = laneDirectories(config);
+        NIOManager[] opened = new NIOManager[dirs.size()];
+        try {
+            for ( int x = 0; x < opened.length; x++ ) {
+                File dir = dirs.get(x);
+                if ( !dir.exists() && !dir.mkdirs() ) {
+                    throw new IOException("unable to create log lane " + dir.getAbsolutePath());
+                }
+                opened[x] = new NIOManager(dir, config, writer);
+            }
+        } catch ( IOException ioe ) {
+            for ( NIOManager lane : opened ) {
+                if ( lane != null ) {
+                    lane.close();
+                }
+            }
+            throw ioe;
+        }
+        return opened;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /*
+     * Every lane is complete up to the lowest lane end.  Above that, a lane may
+     * hold regions written after a region that never made it to another lane.
+     * Find the end of the contiguous run and drop everything above it.
+     */
+    private void reconcile() throws IOException {
+        long floor = Long.MAX_VALUE;
+        long ceiling = Constants.GENESIS_LSN;
+        for ( NIOManager lane : lanes ) {
+            floor = Math.min(floor, lane.getCurrentMarker());
+            ceiling = Math.max(ceiling, lane.getCurrentMarker());
+        }
+        if ( floor == ceiling ) {
+            return;
+        }
+
+        List<long[]> ranges = new ArrayList<long[]>();
+        for ( NIOManager lane : lanes ) {
+            if ( lane.getCurrentMarker() <= floor ) {
+                continue;
+            }
+            lane.seek(IOManager.Seek.END.getValue());
+            try {
+                Chunk c = lane.read(Direction.REVERSE);
+                while ( c != null ) {
+                    try {
+                        long[] range = LogRegionPacker.peekLsnRange(forceLogRegionFormat, c);
+                        if ( range[1] <= floor ) {
+                            break;
+                        }
+                        ranges.add(range);
+                    } finally {
+                        close(c);
+                    }
+                    c = lane.read(Direction.REVERSE);
+                }
+            } finally {
+                lane.seek(IOManager.Seek.END.getValue());
+            }
+        }
+
+        Collections.sort(ranges, (a, b) -> Long.compare(a[0], b[0]));
+        long contiguous = floor;
+        for ( long[] range : ranges ) {
+            if ( range[0] != contiguous + 1 ) {
+                break;
+            }
+            contiguous = range[1];
+        }
+
+        if ( contiguous < ceiling ) {
+            LOGGER.warn("log lanes disagree on the end of the log, truncating from " + ceiling + " to " + contiguous);
+            for ( NIOManager lane : lanes ) {
+                lane.truncate(contiguous);
+            }
+        }
+    }
+
+    /**
+     * write a region to a single lane.  Snapshots of a striped log span all
+     * lanes and are taken through {@link #snapshot(int)} instead.
+     */
+    public long write(int lane, Chunk region, long marker) throws IOException {
+        if ( region instanceof SnapshotRequest ) {
+            region = new WrappingChunk(region.getBuffers());
+        }
+        return lanes[lane].write(region, marker);
+    }
+
+    public void sync(int lane) throws IOException {
+        lanes[lane].sync();
+  //  lanes already overlap each other, a barrier has to be on disk when this returns
+        if ( lanes[lane].isPipelinedSync() ) {
+            try {
+                lanes[lane].waitForSync(lanes[lane].getCurrentMarker());
+            } catch ( InterruptedException ie ) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * closes the current segment of the lane and captures its file list
+     */
+    public Snapshot snapshot(int lane) throws IOException {
+        return lanes[lane].snapshot();
+    }
+
+    public static Snapshot combine(final List<Snapshot> parts) {
+        return new Snapshot() {
+            @Override
+            public Iterator<File> iterator() {
+                List<File> files = new ArrayList<File>();
+                for ( Snapshot part : parts ) {
+                    for ( File f : part ) {
+                        files.add(f);
+                    }
+                }
+                return files.iterator();
+            }
+
+            @Override
+            public void close() throws IOException {
+                for ( Snapshot part : parts ) {
+                    part.close();
+                }
+            }
+        };
+    }
+
+    @Override
+    public long write(Chunk region, long marker) throws IOException {
+        throw new UnsupportedOperationException("regions must be written to a lane");
+    }
+
+    @Override
+    public void setMinimumMarker(long marker) throws IOException {
+        for ( NIOManager lane : lanes ) {
+            lane.setMinimumMarker(marker);
+        }
+    }
+
+    @Override
+    public long getMinimumMarker() throws IOException {
+        long min = Constants.GENESIS_LSN;
+        for ( NIOManager lane : lanes ) {
+            min = Math.max(min, lane.getMinimumMarker());
+        }
+        return min;
+    }
+
+    @Override
+    public long getCurrentMarker() throws IOException {
+        long max = Constants.GENESIS_LSN;
+        for ( NIOManager lane : lanes ) {
+            max = Math.max(max, lane.getCurrentMarker());
+        }
+        return max;
+    }
+
+    @Override
+    public synchronized Chunk read(Direction dir) throws IOException {
+        if ( dir == Direction.RANDOM ) {
+            throw new UnsupportedOperationException("random reads are not supported on a striped log");
+        }
+        int pick = -1;
+        for ( int x = 0; x < lanes.length; x++ ) {
+            if ( heads[x] == null && !exhausted[x] ) {
+                heads[x] = lanes[x].read(dir);
+                if ( heads[x] == null ) {
+                    exhausted[x] = true;
+                } else {
+                    headLsn[x] = LogRegionPacker.peekLsnRange(forceLogRegionFormat, heads[x])[0];
+                }
+            }
+            if ( heads[x] != null ) {
+                if ( pick < 0 
+                        || ( dir == Direction.REVERSE && headLsn[x] > headLsn[pick] ) 
+                        || ( dir == Direction.FORWARD && headLsn[x] < headLsn[pick] ) ) {
+                    pick = x;
+                }
+            }
+        }
+        if ( pick < 0 ) {
+            return null;
+        }
+        Chunk c = heads[pick];
+        heads[pick] = null;
+        return c;
+    }
+
+    /**
+     * Each lane answers with its first region ending at or after the marker.  
+     * Regions never overlap so the one that starts at or before the marker holds it.
+     */
+    @Override
+    public Chunk scan(long marker) throws IOException {
+        while ( true ) {
+            for ( NIOManager lane : lanes ) {
+                Chunk c = lane.probe(marker);
+                if ( c != null ) {
+                    long first = LogRegionPacker.peekLsnRange(forceLogRegionFormat, c)[0];
+                    if ( first >= 0 && first <= marker ) {
+                        return c;
+                    }
+                    close(c);
+                }
+            }
+            if ( marker > getCurrentMarker() ) {
+                //  not written yet, wait for the lane that will get it
+                try {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                } catch ( InterruptedException ie ) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("random access interrupted");
+                }
+            } else {
+                throw new AssertionError("Marker " + marker + " not found in any lane during scan");
+            }
+        }
+    }
+
+    @Override
+    public synchronized long seek(long marker) throws IOException {
+        if ( marker > 0 ) {
+            throw new UnsupportedOperationException("positioned reads are not supported on a striped log");
+        }
+        for ( int x = 0; x < lanes.length; x++ ) {
+            close(heads[x]);
+            heads[x] = null;
+            exhausted[x] = false;
+            lanes[x].seek(marker);
+        }
+        return marker;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        for ( NIOManager lane : lanes ) {
+            lane.sync();
+        }
+    }
+
+    @Override
+    public Future<Void> clean(long timeout) throws IOException {
+        for ( NIOManager lane : lanes ) {
+            lane.clean(timeout);
+        }
+        return NullFuture.INSTANCE;
+    }
+
+    @Override
+    public IOStatistics getStatistics() throws IOException {
+        final List<IOStatistics> stats = new ArrayList<IOStatistics>(lanes.length);
+        for ( NIOManager lane : lanes ) {
+            stats.add(lane.getStatistics());
+        }
+        return new IOStatistics() {
+            @Override
+            public long getTotalAvailable() {
+                long available = Long.MAX_VALUE;
+                for ( IOStatistics s : stats ) {
+                    available = Math.min(available, s.getTotalAvailable());
+                }
+                return available;
+            }
+
+            @Override
+            public long getTotalUsed() {
+                long total = 0;
+                for ( IOStatistics s : stats ) {
+                    total += s.getTotalUsed();
+                }
+                return total;
+            }
+
+            @Override
+            public long getTotalWritten() {
+                long total = 0;
+                for ( IOStatistics s : stats ) {
+                    total += s.getTotalWritten();
+                }
+                return total;
+            }
+
+            @Override
+            public long getTotalRead() {
+                long total = 0;
+                for ( IOStatistics s : stats ) {
+                    total += s.getTotalRead();
+                }
+                return total;
+            }
+
+            @Override
+            public long getLiveSize() {
+                long total = 0;
+                for ( IOStatistics s : stats ) {
+                    total += s.getLiveSize();
+                }
+                return total;
+            }
+
+            @Override
+            public long getExpiredSize() {
+                long total = 0;
+                for ( IOStatistics s : stats ) {
+                    total += s.getExpiredSize();
+                }
+                return total;
+            }
+        };
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        IOException first = null;
+        for ( int x = 0; x < lanes.length; x++ ) {
+            try {
+                close(heads[x]);
+                heads[x] = null;
+                lanes[x].close();
+            } catch ( IOException ioe ) {
+                if ( first == null ) {
+                    first = ioe;
+                }
+            }
+        }
+        if ( first != null ) {
+            throw first;
+        }
+    }
+
+    private static void close(Chunk c) throws IOException {
+        if ( c instanceof Closeable ) {
+            ((Closeable)c).close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NIO striped - " + lanes.length + " lanes - " + lanes[0];
+    }
+}
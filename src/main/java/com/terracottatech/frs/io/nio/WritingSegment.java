@@ -42,6 +42,8 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
     private WritingSegmentJumpList writeJumpList;
     private long totalWrite;
     private boolean existingFile = false;
+    private boolean preallocated = false;
+    private boolean padded = false;
 
     WritingSegment(NIOStreamImpl p, File file) {
         super(p, file);
@@ -49,6 +51,15 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
             existingFile = true;
         } 
     }
+    
+    //  a preallocated file is new to the log but already zero filled to full size
+    WritingSegment(NIOStreamImpl p, File file, boolean preallocated) {
+        this(p, file);
+        if ( preallocated ) {
+            this.existingFile = false;
+            this.preallocated = true;
+        }
+    }
 
     long getMaximumMarker() {
         return maxMarker;
@@ -78,10 +89,19 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
     //  open and write the header.
     synchronized WritingSegment open() throws IOException, HeaderException {
         while (buffer == null) {
-            buffer = (getStream() != null ) ? 
-                getStream().createFileBuffer(createFileChannel(), 512 * 1024) :
-                new FileBuffer(createFileChannel(), ByteBuffer.allocate(512 * 1024));
+            if ( getStream() == null ) {
+                buffer = new FileBuffer(createFileChannel(), ByteBuffer.allocate(512 * 1024));
+            } else if ( getStream().isDirectWrites() ) {
+                buffer = getStream().createDirectBuffer(getFile(), createFileChannel(), 512 * 1024);
+            } else if ( getStream().isMappedWrites() && !existingFile ) {
+                buffer = getStream().createMappedBuffer(createFileChannel(), 512 * 1024);
+            } else {
+                buffer = getStream().createFileBuffer(createFileChannel(), 512 * 1024);
+            }
         }
+  //  direct writes leave the last block zero padded past the logical end, 
+  //  mapped writes the rest of the mapped region
+        padded = buffer instanceof DirectFileBuffer || buffer.getFileChannel() instanceof MappedWriteChannel;
 
         if ( existingFile ) {
             try {
@@ -101,7 +121,7 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
     }
     
     private FileChannel createFileChannel() throws IOException {
-        if ( existingFile ) {
+        if ( existingFile || preallocated || (getStream() != null && (getStream().isDirectWrites() || getStream().isMappedWrites())) ) {
             return new RandomAccessFile(getFile(), "rw").getChannel();
         } else {
             return new FileOutputStream(getFile()).getChannel();
@@ -133,6 +153,37 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
         return amt;
     }
 
+    //  frame the caller's buffers with the chunk header and footer carved out of the 
+    //  segment buffer and write the lot with one gathering write, no payload copies
+    private long gatherWrite(ByteBuffer[] raw, long amt, long maxMarker) throws IOException {
+        buffer.clear();
+        buffer.partition(ByteBufferUtils.INT_SIZE + ByteBufferUtils.LONG_SIZE, 
+                (2 * ByteBufferUtils.LONG_SIZE) + ByteBufferUtils.INT_SIZE);
+        ByteBuffer[] frame = buffer.getBuffers();
+        ByteBuffer header = frame[0];
+        header.putInt(SegmentHeaders.CHUNK_START.getIntValue());
+        header.putLong(amt);
+        header.flip();
+        ByteBuffer footer = frame[1];
+        footer.putLong(amt);
+        footer.putLong(maxMarker);
+        footer.putInt(SegmentHeaders.FILE_CHUNK.getIntValue());
+        footer.flip();
+        
+        ByteBuffer[] list = new ByteBuffer[raw.length + 2];
+        list[0] = header;
+        for (int x=0;x<raw.length;x++) {
+            list[x+1] = raw[x].duplicate();
+        }
+        list[list.length-1] = footer;
+        try {
+            return buffer.gather(list);
+        } finally {
+            buffer.clear();
+            writeJumpList.add(buffer.offset());
+        }
+    }
+
     public long append(Chunk c, long maxMarker) throws IOException {
         int writeCount = 0;
         buffer.clear();
@@ -148,6 +199,8 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
                 raw[0].capacity() - raw[0].limit() > (2 * ByteBufferUtils.LONG_SIZE) + ByteBufferUtils.INT_SIZE //  footer is a long size for marker long for size and an int chunk marker
                 ) {
             return piggybackBufferOptimization(raw[0]);
+        } else if ( getStream() != null && getStream().isGatherWrites() ) {
+            return gatherWrite(raw, c.remaining(), maxMarker);
         } else {
             buffer.clear();
             buffer.partition(ByteBufferUtils.LONG_SIZE + ByteBufferUtils.INT_SIZE);
@@ -173,6 +226,11 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
             buffer.put(SegmentHeaders.CLOSE_FILE.getBytes());
             writeJumpList(buffer);
             buffer.write(1);
+            if ( preallocated || padded ) {
+  //  drop the unused zeros, a closed segment ends with its jump list
+                FileChannel channel = buffer.getFileChannel();
+                channel.truncate(channel.position());
+            }
         }
     }
 
@@ -199,6 +257,9 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
     @Override
     public long size() {
         try {
+            if ( preallocated || padded ) {
+                return buffer.getFileChannel().position();
+            }
             return buffer.size();
         } catch (IOException ioe) {
             return -1;
@@ -267,7 +328,9 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
         return (buffer == null) ? 0 : buffer.position();
     }
 
-//  assume single threaded
+//  with a pipelined sync this runs on the fsync helper while the io thread 
+//  keeps appending, the channel forces what was written and leaves any 
+//  staged appends to the io thread
     public long fsync(boolean meta) throws IOException {
         if ( buffer == null ) {
             throw new IOException("segment is closed");
@@ -289,6 +352,9 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
         buffer.put(SegmentHeaders.CLOSE_FILE.getBytes());
         writeJumpList(buffer);
         buffer.write(1);
+  //  anything past the close, a torn write or a preallocated tail, is garbage
+        FileChannel channel = buffer.getFileChannel();
+        channel.truncate(channel.position());
         long delta = System.nanoTime();
         buffer.sync(true);
         delta = System.nanoTime() - delta;
@@ -330,6 +396,37 @@ class WritingSegment extends NIOSegment implements Iterable<Chunk>, Closeable {
         return true;
     }
     
+    //  cut the segment back to the last chunk at or below marker.  returns false
+    //  if no chunk in this segment qualifies
+    boolean truncate(long marker) throws IOException {
+        if ( buffer == null ) {
+            throw new IOException("segment is closed");
+        }
+        buffer.clear();
+        buffer.position(FILE_HEADER_SIZE);
+        IntegrityReadbackStrategy find = new IntegrityReadbackStrategy(buffer, marker);
+        try {
+            while (find.hasMore(Direction.FORWARD)) {
+                try {
+                    find.iterate(Direction.FORWARD);
+                } catch (IOException ioe) {
+                    break;
+                }
+            }
+        } finally {
+            buffer.clear();
+            maxMarker = find.getMaximumMarker();
+            setJumpList(find.getJumpList());
+        }
+
+        if ( find.getLastValidPosition() == 0 ) {
+            return false;
+        }
+
+        this.limit(find.getLastValidPosition());
+        return true;
+    }
+
     private boolean verifyChunkMark(long pos) throws IOException {
         buffer.clear();
         buffer.position(pos - ByteBufferUtils.INT_SIZE);
@@ -0,0 +1,185 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the bytes of log records that have been appended but not yet written.
+ * <p>
+ * The budget is the high watermark.  Once a record does not fit, the log is 
+ * throttled and no record is admitted until the outstanding bytes drain to the
+ * low watermark, so writers are let back in batches rather than one at a time 
+ * as each region completes.  A record larger than the whole budget is admitted 
+ * once nothing else is outstanding.
+ *
+ * @author mscott
+ */
+public class AdmissionController {
+    
+    public enum Policy {
+  //  wait for room as long as it takes
+        BLOCK,
+  //  wait for room up to the timeout, then reject
+        TIMEOUT,
+  //  reject straight away when throttled
+        REJECT
+    }
+    
+    private final long budget;
+    private final long resume;
+    private final Policy policy;
+    private final long timeout;
+    private final Runnable stalled;
+    
+    private final AtomicLong outstanding = new AtomicLong();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean throttled = false;
+
+    /**
+     * @param budget high watermark in bytes
+     * @param lowWatermark fraction of the budget outstanding bytes must drain to
+     * before throttled writers are admitted again
+     * @param policy what writers do while throttled
+     * @param timeout how long a writer waits under {@link Policy#TIMEOUT}
+     * @param stalled run by each writer that is turned away or about to wait, 
+     * may be null
+     */
+    public AdmissionController(long budget, double lowWatermark, Policy policy, long timeout, TimeUnit units, Runnable stalled) {
+        if ( budget <= 0 ) {
+            throw new IllegalArgumentException("admission budget must be positive");
+        }
+        if ( lowWatermark < 0 || lowWatermark > 1 ) {
+            throw new IllegalArgumentException("low watermark must be a fraction of the budget");
+        }
+        this.budget = budget;
+        this.resume = (long)(budget * lowWatermark);
+        this.policy = policy;
+        this.timeout = units.toNanos(timeout);
+        this.stalled = stalled;
+    }
+    
+    public static long sizeOf(LogRecord record) {
+        long size = 0;
+        for ( ByteBuffer buffer : record.getPayload() ) {
+            size += buffer.remaining();
+        }
+        return size;
+    }
+    
+    /**
+     * @return true if the bytes were admitted and must be released once written,
+     * false if the policy rejected them
+     */
+    public boolean admit(long bytes) throws InterruptedException {
+        if ( !throttled && tryAdmit(bytes) ) {
+            return true;
+        }
+        if ( stalled != null ) {
+            stalled.run();
+        }
+        if ( policy == Policy.REJECT ) {
+            rejected.increment();
+            return false;
+        }
+        blocked.increment();
+        long deadline = System.nanoTime() + timeout;
+        synchronized (this) {
+            while ( true ) {
+                if ( throttled && outstanding.get() <= resume ) {
+                    throttled = false;
+                }
+                if ( !throttled && tryAdmit(bytes) ) {
+                    return true;
+                }
+                if ( policy == Policy.TIMEOUT ) {
+                    long remaining = deadline - System.nanoTime();
+                    if ( remaining <= 0 ) {
+                        rejected.increment();
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } else {
+                    this.wait();
+                }
+            }
+        }
+    }
+    
+    private boolean tryAdmit(long bytes) {
+        long current = outstanding.get();
+        while ( true ) {
+            if ( current == 0 || current + bytes <= budget ) {
+                if ( outstanding.compareAndSet(current, current + bytes) ) {
+                    return true;
+                }
+            } else if ( throttled ) {
+                return false;
+            } else {
+  //  look again after raising the flag, a release that missed the flag 
+  //  has already taken its bytes off
+                throttled = true;
+            }
+            current = outstanding.get();
+        }
+    }
+    
+    public void release(long bytes) {
+        long current = outstanding.addAndGet(-bytes);
+  //  throttled writers look at outstanding under the lock before waiting, 
+  //  either they see this release or they are woken by it
+        if ( throttled && current <= resume ) {
+            synchronized (this) {
+                throttled = false;
+                this.notifyAll();
+            }
+        }
+    }
+    
+    public long outstanding() {
+        return outstanding.get();
+    }
+    
+    /**
+     * @return outstanding bytes as a fraction of the budget, can go over 1 
+     * briefly when an oversized record is admitted
+     */
+    public double pressure() {
+        return outstanding.get() / (double)budget;
+    }
+    
+    public boolean isThrottled() {
+        return throttled;
+    }
+    
+    public long blocked() {
+        return blocked.sum();
+    }
+    
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionController{" + "budget=" + budget + ", resume=" + resume + ", policy=" + policy + 
+                ", outstanding=" + outstanding.get() + ", blocked=" + blocked.sum() + ", rejected=" + rejected.sum() + '}';
+    }
+}
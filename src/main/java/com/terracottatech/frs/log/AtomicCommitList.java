@@ -19,7 +19,6 @@ import com.terracottatech.frs.SnapshotRequest;
 import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReferenceArray;
@@ -43,13 +42,20 @@ public class AtomicCommitList implements CommitList {
     private volatile CommitList next;
     private final int      wait;
     private volatile boolean        atHead = false;
+    private final GroupCommitController controller;
+    private volatile long   firstArrival = 0;
 
     public AtomicCommitList(long startLsn, int maxSize,int waitTime) {
+        this(startLsn, maxSize, waitTime, null);
+    }
+
+    public AtomicCommitList(long startLsn, int maxSize,int waitTime, GroupCommitController controller) {
         baseLsn = startLsn;
         endLsn = new AtomicLong();
         regions = new AtomicReferenceArray<LogRecord>(maxSize);
         goLatch = new CountDownLatch(maxSize);
         wait = waitTime;
+        this.controller = controller;
     }
     
     @Override
@@ -75,6 +81,9 @@ public class AtomicCommitList implements CommitList {
         }
         
         if ( regions.compareAndSet((int) (record.getLsn() - baseLsn), null, record) ) {
+            if ( controller != null && firstArrival == 0 ) {
+                firstArrival = System.nanoTime();
+            }
             goLatch.countDown();
             if ( (atHead && close && syncRequest.get() == record.getLsn()) || record instanceof SnapshotRequest) {
               checkForClosed();
@@ -119,7 +128,8 @@ public class AtomicCommitList implements CommitList {
     
     @Override
     public CommitList create(long nextLsn) {
-        return new AtomicCommitList( nextLsn, regions.length(), wait);
+        return new AtomicCommitList( nextLsn, 
+                ( controller == null ) ? regions.length() : controller.window(), wait, controller);
     }
 
     @Override
@@ -179,12 +189,15 @@ public class AtomicCommitList implements CommitList {
     }
 
     @Override
-    public Future<Void> getWriteFuture() {
+    public CompletableFuture<Void> getWriteFuture() {
         return written;
     }  
 
     @Override
     public void written() {
+        if ( controller != null && firstArrival != 0 ) {
+            controller.committed(System.nanoTime() - firstArrival);
+        }
         written.complete(null);
     }
     
@@ -200,6 +213,9 @@ public class AtomicCommitList implements CommitList {
 
     @Override
     public void waitForContiguous() throws InterruptedException {
+        if ( controller != null ) {
+            hold();
+        }
         atHead = true;
         if ( goLatch.getCount() != regions.length() ) {
             checkForClosed();
@@ -217,6 +233,19 @@ public class AtomicCommitList implements CommitList {
         assert(baseLsn == 0 || checkValues());
     }
 
+    //  group commit, give more records a chance to join before a sync request 
+    //  at the head closes this list
+    private void hold() throws InterruptedException {
+        long delay = controller.holdNanos();
+        long first = firstArrival;
+        if ( delay > 0 && first != 0 ) {
+            long remaining = first + delay - System.nanoTime();
+            if ( remaining > 0 ) {
+                goLatch.await(remaining, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
     private void checkForClosed() {
         if ( endLsn.get() == 0 ) {
             int size = regions.length() - (int)goLatch.getCount();
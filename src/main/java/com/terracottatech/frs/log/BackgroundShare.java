@@ -0,0 +1,118 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Splits the log between foreground records and background records, compaction
+ * and the barriers around it.
+ * <p>
+ * While the io thread is keeping up, background records go straight in and 
+ * fill whatever room each commit list has left.  Once it is saturated, a 
+ * background writer may only take its minimum share of the records appended 
+ * since the last commit list was sealed, and waits for the next seal 
+ * otherwise.  At least one background record is let in per sealed list so 
+ * compaction always makes progress.
+ * <p>
+ * Background writers take their turn before they append, so they must not be 
+ * holding anything a foreground writer could need while they wait.
+ *
+ * @author mscott
+ */
+public class BackgroundShare {
+    
+    private final double minShare;
+    private final long recheck;
+    private final BooleanSupplier saturated;
+    private final LongSupplier currentLsn;
+    
+    private final AtomicLong granted = new AtomicLong();
+    private volatile long sealedAt;
+    private volatile int waiting = 0;
+    private final LongAdder yielded = new LongAdder();
+
+    /**
+     * @param minShare fraction of the records in each commit list background 
+     * records are guaranteed while the io thread is saturated
+     * @param recheck longest a background writer waits before looking again
+     * @param saturated true while foreground records are backing up
+     * @param currentLsn next lsn to be handed out
+     */
+    public BackgroundShare(double minShare, long recheck, TimeUnit units, BooleanSupplier saturated, LongSupplier currentLsn) {
+        if ( minShare <= 0 || minShare > 1 ) {
+            throw new IllegalArgumentException("minimum share must be a fraction of the log");
+        }
+        this.minShare = minShare;
+        this.recheck = Math.max(1, units.toMillis(recheck));
+        this.saturated = saturated;
+        this.currentLsn = currentLsn;
+        this.sealedAt = currentLsn.getAsLong();
+    }
+    
+    /**
+     * wait until a background record may be appended, counting it against 
+     * the background share
+     */
+    public void await() throws InterruptedException {
+        boolean yielding = false;
+        while ( saturated.getAsBoolean() && !withinShare() ) {
+            if ( !yielding ) {
+                yielding = true;
+                yielded.increment();
+            }
+            synchronized (this) {
+                waiting += 1;
+                try {
+  //  a seal missed while getting here is only a late look, bounded by recheck
+                    this.wait(recheck);
+                } finally {
+                    waiting -= 1;
+                }
+            }
+        }
+        granted.incrementAndGet();
+    }
+    
+    private boolean withinShare() {
+        long taken = granted.get();
+        return taken == 0 || taken < minShare * (currentLsn.getAsLong() - sealedAt);
+    }
+    
+    /**
+     * a commit list was sealed, the next share starts from here
+     */
+    public void sealed() {
+        sealedAt = currentLsn.getAsLong();
+        granted.set(0);
+        if ( waiting > 0 ) {
+            synchronized (this) {
+                this.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * @return background writers that had to wait for their share
+     */
+    public long yielded() {
+        return yielded.sum();
+    }
+}
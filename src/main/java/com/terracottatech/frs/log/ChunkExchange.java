@@ -42,16 +42,36 @@ public class ChunkExchange implements Iterable<LogRecord>, Future<Void> {
     private final AtomicInteger returned = new AtomicInteger(0);
     private long lastLsn = -1;
     private long lowestLsn = -1;
+    private volatile long floor = -1;
     private Exception exception;
     private Thread runner;
     private final RecordIterator master;
+    private final ReadBudget budget;
+    private final RecordDecoder decoder;
     private long totalRead;
     private static final Logger LOGGER = LoggerFactory.getLogger(LogManager.class);
 
     ChunkExchange(IOManager io, String forceLogRegionFormat, int maxQueue) {
+        this(io, forceLogRegionFormat, maxQueue, 0L);
+    }
+
+    //  with a read ahead, the chunks read but not yet handed to replay are held 
+    //  to that many bytes rather than to a count of maxQueue chunks
+    ChunkExchange(IOManager io, String forceLogRegionFormat, int maxQueue, long readAhead) {
+        this(io, forceLogRegionFormat, maxQueue, readAhead, null);
+    }
+
+    ChunkExchange(IOManager io, String forceLogRegionFormat, int maxQueue, long readAhead, RecordDecoder decoder) {
         this.io = io;
+        this.decoder = decoder;
         this.forceLogRegionFormat = forceLogRegionFormat;
-        queue = new LinkedBlockingQueue<Future<List<LogRecord>>>(maxQueue);
+        if ( readAhead > 0 ) {
+            queue = new LinkedBlockingQueue<Future<List<LogRecord>>>();
+            budget = new ReadBudget(readAhead);
+        } else {
+            queue = new LinkedBlockingQueue<Future<List<LogRecord>>>(maxQueue);
+            budget = null;
+        }
         chunkProcessor = Executors.newCachedThreadPool(new ThreadFactory() {
             int count = 1;
             @Override
@@ -91,6 +111,15 @@ public class ChunkExchange implements Iterable<LogRecord>, Future<Void> {
         return lowestLsn;
     }
     
+    //  recovery only needs the records from lsn up, stop there
+    void limitTo(long lsn) {
+        floor = lsn;
+    }
+
+    private long stopLsn() {
+        return Math.max(lowestLsn, floor);
+    }
+
     private synchronized void checkReadException() {
         if ( exception != null ) {
             throw new RuntimeException(exception);
@@ -143,8 +172,13 @@ public class ChunkExchange implements Iterable<LogRecord>, Future<Void> {
                 reading += (System.nanoTime() - last);
                 last = System.nanoTime();
                 fill += queue.size();
-                ChunkProcessing cp = new ChunkProcessing(chunk, forceLogRegionFormat);
-                Future<List<LogRecord>> f = chunkProcessor.submit(cp);
+                long size = chunk.length();
+                if ( budget != null ) {
+                    budget.acquire(size);
+                }
+                ChunkProcessing cp = new ChunkProcessing(chunk, forceLogRegionFormat, decoder);
+                SizedChunk f = new SizedChunk(cp, size);
+                chunkProcessor.execute(f);
                 while ( f != null ) {
                   try {
                     queue.put(f);
@@ -287,6 +321,37 @@ public class ChunkExchange implements Iterable<LogRecord>, Future<Void> {
         return master;
     }
 
+    private static class SizedChunk extends FutureTask<List<LogRecord>> {
+        private final long size;
+
+        SizedChunk(Callable<List<LogRecord>> unpack, long size) {
+            super(unpack);
+            this.size = size;
+        }
+    }
+
+    private static class ReadBudget {
+        private final long limit;
+        private long held = 0;
+
+        ReadBudget(long limit) {
+            this.limit = limit;
+        }
+
+        //  one chunk is always let through so a chunk larger than the budget is still read
+        synchronized void acquire(long size) throws InterruptedException {
+            while ( held > 0 && held + size > limit ) {
+                this.wait();
+            }
+            held += size;
+        }
+
+        synchronized void release(long size) {
+            held -= size;
+            this.notifyAll();
+        }
+    }
+
     class RecordIterator implements Iterator<LogRecord> {
 
         long loaded = 0;
@@ -319,6 +384,9 @@ public class ChunkExchange implements Iterable<LogRecord>, Future<Void> {
                 try {
                     Future<List<LogRecord>> pre = queue.poll(3, TimeUnit.MILLISECONDS);
                     if ( pre != null ) {
+                        if ( budget != null ) {
+                            budget.release(((SizedChunk)pre).size);
+                        }
                         long nano = System.nanoTime();
                         list = pre.get();
                         recordWait += (System.nanoTime() - nano);
@@ -336,7 +404,7 @@ public class ChunkExchange implements Iterable<LogRecord>, Future<Void> {
                 }
             }
             
-            if ( list.isEmpty() || list.get(0).getLsn() < lowestLsn) {
+            if ( list.isEmpty() || list.get(0).getLsn() < stopLsn()) {
                 setDone();
                 return false;
             } else {
@@ -354,9 +422,9 @@ public class ChunkExchange implements Iterable<LogRecord>, Future<Void> {
             }
             LogRecord head = list.remove(0);
             
-            if ( head.getLsn() < lowestLsn ) {
+            if ( head.getLsn() < stopLsn() ) {
                 setDone();
-                throw new NoSuchElementException("earliest valid record has been already been recovered " + head.getLsn() + " < " + lowestLsn);
+                throw new NoSuchElementException("earliest valid record has been already been recovered " + head.getLsn() + " < " + stopLsn());
             }
             
             lsn = head.getLsn();
@@ -387,7 +455,11 @@ public class ChunkExchange implements Iterable<LogRecord>, Future<Void> {
 
         synchronized void setDone() {
             checkReadException();
-            if ( lowestLsn >= 100 && lsn != lowestLsn) {
+            if ( floor > lowestLsn ) {
+                if ( floor <= lastLsn && lsn != floor ) {
+                    throw new RuntimeException("bad recovery floor: " + floor + " lsn:" + lsn);
+                }
+            } else if ( lowestLsn >= 100 && lsn != lowestLsn) {
                 throw new RuntimeException("bad recovery lowest lsn: " + lowestLsn + " lsn:" + lsn);
             } else {
                 LOGGER.debug("lowest lsn: " + lowestLsn + " lsn:" + lsn);
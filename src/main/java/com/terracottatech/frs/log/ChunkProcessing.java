@@ -19,6 +19,7 @@ import com.terracottatech.frs.io.Chunk;
 import com.terracottatech.frs.io.Loadable;
 import java.io.Closeable;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.concurrent.Callable;
 
 /**
@@ -29,10 +30,16 @@ public class ChunkProcessing implements Callable<List<LogRecord>> {
     
     private final Chunk           base;
     private final String forceLogRegionFormat;
+    private final RecordDecoder decoder;
 
     public ChunkProcessing(Chunk base, String forceLogRegionFormat) {
+        this(base, forceLogRegionFormat, null);
+    }
+
+    public ChunkProcessing(Chunk base, String forceLogRegionFormat, RecordDecoder decoder) {
         this.base = base;
         this.forceLogRegionFormat = forceLogRegionFormat;
+        this.decoder = decoder;
     }
 
     @Override
@@ -42,6 +49,11 @@ public class ChunkProcessing implements Callable<List<LogRecord>> {
       }
       try {
         List<LogRecord> records = LogRegionPacker.unpackInReverse(Signature.ADLER32, forceLogRegionFormat, base);
+        if ( decoder != null ) {
+            for ( ListIterator<LogRecord> it = records.listIterator(); it.hasNext(); ) {
+                it.set(decoder.decode(it.next()));
+            }
+        }
         return records;
       } finally {
         if ( base instanceof Closeable ) {
@@ -15,7 +15,7 @@
  */
 package com.terracottatech.frs.log;
 
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 
 /**
  *
@@ -33,5 +33,5 @@ public interface CommitList extends Iterable<LogRecord> {
     void written();
     void exceptionThrown(Exception exp);
     CommitList create(long baseLsn);
-    Future<Void> getWriteFuture();
+    CompletableFuture<Void> getWriteFuture();
 }
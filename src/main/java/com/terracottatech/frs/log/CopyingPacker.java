@@ -30,7 +30,11 @@ public class CopyingPacker extends LogRegionPacker {
     private static final int FUTURE_SPACER = 64;
     
     public CopyingPacker(Signature sig, String forceLogRegionFormat, BufferSource copyInto) {
-        super(sig, forceLogRegionFormat);
+        this(sig, forceLogRegionFormat, copyInto, false);
+    }   
+    
+    public CopyingPacker(Signature sig, String forceLogRegionFormat, BufferSource copyInto, boolean compress) {
+        super(sig, null, forceLogRegionFormat, compress);
         pool = copyInto;
     }   
 
@@ -0,0 +1,142 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import com.terracottatech.frs.util.Log2LatencyBins;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes commit lists and decides how long the head of the commit chain may be 
+ * held open for more records, aiming to keep the p99 commit latency under a 
+ * target while putting as many records as possible behind each fsync.
+ * <p>
+ * The write queue thread reports each sealed list, the io thread reports 
+ * fsync and commit latencies.  Every few batches the window and hold are 
+ * recomputed: the hold grows additively while observed p99 commit latency is
+ * under target and there is enough traffic to make waiting worthwhile, and 
+ * is halved as soon as the target is missed.
+ *
+ * @author mscott
+ */
+public class GroupCommitController {
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogManager.class);
+
+    static final int MINIMUM_WINDOW = 16;
+    static final int ADJUST_INTERVAL = 64;
+    private static final double PERCENTILE = 0.99;
+    private static final double SMOOTHING = 0.2;
+    
+    private final long target;
+    private final int maxWindow;
+    private final Log2LatencyBins syncLatency = new Log2LatencyBins("FRS group commit sync", 24, 10);
+    private final Log2LatencyBins commitLatency = new Log2LatencyBins("FRS group commit", 24, 10);
+    
+    private volatile int window;
+    private volatile long hold = 0;
+//  only touched by the write queue thread
+    private double arrivalRate = 0;
+    private long lastSeal = 0;
+    private int batches = 0;
+
+    /**
+     * @param target p99 commit latency target in nanoseconds
+     * @param maxWindow upper bound on commit list size
+     */
+    public GroupCommitController(long target, int maxWindow) {
+        if ( target <= 0 ) {
+            throw new IllegalArgumentException("latency target must be positive");
+        }
+        this.target = target;
+        this.maxWindow = Math.max(MINIMUM_WINDOW, maxWindow);
+        this.window = Math.min(this.maxWindow, 256);
+    }
+    
+    /**
+     * @return slots to allocate for the next commit list
+     */
+    public int window() {
+        return window;
+    }
+    
+    /**
+     * @return how long the head of the chain may be held open after its first
+     * record arrived, in nanoseconds
+     */
+    public long holdNanos() {
+        return hold;
+    }
+    
+    long targetNanos() {
+        return target;
+    }
+    
+    /**
+     * a commit list was sealed with the given number of records
+     */
+    public void sealed(long records, long now) {
+        if ( lastSeal != 0 && now > lastSeal ) {
+            double rate = records / (double)(now - lastSeal);
+            arrivalRate = ( arrivalRate == 0 ) ? rate : 
+                    (SMOOTHING * rate) + ((1 - SMOOTHING) * arrivalRate);
+        }
+        lastSeal = now;
+        if ( ++batches >= ADJUST_INTERVAL ) {
+            batches = 0;
+            adjust();
+        }
+    }
+    
+    public void synced(long nanos) {
+        syncLatency.record(nanos);
+    }
+    
+    public void committed(long nanos) {
+        commitLatency.record(nanos);
+    }
+    
+    private void adjust() {
+        long sync99 = syncLatency.percentile(PERCENTILE);
+        long commit99 = commitLatency.percentile(PERCENTILE);
+        long budget = Math.max(0, target - sync99);
+        long next = hold;
+        
+        if ( commit99 > target ) {
+            next = next / 2;
+        } else if ( arrivalRate * budget >= 1.0 ) {
+    //  at least one more record is expected inside the budget, waiting pays
+            next = Math.min(budget, next + Math.max(budget / 8, TimeUnit.MICROSECONDS.toNanos(1)));
+        } else {
+            next = 0;
+        }
+        hold = next;
+        
+    //  room for everything that arrives over one fsync cycle, twice over so 
+    //  writers rarely spill into the next list
+        long expected = (long)Math.ceil(arrivalRate * (sync99 + next) * 2);
+        window = (int)Math.max(MINIMUM_WINDOW, Math.min(maxWindow, Long.highestOneBit(Math.max(1, expected)) << 1));
+        
+        if ( LOGGER.isDebugEnabled() ) {
+            LOGGER.debug("==GROUPCOMMIT== rate/ms: " + (long)(arrivalRate * 1e6) + " sync p99: " + sync99 + 
+                    " commit p99: " + commit99 + " hold: " + hold + " window: " + window);
+        }
+        syncLatency.sloppyReset();
+        commitLatency.sloppyReset();
+    }
+}
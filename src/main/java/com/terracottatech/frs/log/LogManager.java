@@ -15,12 +15,16 @@
  */
 package com.terracottatech.frs.log;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.Snapshot;
 import com.terracottatech.frs.io.IOStatistics;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -36,15 +40,96 @@ public interface LogManager {
 
   Iterator<LogRecord> startup();
 
+  /**
+   * Decode the records returned by the next {@link #startup()} with decoder 
+   * while the log is unpacked.  Logs that cannot decode ahead return the 
+   * records as read.
+   *
+   * @param decoder applied to each recovered record, possibly concurrently
+   */
+  void decodeRecovery(RecordDecoder decoder);
+
+  /**
+   * End the recovery iterator returned by {@link #startup()} at lsn rather than 
+   * at the lowest lsn of the log.  Records below lsn may still be returned by 
+   * logs that cannot stop early.
+   *
+   * @param lsn lowest lsn recovery needs
+   */
+  void limitRecovery(long lsn);
+
   void shutdown();
   
   Future<Void> append(LogRecord record);
   
   Future<Void> appendAndSync(LogRecord record);
 
+  /**
+   * Append the records in order under one contiguous range of lsns.
+   *
+   * @param records records to append, each gets the next lsn in the range
+   * @param sync sync the log once the last record is written
+   * @return a single {@link Future} that completes once all the records are written
+   */
+  Future<Void> appendAll(List<LogRecord> records, boolean sync);
+
+  /**
+   * Append the record without blocking.  The returned future completes on the
+   * log manager's completion executor once the record is written, never on the 
+   * thread doing io.
+   */
+  CompletableFuture<Void> appendAsync(LogRecord record);
+
+  /**
+   * Append the record without blocking.  The returned future completes on the
+   * log manager's completion executor once the record is written and synced.
+   */
+  CompletableFuture<Void> appendAndSyncAsync(LogRecord record);
+
+  /**
+   * Append the record without blocking, acknowledged once it has the given 
+   * durability.  The returned future completes on the log manager's completion 
+   * executor with the durability the record actually reached.
+   */
+  CompletableFuture<Durability> appendAsync(LogRecord record, Durability durability);
+
+  /**
+   * Wait for a turn to append a background record.  Background work like 
+   * compaction calls this before each append, and before taking anything a 
+   * foreground writer might need, so it yields to foreground appends while 
+   * the log is saturated.
+   */
+  void awaitBackgroundTurn() throws InterruptedException;
+
+  /**
+   * @return the highest lsn handed to the OS, every lsn at or below it is written
+   */
+  long writtenLsn();
+
+  /**
+   * @return the highest lsn forced to disk, every lsn at or below it survives a crash
+   */
+  long durableLsn();
+
+  /**
+   * Wait for every record up to and including lsn to be durable.  Callers
+   * acknowledging many records only need to wait on the highest of them.
+   *
+   * @return {@code true} once lsn is durable, {@code false} if the timeout 
+   *     expired or the log was shutdown first
+   * @throws LogWriteError if the log failed before lsn was durable
+   */
+  boolean awaitDurable(long lsn, long timeout, TimeUnit unit) throws InterruptedException;
+
   Snapshot snapshot() throws ExecutionException, InterruptedException;
 
   Future<Snapshot> snapshotAsync();
   
   IOStatistics getIOStatistics();
+
+  /**
+   * @return bytes appended but not yet written as a fraction of the configured 
+   * budget, 0 when appends are not bounded
+   */
+  double writePressure();
 }
@@ -23,16 +23,25 @@ import com.terracottatech.frs.io.SimpleBufferSource;
 import com.terracottatech.frs.util.ByteBufferUtils;
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,30 +73,66 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
     //  just hinting
     private int tuningMax = 10;
     static final short REGION_VERSION = 02;
+    //  signed regions carry the signature code in place of the duplicate checksum
+    static final short SIGNED_REGION_VERSION = 03;
     //we only use the first two US-ASCII bytes of these strings (limited space in the header)
     public static final String OLD_REGION_FORMAT_STRING = "NF";
     public static final String NEW_REGION_FORMAT_STRING = "HT";
+    //  the hints and records of an HT region, deflated
+    public static final String COMPRESSED_REGION_FORMAT_STRING = "ZC";
     //the old region format bytes sequence (notice the default charset use!)
     static final byte[] OLD_REGION_FORMAT = OLD_REGION_FORMAT_STRING.getBytes();
     static final byte[] NEW_REGION_FORMAT = NEW_REGION_FORMAT_STRING.getBytes(US_ASCII);
+    static final byte[] COMPRESSED_REGION_FORMAT = COMPRESSED_REGION_FORMAT_STRING.getBytes(US_ASCII);
+    //  regions smaller than this are not worth a trip through the compressor
+    static final int MINIMUM_COMPRESSED_REGION = 1024;
     static final short LR_FORMAT = 02;
     private static final String BAD_CHECKSUM = "bad checksum";
     private final Signature cType;
     private final String forcedLogRegionFormat;
+    private final boolean compress;
 
-    private static final ThreadLocal<byte[]> buffer = new ThreadLocal<byte[]>();
+    private static final ThreadLocal<Deflater> deflater = new ThreadLocal<Deflater>();
+    private static final ThreadLocal<Inflater> inflater = new ThreadLocal<Inflater>();
+    private static final MethodHandle CRC32C_CREATE;
+    private static final MethodHandle CRC32C_UPDATE;
+    
+    static {
+  //  java.util.zip.CRC32C is only on 9+ runtimes
+        MethodHandle create = null;
+        MethodHandle update = null;
+        try {
+            Class<?> crc32c = Class.forName("java.util.zip.CRC32C");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            create = lookup.findConstructor(crc32c, MethodType.methodType(void.class)).asType(MethodType.methodType(Checksum.class));
+            update = lookup.findVirtual(crc32c, "update", MethodType.methodType(void.class, ByteBuffer.class)).asType(MethodType.methodType(void.class, Checksum.class, ByteBuffer.class));
+        } catch ( ClassNotFoundException | NoSuchMethodException | IllegalAccessException notavailable ) {
+            create = null;
+            update = null;
+        }
+        CRC32C_CREATE = create;
+        CRC32C_UPDATE = update;
+    }
      
     public LogRegionPacker(Signature sig, String forcedLogRegionFormat) {
         this(sig, new SimpleBufferSource(), forcedLogRegionFormat);
     }   
     
     public LogRegionPacker(Signature sig, BufferSource src, String forcedLogRegionFormat) {
+        this(sig, src, forcedLogRegionFormat, false);
+    }
+    
+    public LogRegionPacker(Signature sig, BufferSource src, String forcedLogRegionFormat, boolean compress) {
         cType = sig;
         
-        assert(cType == Signature.NONE || cType == Signature.ADLER32);
+        if ( cType == Signature.CRC32C && CRC32C_CREATE == null ) {
+            throw new UnsupportedOperationException("CRC32C checksums need a Java 9 or later runtime");
+        }
         
         this.source = ( src == null ) ? new SimpleBufferSource() : src;
         this.forcedLogRegionFormat = forcedLogRegionFormat;
+  //  a forced format means the reader ignores the format bytes, it would never see the compression
+        this.compress = compress && FrsProperty.FORCE_LOG_REGION_FORMAT.defaultValue().equals(forcedLogRegionFormat);
     }   
     
     @Override
@@ -129,7 +174,9 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
     }
     
     public static LogRecord extract(Signature type, String forcedLogRegionFormat, Chunk data, long match) throws FormatException, IOException {
-        long[] spreads = readRegionHeader(forcedLogRegionFormat, data,type == Signature.ADLER32);
+        Region region = readRegionHeader(forcedLogRegionFormat, data,type != Signature.NONE);
+        long[] spreads = region.spreads;
+        data = region.records;
         long skip = 0;
         for ( long j : spreads ) {
           long mark = data.getLong(data.position() + skip + j + ByteBufferUtils.SHORT_SIZE);
@@ -152,8 +199,61 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
         return target;
     }
     
+    /**
+     * Reads the lsn range of a packed region without moving the position of the chunk.
+     *
+     * @return { first lsn, last lsn } or { -1, -1 } for a region without records
+     */
+    public static long[] peekLsnRange(String forcedLogRegionFormat, Chunk data) {
+        long pos = data.position();
+        long limit = pos + data.remaining();
+        boolean hints;
+        if (FrsProperty.FORCE_LOG_REGION_FORMAT.defaultValue().equals(forcedLogRegionFormat)) {
+            int offset = ByteBufferUtils.SHORT_SIZE + (2 * ByteBufferUtils.LONG_SIZE);
+            if ( data.get(pos + offset) == COMPRESSED_REGION_FORMAT[0] && data.get(pos + offset + 1) == COMPRESSED_REGION_FORMAT[1] ) {
+                return peekCompressedLsnRange(data);
+            }
+            hints = data.get(pos + offset) == NEW_REGION_FORMAT[0] && data.get(pos + offset + 1) == NEW_REGION_FORMAT[1];
+        } else {
+            hints = NEW_REGION_FORMAT_STRING.equals(forcedLogRegionFormat);
+        }
+        return lsnRange(data, pos + LOG_REGION_HEADER_SIZE, limit, hints);
+    }
+    
+    private static long[] peekCompressedLsnRange(Chunk data) {
+        long pos = data.position();
+        long lim = data.length();
+        try {
+            data.skip(LOG_REGION_HEADER_SIZE);
+            Chunk records = inflate(data);
+            return lsnRange(records, 0, records.remaining(), true);
+        } catch ( FormatException format ) {
+            throw new RuntimeException(format);
+        } finally {
+            data.clear();
+            data.skip(pos);
+            data.limit(lim);
+        }
+    }
+    
+    private static long[] lsnRange(Chunk data, long pos, long limit, boolean hints) {
+        if ( hints ) {
+            pos += ByteBufferUtils.SHORT_SIZE + (data.getShort(pos) * ByteBufferUtils.LONG_SIZE);
+        }
+        long first = -1;
+        long last = -1;
+        while ( pos < limit ) {
+            last = data.getLong(pos + ByteBufferUtils.SHORT_SIZE);
+            if ( first < 0 ) {
+                first = last;
+            }
+            pos += LOG_RECORD_HEADER_SIZE + data.getLong(pos + ByteBufferUtils.SHORT_SIZE + ByteBufferUtils.LONG_SIZE);
+        }
+        return new long[] {first, last};
+    }
+
     public static List<LogRecord> unpack(Signature type, String forcedLogRegionFormat, Chunk data) throws FormatException {
-        readRegionHeader(forcedLogRegionFormat, data,type == Signature.ADLER32);
+        data = readRegionHeader(forcedLogRegionFormat, data,type != Signature.NONE).records;
         
         LinkedList<LogRecord> queue = new LinkedList<LogRecord>();
                 
@@ -164,7 +264,7 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
     }
     
      public static List<LogRecord> unpackInReverse(Signature type, String forcedLogRegionFormat, Chunk data) throws FormatException {
-        readRegionHeader(forcedLogRegionFormat, data,type == Signature.ADLER32);
+        data = readRegionHeader(forcedLogRegionFormat, data,type != Signature.NONE).records;
         
         LinkedList<LogRecord> queue = new LinkedList<LogRecord>();
                 
@@ -177,7 +277,7 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
 
     @Override
     public List<LogRecord> unpack(Chunk data) throws FormatException {
-        readRegionHeader(forcedLogRegionFormat, data,false);
+        data = readRegionHeader(forcedLogRegionFormat, data,false).records;
         
         ArrayList<LogRecord> queue = new ArrayList<LogRecord>();
                 
@@ -246,17 +346,41 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
         
         hints.flip();
 
-        formRegionHeader(doChecksum() ? checksum(buffers.subList(2, buffers.size())) : 0,regionHeader);
+        ByteBuffer packed = ( compress ) ? deflate(buffers.subList(1, buffers.size())) : null;
+        if ( packed != null ) {
+            buffers.subList(1, buffers.size()).clear();
+            buffers.add(packed);
+        }
+        List<ByteBuffer> summed = ( packed != null ) ? buffers.subList(1, 2) : buffers.subList(2, buffers.size());
+        if ( cType == Signature.NONE || cType == Signature.ADLER32 ) {
+            formRegionHeader(doChecksum() ? checksum(summed) : 0,regionHeader);
+        } else {
+            formSignedRegionHeader(cType, checksum(cType, summed),regionHeader);
+        }
+        if ( packed != null ) {
+            regionHeader.put(LOG_REGION_HEADER_SIZE - COMPRESSED_REGION_FORMAT.length, COMPRESSED_REGION_FORMAT[0]);
+            regionHeader.put(LOG_REGION_HEADER_SIZE - COMPRESSED_REGION_FORMAT.length + 1, COMPRESSED_REGION_FORMAT[1]);
+        }
         tuningMax = tuningMax + (int)Math.round((count - tuningMax) * .1);
         
         return new BufferListWrapper(buffers, source);
     }
     
     protected boolean doChecksum() {
-        return cType == Signature.ADLER32;
+        return cType != Signature.NONE;
     }
     
-    private static long[] readRegionHeader(String forcedLogRegionFormat, Chunk data, boolean checksum) throws FormatException {
+    private static class Region {
+        private final long[] spreads;
+        private final Chunk records;
+
+        Region(long[] spreads, Chunk records) {
+            this.spreads = spreads;
+            this.records = records;
+        }
+    }
+    
+    private static Region readRegionHeader(String forcedLogRegionFormat, Chunk data, boolean checksum) throws FormatException {
         Chunk header = data.getChunk(ByteBufferUtils.LONG_SIZE * 2 + ByteBufferUtils.SHORT_SIZE + 2);
         try {
             short region = header.getShort();
@@ -272,31 +396,41 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
                 regionFormat = Arrays.copyOf(forcedLogRegionFormat.getBytes(US_ASCII), 2);
             }
 
-            if ( check != check2 ) {
-                throw new FormatException("log region has mismatched checksums");
+            Signature signed;
+            if ( region == REGION_VERSION ) {
+                if ( check != check2 ) {
+                    throw new FormatException("log region has mismatched checksums");
+                }
+                signed = ( check != 0 ) ? Signature.ADLER32 : Signature.NONE;
+            } else if ( region == SIGNED_REGION_VERSION ) {
+                signed = Signature.forCode(check2);
+                if ( signed == null ) {
+                    throw new FormatException("log region has an unrecognized signature code");
+                }
+            } else {
+                throw new FormatException("log region has an unrecognized version code");
             }
 
-            if ( region != REGION_VERSION ) {
-                throw new FormatException("log region has an unrecognized version code");
+            boolean compressed = Arrays.equals(COMPRESSED_REGION_FORMAT, regionFormat);
+            
+  //  compressed regions are checksummed as written, everything after the region header
+            if ( compressed ) {
+                verify(signed, checksum, check, data);
+                data = inflate(data);
             }
 
             long[] spreads;
-            if (Arrays.equals(NEW_REGION_FORMAT, regionFormat)) {
+            if (compressed || Arrays.equals(NEW_REGION_FORMAT, regionFormat)) {
                 spreads = readSpreads(data);
             } else {
                 spreads = new long[0];
             }
 
-            if ( check != 0 && checksum ) {
-                long value = data.getBuffers() == null ? 
-                    checksum(data) : checksum(Arrays.asList(data.getBuffers()));
-
-                if (check != value ) {
-                    throw new FormatException("Adler32 checksum is not correct",check,value,data.length());
-                }
-            }    
+            if ( !compressed ) {
+                verify(signed, checksum, check, data);
+            }
             
-            return spreads;
+            return new Region(spreads, data);
         } catch ( IOException ioe ) {
           throw new RuntimeException(ioe);
         } finally {
@@ -310,6 +444,89 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
         }
     }
     
+    private static void verify(Signature signed, boolean checksum, long check, Chunk data) throws FormatException {
+        if ( signed != Signature.NONE && checksum ) {
+            long value = data.getBuffers() == null ? 
+                checksum(signed, data) : checksum(signed, Arrays.asList(data.getBuffers()));
+
+            if (check != value ) {
+                throw new FormatException(signed + " checksum is not correct",check,value,data.length());
+            }
+        }    
+    }
+    
+    private static Chunk inflate(Chunk data) throws FormatException {
+        int size = data.getInt();
+        byte[] packed = new byte[(int)data.remaining()];
+        data.get(packed);
+        byte[] records = new byte[size];
+        Inflater inflate = inflater.get();
+        if ( inflate == null ) {
+            inflate = new Inflater(true);
+            inflater.set(inflate);
+        }
+        try {
+            inflate.setInput(packed);
+            int got = 0;
+            while ( got < size && !inflate.finished() ) {
+                int amt = inflate.inflate(records, got, size - got);
+                if ( amt == 0 && (inflate.needsInput() || inflate.needsDictionary()) ) {
+                    break;
+                }
+                got += amt;
+            }
+            if ( got != size ) {
+                throw new FormatException("compressed log region is truncated",size,got,packed.length);
+            }
+        } catch ( DataFormatException df ) {
+            throw new FormatException("compressed log region is corrupt",size,0,packed.length);
+        } finally {
+            inflate.reset();
+        }
+        return new BufferListWrapper(Collections.singletonList(ByteBuffer.wrap(records)));
+    }
+    
+    //  deflate the hints and records into a single buffer, null if it does not pay off
+    private static ByteBuffer deflate(List<ByteBuffer> block) {
+        int size = 0;
+        for (ByteBuffer b : block) {
+            size += b.remaining();
+        }
+        if ( size < MINIMUM_COMPRESSED_REGION ) {
+            return null;
+        }
+        byte[] raw = new byte[size];
+        int pos = 0;
+        for (ByteBuffer b : block) {
+            int len = b.remaining();
+            b.duplicate().get(raw, pos, len);
+            pos += len;
+        }
+        Deflater deflate = deflater.get();
+        if ( deflate == null ) {
+            deflate = new Deflater(Deflater.BEST_SPEED, true);
+            deflater.set(deflate);
+        }
+  //  anything that doesn't save an eighth goes out as written
+        byte[] packed = new byte[ByteBufferUtils.INT_SIZE + size - (size >> 3)];
+        try {
+            deflate.setInput(raw);
+            deflate.finish();
+            int len = ByteBufferUtils.INT_SIZE;
+            while ( !deflate.finished() && len < packed.length ) {
+                len += deflate.deflate(packed, len, packed.length - len);
+            }
+            if ( !deflate.finished() ) {
+                return null;
+            }
+            ByteBuffer result = ByteBuffer.wrap(packed, 0, len);
+            result.putInt(0, size);
+            return result;
+        } finally {
+            deflate.reset();
+        }
+    }
+    
     private static long[] readSpreads(Chunk data) throws IOException {
       short len = data.getShort();
       long[] list = new long[len];
@@ -334,6 +551,17 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
         return header.remaining();
     }
     
+    protected int formSignedRegionHeader(Signature sig, long checksum, ByteBuffer header) {
+        header.clear();
+        header.putShort(SIGNED_REGION_VERSION);
+        header.putLong(checksum);
+        header.putLong(sig.code());
+        header.put(NEW_REGION_FORMAT);
+        header.flip();
+
+        return header.remaining();
+    }
+    
     protected int formRecordHeader(long length, long lsn, ByteBuffer header) {
         header.putShort(LR_FORMAT);
         header.putLong(lsn);
@@ -342,61 +570,96 @@ public class LogRegionPacker implements LogRegionFactory<LogRecord> {
     }
     
     protected static long checksum(Chunk bufs) {
+        return checksum(Signature.ADLER32, bufs);
+    }
+    
+    protected static long checksum(Iterable<ByteBuffer> bufs) {
+        return checksum(Signature.ADLER32, bufs);
+    }
+    
+    protected static long checksum(Signature type, Chunk bufs) {
         long pos = bufs.position();
         long lim = bufs.length();
-        Adler32 checksum = new Adler32();
         byte[] temp = new byte[8192];
-        while (bufs.hasRemaining()) {
-            int got = bufs.get(temp);
-            checksum.update(temp, 0, got);
+        long value;
+        if ( type == Signature.MD5 || type == Signature.SHA1 ) {
+            MessageDigest digest = digest(type);
+            while (bufs.hasRemaining()) {
+                int got = bufs.get(temp);
+                digest.update(temp, 0, got);
+            }
+            value = ByteBuffer.wrap(digest.digest()).getLong();
+        } else {
+            Checksum checksum = checksum(type);
+            while (bufs.hasRemaining()) {
+                int got = bufs.get(temp);
+                checksum.update(temp, 0, got);
+            }
+            value = checksum.getValue();
         }
         bufs.clear();
         bufs.skip(pos);
         bufs.limit(lim);
-        return checksum.getValue();
+        return value;
     }
     
-    protected static long checksum(Iterable<ByteBuffer> bufs) {
-        Adler32 checksum = new Adler32();
+    //  direct buffers go straight to the checksum or digest, no copying through the heap
+    protected static long checksum(Signature type, Iterable<ByteBuffer> bufs) {
+        if ( type == Signature.MD5 || type == Signature.SHA1 ) {
+            MessageDigest digest = digest(type);
+            for (ByteBuffer buf : bufs) {
+                digest.update(buf.duplicate());
+            }
+            //  the region header only has room for the leading 8 bytes of the digest
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        }
+        
+        Checksum checksum = checksum(type);
         for (ByteBuffer buf : bufs) {
             if (buf.hasArray()) {
                 checksum.update(buf.array(),buf.arrayOffset() + buf.position(),(buf.limit()-buf.position()));
+            } else if ( checksum instanceof Adler32 ) {
+                ((Adler32)checksum).update(buf.duplicate());
+            } else if ( checksum instanceof CRC32 ) {
+                ((CRC32)checksum).update(buf.duplicate());
             } else {
-                byte[] temp = buffer.get();
-                if ( temp == null ) {
-                  temp = new byte[8192];
-                  buffer.set(temp);
-                }                
-                buf.mark();
-                while (buf.hasRemaining()) {
-                    int fetch = ( buf.remaining() > temp.length ) ? temp.length : buf.remaining();
-                    buf.get(temp,0,fetch);
-                    checksum.update(temp, 0, fetch);
+                try {
+                    CRC32C_UPDATE.invokeExact(checksum, buf.duplicate());
+                } catch ( Throwable t ) {
+                    throw new RuntimeException(t);
                 }
-                buf.reset();
             }
         }
 
         return checksum.getValue();
     }
     
-    protected static byte[] md5(Iterable<ByteBuffer> bufs) {
-        try {
-            MessageDigest md5 = MessageDigest.getInstance("MD5");
-            for (ByteBuffer buf : bufs) {
-                if (buf.hasArray()) {
-                    md5.update(buf.array(),buf.arrayOffset() + buf.position(),(buf.limit()-buf.position()));
-                } else {
-                    buf.mark();
-                    md5.update(buf);
-                    buf.reset();
+    private static Checksum checksum(Signature type) {
+        switch (type) {
+            case ADLER32:
+                return new Adler32();
+            case CRC32:
+                return new CRC32();
+            case CRC32C:
+                if ( CRC32C_CREATE == null ) {
+    //  not a format problem, the region is fine but this runtime cannot verify it
+                    throw new UnsupportedOperationException("CRC32C checksums need a Java 9 or later runtime");
                 }
-            }
-
-            return md5.digest();
+                try {
+                    return (Checksum)CRC32C_CREATE.invokeExact();
+                } catch ( Throwable t ) {
+                    throw new RuntimeException(t);
+                }
+            default:
+                throw new IllegalArgumentException(type + " is not a checksum");
+        }
+    }
+    
+    private static MessageDigest digest(Signature type) {
+        try {
+            return MessageDigest.getInstance(type == Signature.MD5 ? "MD5" : "SHA-1");
         } catch ( NoSuchAlgorithmException no ) {
-            LOGGER.error("MD5 checksumming selected but the package is not available",no);
-            return new byte[16];
+            throw new UnsupportedOperationException(type + " checksumming selected but the package is not available",no);
         }
     }  
     
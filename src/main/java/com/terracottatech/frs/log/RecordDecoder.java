@@ -0,0 +1,32 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+/**
+ * Decodes recovered records on the threads unpacking the log, so the single
+ * thread iterating recovery is handed records that are ready to filter.
+ *
+ * @author mscott
+ */
+public interface RecordDecoder {
+
+    /**
+     * Called once for each recovered record, from any unpacking thread.
+     * 
+     * @return the record to hand to recovery in place of record
+     */
+    LogRecord decode(LogRecord record);
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import com.terracottatech.frs.SnapshotRequest;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Commit list backed by a preallocated ring of slots shared by every list in
+ * the chain.  A record's slot is fixed by its lsn so records that land past 
+ * the end of a closed list are already in place for the next one, nothing is 
+ * transferred and each new list is only a cursor over the ring.  Slots are 
+ * reused once the list holding them is written.
+ *
+ * @author mscott
+ */
+public class RingCommitList implements CommitList {
+    
+    public enum WaitStrategy {
+        SPIN {
+            @Override
+            void pause(long nanos) {
+            }
+        },
+        YIELD {
+            @Override
+            void pause(long nanos) {
+                Thread.yield();
+            }
+        },
+        PARK {
+            @Override
+            void pause(long nanos) {
+                LockSupport.parkNanos(nanos);
+            }
+        };
+        
+        abstract void pause(long nanos);
+    }
+    
+    //  producers waiting on a full ring check back this often when parked
+    private static final long PRODUCER_PARK = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Ring ring;
+    private final long baseLsn;
+    private final int window;
+    private final int wait;
+    private final GroupCommitController controller;
+    
+    private final AtomicLong endLsn = new AtomicLong();
+    private final AtomicLong highestLsn = new AtomicLong();
+    private final CompletableFuture<Void> written = new CompletableFuture<>();
+    private final Object guard = new Object();
+    private volatile CommitList next;
+    private volatile boolean atHead = false;
+    private volatile long firstArrival = 0;
+    private volatile boolean syncRequested = false;
+    //  only touched by the thread waiting for this list
+    private long contiguous;
+
+    public RingCommitList(long startLsn, int maxSize, int waitTime, WaitStrategy strategy) {
+        this(startLsn, maxSize, waitTime, strategy, null);
+    }
+
+    public RingCommitList(long startLsn, int maxSize, int waitTime, WaitStrategy strategy, GroupCommitController controller) {
+        this(new Ring(Math.max(maxSize, GroupCommitController.MINIMUM_WINDOW) * 8, strategy, startLsn - 1), 
+                startLsn, ( controller == null ) ? maxSize : controller.window(), waitTime, controller);
+    }
+    
+    private RingCommitList(Ring ring, long startLsn, int window, int waitTime, GroupCommitController controller) {
+        this.ring = ring;
+        this.baseLsn = startLsn;
+        this.window = Math.min(window, ring.capacity() / 2);
+        this.wait = waitTime;
+        this.controller = controller;
+        this.contiguous = startLsn;
+        this.highestLsn.set(startLsn - 1);
+    }
+
+    @Override
+    public boolean append(LogRecord record, boolean sync) {
+        if ( record == null ) return true;
+        
+        long lsn = record.getLsn();
+        assert (lsn >= baseLsn);
+
+        if ( lsn >= baseLsn + window ) {
+            return false;
+        }
+        
+        long end = endLsn.get();
+        if ( end > 0 && end < lsn ) return false;
+        
+  //  raise the high mark before looking at the end again.  a close that 
+  //  races this append either turns the record away here or finds the mark 
+  //  in written() and holds this list's future for the next list
+        raiseHighest(lsn);
+        end = endLsn.get();
+        if ( end > 0 && end < lsn ) return false;
+        
+        if ( !ring.publish(record, sync) ) {
+            return false;
+        }
+        
+        if ( controller != null && firstArrival == 0 ) {
+            firstArrival = System.nanoTime();
+        }
+        if ( (atHead && sync) || record instanceof SnapshotRequest ) {
+            close(highestLsn.get());
+        }
+        ring.signal();
+        
+        return true;
+    }
+
+    private void raiseHighest(long lsn) {
+        long high = highestLsn.get();
+        while ( high < lsn && !highestLsn.compareAndSet(high, lsn) ) {
+            high = highestLsn.get();
+        }
+    }
+
+    @Override
+    public CommitList next() {
+        if ( next == null ) {
+            long nextLsn = endLsn.get() + 1;
+            if ( nextLsn == 1 ) {
+                if ( endLsn.compareAndSet(0, baseLsn + window - 1) ) { 
+                    nextLsn = baseLsn + window;
+                } else {
+                    nextLsn = endLsn.get() + 1;
+                }
+            }
+            synchronized (guard) {
+                if ( next == null ) next = new RingCommitList(ring, nextLsn, 
+                        ( controller == null ) ? window : controller.window(), wait, controller);
+            }
+        }
+        return next;
+    }
+    
+    //  a new chain gets its own ring, slot positions are only valid relative 
+    //  to where the chain started
+    @Override
+    public CommitList create(long nextLsn) {
+        return new RingCommitList(new Ring(ring.capacity(), ring.strategy, nextLsn - 1), nextLsn, 
+                ( controller == null ) ? window : controller.window(), wait, controller);
+    }
+
+    @Override
+    public long getBaseLsn() {
+        return baseLsn;
+    }
+
+    @Override
+    public long getEndLsn() {
+        return endLsn.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return baseLsn > endLsn.get();
+    }
+
+    @Override
+    public boolean close(long end) {
+        if ( end >= baseLsn + window ) {
+            return false;
+        }
+        
+        if ( endLsn.compareAndSet(0, end) ) {
+            ring.signal();
+            return true;
+        }
+     // if not set here make sure this end is within the range, if not return false;
+        return ( end <= endLsn.get() );
+    }
+
+    @Override
+    public boolean isSyncRequested() {
+        return syncRequested;
+    }
+
+    @Override
+    public CompletableFuture<Void> getWriteFuture() {
+        return written;
+    }  
+
+    @Override
+    public void written() {
+        long end = endLsn.get();
+        ring.release(baseLsn, end);
+        if ( controller != null && firstArrival != 0 ) {
+            controller.committed(System.nanoTime() - firstArrival);
+        }
+  //  anyone who appended past a racing close is holding this future but 
+  //  their record went out with a later list.  the mark moves along so 
+  //  the next list holds its own future until that record is out as well
+        long high = highestLsn.get();
+        if ( high > end ) {
+            RingCommitList chain = (RingCommitList)next();
+            chain.raiseHighest(high);
+            chain.getWriteFuture().whenComplete((v, t) -> {
+                if ( t == null ) {
+                    written.complete(v);
+                } else {
+                    written.completeExceptionally(t);
+                }
+            });
+        } else {
+            written.complete(null);
+        }
+    }
+
+    @Override
+    public void waitForContiguous() throws InterruptedException {
+        ring.attach();
+        try {
+            if ( controller != null ) {
+                hold();
+            }
+            spin();
+        } finally {
+            ring.detach();
+        }
+    }
+    
+    private void spin() throws InterruptedException {
+        atHead = true;
+        if ( highestLsn.get() >= baseLsn ) {
+            close(highestLsn.get());
+        }
+        
+        long roundEnds = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wait);
+        while ( true ) {
+            long end = endLsn.get();
+            long limit = ( end > 0 ) ? end : baseLsn + window - 1;
+            contiguous = ring.scan(contiguous, limit);
+            if ( contiguous > limit ) {
+                break;
+            }
+            if ( Thread.interrupted() ) {
+                throw new InterruptedException();
+            }
+            long now = System.nanoTime();
+            if ( now - roundEnds >= 0 ) {
+                if ( end == 0 && highestLsn.get() >= baseLsn ) {
+                    close(highestLsn.get());
+                }
+                roundEnds = now + TimeUnit.MILLISECONDS.toNanos(wait);
+            } else {
+                ring.await(roundEnds - now);
+            }
+        }
+        endLsn.compareAndSet(0, baseLsn + window - 1);
+  //  sync requests travel with the slot, so a record that landed past a 
+  //  racing close is synced by the list that actually holds it
+        syncRequested = ring.syncRequested(baseLsn, endLsn.get());
+    }
+
+    //  group commit, give more records a chance to join before a sync request 
+    //  at the head closes this list
+    private void hold() throws InterruptedException {
+        long delay = controller.holdNanos();
+        long first = firstArrival;
+        if ( delay > 0 && first != 0 ) {
+            long until = first + delay;
+            long remaining = until - System.nanoTime();
+            while ( remaining > 0 && ring.scan(contiguous, baseLsn + window - 1) <= baseLsn + window - 1 ) {
+                ring.await(remaining);
+                remaining = until - System.nanoTime();
+            }
+        }
+    }
+
+    @Override
+    public void exceptionThrown(Exception exp) {
+        CommitList chain = null;
+        written.completeExceptionally(exp);
+        synchronized (guard) {
+            chain = next;
+        }
+        if ( chain != null ) {
+            chain.exceptionThrown(exp);
+        }
+    }  
+    
+//  iterator interface
+    @Override
+    public Iterator<LogRecord> iterator() {
+        assert(endLsn.get() > 0);
+        
+        final long end = endLsn.get();
+        
+        return new Iterator<LogRecord>() {
+            long current = baseLsn;
+            @Override
+            public boolean hasNext() {
+                return ( current <= end );
+            }
+
+            @Override
+            public LogRecord next() {
+                return ring.get(current++);
+            }
+
+            @Override
+            public void remove() {
+
+            }
+        };
+    }
+    
+    private static final class Ring {
+        private final AtomicReferenceArray<LogRecord> slots;
+        private final AtomicIntegerArray syncs;
+        private final int mask;
+        private final WaitStrategy strategy;
+        //  every lsn at or below this has been written and its slot is free
+        private volatile long released;
+        private volatile Thread waiter;
+        
+        Ring(int size, WaitStrategy strategy, long released) {
+            int capacity = Integer.highestOneBit(size - 1) << 1;
+            this.slots = new AtomicReferenceArray<LogRecord>(capacity);
+            this.syncs = new AtomicIntegerArray(capacity);
+            this.mask = capacity - 1;
+            this.strategy = strategy;
+            this.released = released;
+        }
+        
+        int capacity() {
+            return slots.length();
+        }
+        
+        boolean publish(LogRecord record, boolean sync) {
+            long lsn = record.getLsn();
+            int slot = (int)(lsn & mask);
+            while ( lsn - released > slots.length() ) {
+                strategy.pause(PRODUCER_PARK);
+            }
+  //  flag first, the io thread only looks at it once the record is visible
+            if ( sync ) {
+                syncs.set(slot, 1);
+            }
+            return slots.compareAndSet(slot, null, record);
+        }
+        
+        LogRecord get(long lsn) {
+            return slots.get((int)(lsn & mask));
+        }
+        
+        //  returns the first lsn after start that is not yet published
+        long scan(long start, long limit) {
+            while ( start <= limit ) {
+                LogRecord record = slots.get((int)(start & mask));
+                if ( record == null || record.getLsn() != start ) {
+                    break;
+                }
+                start++;
+            }
+            return start;
+        }
+        
+        //  the io thread registers before it scans so an unpark that lands 
+        //  between the scan and the park is not lost
+        void attach() {
+            waiter = Thread.currentThread();
+        }
+        
+        void detach() {
+            waiter = null;
+        }
+        
+        void await(long nanos) {
+            strategy.pause(nanos);
+        }
+        
+        void signal() {
+            Thread t = waiter;
+            if ( t != null ) {
+                LockSupport.unpark(t);
+            }
+        }
+        
+        boolean syncRequested(long base, long end) {
+            for (long lsn=base;lsn<=end;lsn++) {
+                if ( syncs.get((int)(lsn & mask)) != 0 ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        void release(long base, long end) {
+            for (long lsn=base;lsn<=end;lsn++) {
+                syncs.set((int)(lsn & mask), 0);
+                slots.set((int)(lsn & mask), null);
+            }
+            if ( end > released ) {
+                released = end;
+            }
+        }
+    }
+}
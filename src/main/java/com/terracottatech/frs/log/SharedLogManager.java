@@ -0,0 +1,611 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import com.terracottatech.frs.Durability;
+import com.terracottatech.frs.Snapshot;
+import com.terracottatech.frs.config.Configuration;
+import com.terracottatech.frs.config.FrsProperty;
+import com.terracottatech.frs.flash.ReadManager;
+import com.terracottatech.frs.io.Chunk;
+import com.terracottatech.frs.io.Direction;
+import com.terracottatech.frs.io.IOManager;
+import com.terracottatech.frs.io.IOStatistics;
+import com.terracottatech.frs.util.ByteBufferUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One physical log shared by many logical stores.  Every store gets its own 
+ * {@link LogManager} view, records appended through a view are tagged with 
+ * the store id so the IO pipeline, group commit and fsync are shared while 
+ * recovery and compaction stay per store.
+ * <p>
+ * All views must be opened before the first of them starts up.  The log is 
+ * read once and each record handed to the store that wrote it, records for 
+ * a store that is slow to start are buffered up to a bound and past that 
+ * only their lsn is kept and the record read again when the store gets to it.
+ * Records of a store that was not opened are skipped, but the log is not 
+ * reclaimed past the oldest of them so the store can be opened again later.
+ * <p>
+ * Checkpoints and the lsn gap compaction policy are not supported, both 
+ * measure the whole log against one store's objects.
+ *
+ * @author mscott
+ */
+public class SharedLogManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedLogManager.class);
+    private static final int TAG_SIZE = ByteBufferUtils.INT_SIZE;
+    private static final Object END = new Object();
+
+    private final Configuration configuration;
+    private final LogManager log;
+    private final ReadManager reads;
+    private final IOManager io;
+    private final int recoveryBuffer;
+    private final Map<Integer, StoreLog> stores = new ConcurrentHashMap<Integer, StoreLog>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final CountDownLatch recovered = new CountDownLatch(1);
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile Throwable recoveryError;
+    //  oldest record of a store that was not opened this time
+    private volatile long unopened = Long.MAX_VALUE;
+    private boolean started = false;
+
+    public SharedLogManager(Configuration configuration, LogManager log, ReadManager reads, IOManager io) {
+        this.configuration = configuration;
+        this.log = log;
+        this.reads = reads;
+        this.io = io;
+        this.recoveryBuffer = configuration.getInt(FrsProperty.LOG_SHARED_RECOVERY_BUFFER);
+        if ( configuration.getBoolean(FrsProperty.CHECKPOINT_ENABLED) ) {
+            throw new IllegalArgumentException("checkpoints are not supported on a shared log");
+        }
+        if ( "LSNGapCompactionPolicy".equals(configuration.getString(FrsProperty.COMPACTOR_POLICY)) ) {
+            throw new IllegalArgumentException("LSNGapCompactionPolicy is not supported on a shared log");
+        }
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    public synchronized LogManager open(int storeId) {
+        if ( started ) {
+            throw new IllegalStateException("shared log already started, store " + storeId + " opened too late");
+        }
+        if ( stores.containsKey(storeId) ) {
+            throw new IllegalArgumentException("store " + storeId + " is already open");
+        }
+        StoreLog store = new StoreLog(storeId);
+        stores.put(storeId, store);
+        running.incrementAndGet();
+        return store;
+    }
+
+    public ReadManager reader(int storeId) {
+        final StoreLog store = stores.get(storeId);
+        if ( store == null ) {
+            throw new IllegalArgumentException("store " + storeId + " is not open");
+        }
+        return new ReadManager() {
+            @Override
+            public LogRecord get(long marker) throws IOException {
+                return untag(reads.get(marker));
+            }
+        };
+    }
+
+    /**
+     * @return a read only view of the shared io for the store's compaction 
+     * policy, sizes are scaled to the store's share of the log
+     */
+    public IOManager statistics(int storeId) {
+        final StoreLog store = stores.get(storeId);
+        if ( store == null ) {
+            throw new IllegalArgumentException("store " + storeId + " is not open");
+        }
+        return new StoreIO(store);
+    }
+
+    private synchronized void startup() {
+        if ( started ) {
+            return;
+        }
+        started = true;
+        final Iterator<LogRecord> records = log.startup();
+        Thread demux = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    long last = Long.MAX_VALUE;
+                    while ( records != null && records.hasNext() ) {
+                        LogRecord record = records.next();
+                        last = record.getLsn();
+                        dispatch(record);
+                    }
+    //  stores only see their own records, check the whole log reached back
+    //  to the lowest lsn here
+                    if ( last != Long.MAX_VALUE && last > log.lowestLsn() ) {
+                        throw new IOException("Recovery is incomplete for shared log at " + 
+                            configuration.getDBHome() + ". Files may be missing.");
+                    }
+                } catch ( Throwable t ) {
+                    LOGGER.error("error recovering shared log", t);
+                    recoveryError = t;
+                } finally {
+                    recovered.countDown();
+                    for ( StoreLog store : stores.values() ) {
+                        store.recovery.add(END);
+                    }
+                }
+            }
+        };
+        demux.setDaemon(true);
+        demux.setName("Shared Log Recovery");
+        demux.start();
+    }
+
+    private void dispatch(LogRecord record) throws IOException {
+        ByteBuffer[] payload = record.getPayload();
+        long size = ByteBufferUtils.length(payload);
+        if ( size < TAG_SIZE ) {
+            record.close();
+            return;
+        }
+        StoreLog store = stores.get(ByteBufferUtils.getInt(payload));
+        if ( store == null ) {
+    //  a store that was not opened this time, drop its records but keep them 
+    //  in the log
+            unopened = Math.min(unopened, record.getLsn());
+            record.close();
+            return;
+        }
+        store.bytes.addAndGet(size);
+        totalBytes.addAndGet(size);
+        if ( store.buffered.get() < recoveryBuffer ) {
+            store.buffered.incrementAndGet();
+            store.recovery.add(record);
+        } else {
+            store.recovery.add(record.getLsn());
+            record.close();
+        }
+    }
+
+    private void awaitRecovered() {
+        boolean interrupted = false;
+        while ( true ) {
+            try {
+                recovered.await();
+                break;
+            } catch ( InterruptedException ie ) {
+                interrupted = true;
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void updateLowestLsn() {
+        if ( recovered.getCount() > 0 ) {
+            return;
+        }
+        long lowest = unopened;
+        for ( StoreLog store : stores.values() ) {
+            lowest = Math.min(lowest, store.lowest.get());
+        }
+        if ( lowest > log.lowestLsn() && lowest != Long.MAX_VALUE ) {
+            log.updateLowestLsn(lowest);
+        }
+    }
+
+    private static LogRecord untag(final LogRecord record) {
+        return new LogRecord() {
+            @Override
+            public long getLsn() {
+                return record.getLsn();
+            }
+
+            @Override
+            public void updateLsn(long lsn) {
+                record.updateLsn(lsn);
+            }
+
+            @Override
+            public ByteBuffer[] getPayload() {
+                ByteBuffer[] payload = record.getPayload();
+                ByteBuffer[] copy = new ByteBuffer[payload.length];
+                for (int x=0;x<payload.length;x++) {
+                    copy[x] = payload[x].duplicate();
+                }
+                ByteBufferUtils.skip(TAG_SIZE, copy);
+                return copy;
+            }
+
+            @Override
+            public void close() throws IOException {
+                record.close();
+            }
+        };
+    }
+
+    private class TaggedRecord implements LogRecord {
+        private final LogRecord record;
+        private final ByteBuffer tag;
+
+        TaggedRecord(LogRecord record, ByteBuffer tag) {
+            this.record = record;
+            this.tag = tag;
+        }
+
+        @Override
+        public long getLsn() {
+            return record.getLsn();
+        }
+
+        @Override
+        public void updateLsn(long lsn) {
+            record.updateLsn(lsn);
+        }
+
+        @Override
+        public ByteBuffer[] getPayload() {
+            return ByteBufferUtils.concatenate(tag.duplicate(), record.getPayload());
+        }
+
+        @Override
+        public void close() throws IOException {
+            record.close();
+        }
+    }
+
+    private class StoreLog implements LogManager {
+        private final ByteBuffer tag;
+        private final LinkedBlockingQueue<Object> recovery = new LinkedBlockingQueue<Object>();
+        private final AtomicInteger buffered = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong lowest = new AtomicLong();
+        private volatile boolean open = true;
+
+        StoreLog(int storeId) {
+            tag = ByteBuffer.allocate(TAG_SIZE);
+            tag.putInt(0, storeId);
+        }
+
+        private LogRecord tag(LogRecord record) {
+            long size = AdmissionController.sizeOf(record) + TAG_SIZE;
+            bytes.addAndGet(size);
+            totalBytes.addAndGet(size);
+            return new TaggedRecord(record, tag);
+        }
+
+        private List<LogRecord> tag(List<LogRecord> records) {
+            List<LogRecord> tagged = new ArrayList<LogRecord>(records.size());
+            for ( LogRecord record : records ) {
+                tagged.add(tag(record));
+            }
+            return tagged;
+        }
+
+        double share() {
+            long total = totalBytes.get();
+            return ( total == 0 ) ? 1d / stores.size() : ((double)bytes.get()) / total;
+        }
+
+        private void recovered(long oldest) {
+            long cl = lowest.get();
+            while ( oldest > cl && !lowest.compareAndSet(cl, oldest) ) {
+                cl = lowest.get();
+            }
+        }
+
+        @Override
+        public long currentLsn() {
+            return log.currentLsn();
+        }
+
+        @Override
+        public void updateLowestLsn(long lsn) {
+            long cl = lowest.get();
+            while ( lsn > cl && !lowest.compareAndSet(cl, lsn) ) {
+                cl = lowest.get();
+            }
+            SharedLogManager.this.updateLowestLsn();
+        }
+
+        @Override
+        public long lowestLsn() {
+            return Math.max(lowest.get(), log.lowestLsn());
+        }
+
+        @Override
+        public Iterator<LogRecord> startup() {
+            SharedLogManager.this.startup();
+            lowest.compareAndSet(0, log.lowestLsn());
+            return new Iterator<LogRecord>() {
+                private Object next;
+                private long oldest = Long.MAX_VALUE;
+
+                @Override
+                public boolean hasNext() {
+                    if ( next == null ) {
+                        boolean interrupted = false;
+                        while ( next == null ) {
+                            try {
+                                next = recovery.take();
+                            } catch ( InterruptedException ie ) {
+                                interrupted = true;
+                            }
+                        }
+                        if ( interrupted ) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    if ( next == END ) {
+                        if ( recoveryError != null ) {
+                            throw new RuntimeException(recoveryError);
+                        }
+    //  nothing of this store is older than its oldest record
+                        recovered(( oldest == Long.MAX_VALUE ) ? log.currentLsn() : oldest);
+                        return false;
+                    }
+                    return true;
+                }
+
+                @Override
+                public LogRecord next() {
+                    if ( !hasNext() ) {
+                        throw new NoSuchElementException();
+                    }
+                    Object item = next;
+                    next = null;
+                    if ( item instanceof LogRecord ) {
+                        buffered.decrementAndGet();
+                        oldest = ((LogRecord)item).getLsn();
+                        return untag((LogRecord)item);
+                    }
+    //  spilled, read it again once the shared pass is done with the io
+                    awaitRecovered();
+                    oldest = (Long)item;
+                    try {
+                        return untag(reads.get(oldest));
+                    } catch ( IOException ioe ) {
+                        throw new RuntimeException(ioe);
+                    }
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public void decodeRecovery(RecordDecoder decoder) {
+    //  records are unpacked once for every store sharing the log
+        }
+
+        @Override
+        public void limitRecovery(long lsn) {
+    //  the shared log is read in full for the other stores
+        }
+
+        @Override
+        public void shutdown() {
+            if ( open ) {
+                open = false;
+                if ( running.decrementAndGet() == 0 ) {
+                    log.shutdown();
+                }
+            }
+        }
+
+        @Override
+        public Future<Void> append(LogRecord record) {
+            return log.append(tag(record));
+        }
+
+        @Override
+        public Future<Void> appendAndSync(LogRecord record) {
+            return log.appendAndSync(tag(record));
+        }
+
+        @Override
+        public Future<Void> appendAll(List<LogRecord> records, boolean sync) {
+            return log.appendAll(tag(records), sync);
+        }
+
+        @Override
+        public CompletableFuture<Void> appendAsync(LogRecord record) {
+            return log.appendAsync(tag(record));
+        }
+
+        @Override
+        public CompletableFuture<Void> appendAndSyncAsync(LogRecord record) {
+            return log.appendAndSyncAsync(tag(record));
+        }
+
+        @Override
+        public CompletableFuture<Durability> appendAsync(LogRecord record, Durability durability) {
+            return log.appendAsync(tag(record), durability);
+        }
+
+        @Override
+        public void awaitBackgroundTurn() throws InterruptedException {
+            log.awaitBackgroundTurn();
+        }
+
+  //  lsns come from the one physical log, its watermarks hold for every store
+        @Override
+        public long writtenLsn() {
+            return log.writtenLsn();
+        }
+
+        @Override
+        public long durableLsn() {
+            return log.durableLsn();
+        }
+
+        @Override
+        public boolean awaitDurable(long lsn, long timeout, TimeUnit unit) throws InterruptedException {
+            return log.awaitDurable(lsn, timeout, unit);
+        }
+
+        @Override
+        public Snapshot snapshot() throws ExecutionException, InterruptedException {
+            return log.snapshot();
+        }
+
+        @Override
+        public Future<Snapshot> snapshotAsync() {
+            return log.snapshotAsync();
+        }
+
+        @Override
+        public IOStatistics getIOStatistics() {
+            return new ScaledStatistics(log.getIOStatistics(), share());
+        }
+
+        @Override
+        public double writePressure() {
+            return log.writePressure();
+        }
+    }
+
+    private static class ScaledStatistics implements IOStatistics {
+        private final IOStatistics delegate;
+        private final double share;
+
+        ScaledStatistics(IOStatistics delegate, double share) {
+            this.delegate = delegate;
+            this.share = share;
+        }
+
+        @Override
+        public long getTotalAvailable() {
+            return delegate.getTotalAvailable();
+        }
+
+        @Override
+        public long getTotalUsed() {
+            return (long)(delegate.getTotalUsed() * share);
+        }
+
+        @Override
+        public long getTotalWritten() {
+            return delegate.getTotalWritten();
+        }
+
+        @Override
+        public long getTotalRead() {
+            return delegate.getTotalRead();
+        }
+
+        @Override
+        public long getLiveSize() {
+            return (long)(delegate.getLiveSize() * share);
+        }
+
+        @Override
+        public long getExpiredSize() {
+            return (long)(delegate.getExpiredSize() * share);
+        }
+    }
+
+    //  compaction policies only look at statistics, the shared io itself is 
+    //  written through the shared log manager
+    private class StoreIO implements IOManager {
+        private final StoreLog store;
+
+        StoreIO(StoreLog store) {
+            this.store = store;
+        }
+
+        @Override
+        public long write(Chunk region, long marker) throws IOException {
+            throw new UnsupportedOperationException("shared io is written by the shared log");
+        }
+
+        @Override
+        public void setMinimumMarker(long marker) throws IOException {
+            throw new UnsupportedOperationException("shared io is written by the shared log");
+        }
+
+        @Override
+        public long getMinimumMarker() throws IOException {
+            return io.getMinimumMarker();
+        }
+
+        @Override
+        public long getCurrentMarker() throws IOException {
+            return io.getCurrentMarker();
+        }
+
+        @Override
+        public Chunk read(Direction dir) throws IOException {
+            throw new UnsupportedOperationException("shared io is read by the shared log");
+        }
+
+        @Override
+        public Chunk scan(long marker) throws IOException {
+            return io.scan(marker);
+        }
+
+        @Override
+        public long seek(long marker) throws IOException {
+            throw new UnsupportedOperationException("shared io is read by the shared log");
+        }
+
+        @Override
+        public void sync() throws IOException {
+            io.sync();
+        }
+
+        @Override
+        public Future<Void> clean(long timeout) throws IOException {
+            return io.clean(timeout);
+        }
+
+        @Override
+        public IOStatistics getStatistics() throws IOException {
+            return new ScaledStatistics(io.getStatistics(), store.share());
+        }
+
+        @Override
+        public void close() throws IOException {
+    //  closed with the shared log
+        }
+    }
+}
@@ -20,5 +20,27 @@ package com.terracottatech.frs.log;
  * @author mscott
  */
 public enum Signature {
-    NONE,CRC32,ADLER32,MD5,SHA1
+    NONE(0),CRC32(1),ADLER32(2),MD5(3),SHA1(4),CRC32C(5);
+    
+    private final int code;
+    
+    Signature(int code) {
+        this.code = code;
+    }
+    
+    /**
+     * code recorded in the region header of signed log regions
+     */
+    int code() {
+        return code;
+    }
+    
+    static Signature forCode(long code) {
+        for (Signature s : values()) {
+            if ( s.code == code ) {
+                return s;
+            }
+        }
+        return null;
+    }
 }
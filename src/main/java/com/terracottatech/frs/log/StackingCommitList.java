@@ -17,7 +17,7 @@ package com.terracottatech.frs.log;
 
 import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -40,12 +40,20 @@ public class StackingCommitList implements CommitList {
     private final Object guard = new Object();
     private volatile CommitList next;
     private final int wait;
+    private final GroupCommitController controller;
+//  synchronized
+    private long firstArrival = 0;
 
     public StackingCommitList(long startLsn, int maxSize, int wait) {
+        this(startLsn, maxSize, wait, null);
+    }
+
+    public StackingCommitList(long startLsn, int maxSize, int wait, GroupCommitController controller) {
         baseLsn = startLsn;
         endLsn = startLsn-1;
         regions = new LogRecord[maxSize];
         this.wait = wait;
+        this.controller = controller;
     }
 
      @Override
@@ -82,7 +90,8 @@ public class StackingCommitList implements CommitList {
     }
     
     public CommitList create(long nextLsn) {
-        return new StackingCommitList( nextLsn, regions.length, wait);
+        return new StackingCommitList( nextLsn, 
+                ( controller == null ) ? regions.length : controller.window(), wait, controller);
     }
 
     @Override
@@ -108,6 +117,9 @@ public class StackingCommitList implements CommitList {
         } else if (lsn > endLsn) {
             endLsn = lsn;
         }
+        if ( controller != null && firstArrival == 0 ) {
+            firstArrival = System.nanoTime();
+        }
         if (count++ == endLsn - baseLsn) {
             this.notify();  // adding one will make count match slots
         }
@@ -136,6 +148,15 @@ public class StackingCommitList implements CommitList {
 
     @Override
     public void written() {
+        if ( controller != null ) {
+            long first;
+            synchronized (this) {
+                first = firstArrival;
+            }
+            if ( first != 0 ) {
+                controller.committed(System.nanoTime() - first);
+            }
+        }
         written.complete(null);
     }
     
@@ -155,6 +176,9 @@ public class StackingCommitList implements CommitList {
     @Override
     public synchronized void waitForContiguous() throws InterruptedException {
         boolean timedout = false;
+        if ( controller != null ) {
+            hold();
+        }
         if ( count > 0 && !closed ) {
             this.close(baseLsn + count - 1);
         }
@@ -176,8 +200,21 @@ public class StackingCommitList implements CommitList {
         }
     }
 
+    //  group commit, give more records a chance to join before closing
+    private void hold() throws InterruptedException {
+        long delay = controller.holdNanos();
+        if ( delay <= 0 || firstArrival == 0 ) {
+            return;
+        }
+        long remaining = firstArrival + delay - System.nanoTime();
+        while ( remaining > 0 && !closed && count != regions.length ) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = firstArrival + delay - System.nanoTime();
+        }
+    }
+
     @Override
-    public Future<Void> getWriteFuture() {
+    public CompletableFuture<Void> getWriteFuture() {
         return written;
     }
     
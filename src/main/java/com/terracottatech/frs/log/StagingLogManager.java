@@ -19,7 +19,9 @@ import com.terracottatech.frs.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.Snapshot;
+import com.terracottatech.frs.SnapshotRequest;
 import com.terracottatech.frs.config.Configuration;
 import com.terracottatech.frs.config.FrsProperty;
 import com.terracottatech.frs.io.BufferSource;
@@ -28,23 +30,36 @@ import com.terracottatech.frs.io.IOManager;
 import com.terracottatech.frs.io.IOStatistics;
 import com.terracottatech.frs.io.MaskingBufferSource;
 import com.terracottatech.frs.io.SplittingBufferSource;
+import com.terracottatech.frs.io.nio.NIOManager;
+import com.terracottatech.frs.io.nio.StripedNIOManager;
+import com.terracottatech.frs.util.LsnWatermark;
 import java.io.Closeable;
 
 import java.io.IOException;
 import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -58,23 +73,34 @@ public class StagingLogManager implements LogManager {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(LogManager.class);
 
-    private StagingLogManager.IODaemon daemon;
+    private Thread daemon;
     private volatile CommitList currentRegion;
     private final AtomicLong currentLsn = new AtomicLong(100);
     private final AtomicLong lowestLsn = new AtomicLong(0);
-    private final AtomicLong highestOnDisk = new AtomicLong(Constants.GENESIS_LSN);
+    private final LsnWatermark highestOnDisk = new LsnWatermark(Constants.GENESIS_LSN);
+    private final LsnWatermark highestSynced = new LsnWatermark(Constants.GENESIS_LSN);
+    private final SyncDeadlines deadlines = new SyncDeadlines();
     private Signature  checksumStyle;
     private final IOManager io;
     private volatile LogMachineState   state = LogMachineState.IDLE;
     
     private int MAX_QUEUE_SIZE;
     private int RECOVERY_QUEUE_SIZE = 64;
+    private long RECOVERY_READ_AHEAD = 0;
+    private int PACKING_THREADS = 0;
+    private boolean GATHER_WRITES = false;
+    private boolean COMPRESS_REGIONS = false;
     private String forceLogRegionFormat;
 
     private ChunkExchange                               exchanger;
+    private volatile RecordDecoder                      recoveryDecoder;
     private final BlockingQueue<WritingPackage>         queue = new ArrayBlockingQueue<WritingPackage>(8);
     
     private BufferSource    buffers;
+    private GroupCommitController groupCommit;
+    private AdmissionController   admission;
+    private BackgroundShare       background;
+    private volatile Executor     completionExecutor;
 
     public StagingLogManager(IOManager io) {
         this(Signature.ADLER32,new AtomicCommitList( Constants.FIRST_LSN, 1024, 200),io, null);
@@ -87,11 +113,43 @@ public class StagingLogManager implements LogManager {
         this.forceLogRegionFormat = config.getString(FrsProperty.FORCE_LOG_REGION_FORMAT);
         this.MAX_QUEUE_SIZE = config.getInt(FrsProperty.IO_COMMIT_QUEUE_SIZE);
         this.RECOVERY_QUEUE_SIZE = config.getInt(FrsProperty.IO_RECOVERY_QUEUE_SIZE);
+        this.RECOVERY_READ_AHEAD = config.getLong(FrsProperty.IO_RECOVERY_READ_AHEAD);
+        this.PACKING_THREADS = config.getInt(FrsProperty.IO_PACKING_THREADS);
+        this.GATHER_WRITES = config.getBoolean(FrsProperty.IO_NIO_GATHER_WRITES);
+        this.COMPRESS_REGIONS = config.getBoolean(FrsProperty.LOG_COMPRESS_REGIONS);
+        this.completionExecutor = createCompletionExecutor(config.getInt(FrsProperty.IO_COMPLETION_THREADS));
+        long latencyTarget = config.getLong(FrsProperty.IO_GROUP_COMMIT_LATENCY_TARGET);
+        if ( latencyTarget > 0 ) {
+    //  target is configured in microseconds
+            this.groupCommit = new GroupCommitController(TimeUnit.MICROSECONDS.toNanos(latencyTarget), MAX_QUEUE_SIZE);
+        }
+        long budget = config.getLong(FrsProperty.IO_ADMISSION_BUDGET);
+        if ( budget > 0 ) {
+    //  timeout is configured in milliseconds
+            this.admission = new AdmissionController(budget, config.getDouble(FrsProperty.IO_ADMISSION_LOW_WATERMARK), 
+                    AdmissionController.Policy.valueOf(config.getString(FrsProperty.IO_ADMISSION_POLICY)), 
+                    config.getLong(FrsProperty.IO_ADMISSION_TIMEOUT), TimeUnit.MILLISECONDS, this::sealHead);
+        }
+        if ( config.getBoolean(FrsProperty.IO_BACKGROUND_YIELD) ) {
+    //  the io thread is saturated when packed regions queue up behind it 
+    //  or foreground writers are already held back by the budget
+            this.background = new BackgroundShare(config.getDouble(FrsProperty.IO_BACKGROUND_MIN_SHARE), 
+                    config.getInt(FrsProperty.IO_WAIT), TimeUnit.MILLISECONDS, 
+                    () -> !queue.isEmpty() || ( admission != null && admission.isThrottled() ), currentLsn::get);
+        }
         String commitList = config.getString(FrsProperty.IO_COMMITLIST);
         if ( commitList.equals("ATOMIC") ) {
-            this.currentRegion = new AtomicCommitList(Constants.FIRST_LSN, MAX_QUEUE_SIZE, config.getInt(FrsProperty.IO_WAIT));
+            this.currentRegion = ( groupCommit == null ) ?
+                new AtomicCommitList(Constants.FIRST_LSN, MAX_QUEUE_SIZE, config.getInt(FrsProperty.IO_WAIT)) :
+                new AtomicCommitList(Constants.FIRST_LSN, groupCommit.window(), config.getInt(FrsProperty.IO_WAIT), groupCommit);
         } else if ( commitList.equals("STACKING") ) {
-            this.currentRegion = new StackingCommitList(Constants.FIRST_LSN, MAX_QUEUE_SIZE, config.getInt(FrsProperty.IO_WAIT));
+            this.currentRegion = ( groupCommit == null ) ?
+                new StackingCommitList(Constants.FIRST_LSN, MAX_QUEUE_SIZE, config.getInt(FrsProperty.IO_WAIT)) :
+                new StackingCommitList(Constants.FIRST_LSN, groupCommit.window(), config.getInt(FrsProperty.IO_WAIT), groupCommit);
+        } else if ( commitList.equals("RING") ) {
+            RingCommitList.WaitStrategy strategy = RingCommitList.WaitStrategy.valueOf(config.getString(FrsProperty.IO_COMMITLIST_WAIT_STRATEGY));
+    //  the ring is sized from the queue size, group commit only moves the window within it
+            this.currentRegion = new RingCommitList(Constants.FIRST_LSN, MAX_QUEUE_SIZE, config.getInt(FrsProperty.IO_WAIT), strategy, groupCommit);
         }
 
     }
@@ -104,6 +162,28 @@ public class StagingLogManager implements LogManager {
         this.forceLogRegionFormat = (String) FrsProperty.FORCE_LOG_REGION_FORMAT.defaultValue();
         this.MAX_QUEUE_SIZE = 1024;
         this.buffers =  ( src != null ) ? src : new MaskingBufferSource(new SplittingBufferSource(512,16 * 1024 * 1024));
+        this.completionExecutor = createCompletionExecutor(1);
+    }
+    
+  //  idle threads time out so a store that is never shutdown cleanly does not leak them
+    private static Executor createCompletionExecutor(int threads) {
+        if ( threads <= 0 ) {
+            return ForkJoinPool.commonPool();
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, 
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+            
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName("log completion thread - " + count.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
     }
 
     @Override
@@ -111,6 +191,33 @@ public class StagingLogManager implements LogManager {
       return currentLsn.get();
     }
     
+    @Override
+    public long writtenLsn() {
+        return highestOnDisk.get();
+    }
+
+    @Override
+    public long durableLsn() {
+        return highestSynced.get();
+    }
+
+    @Override
+    public boolean awaitDurable(long lsn, long timeout, TimeUnit unit) throws InterruptedException {
+        if ( highestSynced.await(lsn, timeout, unit) ) {
+            return true;
+        }
+        if ( state.isErrorState() ) {
+            throw new LogWriteError("log failed before " + lsn + " was durable");
+        }
+        return false;
+    }
+
+  //  nothing more will be written or synced, waiters find out from the state
+    private void releaseWaiters() {
+        highestOnDisk.release();
+        highestSynced.release();
+    }
+
     long firstCommitListLsn() {
         return currentRegion.getBaseLsn();
     }
@@ -157,7 +264,8 @@ public class StagingLogManager implements LogManager {
         if ( !state.isBootstrapping() ) return;
         
         currentLsn.set(lastLsn + 1);
-        highestOnDisk.set(lastLsn);
+        highestOnDisk.reset(lastLsn);
+        highestSynced.reset(lastLsn);
         if ( lowest < Constants.FIRST_LSN ) lowest = Constants.FIRST_LSN;
         lowestLsn.set(lowest);
         
@@ -182,8 +290,33 @@ public class StagingLogManager implements LogManager {
       long processing;
       
       volatile boolean        stopped = false;
-      private final LogRegionFactory  regionFactory = new CopyingPacker(checksumStyle, forceLogRegionFormat, buffers);
-      private final ExecutorService   asyncPacker = Executors.newCachedThreadPool(new ThreadFactory() {
+  //  packers keep sizing hints between regions, so every thread that packs, 
+  //  the io thread included, gets a packer of its own
+      private final ThreadLocal<LogRegionFactory<LogRecord>> packers = new ThreadLocal<LogRegionFactory<LogRecord>>() {
+          @Override
+          protected LogRegionFactory<LogRecord> initialValue() {
+  //  gather writes take the packed buffer list as is, the copy only exists to 
+  //  feed the single buffer append in the segment
+              return GATHER_WRITES ? 
+                  new LogRegionPacker(checksumStyle, null, forceLogRegionFormat, COMPRESS_REGIONS) :
+                  new CopyingPacker(checksumStyle, forceLogRegionFormat, buffers, COMPRESS_REGIONS);
+          }
+      };
+      private final LogRegionFactory<LogRecord> regionFactory = new LogRegionFactory<LogRecord>() {
+          @Override
+          public Chunk pack(Iterable<LogRecord> payload) {
+              return packers.get().pack(payload);
+          }
+
+          @Override
+          public List<LogRecord> unpack(Chunk data) throws FormatException {
+              return packers.get().unpack(data);
+          }
+      };
+  //  packs the next few commit lists ahead of the io thread, which still 
+  //  takes them off the queue in lsn order.  null packs on this thread
+      private final ExecutorService   asyncPacker = ( PACKING_THREADS <= 0 ) ? null : 
+              Executors.newFixedThreadPool(PACKING_THREADS, new ThreadFactory() {
 
             int count = 1;
           
@@ -225,6 +358,12 @@ public class StagingLogManager implements LogManager {
               oldRegion.waitForContiguous();
               last = System.nanoTime();
               waiting += (last - mark);
+              if ( groupCommit != null && !oldRegion.isEmpty() ) {
+                  groupCommit.sealed(oldRegion.getEndLsn() - oldRegion.getBaseLsn() + 1, last);
+              }
+              if ( background != null ) {
+                  background.sealed();
+              }
               last = System.nanoTime();
               currentRegion = oldRegion.next();
 
@@ -238,6 +377,8 @@ public class StagingLogManager implements LogManager {
               WritingPackage wp = new WritingPackage(oldRegion,regionFactory);
               if ( wp.isEmpty() ) {
                   continue;
+              } else if ( asyncPacker != null ) {
+                  asyncPacker.execute(wp);
               } else {
                   wp.run();                
               }
@@ -267,7 +408,9 @@ public class StagingLogManager implements LogManager {
             }
           }
 
-          asyncPacker.shutdown();
+          if ( asyncPacker != null ) {
+              asyncPacker.shutdown();
+          }
           if ( turns == 0 ) turns = 1;
           if ( LOGGER.isDebugEnabled() ) {
               LOGGER.debug(new Formatter(new StringBuilder()).format("==PERFORMANCE(processing)== waiting: %.3f active: %.3f ave. queue: %d fill: %d",
@@ -283,6 +426,7 @@ public class StagingLogManager implements LogManager {
       long waiting;
       long writing;
       long written;
+      private SyncCompleter completer;
     
       IODaemon() {
         setDaemon(true);
@@ -294,12 +438,27 @@ public class StagingLogManager implements LogManager {
       public void run() {
         WriteQueuer queuer = new WriteQueuer();
         queuer.start();  
+        if ( io instanceof NIOManager && ((NIOManager)io).isPipelinedSync() ) {
+          completer = new SyncCompleter((NIOManager)io);
+          completer.start();
+        }
                 
         while ( state.acceptRecords() || currentLsn.get() - 1 != highestOnDisk.get()) {
             long start = System.nanoTime();
             try {
-              WritingPackage packer = queue.take();
+              WritingPackage packer = nextPackage(start);
               long taken = System.nanoTime();
+              if ( packer == null ) {
+  //  a bounded delay record is due and nothing else is coming to sync it
+                waiting += (taken - start);
+                try {
+                  timedSync();
+                } catch (Exception e) {
+                  state = state.checkException(e);
+                  break;
+                }
+                continue;
+              }
               try {
                 waiting += (taken - start);
 
@@ -319,12 +478,30 @@ public class StagingLogManager implements LogManager {
                   ((Closeable) c).close();
                 }
 
-                if (packer.doSync()) {
+                boolean doSync = packer.doSync();
+                long sync = System.nanoTime();
+                if (doSync) {
                   io.sync();
+                  if ( groupCommit != null && completer == null ) {
+                    groupCommit.synced(System.nanoTime() - sync);
+                  }
                 }
 
-                highestOnDisk.set(packer.endLsn());
-                packer.written();
+                highestOnDisk.advance(packer.endLsn());
+                if ( doSync ) {
+                  deadlines.synced(packer.endLsn());
+                  if ( completer == null ) {
+                    highestSynced.advance(packer.endLsn());
+                  }
+                } else if ( deadlines.isDue(System.nanoTime(), packer.endLsn()) ) {
+                  timedSync();
+                }
+                if ( completer != null ) {
+  //  keep writing, the package completes once the sync catches up to it
+                  completer.pending.add(new PendingSync(packer, packer.endLsn(), doSync, sync));
+                } else {
+                  packer.written();
+                }
               } catch (Exception e) {
                 packer.list.exceptionThrown(e);
                 state = state.checkException(e);
@@ -338,7 +515,11 @@ public class StagingLogManager implements LogManager {
         }
         
         try {
+            if ( completer != null ) {
+                completer.finish();
+            }
             if ( state.isErrorState() ) {
+                releaseWaiters();
 //  clear any items in the queue
                 long floatingLsn = highestOnDisk.get();
                 while ( currentLsn.get() - 1 != floatingLsn ) {
@@ -363,11 +544,393 @@ public class StagingLogManager implements LogManager {
             LOGGER.debug("==PERFORMANCE(memory)==" + buffers.toString());
         }
       }
+      
+  //  wait for the next package, but no longer than the next sync deadline.  
+  //  null if the deadline passed first
+      private WritingPackage nextPackage(long now) throws InterruptedException {
+        long due = deadlines.nanosUntilDue(now, highestOnDisk.get());
+        if ( due < 0 ) {
+          return queue.take();
+        }
+        return queue.poll(due, TimeUnit.NANOSECONDS);
+      }
+      
+      private void timedSync() throws IOException {
+        long covered = highestOnDisk.get();
+        io.sync();
+        deadlines.synced(covered);
+        if ( completer != null ) {
+          completer.pending.add(new PendingSync(null, covered, true, System.nanoTime()));
+        } else {
+          highestSynced.advance(covered);
+        }
+      }
+    }
+
+    /**
+     * Completes packages in order for the pipelined sync.  A package that 
+     * requested a sync waits for the stream's sync marker to cover its last 
+     * lsn, the rest wait their turn behind it.
+     */
+    private class SyncCompleter extends Thread {
+      private final NIOManager nio;
+      private final BlockingQueue<PendingSync> pending = new LinkedBlockingQueue<PendingSync>();
+
+      SyncCompleter(NIOManager nio) {
+        this.nio = nio;
+        setDaemon(true);
+        setName("IO sync completion - " + nio.toString());
+        setPriority(MAX_PRIORITY);
+      }
+
+      void finish() throws InterruptedException {
+        pending.add(PendingSync.STOP);
+        join();
+      }
+
+      @Override
+      public void run() {
+        while ( true ) {
+          PendingSync next;
+          try {
+            next = pending.take();
+          } catch ( InterruptedException ie ) {
+            continue;
+          }
+          if ( next == PendingSync.STOP ) {
+            return;
+          }
+          try {
+            if ( next.sync ) {
+              nio.waitForSync(next.endLsn);
+              if ( groupCommit != null ) {
+                groupCommit.synced(System.nanoTime() - next.requested);
+              }
+              highestSynced.advance(next.endLsn);
+            }
+            if ( next.packer != null ) {
+              next.packer.written();
+            }
+          } catch ( Exception e ) {
+            if ( next.packer != null ) {
+              next.packer.list.exceptionThrown(e);
+            }
+            state = state.checkException(e);
+          }
+        }
+      }
+    }
+
+  //  a timed sync has no package, it only moves the synced lsn
+    private static class PendingSync {
+      static final PendingSync STOP = new PendingSync(null, 0, false, 0);
+
+      private final WritingPackage packer;
+      private final long endLsn;
+      private final boolean sync;
+      private final long requested;
+
+      PendingSync(WritingPackage packer, long endLsn, boolean sync, long requested) {
+        this.packer = packer;
+        this.endLsn = endLsn;
+        this.sync = sync;
+        this.requested = requested;
+      }
+    }
+
+    /**
+     * IO for a striped log.  Packed regions are handed out round robin to one 
+     * writer thread per lane.  A region that requests a sync, or carries a 
+     * snapshot, is a barrier: every lane syncs everything queued before it 
+     * and the region is only complete once all lanes have done so.  Regions 
+     * are reported written strictly in lsn order.
+     */
+    private class StripedIODaemon extends Thread {
+      private final StripedNIOManager striped;
+      private final LaneWriter[] writers;
+      private final ArrayDeque<LanePackage> pending = new ArrayDeque<LanePackage>();
+      private volatile Exception failure;
+      private long dispatched;
+      private int next = 0;
+      long waiting;
+      long dispatching;
+
+      StripedIODaemon(StripedNIOManager striped) {
+        this.striped = striped;
+        this.writers = new LaneWriter[striped.getLaneCount()];
+        for ( int x = 0; x < writers.length; x++ ) {
+          writers[x] = new LaneWriter(x);
+        }
+        setDaemon(true);
+        setName("IO - " + io.toString());
+        setPriority(MAX_PRIORITY);
+      }
+
+      @Override
+      public void run() {
+        WriteQueuer queuer = new WriteQueuer();
+        queuer.start();
+        for ( LaneWriter w : writers ) {
+          w.start();
+        }
+        dispatched = highestOnDisk.get();
+
+        while ( failure == null && ( state.acceptRecords() || currentLsn.get() - 1 != highestOnDisk.get() ) ) {
+            long start = System.nanoTime();
+            try {
+              long due = deadlines.nanosUntilDue(start, dispatched);
+              long wait = ( due < 0 ) ? TimeUnit.MILLISECONDS.toNanos(10) : Math.min(due, TimeUnit.MILLISECONDS.toNanos(10));
+              WritingPackage packer = queue.poll(wait, TimeUnit.NANOSECONDS);
+              long taken = System.nanoTime();
+              waiting += (taken - start);
+              try {
+                if ( packer != null ) {
+                  dispatch(packer);
+                }
+                if ( deadlines.isDue(System.nanoTime(), dispatched) ) {
+  //  a bounded delay record is due, every lane syncs what it has been handed
+                  syncLanes();
+                  deadlines.synced(dispatched);
+                }
+              } catch (Exception e) {
+                if ( packer != null ) {
+                  packer.list.exceptionThrown(e);
+                }
+                state = state.checkException(e);
+                break;
+              } finally {
+                dispatching += (System.nanoTime() - taken);
+              }
+            } catch (InterruptedException ie) {
+              state = state.checkException(ie);
+            }
+        }
+
+        try {
+            for ( LaneWriter w : writers ) {
+              w.work.put(LanePackage.STOP);
+            }
+            for ( LaneWriter w : writers ) {
+              w.join();
+            }
+            if ( state.isErrorState() ) {
+                releaseWaiters();
+//  clear any items in the queue
+                long floatingLsn = dispatched;
+                while ( currentLsn.get() - 1 != floatingLsn ) {
+                    CommitList next = queue.take().list;
+                    if ( !next.isEmpty() ) {
+                      floatingLsn = next.getEndLsn();
+                    }
+                }
+            } else if ( !queue.isEmpty() ) {
+                while ( !queue.isEmpty() ) {
+                    if ( !queue.poll().list.isEmpty() ) {
+                        throw new AssertionError("non-empty queue");
+                    }
+                }
+            }
+            queuer.done();
+            queuer.join();
+        } catch ( InterruptedException ie ) {
+            throw new RuntimeException(ie);
+        }
+
+        if ( LOGGER.isDebugEnabled() ) {
+            long written = 0;
+            for ( LaneWriter w : writers ) {
+              written += w.written;
+            }
+            LOGGER.debug(new Formatter(new StringBuilder()).format("==PERFORMANCE(logwrite)== lanes: %d waiting: %.3f active: %.3f written: %d",
+                    writers.length,waiting*1e-6,dispatching*1e-6,written).out().toString());
+            LOGGER.debug("==PERFORMANCE(memory)==" + buffers.toString());
+        }
+      }
+
+      private void dispatch(WritingPackage packer) throws InterruptedException {
+        if ( packer.isEmpty() ) {
+  //  shutdown wakeup, sync every lane
+          syncLanes();
+          return;
+        }
+
+        Chunk c = packer.take();
+        if (dispatched + 1 != packer.baseLsn()) {
+          throw new AssertionError("lsns not sequenced " + dispatched + 1 + " != " + packer.baseLsn());
+        }
+        dispatched = packer.endLsn();
+
+        boolean snapshot = c instanceof SnapshotRequest;
+        boolean barrier = snapshot || packer.doSync();
+        int lane = next++ % writers.length;
+        LanePackage lp = new LanePackage(packer, c, lane, barrier ? writers.length : 1, barrier, snapshot, dispatched);
+        synchronized (pending) {
+          pending.add(lp);
+        }
+        writers[lane].work.put(lp);
+        if ( barrier ) {
+          for ( LaneWriter w : writers ) {
+            if ( w.index != lane ) {
+              w.work.put(lp);
+            }
+          }
+          deadlines.synced(dispatched);
+        }
+      }
+      
+      private void syncLanes() throws InterruptedException {
+        LanePackage sync = new LanePackage(null, null, -1, writers.length, true, false, dispatched);
+        for ( LaneWriter w : writers ) {
+          w.work.put(sync);
+        }
+      }
+
+      private void arrived(LanePackage lp) {
+        if ( lp.outstanding.decrementAndGet() != 0 ) {
+          return;
+        }
+        if ( lp.packer == null ) {
+  //  every lane forced everything it was handed before this sync
+          highestSynced.advance(lp.covers);
+          return;
+        }
+        synchronized (pending) {
+          if ( failure != null ) {
+  //  outstanding lists were already failed, nothing more is reported written
+            pending.remove(lp);
+            lp.packer.list.exceptionThrown(failure);
+            return;
+          }
+          lp.done = true;
+          while ( !pending.isEmpty() && pending.peek().done ) {
+            LanePackage head = pending.poll();
+            if ( head.snapshot ) {
+              ((SnapshotRequest)head.chunk).setSnapshot(StripedNIOManager.combine(Arrays.asList(head.parts)));
+            }
+            highestOnDisk.advance(head.packer.endLsn());
+            head.packer.written();
+          }
+        }
+        if ( lp.barrier && !lp.snapshot ) {
+          highestSynced.advance(lp.covers);
+        }
+      }
+
+      private void failed(LanePackage lp, Exception e) {
+        state = state.checkException(e);
+        List<LanePackage> abandoned;
+        synchronized (pending) {
+          if ( failure == null ) {
+            failure = e;
+          }
+  //  regions below the failed one may still be queued on other lanes, 
+  //  exceptions only chain forward so every outstanding list is failed here
+          abandoned = new ArrayList<LanePackage>(pending);
+          pending.clear();
+        }
+        abandoned.remove(lp);
+        if ( lp.packer != null ) {
+          lp.packer.list.exceptionThrown(e);
+        }
+        for ( LanePackage left : abandoned ) {
+          left.packer.list.exceptionThrown(e);
+        }
+        releaseWaiters();
+      }
+
+      private void abandoned(LanePackage lp) {
+        if ( lp.packer == null ) {
+          return;
+        }
+        synchronized (pending) {
+          pending.remove(lp);
+        }
+        lp.packer.list.exceptionThrown(failure);
+      }
+
+      private class LaneWriter extends Thread {
+        private final int index;
+        private final BlockingQueue<LanePackage> work = new LinkedBlockingQueue<LanePackage>();
+        long written;
+
+        LaneWriter(int index) {
+          this.index = index;
+          setDaemon(true);
+          setName("IO lane " + index + " - " + io.toString());
+          setPriority(MAX_PRIORITY);
+        }
+
+        @Override
+        public void run() {
+          while ( true ) {
+            LanePackage lp;
+            try {
+              lp = work.take();
+            } catch ( InterruptedException ie ) {
+              continue;
+            }
+            if ( lp == LanePackage.STOP ) {
+              return;
+            }
+            if ( failure != null ) {
+  //  once a lane has failed nothing after it can be made durable
+              abandoned(lp);
+              continue;
+            }
+            try {
+              if ( lp.lane == index ) {
+                written += striped.write(index, lp.chunk, lp.packer.endLsn());
+                if ( lp.chunk instanceof Closeable ) {
+                  ((Closeable) lp.chunk).close();
+                }
+              }
+              if ( lp.snapshot ) {
+                lp.parts[index] = striped.snapshot(index);
+              } else if ( lp.barrier ) {
+                long sync = System.nanoTime();
+                striped.sync(index);
+                if ( groupCommit != null ) {
+                  groupCommit.synced(System.nanoTime() - sync);
+                }
+              }
+              arrived(lp);
+            } catch ( Exception e ) {
+              failed(lp, e);
+            }
+          }
+        }
+      }
+    }
+
+    private static class LanePackage {
+      static final LanePackage STOP = new LanePackage(null, null, -1, 0, false, false, 0);
+
+      private final WritingPackage packer;
+      private final Chunk chunk;
+      private final int lane;
+      private final boolean barrier;
+      private final boolean snapshot;
+      private final Snapshot[] parts;
+      private final AtomicInteger outstanding;
+      private final long covers;
+      private boolean done = false;
+
+      LanePackage(WritingPackage packer, Chunk chunk, int lane, int lanes, boolean barrier, boolean snapshot, long covers) {
+        this.packer = packer;
+        this.chunk = chunk;
+        this.lane = lane;
+        this.barrier = barrier;
+        this.snapshot = snapshot;
+        this.parts = snapshot ? new Snapshot[lanes] : null;
+        this.outstanding = new AtomicInteger(lanes);
+        this.covers = covers;
+      }
     }
     
     private Future<Void> recover() {        
-        ChunkExchange ex = new ChunkExchange(io, forceLogRegionFormat, RECOVERY_QUEUE_SIZE);
-        LOGGER.debug("recovery queue size: " + RECOVERY_QUEUE_SIZE);
+        ChunkExchange ex = new ChunkExchange(io, forceLogRegionFormat, RECOVERY_QUEUE_SIZE, RECOVERY_READ_AHEAD, 
+                recoveryDecoder);
+        LOGGER.debug("recovery queue size: " + RECOVERY_QUEUE_SIZE + " read ahead: " + RECOVERY_READ_AHEAD);
         
         ex.recover();
         
@@ -396,12 +959,25 @@ public class StagingLogManager implements LogManager {
                 return null;
             }
         } finally {
-            this.daemon = new IODaemon();
+            this.daemon = ( io instanceof StripedNIOManager ) ? 
+                new StripedIODaemon((StripedNIOManager)io) : new IODaemon();
             this.daemon.start();
         }
         
     }
 
+    @Override
+    public void decodeRecovery(RecordDecoder decoder) {
+        this.recoveryDecoder = decoder;
+    }
+
+    @Override
+    public void limitRecovery(long lsn) {
+        if ( exchanger != null ) {
+            exchanger.limitTo(lsn);
+        }
+    }
+
     //  TODO:  re-examine when more runtime context is available.
     @Override
     public void shutdown() {        
@@ -462,10 +1038,13 @@ public class StagingLogManager implements LogManager {
         
         try {
             io.close();
+  //  closing the io forces whatever is left
+            highestSynced.advance(highestOnDisk.get());
         } catch ( IOException ioe ) {
 //  log io error and close            
             LOGGER.error("error closing io",ioe);
         }
+        releaseWaiters();
         state = state.idle();
     }
 
@@ -475,7 +1054,7 @@ public class StagingLogManager implements LogManager {
     // as it will wake the daemon thread.
     queue.offer(new WritingPackage(new CommitList() {
     @Override
-      public Future<Void> getWriteFuture() {
+      public CompletableFuture<Void> getWriteFuture() {
         return CompletableFuture.completedFuture(null);
       }
         
@@ -542,7 +1121,7 @@ public class StagingLogManager implements LogManager {
     }, null));
   }
 
-  private CommitList _append(LogRecord record, boolean sync) {
+  private void checkAccepting() {
         if ( !state.acceptRecords() ) {
           throw new LogWriteError();
         }
@@ -554,6 +1133,10 @@ public class StagingLogManager implements LogManager {
                 throw new RuntimeException(it);
             }
         }
+  }
+
+  private CommitList _append(LogRecord record, boolean sync) {
+        checkAccepting();
         
         CommitList mine = currentRegion;
         long lsn = currentLsn.getAndIncrement();
@@ -562,17 +1145,50 @@ public class StagingLogManager implements LogManager {
         } catch ( Error e ) {
             throw e;
         } finally {
-       
-            int spincount = 0;
-  //  if we hit this, try and spread out
-            int waitspin = 2 + (Math.round((float)(Math.random() * 1024f)));
-            while ( !mine.append(record,sync) ) {
-                if ( spincount++ > waitspin ) {
-                    futureWait(mine);
-                    waitspin += (Math.round((float)(Math.random() * 512f)));
+            mine = place(mine, record, sync);
+        }
+        return mine;
+    }
+  
+  //  one reservation for the whole batch, the records land in consecutive 
+  //  slots and only the last one carries the sync request
+  private CommitList _appendAll(List<LogRecord> records, boolean sync) {
+        checkAccepting();
+        
+        CommitList mine = currentRegion;
+        int count = records.size();
+        long lsn = currentLsn.getAndAdd(count);
+        Throwable failure = null;
+        for ( int x = 0; x < count; x++ ) {
+            LogRecord record = records.get(x);
+            try {
+                record.updateLsn(lsn + x);
+            } catch ( RuntimeException | Error e ) {
+                if ( failure == null ) {
+                    failure = e;
                 }
-                mine = mine.next();
             }
+  //  every reserved lsn has to reach the commit list or the chain stalls
+            mine = place(mine, record, sync && x == count - 1);
+        }
+        if ( failure instanceof Error ) {
+            throw (Error)failure;
+        } else if ( failure != null ) {
+            throw (RuntimeException)failure;
+        }
+        return mine;
+    }
+  
+    private CommitList place(CommitList mine, LogRecord record, boolean sync) {
+        int spincount = 0;
+  //  if we hit this, try and spread out
+        int waitspin = 2 + (Math.round((float)(Math.random() * 1024f)));
+        while ( !mine.append(record,sync) ) {
+            if ( spincount++ > waitspin ) {
+                futureWait(mine);
+                waitspin += (Math.round((float)(Math.random() * 512f)));
+            }
+            mine = mine.next();
         }
         return mine;
     }
@@ -587,15 +1203,175 @@ public class StagingLogManager implements LogManager {
       }
     }
 
+  //  records count against the admission budget until their commit list is 
+  //  written.  a record that is not admitted never gets an lsn, it only gets 
+  //  a failed future
+    private CompletableFuture<Void> admitAndAppend(LogRecord record, boolean sync) {
+        if ( admission == null || record instanceof SnapshotRequest ) {
+            return _append(record,sync).getWriteFuture();
+        }
+        final long size = AdmissionController.sizeOf(record);
+        try {
+            if ( !admission.admit(size) ) {
+                return rejected(size);
+            }
+        } catch ( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            return rejected(size);
+        }
+        CompletableFuture<Void> written;
+        try {
+            written = _append(record,sync).getWriteFuture();
+        } catch ( RuntimeException | Error e ) {
+            admission.release(size);
+            throw e;
+        }
+        written.whenComplete((v, t) -> admission.release(size));
+        return written;
+    }
+    
+  //  writers are held back by the budget, don't leave the head open for the 
+  //  io wait hoping for records that can't arrive until it is written
+    private void sealHead() {
+        CommitList head = currentRegion;
+        long last = currentLsn.get() - 1;
+        if ( last >= head.getBaseLsn() ) {
+            head.close(last);
+        }
+    }
+    
+    private CompletableFuture<Void> admitAndAppendAll(List<LogRecord> records, boolean sync) {
+        if ( admission == null ) {
+            return _appendAll(records,sync).getWriteFuture();
+        }
+        long total = 0;
+        for ( LogRecord record : records ) {
+            total += AdmissionController.sizeOf(record);
+        }
+        final long size = total;
+        try {
+            if ( !admission.admit(size) ) {
+                return rejected(size);
+            }
+        } catch ( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            return rejected(size);
+        }
+        CompletableFuture<Void> written;
+        try {
+            written = _appendAll(records,sync).getWriteFuture();
+        } catch ( RuntimeException | Error e ) {
+            admission.release(size);
+            throw e;
+        }
+        written.whenComplete((v, t) -> admission.release(size));
+        return written;
+    }
+    
+    private CompletableFuture<Void> rejected(long size) {
+        CompletableFuture<Void> refused = new CompletableFuture<Void>();
+        refused.completeExceptionally(new RejectedExecutionException("log write of " + size + 
+                " bytes rejected, " + admission.outstanding() + " bytes waiting to be written"));
+        return refused;
+    }
+
     @Override
     public Future<Void> append(LogRecord record) {
 // this is not a guaranteed write.  consider returning a future that throws an exception
-        return _append(record,false).getWriteFuture();
+        return admitAndAppend(record,false);
       }
 
     @Override
     public Future<Void> appendAndSync(LogRecord record) {
-        return _append(record,true).getWriteFuture();
+        return admitAndAppend(record,true);
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAsync(LogRecord record) {
+        return completeOnExecutor(admitAndAppend(record,false));
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAndSyncAsync(LogRecord record) {
+        return completeOnExecutor(admitAndAppend(record,true));
+    }
+    
+    @Override
+    public CompletableFuture<Durability> appendAsync(LogRecord record, Durability durability) {
+        switch ( durability.getLevel() ) {
+            case NONE:
+                CompletableFuture<Void> accepted = admitAndAppend(record,false);
+                if ( accepted.isCompletedExceptionally() ) {
+                    return completeOnExecutor(accepted).thenApply(v -> Durability.NONE);
+                }
+                return CompletableFuture.completedFuture(Durability.NONE);
+            case FSYNC:
+                return completeOnExecutor(admitAndAppend(record,true)).thenApply(v -> Durability.FSYNC);
+            case BOUNDED_DELAY:
+  //  the deadline has to stand before the record can be written, once the 
+  //  io thread has written it nothing else wakes it to sync
+                deadlines.reserve(System.nanoTime() + durability.getDelay(TimeUnit.NANOSECONDS));
+                CompletableFuture<Void> written = null;
+                try {
+                    written = admitAndAppend(record,false);
+                } finally {
+                    deadlines.placed(( written == null || written.isCompletedExceptionally() ) ? 0 : record.getLsn());
+                }
+                if ( !written.isCompletedExceptionally() ) {
+                    sealHead();
+                }
+                return completeOnExecutor(written).thenApply(v -> Durability.OS_WRITE);
+            default:
+                CompletableFuture<Void> handed = admitAndAppend(record,false);
+  //  the caller waits for the os write, don't hold the head open for the 
+  //  io wait like a plain async append does
+                sealHead();
+                return completeOnExecutor(handed).thenApply(v -> Durability.OS_WRITE);
+        }
+    }
+    
+    @Override
+    public Future<Void> appendAll(List<LogRecord> records, boolean sync) {
+        if ( records.isEmpty() ) {
+            return CompletableFuture.completedFuture(null);
+        }
+  //  commit lists are written in lsn order, the list holding the last record 
+  //  completes after all the others
+        return admitAndAppendAll(records,sync);
+    }
+
+    @Override
+    public void awaitBackgroundTurn() throws InterruptedException {
+        if ( background != null ) {
+            background.await();
+        }
+    }
+    
+    @Override
+    public double writePressure() {
+        return ( admission == null ) ? 0 : admission.pressure();
+    }
+    
+    public AdmissionController getAdmissionController() {
+        return admission;
+    }
+
+  //  callers chain work onto these futures, keep that work off the io thread 
+  //  and don't hand out the commit list's own future
+    private CompletableFuture<Void> completeOnExecutor(CompletableFuture<Void> written) {
+        final CompletableFuture<Void> stage = new CompletableFuture<Void>();
+        written.whenCompleteAsync((v, t) -> {
+            if ( t == null ) {
+                stage.complete(v);
+            } else {
+                stage.completeExceptionally(t);
+            }
+        }, completionExecutor);
+        return stage;
+    }
+    
+    public void setCompletionExecutor(Executor executor) {
+        this.completionExecutor = executor;
     }
 
     @Override
@@ -693,7 +1469,8 @@ public class StagingLogManager implements LogManager {
         public void run() {
             if ( data == null ) {
                 synchronized (list) {
-                   if ( data == null ) {
+   //  factory is cleared once the chunk is taken, a late packing thread has nothing to do
+                   if ( data == null && factory != null ) {
                       data = factory.pack(list);
                    }
                 }
@@ -721,13 +1498,15 @@ public class StagingLogManager implements LogManager {
         }
         
         public Chunk take() {
-            try {
-                run();
-                assert(data != null);
-                return data;
-            } finally {
-                data = null;
-                factory = null;
+            synchronized (list) {
+                try {
+                    run();
+                    assert(data != null);
+                    return data;
+                } finally {
+                    data = null;
+                    factory = null;
+                }
             }
         }
     }
@@ -0,0 +1,86 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+/**
+ * Sync deadlines of bounded delay records.  Each record asks to be synced by 
+ * some time, the io thread syncs once the earliest deadline has passed and 
+ * there is something written it has not synced yet.  Deadlines are only 
+ * dropped once a sync covers every requesting lsn, until then the earliest 
+ * outstanding one stands.  That may cost an early sync, never a late one.
+ * <p>
+ * A record's deadline is reserved before it is appended, so it stands before 
+ * the record can be written, and is placed once the record has its lsn.  
+ * Until every reservation is placed no sync drops the earliest deadline.
+ *
+ * @author mscott
+ */
+class SyncDeadlines {
+    
+    private static final long NONE = Long.MAX_VALUE;
+    
+    private long earliest = NONE;
+    private long highestLsn = 0;
+    private long synced = 0;
+    private int unplaced = 0;
+
+    synchronized void request(long lsn, long deadline) {
+        reserve(deadline);
+        placed(lsn);
+    }
+    
+    //  a record with this deadline is about to be appended
+    synchronized void reserve(long deadline) {
+        unplaced += 1;
+        earliest = Math.min(earliest, deadline);
+    }
+    
+    //  a reserved record has its lsn, 0 if it never made it into the log
+    synchronized void placed(long lsn) {
+        unplaced -= 1;
+        if ( lsn > synced ) {
+            highestLsn = Math.max(highestLsn, lsn);
+        }
+        covered();
+    }
+    
+    //  a sync was issued with everything up to and including lsn written
+    synchronized void synced(long lsn) {
+        synced = Math.max(synced, lsn);
+        covered();
+    }
+    
+    private void covered() {
+        if ( unplaced == 0 && synced >= highestLsn ) {
+            earliest = NONE;
+        }
+    }
+    
+    synchronized boolean isDue(long now, long written) {
+        return earliest != NONE && earliest - now <= 0 && written > synced;
+    }
+
+    /**
+     * @return nanos until a sync is due, 0 if it is due now, or -1 if nothing 
+     * can be synced until more is written
+     */
+    synchronized long nanosUntilDue(long now, long written) {
+        if ( earliest == NONE || written <= synced ) {
+            return -1;
+        }
+        return Math.max(0, earliest - now);
+    }
+}
@@ -17,6 +17,7 @@ package com.terracottatech.frs.object;
 
 import java.util.Collection;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 /**
  *
@@ -112,6 +113,18 @@ public abstract class AbstractObjectManager<I, K, V> implements ObjectManager<I,
     return lowest;
   }
 
+  @Override
+  public boolean forEachEntry(Consumer<ObjectManagerEntry<I, K, V>> visitor) {
+    for (ObjectManagerStripe<I, K, V> stripe : getStripes()) {
+      for (ObjectManagerSegment<I, K, V> segment : stripe.getSegments()) {
+        if (!segment.forEachEntry(visitor)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   public long size() {
     long size = 0;
     for (ObjectManagerStripe<I, K, V> stripe : getStripes()) {
@@ -15,6 +15,8 @@
  */
 package com.terracottatech.frs.object;
 
+import java.util.function.Consumer;
+
 /**
  * @author cdennis
  */
@@ -96,4 +98,30 @@ public interface ObjectManager<I, K, V> {
    * @return an estimate of the oldest live lsn, {@code -1} if no objects are available for query.
    */
   long getLowestLsn();
+
+  /**
+   * Visit every live entry, each with a value and lsn that belong together.
+   * <p>
+   * Entries changed while the walk runs may be seen in either state.  Used to
+   * write checkpoint images, by default the entries cannot be listed.
+   *
+   * @param visitor called once per live entry
+   * @return {@code false} if the entries cannot be listed
+   */
+  default boolean forEachEntry(Consumer<ObjectManagerEntry<I, K, V>> visitor) {
+    return false;
+  }
+
+  /**
+   * Whether {@code id} currently maps to objects in this manager.
+   * <p>
+   * Managers that create objects on demand know every identifier, so by
+   * default this is always {@code true}.
+   *
+   * @param id identifier
+   * @return {@code false} if {@code id} is not registered
+   */
+  default boolean contains(I id) {
+    return true;
+  }
 }
@@ -15,6 +15,8 @@
  */
 package com.terracottatech.frs.object;
 
+import java.util.function.Consumer;
+
 /**
  *
  * @author Chris Dennis
@@ -40,4 +42,11 @@ public interface ObjectManagerSegment<I, K, V> {
   long size();
 
   long sizeInBytes();
+
+  /**
+   * @see ObjectManager#forEachEntry(Consumer)
+   */
+  default boolean forEachEntry(Consumer<ObjectManagerEntry<I, K, V>> visitor) {
+    return false;
+  }
 }
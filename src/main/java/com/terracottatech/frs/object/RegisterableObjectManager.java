@@ -33,6 +33,11 @@ public class RegisterableObjectManager<I, K, V> extends AbstractObjectManager<I,
     return stripes.get(id);
   }
 
+  @Override
+  public boolean contains(I id) {
+    return stripes.containsKey(id);
+  }
+
   @Override
   public int replayConcurrency(I id, K key) {
     ObjectManagerStripe<I, K, V> stripe = stripes.get(id);
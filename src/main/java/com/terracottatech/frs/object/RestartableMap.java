@@ -27,6 +27,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 public abstract class RestartableMap<K, V, RI, RK, RV> implements ConcurrentMap<K, V>, RestartableObject<RI, RK, RV> {
   private static final Logger LOGGER = LoggerFactory.getLogger(RestartableMap.class);
@@ -534,6 +535,28 @@ public abstract class RestartableMap<K, V, RI, RK, RV> implements ConcurrentMap<
       }
     }
 
+    @Override
+    public boolean forEachEntry(Consumer<ObjectManagerEntry<RI, RK, RV>> visitor) {
+      for (K key : dataMap.keySet()) {
+        ObjectManagerEntry<RI, RK, RV> entry = null;
+        Lock l = lock.readLock();
+        l.lock();
+        try {
+          Long lsn = lsnMap.get(key);
+          V value = dataMap.get(key);
+          if (lsn != null && value != null) {
+            entry = new SimpleObjectManagerEntry<RI, RK, RV>(identifier, encodeKey(key), encodeValue(value), lsn);
+          }
+        } finally {
+          l.unlock();
+        }
+        if (entry != null) {
+          visitor.accept(entry);
+        }
+      }
+      return true;
+    }
+
     @Override
     public void updateLsn(int hash, ObjectManagerEntry<RI, RK, RV> entry, long newLsn) {
       updateLsn(entry, newLsn);
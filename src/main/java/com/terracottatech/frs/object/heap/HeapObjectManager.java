@@ -23,6 +23,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
  *
@@ -51,6 +52,11 @@ public class HeapObjectManager<I, K, V> extends AbstractObjectManager<I, K, V> {
     return stripe;
   }
 
+  @Override
+  public boolean contains(I id) {
+    return maps.containsKey(id);
+  }
+
   @Override
   public void delete(I id) {
     maps.remove(id);
@@ -243,5 +249,24 @@ public class HeapObjectManager<I, K, V> extends AbstractObjectManager<I, K, V> {
     public long sizeInBytes() {
       throw new UnsupportedOperationException("Size in bytes not supported.");
     }
+
+    @Override
+    public boolean forEachEntry(Consumer<ObjectManagerEntry<I, K, V>> visitor) {
+      List<ObjectManagerEntry<I, K, V>> entries;
+      Lock l = lock.readLock();
+      l.lock();
+      try {
+        entries = new ArrayList<ObjectManagerEntry<I, K, V>>(dataMap.size());
+        for (Map.Entry<K, V> e : dataMap.entrySet()) {
+          entries.add(new SimpleObjectManagerEntry<I, K, V>(identifier, e.getKey(), e.getValue(), lsnMap.get(e.getKey())));
+        }
+      } finally {
+        l.unlock();
+      }
+      for (ObjectManagerEntry<I, K, V> entry : entries) {
+        visitor.accept(entry);
+      }
+      return true;
+    }
   }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.recovery;
+
+import com.terracottatech.frs.action.Action;
+
+import java.io.IOException;
+
+/**
+ * An image of the live entries as of one lsn.  Recovery replays the log down 
+ * to just past {@link #getLsn()} and then the image, which stands in for every 
+ * record at or below it.
+ *
+ * @author mscott
+ */
+public interface Checkpoint {
+
+  /**
+   * @return the highest lsn covered by the image
+   */
+  long getLsn();
+
+  /**
+   * Pass each entry of the image through the filter as a put at its own lsn.
+   *
+   * @param filter filter chain the log was recovered through
+   * @param lowestLsn entries below the lowest live lsn of the log are dropped
+   * @throws IOException if the image cannot be read back intact
+   */
+  void replay(Filter<Action> filter, long lowestLsn) throws IOException, InterruptedException;
+}
@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 import com.terracottatech.frs.DeleteFilter;
 import com.terracottatech.frs.Disposable;
 import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.MultiEntryAction;
 import com.terracottatech.frs.action.ActionManager;
 import com.terracottatech.frs.config.Configuration;
 import com.terracottatech.frs.config.FrsProperty;
@@ -32,15 +33,13 @@ import com.terracottatech.frs.util.NullFuture;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
 
@@ -55,13 +54,20 @@ public class RecoveryManagerImpl implements RecoveryManager {
   private final boolean compressedSkipSet;
   private final ReplayFilter replayFilter;
   private final Configuration configuration;
+  private final Checkpoint checkpoint;
+  private final boolean earlyAvailability;
 
   RecoveryManagerImpl(LogManager logManager, ActionManager actionManager, Configuration configuration, Runtime runtime) {
-    this(logManager, actionManager, configuration, runtime.availableProcessors());
+    this(logManager, actionManager, configuration, runtime.availableProcessors(), null);
   }
 
   RecoveryManagerImpl(LogManager logManager, ActionManager actionManager, Configuration configuration,
                              int availableProcessors) {
+    this(logManager, actionManager, configuration, availableProcessors, null);
+  }
+
+  RecoveryManagerImpl(LogManager logManager, ActionManager actionManager, Configuration configuration,
+                             int availableProcessors, Checkpoint checkpoint) {
     this.logManager = logManager;
     this.actionManager = actionManager;
     this.compressedSkipSet = configuration.getBoolean(FrsProperty.RECOVERY_COMPRESSED_SKIP_SET);
@@ -69,33 +75,85 @@ public class RecoveryManagerImpl implements RecoveryManager {
         configuration.getInt(FrsProperty.RECOVERY_REPLAY_TOTAL_BATCH_SIZE_MAX),
         configuration.getDBHome(), availableProcessors);
     this.configuration = configuration;
+    this.checkpoint = checkpoint;
+    this.earlyAvailability = configuration.getBoolean(FrsProperty.RECOVERY_EARLY_AVAILABILITY);
   }
 
   public RecoveryManagerImpl(LogManager logManager, ActionManager actionManager, Configuration configuration) {
     this(logManager, actionManager, configuration, Runtime.getRuntime());
   }
 
+  /**
+   * Recover from the checkpoint image and the log written after it.
+   *
+   * @param checkpoint latest image, null to recover from the log alone
+   */
+  public RecoveryManagerImpl(LogManager logManager, ActionManager actionManager, Configuration configuration,
+                             Checkpoint checkpoint) {
+    this(logManager, actionManager, configuration, Runtime.getRuntime().availableProcessors(), checkpoint);
+  }
+
   @Override
   public Future<Void> recover(RecoveryListener ... listeners) throws RecoveryException,
           InterruptedException {
-    Iterator<LogRecord> i = logManager.startup();
+    //  actions are decoded on the threads unpacking the log, this thread only 
+    //  runs them through the filters in order
+    logManager.decodeRecovery(record -> new DecodedRecord(record, actionManager.extract(record)));
+    final Iterator<LogRecord> i = logManager.startup();
+    if (earlyAvailability) {
+      //  the log tail is found and new records are taken from here on, the 
+      //  replay completes on its own thread
+      FutureTask<Void> replay = new FutureTask<Void>(() -> {
+        replay(i, listeners);
+        return null;
+      });
+      Thread t = new Thread(replay, "Recovery Thread");
+      t.setDaemon(true);
+      t.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+      t.start();
+      return replay;
+    }
+    replay(i, listeners);
+    return new NullFuture();
+  }
+
+  private void replay(Iterator<LogRecord> i, RecoveryListener[] listeners) throws RecoveryException,
+          InterruptedException {
     long filter = 0;
     long put = 0;
     long ntime = System.nanoTime();
 
+    Checkpoint image = checkpoint;
+    long lowestLsn = logManager.lowestLsn();
+    if (image != null && image.getLsn() >= logManager.currentLsn()) {
+      LOGGER.warn("Checkpoint at " + image.getLsn() + " is ahead of the log at " + logManager.currentLsn() +
+                  ", recovering from the full log");
+      image = null;
+    }
+    //  the image stands in for every record at or below its lsn
+    long floor = (image == null) ? lowestLsn : Math.max(lowestLsn, image.getLsn() + 1);
+    if (image != null) {
+      logManager.limitRecovery(floor);
+    }
+
     Filter<Action> deleteFilter = new DeleteFilter(replayFilter);
     Filter<Action> transactionFilter = new TransactionFilter(deleteFilter);
-    Filter<Action> skipsFilter = new SkipsFilter(transactionFilter, logManager.lowestLsn(),
+    Filter<Action> skipsFilter = new SkipsFilter(transactionFilter, lowestLsn,
                                                  compressedSkipSet);
     Filter<Action> progressLoggingFilter =
-            new ProgressLoggingFilter(replayFilter.dbHome, skipsFilter, logManager.lowestLsn());
+            new ProgressLoggingFilter(replayFilter.dbHome, skipsFilter, floor);
 
     // For now we're not spinning off another thread for recovery.
     long lastRecoveredLsn = Long.MAX_VALUE;
     try {
       while (i.hasNext()) {
         LogRecord logRecord = i.next();
-        Action action = actionManager.extract(logRecord);
+        if (image != null && logRecord.getLsn() < floor) {
+          logRecord.close();
+          continue;
+        }
+        Action action = (logRecord instanceof DecodedRecord) ?
+                        ((DecodedRecord) logRecord).action : actionManager.extract(logRecord);
         long ctime = System.nanoTime();
         filter += (ctime - ntime);
         boolean replayed = progressLoggingFilter.filter(action, logRecord.getLsn(), false);
@@ -111,6 +169,12 @@ public class RecoveryManagerImpl implements RecoveryManager {
           logRecord.close();
         }
       }
+      if (image != null) {
+        //  entries overwritten or removed since the image were marked skipped 
+        //  on the way down the log
+        image.replay(skipsFilter, lowestLsn);
+        replayFilter.checkError();
+      }
     } catch ( IOException ioe ) {
       throw new RecoveryException("failed to restart", ioe);
     } finally {
@@ -118,7 +182,8 @@ public class RecoveryManagerImpl implements RecoveryManager {
       replayFilter.checkError();
     }
 
-    if (lastRecoveredLsn != Long.MAX_VALUE && lastRecoveredLsn > logManager.lowestLsn()) {
+    long recoveredTo = (image == null) ? logManager.lowestLsn() : Math.max(logManager.lowestLsn(), floor);
+    if (lastRecoveredLsn != Long.MAX_VALUE && lastRecoveredLsn > recoveredTo) {
       throw new RecoveryException("Recovery is incomplete for log " + configuration.getDBHome() + ". Files may be missing.");
     }
 
@@ -128,7 +193,6 @@ public class RecoveryManagerImpl implements RecoveryManager {
 
     LOGGER.debug("count " + replayFilter.getReplayCount() + " put " + put + " filter " + filter);
     LOGGER.debug(skipsFilter.toString());
-    return new NullFuture();
   }
 
   private static class ProgressLoggingFilter extends AbstractFilter<Action> {
@@ -157,125 +221,77 @@ public class RecoveryManagerImpl implements RecoveryManager {
   }
 
   private static class ReplayFilter implements Filter<Action> {
-    private final AtomicInteger              threadId        = new AtomicInteger();
     private final AtomicReference<Throwable> firstError      = new AtomicReference<>();
-    private final ForkJoinPool replayPool;
 
     private final File dbHome;
-    private final int replayPerBatchSize;
     private final int replayTotalBatchSize;
-    private long replayed = 0;
+    private final ReplayShard[] shards;
     private long submitted = 0;
-    private ReplayElement[][] batches;
-    private int[] currentIndices;
-    private ForkJoinTask<Void> replayBatchTask;
+    private long completed = 0;
 
+    //  each replay thread owns a shard of the replay concurrency space, with a
+    //  queue of up to replayPerBatchSize records.  No more than 
+    //  replayTotalBatchSize records are outstanding across all shards.
     ReplayFilter(int replayPerBatchSize, int replayTotalBatchSize, File dbHome, int maxThreadCount) {
       this.dbHome = dbHome;
-      this.replayPerBatchSize = replayPerBatchSize;
-      this.replayTotalBatchSize = replayTotalBatchSize;
-      int numBatches = MaxProcessorsToPrime.getNextPrime(maxThreadCount);
-      this.batches = new ReplayElement[numBatches][replayPerBatchSize];
-      this.currentIndices = new int[numBatches];
-      this.replayBatchTask = null;
-      ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-      this.replayPool = new ForkJoinPool(maxThreadCount, pool -> {
-        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
-        thread.setName("Replay Thread - " + threadId.getAndIncrement());
-        thread.setContextClassLoader(classLoader);
-        return thread;
-      }, null, false);
+      this.replayTotalBatchSize = Math.max(replayTotalBatchSize, 1);
+      this.shards = new ReplayShard[Math.max(maxThreadCount, 1)];
+      for (int i = 0; i < shards.length; i++) {
+        shards[i] = new ReplayShard("Replay Thread - " + i, replayPerBatchSize, firstError);
+      }
     }
 
     public long getReplayCount() {
-        return replayed;
+        return submitted;
     }
 
     @Override
     public boolean filter(final Action element, final long lsn, boolean filtered) {
       if (filtered) {
         return false;
-      } else {
-        int idx1 = (element.replayConcurrency() & Integer.MAX_VALUE) % batches.length;
-        int idx2 = this.currentIndices[idx1];
-        int nextIdx2 = idx2 + 1;
-        this.currentIndices[idx1] = nextIdx2;
-        submitted++;
-        batches[idx1][idx2] = new ReplayElement(element,lsn);
-        if (submitted - replayed  >= replayTotalBatchSize || nextIdx2 >= replayPerBatchSize - 1) {
-          submitJob(false);
+      } else if (element instanceof MultiEntryAction) {
+        //  entries of one record are spread over the stripes of their keys
+        MultiEntryAction multi = (MultiEntryAction) element;
+        AtomicInteger remaining = new AtomicInteger();
+        for (int i = 0; i < multi.getEntryCount(); i++) {
+          if (!multi.isSkipped(i)) {
+            remaining.incrementAndGet();
+          }
+        }
+        for (int i = 0; i < multi.getEntryCount(); i++) {
+          if (!multi.isSkipped(i)) {
+            submit(multi.replayConcurrency(i), element, lsn, i, remaining);
+          }
         }
         return true;
+      } else {
+        submit(element.replayConcurrency(), element, lsn, -1, null);
+        return true;
       }
     }
 
-    private void submitJob(boolean last) {
-      final ReplayElement[][] go = batches;
-      if (!last) {
-        batches = new ReplayElement[batches.length][replayPerBatchSize];
-        currentIndices = new int[batches.length];
-      } else {
-        batches = null;
-        currentIndices = null;
-      }
-      if (replayBatchTask != null) {
-        waitForReplayBatchTask();
-      }
-      if (replayed != submitted) {
-        replayed = submitted;
-        replayBatchTask = replayBatch(go);
-        if (last) {
-          waitForReplayBatchTask();
-        }
+    private void submit(int concurrency, Action element, long lsn, int entry, AtomicInteger remaining) {
+      if (submitted - completed >= replayTotalBatchSize) {
+        awaitCompletions();
       }
+      shards[(concurrency & Integer.MAX_VALUE) % shards.length].offer(element, lsn, entry, remaining);
+      submitted++;
     }
 
-    private void waitForReplayBatchTask() {
-      boolean interrupted = false;
-      try {
-        // let the current batch complete before we allow interrupts
-        while (replayBatchTask != null) {
-          try {
-            // only one pending batch at any given time
-            replayBatchTask.get();
-          } catch (ExecutionException e) {
-            firstError.compareAndSet(null, e);
-            LOGGER.error("Error replaying record: " + e.getMessage());
-          } catch (InterruptedException e) {
-            interrupted |= Thread.interrupted();
-          } finally {
-            if (replayBatchTask.isDone()) {
-              replayBatchTask = null;
-            }
-          }
+    private void awaitCompletions() {
+      while (true) {
+        long done = 0;
+        for (ReplayShard shard : shards) {
+          done += shard.completed();
         }
-      } finally {
-        if (interrupted) {
-          // restore interrupt status
-          Thread.currentThread().interrupt();
+        completed = done;
+        if (submitted - completed < replayTotalBatchSize) {
+          return;
         }
+        LockSupport.parkNanos(this, 50_000L);
       }
     }
 
-    private ForkJoinTask<Void> replayBatch(ReplayElement[][] go) {
-      return replayPool.submit(() -> {
-        Arrays.stream(go).filter((rs) -> rs[0] != null).parallel().forEach((rs) -> {
-          try {
-            for (ReplayElement r : rs) {
-              if (r == null) {
-                break;
-              }
-              r.replay();
-            }
-          } catch (Throwable t) {
-            firstError.compareAndSet(null, t);
-            LOGGER.error("Error replaying record: " + t.getMessage());
-          }
-        });
-        return null;
-      });
-    }
-
     void checkError() throws RecoveryException {
       Throwable t = firstError.get();
       if (t != null) {
@@ -284,60 +300,50 @@ public class RecoveryManagerImpl implements RecoveryManager {
     }
 
     void finish() throws InterruptedException {
-      submitJob(true);
-      replayPool.shutdown();
-      boolean done;
-      do {
-        done = replayPool.awaitTermination(2, MINUTES);
-        if (!done) {
+      for (ReplayShard shard : shards) {
+        shard.close();
+      }
+      for (ReplayShard shard : shards) {
+        while (!shard.awaitTermination(2, MINUTES)) {
           LOGGER.warn("Unable to ensure recovery completion.");
           LOGGER.warn("Cannot proceed further. Checking Again for recovery completion...");
         }
-      } while (!done);
-    }
-  }
-
-  /**
-   * Have a better spread to get better concurrency. Pick up a prime that is close to twice the max processors
-   */
-  private static class MaxProcessorsToPrime {
-    private static final int[] primesTo100 = {23, 31, 41, 53, 61, 71, 83, 97, 137, 149, 157, 167, 179, 181, 191, 211, 223, 241, 269, 293};
-    private static final int[] primesTo200 = {317, 337, 359, 379, 397, 409, 439, 479, 509, 557};
-    private static final int[] primesTo300 = {599, 691, 797, 887, 997};
-    private static final int[] primesTo500 = {1091, 1117, 1217, 1319};
-    private static final int primeTo1000 = 2399;
-
-    private static int getNextPrime(int numProcessors) {
-      if (numProcessors <= 2) {
-        return 3;
-      } else if (numProcessors < 100) {
-        return primesTo100[numProcessors/5];
-      } else if (numProcessors < 200) {
-        return primesTo200[(numProcessors - 100)/10];
-      } else if (numProcessors < 300) {
-        return primesTo300[(numProcessors - 200)/20];
-      } else if (numProcessors < 500) {
-        return primesTo500[(numProcessors - 300)/50];
-      } else {
-        return primeTo1000;
+      }
+      if (LOGGER.isDebugEnabled()) {
+        for (ReplayShard shard : shards) {
+          shard.logStatistics();
+        }
       }
     }
   }
 
-  private static class ReplayElement {
+  private static class DecodedRecord implements LogRecord {
+    private final LogRecord record;
     private final Action action;
-    private final long lsn;
 
-    private ReplayElement(Action action, long lsn) {
+    DecodedRecord(LogRecord record, Action action) {
+      this.record = record;
       this.action = action;
-      this.lsn = lsn;
     }
 
-    void replay() {
-      action.replay(lsn);
-      if ( action instanceof Disposable ) {
-        ((Disposable)action).dispose();
-      }
+    @Override
+    public long getLsn() {
+      return record.getLsn();
+    }
+
+    @Override
+    public void updateLsn(long lsn) {
+      record.updateLsn(lsn);
+    }
+
+    @Override
+    public ByteBuffer[] getPayload() {
+      return record.getPayload();
+    }
+
+    @Override
+    public void close() throws IOException {
+      record.close();
     }
   }
 }
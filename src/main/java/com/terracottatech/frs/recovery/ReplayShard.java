@@ -0,0 +1,229 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.recovery;
+
+import com.terracottatech.frs.Disposable;
+import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.MultiEntryAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A replay thread with its own queue.  Records queued on a shard are replayed
+ * in queue order, while shards make progress independently of one another.
+ * <p>
+ * The queue is a ring of reused slots with the recovery thread as its only
+ * producer, so replay allocates nothing per record.  A full ring holds the
+ * producer back, which bounds how far a shard can lag the log.
+ *
+ * @author mscott
+ */
+class ReplayShard implements Runnable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReplayShard.class);
+  private static final int SPINS = 64;
+
+  private final Slot[] slots;
+  private final int mask;
+  private final Thread thread;
+  private final AtomicReference<Throwable> firstError;
+
+  //  head is only advanced by the shard, tail only by the producer
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+  private volatile boolean parked;
+  private volatile Thread blocked;
+  private volatile boolean closed;
+
+  private boolean started;
+  private long cachedHead;
+  private long busyNanos;
+  private long stalls;
+
+  ReplayShard(String name, int capacity, AtomicReference<Throwable> firstError) {
+    int size = 2;
+    while (size < capacity) {
+      size <<= 1;
+    }
+    this.slots = new Slot[size];
+    for (int i = 0; i < size; i++) {
+      slots[i] = new Slot();
+    }
+    this.mask = size - 1;
+    this.firstError = firstError;
+    this.thread = new Thread(this, name);
+    this.thread.setDaemon(true);
+    this.thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+  }
+
+  /**
+   * Queue a record, or one entry of it, waiting while the shard is full.
+   * Only ever called from the recovery thread.
+   */
+  void offer(Action action, long lsn, int entry, AtomicInteger remaining) {
+    if (!started) {
+      thread.start();
+      started = true;
+    }
+    long t = tail.get();
+    if (t - cachedHead >= slots.length) {
+      cachedHead = head.get();
+      if (t - cachedHead >= slots.length) {
+        stalls++;
+        waitForRoom(t);
+      }
+    }
+    slots[(int) t & mask].set(action, lsn, entry, remaining);
+    tail.set(t + 1);
+    if (parked) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private void waitForRoom(long t) {
+    blocked = Thread.currentThread();
+    try {
+      while (t - (cachedHead = head.get()) >= slots.length) {
+        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+      }
+    } finally {
+      blocked = null;
+    }
+  }
+
+  /**
+   * @return records replayed, or skipped after an error, so far
+   */
+  long completed() {
+    return head.get();
+  }
+
+  long queued() {
+    return tail.get();
+  }
+
+  @Override
+  public void run() {
+    long h = head.get();
+    while (true) {
+      if (h == tail.get() && !idle(h)) {
+        return;
+      }
+      long start = System.nanoTime();
+      long available = tail.get();
+      while (h < available) {
+        slots[(int) h & mask].replay();
+        head.set(++h);
+        Thread waiting = blocked;
+        if (waiting != null) {
+          LockSupport.unpark(waiting);
+        }
+      }
+      busyNanos += System.nanoTime() - start;
+    }
+  }
+
+  //  wait for more records, false once the shard is closed and drained
+  private boolean idle(long h) {
+    for (int i = 0; i < SPINS; i++) {
+      if (h != tail.get()) {
+        return true;
+      }
+    }
+    while (h == tail.get()) {
+      if (closed) {
+        return h != tail.get();
+      }
+      parked = true;
+      if (h == tail.get() && !closed) {
+        LockSupport.park(this);
+      }
+      parked = false;
+    }
+    return true;
+  }
+
+  void close() {
+    closed = true;
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * @return {@code true} once every queued record was replayed
+   */
+  boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    if (started) {
+      thread.join(unit.toMillis(timeout));
+      return !thread.isAlive();
+    }
+    return true;
+  }
+
+  void logStatistics() {
+    long replayed = head.get();
+    long millis = TimeUnit.NANOSECONDS.toMillis(busyNanos);
+    LOGGER.debug("==PERFORMANCE(replay)== " + thread.getName() + " replayed: " + replayed + " busy: " + millis +
+                 "ms rate: " + (busyNanos == 0 ? 0 : replayed * TimeUnit.SECONDS.toNanos(1) / busyNanos) +
+                 "/s producer stalls: " + stalls);
+  }
+
+  private final class Slot {
+    private Action action;
+    private long lsn;
+    private int entry;
+    private AtomicInteger remaining;
+
+    void set(Action action, long lsn, int entry, AtomicInteger remaining) {
+      this.action = action;
+      this.lsn = lsn;
+      this.entry = entry;
+      this.remaining = remaining;
+    }
+
+    void replay() {
+      Action replaying = action;
+      action = null;
+      AtomicInteger entries = remaining;
+      remaining = null;
+      if (firstError.get() != null) {
+        //  recovery is failing, drain without replaying
+        return;
+      }
+      try {
+        if (entries == null) {
+          replaying.replay(lsn);
+        } else {
+          ((MultiEntryAction) replaying).replayEntry(entry, lsn);
+          if (entries.decrementAndGet() > 0) {
+            return;
+          }
+        }
+        if (replaying instanceof Disposable) {
+          ((Disposable) replaying).dispose();
+        }
+      } catch (Throwable t) {
+        firstError.compareAndSet(null, t);
+        LOGGER.error("Error replaying record: " + t.getMessage());
+      }
+    }
+  }
+}
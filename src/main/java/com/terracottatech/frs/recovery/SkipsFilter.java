@@ -16,18 +16,29 @@
 package com.terracottatech.frs.recovery;
 
 import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.EntryAction;
 import com.terracottatech.frs.action.InvalidatingAction;
+import com.terracottatech.frs.action.MultiEntryAction;
+import com.terracottatech.frs.action.WrappingAction;
 import com.terracottatech.frs.util.CompressedLongSet;
 
 import java.util.HashSet;
 import java.util.Set;
 
 /**
+ * Skips records invalidated by newer records.  Records holding many entries
+ * under one lsn are skipped entry by entry: keyed removes are tracked as
+ * (lsn, entry) pairs and followed down each entry's own invalidation chain.
+ * Entries written while an earlier recovery was still replaying carry no
+ * previous lsn and instead skip every older record of the entry.
+ *
  * @author tim
  */
 public class SkipsFilter extends AbstractFilter<Action> {
   private final long lowestLsn;
   private final Set<Long> skips;
+  private final Set<Long> removedEntries = new HashSet<Long>();
+  private final Set<Long> supersededEntries = new HashSet<Long>();
 
   public SkipsFilter(Filter<Action> nextFilter, long lowestLsn, boolean compressed) {
     super(nextFilter);
@@ -41,12 +52,16 @@ public class SkipsFilter extends AbstractFilter<Action> {
 
   @Override
   public boolean filter(Action element, long lsn, boolean filtered) {
-    if (skips.remove(lsn)) {
-      updateSkips(element);
+    Action action = unwrap(element);
+    if (action instanceof MultiEntryAction) {
+      return filterEntries(element, (MultiEntryAction) action, lsn, filtered);
+    }
+    if (skips.remove(lsn) | isSuperseded(action)) {
+      updateSkips(action, lsn);
       return delegate(element, lsn, true);
     } else {
       if (delegate(element, lsn, filtered)) {
-        updateSkips(element);
+        updateSkips(action, lsn);
         return true;
       } else {
         return false;
@@ -54,7 +69,63 @@ public class SkipsFilter extends AbstractFilter<Action> {
     }
   }
 
-  private void updateSkips(Action action) {
+  private boolean filterEntries(Action element, MultiEntryAction action, long lsn, boolean filtered) {
+    boolean overwritten = skips.remove(lsn);
+    int live = 0;
+    for (int i = 0; i < action.getEntryCount(); i++) {
+      long hash = action.getEntryHash(i);
+      if (!removedEntries.isEmpty() && removedEntries.remove(mix(lsn, hash))) {
+        action.skipEntry(i);
+        removeEntry(action.getInvalidatedLsn(i), hash);
+      } else if (!supersededEntries.isEmpty() && supersededEntries.contains(hash)) {
+        action.skipEntry(i);
+      } else {
+        live++;
+      }
+    }
+    if (live == 0) {
+      updateSkips(action, lsn);
+      return delegate(element, lsn, true);
+    }
+    if (overwritten) {
+      //  part of this record was overwritten by newer records, which entries
+      //  is only known once the newer records are replayed
+      action.guardEntries();
+    }
+    if (delegate(element, lsn, filtered) || overwritten) {
+      updateSkips(action, lsn);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  private boolean isSuperseded(Action action) {
+    return !supersededEntries.isEmpty() && action instanceof EntryAction &&
+           supersededEntries.contains(((EntryAction) action).getEntryHash());
+  }
+
+  private void updateSkips(Action action, long lsn) {
+    if (action instanceof EntryAction) {
+      EntryAction entry = (EntryAction) action;
+      //  written while an earlier recovery had not reached the key, every 
+      //  older record of the entry is dead
+      if (entry.getInvalidatedLsn() == EntryAction.UNRECOVERED) {
+        supersededEntries.add(entry.getEntryHash());
+      }
+      //  a removed entry stays removed down its whole chain
+      if (entry.isRemove() || (!removedEntries.isEmpty() && removedEntries.remove(mix(lsn, entry.getEntryHash())))) {
+        removeEntry(entry.getInvalidatedLsn(), entry.getEntryHash());
+      }
+    }
+    if (action instanceof MultiEntryAction) {
+      MultiEntryAction multi = (MultiEntryAction) action;
+      for (int i = 0; i < multi.getEntryCount(); i++) {
+        if (multi.getInvalidatedLsn(i) == EntryAction.UNRECOVERED) {
+          supersededEntries.add(multi.getEntryHash(i));
+        }
+      }
+    }
     if (action instanceof InvalidatingAction) {
       for (long invalid : ((InvalidatingAction) action).getInvalidatedLsns()) {
         if (invalid >= lowestLsn) {
@@ -63,4 +134,22 @@ public class SkipsFilter extends AbstractFilter<Action> {
       }
     }
   }
+
+  private void removeEntry(long invalid, long hash) {
+    if (invalid >= lowestLsn) {
+      removedEntries.add(mix(invalid, hash));
+      skips.add(invalid);
+    }
+  }
+
+  private static Action unwrap(Action action) {
+    while (action instanceof WrappingAction) {
+      action = ((WrappingAction) action).getAction();
+    }
+    return action;
+  }
+
+  private static long mix(long lsn, long hash) {
+    return hash ^ (lsn * 0x9e3779b97f4a7c15L);
+  }
 }
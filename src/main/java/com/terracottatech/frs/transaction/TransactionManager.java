@@ -15,9 +15,12 @@
  */
 package com.terracottatech.frs.transaction;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.TransactionException;
 import com.terracottatech.frs.action.Action;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  *
  * @author cdennis
@@ -40,6 +43,24 @@ public interface TransactionManager {
    */
   void commit(TransactionHandle handle, boolean synchronous) throws TransactionException;
 
+  /**
+   * Commit the transaction without waiting for the commit record to reach disk.
+   *
+   * @param handle handle to the transaction to commit.
+   * @param synchronous whether or not the returned future waits for the commit to be synced
+   * @return future completed once the commit is written, or exceptionally if the write fails
+   */
+  CompletableFuture<Void> commitAsync(TransactionHandle handle, boolean synchronous);
+
+  /**
+   * Commit the transaction without blocking, acknowledged once the commit record has the given durability.
+   *
+   * @param handle handle to the transaction to commit.
+   * @param durability how far the commit record has to get before the future completes
+   * @return future completed with the durability the commit reached, or exceptionally if the write fails
+   */
+  CompletableFuture<Durability> commitAsync(TransactionHandle handle, Durability durability);
+
   /**
    * Record the {@link Action} under the given transaction
    *
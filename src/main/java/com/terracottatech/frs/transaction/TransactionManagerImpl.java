@@ -15,11 +15,13 @@
  */
 package com.terracottatech.frs.transaction;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.TransactionException;
 import com.terracottatech.frs.action.Action;
 import com.terracottatech.frs.action.ActionManager;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -78,6 +80,31 @@ public class TransactionManagerImpl implements TransactionManager {
     }
   }
 
+  @Override
+  public CompletableFuture<Void> commitAsync(TransactionHandle handle, boolean synchronous) {
+    TransactionAccount account = liveTransactions.remove(handle);
+    if (account == null) {
+      throw new IllegalArgumentException(
+              handle + " does not belong to a live transaction.");
+    }
+    TransactionCommitAction action = new TransactionCommitAction(handle, account.begin());
+    if (synchronous) {
+      return actionManager.syncHappenedAsync(action);
+    } else {
+      return actionManager.happenedAsync(action);
+    }
+  }
+
+  @Override
+  public CompletableFuture<Durability> commitAsync(TransactionHandle handle, Durability durability) {
+    TransactionAccount account = liveTransactions.remove(handle);
+    if (account == null) {
+      throw new IllegalArgumentException(
+              handle + " does not belong to a live transaction.");
+    }
+    return actionManager.happenedAsync(new TransactionCommitAction(handle, account.begin()), durability);
+  }
+
   @Override
   public void happened(TransactionHandle handle, Action action) {
     TransactionAccount account = liveTransactions.get(handle);
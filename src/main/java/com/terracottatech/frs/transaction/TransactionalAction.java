@@ -22,6 +22,7 @@ import com.terracottatech.frs.action.Action;
 import com.terracottatech.frs.action.ActionCodec;
 import com.terracottatech.frs.action.ActionFactory;
 import com.terracottatech.frs.action.InvalidatingAction;
+import com.terracottatech.frs.action.WrappingAction;
 import com.terracottatech.frs.object.ObjectManager;
 
 import java.nio.ByteBuffer;
@@ -36,7 +37,7 @@ import java.io.IOException;
 /**
  * @author tim
  */
-class TransactionalAction implements TransactionAction, GettableAction {
+class TransactionalAction implements TransactionAction, GettableAction, WrappingAction {
   public static final ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer> FACTORY =
           new ActionFactory<ByteBuffer, ByteBuffer, ByteBuffer>() {
             @Override
@@ -90,7 +91,8 @@ class TransactionalAction implements TransactionAction, GettableAction {
     return handle;
   }
 
-  Action getAction() {
+  @Override
+  public Action getAction() {
     return action;
   }
 
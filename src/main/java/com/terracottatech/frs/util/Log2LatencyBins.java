@@ -188,6 +188,34 @@ public class Log2LatencyBins {
     return counter.longValue();
   }
 
+  /**
+   * Estimate a percentile from the bins, non coherent with respect to concurrent
+   * recording.  The answer is the exclusive upper bound of the bin holding the
+   * percentile, so it errs on the slow side by at most a factor of 2.
+   *
+   * @param fraction percentile as a fraction, ie. 0.99
+   * @return latency in nanos, or 0 if nothing has been recorded
+   */
+  public long percentile(double fraction) {
+    long[] counts = binCounts();
+    long total = 0;
+    for (long c : counts) {
+      total += c;
+    }
+    if (total == 0) {
+      return 0L;
+    }
+    long threshold = (long) Math.ceil(total * fraction);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= threshold) {
+        return (i == counts.length - 1) ? nanosMinForBin(i) : nanosMaxForBin(i) << 1;
+      }
+    }
+    return nanosMinForBin(counts.length - 1);
+  }
+
   public static String niceDuration(long ns) {
     if (ns < TimeUnit.MILLISECONDS.toNanos(1) - 1) {
       // less than 1 milli, bare nanos
@@ -0,0 +1,164 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.util;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A monotonic lsn with any number of threads waiting for it to pass their own
+ * lsn.  Waiters are kept ordered by lsn so an advance only wakes the threads
+ * it satisfies, and advancing with nobody waiting costs one volatile read.
+ *
+ * @author mscott
+ */
+public class LsnWatermark {
+
+  private final AtomicLong mark;
+  private final AtomicLong sequence = new AtomicLong();
+  private final ConcurrentSkipListSet<Waiter> waiters = new ConcurrentSkipListSet<Waiter>();
+  private volatile boolean released = false;
+
+  public LsnWatermark(long initial) {
+    this.mark = new AtomicLong(initial);
+  }
+
+  public long get() {
+    return mark.get();
+  }
+
+  /**
+   * Move the mark up to lsn and wake every waiter at or below it.  Lower lsns
+   * are ignored.
+   */
+  public void advance(long lsn) {
+    long current = mark.get();
+    while ( current < lsn ) {
+      if ( mark.compareAndSet(current, lsn) ) {
+        break;
+      }
+      current = mark.get();
+    }
+    if ( !waiters.isEmpty() ) {
+      wake(mark.get());
+    }
+  }
+
+  /**
+   * Set the mark, moving it back if need be, and re-arm a released mark.  Only
+   * for when nobody can be waiting, like opening or truncating a log.
+   */
+  public void reset(long lsn) {
+    mark.set(lsn);
+    released = false;
+  }
+
+  /**
+   * Wake every waiter and stop any new one from blocking.  Callers find out why
+   * the mark stopped moving from whatever owns it.
+   */
+  public void release() {
+    released = true;
+    wake(Long.MAX_VALUE);
+  }
+
+  public boolean isReleased() {
+    return released;
+  }
+
+  /**
+   * Wait without a timeout for the mark to reach lsn.
+   *
+   * @return {@code false} if the mark was released first
+   */
+  public boolean await(long lsn) throws InterruptedException {
+    return await(lsn, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Wait for the mark to reach lsn.
+   *
+   * @return {@code true} once the mark is at or past lsn, {@code false} if the
+   *     timeout expired or the mark was released first
+   */
+  public boolean await(long lsn, long timeout, TimeUnit unit) throws InterruptedException {
+    if ( mark.get() >= lsn ) {
+      return true;
+    }
+    if ( Thread.interrupted() ) {
+      throw new InterruptedException();
+    }
+    long nanos = unit.toNanos(timeout);
+    long deadline = ( nanos == Long.MAX_VALUE ) ? 0 : System.nanoTime() + nanos;
+    Waiter waiter = new Waiter(lsn, sequence.getAndIncrement(), Thread.currentThread());
+    waiters.add(waiter);
+    try {
+  //  registered before the checks, an advance from here on unparks this thread
+      while ( mark.get() < lsn && !released ) {
+        if ( nanos == Long.MAX_VALUE ) {
+          LockSupport.park(this);
+        } else {
+          long remaining = deadline - System.nanoTime();
+          if ( remaining <= 0 ) {
+            break;
+          }
+          LockSupport.parkNanos(this, remaining);
+        }
+        if ( Thread.interrupted() ) {
+          throw new InterruptedException();
+        }
+      }
+      return mark.get() >= lsn;
+    } finally {
+      waiters.remove(waiter);
+    }
+  }
+
+  private void wake(long upTo) {
+    for ( Waiter waiter : waiters.headSet(new Waiter(upTo, Long.MAX_VALUE, null), true) ) {
+      if ( waiters.remove(waiter) ) {
+        LockSupport.unpark(waiter.thread);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "LsnWatermark{" + "mark=" + mark.get() + ", waiters=" + waiters.size() + ", released=" + released + '}';
+  }
+
+  private static class Waiter implements Comparable<Waiter> {
+    private final long lsn;
+    private final long sequence;
+    private final Thread thread;
+
+    Waiter(long lsn, long sequence, Thread thread) {
+      this.lsn = lsn;
+      this.sequence = sequence;
+      this.thread = thread;
+    }
+
+    @Override
+    public int compareTo(Waiter o) {
+      if ( lsn != o.lsn ) {
+        return ( lsn < o.lsn ) ? -1 : 1;
+      }
+      return Long.compare(sequence, o.sequence);
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.object.ObjectManager;
+import com.terracottatech.frs.object.heap.HeapObjectManager;
+import com.terracottatech.frs.recovery.Filter;
+import com.terracottatech.frs.util.JUnitTestFolder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.terracottatech.frs.util.TestUtils.byteBufferWithInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author mscott
+ */
+public class CheckpointImageTest {
+  @Rule
+  public JUnitTestFolder folder = new JUnitTestFolder();
+
+  private ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager;
+  private File image;
+
+  @Before
+  public void setUp() throws Exception {
+    objectManager = new HeapObjectManager<ByteBuffer, ByteBuffer, ByteBuffer>(1);
+    image = new File(folder.newFolder(), "checkpoint.img");
+  }
+
+  @Test
+  public void testReplayRestoresEntries() throws Exception {
+    write(100, 1000, 64);
+    CheckpointImage checkpoint = CheckpointImage.open(image, objectManager, null, 3);
+    assertNotNull(checkpoint);
+    assertEquals(1000L, checkpoint.getLsn());
+    assertEquals(100L, checkpoint.getEntryCount());
+
+    List<Long> lsns = replay(checkpoint, 0);
+    assertEquals(100, lsns.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i + 10L, (long) lsns.get(i));
+      assertEquals(i + 10L, objectManager.getLsn(byteBufferWithInt(1), byteBufferWithInt(i)));
+    }
+    objectManager.forEachEntry(entry -> assertEquals(entry.getKey().getInt(0) * 2, entry.getValue().getInt(0)));
+  }
+
+  @Test
+  public void testEntriesBelowLowestLsnAreDropped() throws Exception {
+    write(100, 1000, 64);
+    List<Long> lsns = replay(CheckpointImage.open(image, objectManager, null, 2), 60);
+    assertEquals(50, lsns.size());
+    assertEquals(60L, (long) lsns.get(0));
+    assertEquals(-1L, objectManager.getLsn(byteBufferWithInt(1), byteBufferWithInt(0)));
+  }
+
+  @Test
+  public void testKeyedImageSkipsEntriesOneByOne() throws Exception {
+    write(10, 100, true, 64);
+    CheckpointImage checkpoint = CheckpointImage.open(image, objectManager, null, 1);
+    assertTrue(checkpoint.isKeyed());
+    final List<Action> actions = new ArrayList<Action>();
+    checkpoint.replay(new Filter<Action>() {
+      @Override
+      public boolean filter(Action element, long lsn, boolean filtered) {
+        actions.add(element);
+        return true;
+      }
+    }, 0);
+    assertEquals(10, actions.size());
+    for (Action action : actions) {
+      assertTrue(action instanceof MultiPutAction);
+    }
+
+    write(10, 100, false, 64);
+    checkpoint = CheckpointImage.open(image, objectManager, null, 1);
+    assertFalse(checkpoint.isKeyed());
+  }
+
+  @Test
+  public void testUncommittedImageIsIgnored() throws Exception {
+    CheckpointImage.Writer writer = CheckpointImage.create(image, 10, false, 64);
+    writer.add(byteBufferWithInt(1), byteBufferWithInt(1), byteBufferWithInt(1), 1);
+    writer.close();
+    assertNull(CheckpointImage.open(image, objectManager, null, 1));
+  }
+
+  @Test
+  public void testCorruptTailIsIgnored() throws Exception {
+    write(10, 100, 64);
+    corrupt(image.length() - 12);
+    assertNull(CheckpointImage.open(image, objectManager, null, 1));
+  }
+
+  @Test
+  public void testCorruptPartitionFailsReplay() throws Exception {
+    write(10, 100, 64);
+    CheckpointImage checkpoint = CheckpointImage.open(image, objectManager, null, 1);
+    corrupt(30);
+    try {
+      replay(checkpoint, 0);
+      fail("expected IOException");
+    } catch (IOException e) {
+      //  expected
+    }
+  }
+
+  private void write(int count, long lsn, int partitionSize) throws IOException {
+    write(count, lsn, false, partitionSize);
+  }
+
+  private void write(int count, long lsn, boolean keyed, int partitionSize) throws IOException {
+    try (CheckpointImage.Writer writer = CheckpointImage.create(image, lsn, keyed, partitionSize)) {
+      for (int i = 0; i < count; i++) {
+        writer.add(byteBufferWithInt(1), byteBufferWithInt(i), byteBufferWithInt(i * 2), i + 10);
+      }
+      writer.commit();
+    }
+  }
+
+  private List<Long> replay(CheckpointImage checkpoint, long lowestLsn) throws Exception {
+    final List<Long> lsns = new ArrayList<Long>();
+    checkpoint.replay(new Filter<Action>() {
+      @Override
+      public boolean filter(Action element, long lsn, boolean filtered) {
+        lsns.add(lsn);
+        element.replay(lsn);
+        return true;
+      }
+    }, lowestLsn);
+    return lsns;
+  }
+
+  private void corrupt(long position) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(image, "rw")) {
+      raf.seek(position);
+      int b = raf.read();
+      raf.seek(position);
+      raf.write(b ^ 0xff);
+    }
+  }
+}
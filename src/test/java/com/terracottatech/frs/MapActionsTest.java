@@ -26,6 +26,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static com.terracottatech.frs.util.TestUtils.byteBufferWithInt;
@@ -92,4 +93,46 @@ public class MapActionsTest {
     assertThat(actionCodec.decode(actionCodec.encode(remove)), is(decoded));
   }
 
+  @Test
+  public void testKeyedRemove() throws Exception {
+    Action remove = new KeyedRemoveAction(objectManager, compactor, byteBufferWithInt(2),
+                                          byteBufferWithInt(10), false);
+    checkEncodeDecode(remove);
+  }
+
+  @Test
+  public void testMultiPutAction() throws Exception {
+    doReturn(7L).when(objectManager).getLsn(byteBufferWithInt(0), byteBufferWithInt(2));
+    Action put = new MultiPutAction(objectManager, compactor,
+                                    Arrays.asList(byteBufferWithInt(0), byteBufferWithInt(0), byteBufferWithInt(1)),
+                                    Arrays.asList(byteBufferWithInt(1), byteBufferWithInt(2), byteBufferWithInt(1)),
+                                    Arrays.asList(byteBufferWithInt(3), byteBufferWithInt(4), byteBufferWithInt(5)),
+                                    false);
+    MultiPutAction decoded = (MultiPutAction) actionCodec.decode(actionCodec.encode(put));
+    assertThat(decoded, is(put));
+    assertThat(decoded.getInvalidatedLsn(1), is(7L));
+    assertThat(decoded.getEntryHash(0) == decoded.getEntryHash(2), is(false));
+  }
+
+  @Test
+  public void testStreamedPutAction() throws Exception {
+    doReturn(7L).when(objectManager).getLsn(byteBufferWithInt(0), byteBufferWithInt(1));
+    StreamedPutAction put = new StreamedPutAction(objectManager, compactor, null, byteBufferWithInt(0),
+                                                  byteBufferWithInt(1), 12L, new long[] { 3L, 4L, 5L }, false);
+    StreamedPutAction decoded = (StreamedPutAction) actionCodec.decode(actionCodec.encode(put));
+    assertThat(decoded, is(put));
+    assertThat(decoded.getInvalidatedLsn(), is(7L));
+    assertThat(decoded.getValueLength(), is(12L));
+  }
+
+  @Test
+  public void testValueChunkAction() throws Exception {
+    ValueChunkAction chunk = new ValueChunkAction(byteBufferWithInt(42));
+    ValueChunkAction decoded = (ValueChunkAction) actionCodec.decode(actionCodec.encode(chunk));
+    ByteBuffer data = ByteBuffer.allocate(decoded.length());
+    decoded.copyTo(data);
+    data.flip();
+    assertThat(data, is(byteBufferWithInt(42)));
+  }
+
 }
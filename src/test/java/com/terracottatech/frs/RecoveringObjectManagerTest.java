@@ -0,0 +1,149 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs;
+
+import com.terracottatech.frs.action.EntryAction;
+import com.terracottatech.frs.config.FrsProperty;
+import com.terracottatech.frs.object.ObjectManager;
+import com.terracottatech.frs.object.heap.HeapObjectManager;
+import com.terracottatech.frs.util.JUnitTestFolder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Future;
+
+import static com.terracottatech.frs.util.TestUtils.byteBufferWithInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author mscott
+ */
+public class RecoveringObjectManagerTest {
+  @Rule
+  public JUnitTestFolder folder = new JUnitTestFolder();
+
+  private ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> heap;
+  private RecoveringObjectManager objectManager;
+
+  @Before
+  public void setUp() throws Exception {
+    heap = new HeapObjectManager<ByteBuffer, ByteBuffer, ByteBuffer>(1);
+    objectManager = new RecoveringObjectManager(heap);
+  }
+
+  @Test
+  public void testReplayDoesNotOverwriteWrites() throws Exception {
+    objectManager.put(byteBufferWithInt(1), byteBufferWithInt(1), byteBufferWithInt(2), 100);
+    objectManager.replayPut(byteBufferWithInt(1), byteBufferWithInt(1), byteBufferWithInt(1), 10);
+    objectManager.replayPut(byteBufferWithInt(1), byteBufferWithInt(2), byteBufferWithInt(1), 11);
+    assertEquals(100L, heap.getLsn(byteBufferWithInt(1), byteBufferWithInt(1)));
+    assertEquals(11L, heap.getLsn(byteBufferWithInt(1), byteBufferWithInt(2)));
+  }
+
+  @Test
+  public void testRemovedKeyIsNotReplayed() throws Exception {
+    objectManager.remove(byteBufferWithInt(1), byteBufferWithInt(1));
+    objectManager.replayPut(byteBufferWithInt(1), byteBufferWithInt(1), byteBufferWithInt(1), 10);
+    assertEquals(-1L, heap.getLsn(byteBufferWithInt(1), byteBufferWithInt(1)));
+  }
+
+  @Test
+  public void testUnrecoveredKeysWhileRecovering() throws Exception {
+    assertEquals(EntryAction.UNRECOVERED,
+                 RecoveringObjectManager.invalidatedLsn(objectManager, byteBufferWithInt(1), byteBufferWithInt(1), true));
+    assertEquals(-1L, RecoveringObjectManager.invalidatedLsn(objectManager, byteBufferWithInt(1), byteBufferWithInt(1), false));
+    assertEquals(-1L, RecoveringObjectManager.invalidatedLsn(heap, byteBufferWithInt(1), byteBufferWithInt(1), true));
+    objectManager.replayPut(byteBufferWithInt(1), byteBufferWithInt(1), byteBufferWithInt(1), 10);
+    assertEquals(10L, RecoveringObjectManager.invalidatedLsn(objectManager, byteBufferWithInt(1), byteBufferWithInt(1), true));
+  }
+
+  @Test
+  public void testReplayPassesThroughOnceRecovered() throws Exception {
+    objectManager.remove(byteBufferWithInt(1), byteBufferWithInt(2));
+    objectManager.recovered();
+    objectManager.replayPut(byteBufferWithInt(1), byteBufferWithInt(2), byteBufferWithInt(1), 11);
+    assertEquals(11L, heap.getLsn(byteBufferWithInt(1), byteBufferWithInt(2)));
+  }
+
+  @Test
+  public void testWritesDuringReplaySurviveRestart() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty(FrsProperty.RECOVERY_EARLY_AVAILABILITY.shortName(), "true");
+
+    RestartStore<ByteBuffer, ByteBuffer, ByteBuffer> store = open(properties);
+    store.startup().get();
+    for (int i = 0; i < 20000; i++) {
+      store.beginAutoCommitTransaction(false).put(byteBufferWithInt(1), byteBufferWithInt(i), byteBufferWithInt(i)).commit();
+    }
+    store.shutdown();
+
+    //  written while the older values are still being replayed
+    store = open(properties);
+    Future<Void> recovery = store.startup();
+    for (int i = 0; i < 1000; i++) {
+      store.beginAutoCommitTransaction(false).put(byteBufferWithInt(1), byteBufferWithInt(i), byteBufferWithInt(-i)).commit();
+    }
+    for (int i = 1000; i < 1500; i++) {
+      store.beginAutoCommitTransaction(false).remove(byteBufferWithInt(1), byteBufferWithInt(i)).commit();
+    }
+    recovery.get();
+    verify(heap);
+    store.shutdown();
+
+    store = open(new Properties());
+    store.startup().get();
+    verify(heap);
+    store.shutdown();
+  }
+
+  private RestartStore<ByteBuffer, ByteBuffer, ByteBuffer> open(Properties properties) throws Exception {
+    heap = new HeapObjectManager<ByteBuffer, ByteBuffer, ByteBuffer>(1) {
+      @Override
+      public void replayPut(ByteBuffer id, ByteBuffer key, ByteBuffer value, long lsn) {
+        //  replayed records are recycled once replayed
+        super.replayPut(copy(id), copy(key), copy(value), lsn);
+      }
+    };
+    return RestartStoreFactory.createStore(heap, folder.getRoot(), properties);
+  }
+
+  private static ByteBuffer copy(ByteBuffer buffer) {
+    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+    copy.put(buffer.duplicate()).flip();
+    return copy;
+  }
+
+  private static void verify(ObjectManager<ByteBuffer, ByteBuffer, ByteBuffer> objectManager) {
+    final Map<Integer, Integer> values = new HashMap<Integer, Integer>();
+    objectManager.forEachEntry(entry -> values.put(entry.getKey().getInt(0), entry.getValue().getInt(0)));
+    assertEquals(19500, values.size());
+    for (int i = 0; i < 20000; i++) {
+      if (i < 1000) {
+        assertEquals(-i, (int) values.get(i));
+      } else if (i < 1500) {
+        assertNull(values.get(i));
+      } else {
+        assertEquals(i, (int) values.get(i));
+      }
+    }
+  }
+}
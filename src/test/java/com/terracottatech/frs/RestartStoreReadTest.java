@@ -18,8 +18,10 @@ package com.terracottatech.frs;
 import com.terracottatech.frs.config.FrsProperty;
 import com.terracottatech.frs.object.ObjectManager;
 import com.terracottatech.frs.object.heap.HeapObjectManager;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -44,6 +46,7 @@ public class RestartStoreReadTest  {
 
   RestartStore  restart;
   ObjectManager<ByteBuffer,ByteBuffer,ByteBuffer> omgr;
+  File  home;
   static Properties properties = new Properties();
   
   public RestartStoreReadTest() {
@@ -54,6 +57,7 @@ public class RestartStoreReadTest  {
     properties = new Properties();
     properties.setProperty(FrsProperty.IO_RANDOM_ACCESS.shortName(), "true");
     properties.setProperty(FrsProperty.IO_NIO_SEGMENT_SIZE.shortName(), Integer.toString(4 * 1024));
+    properties.setProperty(FrsProperty.STORE_STREAM_CHUNK_SIZE.shortName(), Integer.toString(1024));
   }
   
   @AfterClass
@@ -62,11 +66,11 @@ public class RestartStoreReadTest  {
   
   @Before
   public void setUp() throws Throwable {
-    File temp = folder.newFolder();
+    home = folder.newFolder();
 
     omgr = new HeapObjectManager<ByteBuffer,ByteBuffer,ByteBuffer>(1);
 
-    restart = RestartStoreFactory.createStore(omgr, temp,properties);
+    restart = RestartStoreFactory.createStore(omgr, home,properties);
     restart.startup();
   }
   
@@ -122,4 +126,32 @@ public class RestartStoreReadTest  {
         }
     }
   }
+
+  @Test
+  public void testStreamedValue() throws Throwable {
+    byte[] vc = new byte[64 * 1024 + 17];
+    for (int i=0;i<vc.length;i++) {
+      vc[i] = (byte)i;
+    }
+    restart.beginTransaction(true).put(byteBufferWithInt(1), byteBufferWithInt(2), 
+            Channels.newChannel(new ByteArrayInputStream(vc)), vc.length).commit();
+    long lsn = omgr.getLsn(byteBufferWithInt(1), byteBufferWithInt(2));
+    checkStreamed(restart.get(lsn), vc);
+    
+    restart.shutdown();
+    omgr = new HeapObjectManager<ByteBuffer,ByteBuffer,ByteBuffer>(1);
+    restart = RestartStoreFactory.createStore(omgr, home, properties);
+    restart.startup().get();
+    Assert.assertEquals(lsn, omgr.getLsn(byteBufferWithInt(1), byteBufferWithInt(2)));
+    checkStreamed(restart.get(lsn), vc);
+  }
+  
+  private static void checkStreamed(Tuple<ByteBuffer,ByteBuffer,ByteBuffer> tuple, byte[] vc) throws Exception {
+    Assert.assertTrue(tuple.getIdentifier().getInt() == 1);
+    Assert.assertTrue(tuple.getKey().getInt() == 2);
+    Assert.assertEquals(ByteBuffer.wrap(vc), tuple.getValue());
+    if ( tuple instanceof Disposable ) {
+      ((Disposable)tuple).dispose();
+    }
+  }
 }
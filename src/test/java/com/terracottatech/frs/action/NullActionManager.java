@@ -15,8 +15,11 @@
  */
 package com.terracottatech.frs.action;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.log.LogRecord;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 /**
@@ -33,6 +36,26 @@ public class NullActionManager implements ActionManager {
     return null;
   }
 
+  @Override
+  public Future<Void> happenedAll(List<Action> actions, boolean sync) {
+    return null;
+  }
+
+  @Override
+  public CompletableFuture<Void> syncHappenedAsync(Action action) {
+    return null;
+  }
+
+  @Override
+  public CompletableFuture<Void> happenedAsync(Action action) {
+    return null;
+  }
+
+  @Override
+  public CompletableFuture<Durability> happenedAsync(Action action, Durability durability) {
+    return null;
+  }
+
   @Override
   public Action extract(LogRecord record) {
     return null;
@@ -0,0 +1,148 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import com.terracottatech.frs.io.HeapBufferSource;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ *
+ * @author mscott
+ */
+public class DirectWriteChannelTest {
+  
+  private static final int BLOCK = 4096;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+  
+  private DirectWriteChannel open(File file) throws Exception {
+    FileChannel direct = DirectWriteChannel.openDirect(file);
+    Assume.assumeTrue(direct != null);
+    return new DirectWriteChannel(new RandomAccessFile(file, "rw").getChannel(), direct, new HeapBufferSource(1024 * 1024), 64 * 1024, BLOCK);
+  }
+
+  @Test
+  public void testAppendsMatchBufferedLayout() throws Exception {
+    File file = tempFolder.newFile();
+    Random r = new Random(7);
+    byte[] expect = new byte[300 * 1024];
+    r.nextBytes(expect);
+    DirectWriteChannel channel = open(file);
+    int pos = 0;
+    while (pos < expect.length) {
+      int len = Math.min(expect.length - pos, 1 + r.nextInt(20 * 1024));
+      ByteBuffer[] parts = new ByteBuffer[] {
+        ByteBuffer.wrap(expect, pos, len / 2),
+        ByteBuffer.wrap(expect, pos + len / 2, len - len / 2)
+      };
+      assertEquals(len, channel.write(parts));
+      pos += len;
+      assertEquals(pos, channel.position());
+  //  the tail block is on disk, zero padded
+      assertEquals(0, channel.size() % BLOCK);
+    }
+    byte[] written = Files.readAllBytes(file.toPath());
+    assertArrayEquals(expect, Arrays.copyOf(written, expect.length));
+    for (int x = expect.length; x < written.length; x++) {
+      assertEquals(0, written[x]);
+    }
+    channel.truncate(channel.position());
+    channel.close();
+    assertEquals(expect.length, file.length());
+  }
+
+  @Test
+  public void testRewriteFromEarlierPosition() throws Exception {
+    File file = tempFolder.newFile();
+    byte[] first = new byte[10000];
+    Arrays.fill(first, (byte)1);
+    DirectWriteChannel channel = open(file);
+    channel.write(ByteBuffer.wrap(first));
+    channel.position(5000);
+    byte[] second = new byte[100];
+    Arrays.fill(second, (byte)2);
+    channel.write(ByteBuffer.wrap(second));
+    channel.truncate(channel.position());
+    channel.close();
+    
+    byte[] written = Files.readAllBytes(file.toPath());
+    assertEquals(5100, written.length);
+    for (int x = 0; x < written.length; x++) {
+      assertEquals(x < 5000 ? 1 : 2, written[x]);
+    }
+  }
+
+  @Test
+  public void testForceWhileAppending() throws Exception {
+    File file = tempFolder.newFile();
+    Random r = new Random(11);
+    byte[] expect = new byte[2 * 1024 * 1024];
+    r.nextBytes(expect);
+    final DirectWriteChannel channel = open(file);
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+  //  a pipelined sync forces from its own thread while appends continue
+    Thread syncer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          while (!done.get()) {
+            channel.force(false);
+          }
+        } catch (Throwable t) {
+          error.set(t);
+        }
+      }
+    };
+    syncer.start();
+    int pos = 0;
+    while (pos < expect.length) {
+      int len = Math.min(expect.length - pos, 1 + r.nextInt(6 * 1024));
+      channel.hold();
+      try {
+        channel.write(ByteBuffer.wrap(expect, pos, len / 2));
+        channel.write(ByteBuffer.wrap(expect, pos + len / 2, len - len / 2));
+      } finally {
+        channel.release();
+      }
+      pos += len;
+    }
+    done.set(true);
+    syncer.join();
+    assertNull(error.get());
+    channel.truncate(channel.position());
+    channel.close();
+    assertArrayEquals(expect, Files.readAllBytes(file.toPath()));
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ *
+ * @author mscott
+ */
+public class MappedWriteChannelTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testAppendsPastTheMapping() throws Exception {
+    File file = tempFolder.newFile();
+    MappedWriteChannel channel = new MappedWriteChannel(new RandomAccessFile(file, "rw").getChannel(), 64 * 1024);
+    byte[] expect = new byte[100 * 1024];
+    new Random(11).nextBytes(expect);
+    int pos = 0;
+    while (pos < expect.length) {
+      int len = Math.min(expect.length - pos, 7000);
+      assertEquals(len, channel.write(new ByteBuffer[] {ByteBuffer.wrap(expect, pos, len)}));
+      pos += len;
+      assertEquals(pos, channel.position());
+    }
+    channel.force(false);
+    
+    ByteBuffer back = ByteBuffer.allocate(1000);
+    channel.position(60000);
+    channel.read(back);
+    assertArrayEquals(Arrays.copyOfRange(expect, 60000, 61000), back.array());
+    
+    channel.truncate(expect.length);
+    channel.close();
+    assertArrayEquals(expect, Files.readAllBytes(file.toPath()));
+  }
+
+  @Test
+  public void testUnwrittenRegionIsZero() throws Exception {
+    File file = tempFolder.newFile();
+    MappedWriteChannel channel = new MappedWriteChannel(new RandomAccessFile(file, "rw").getChannel(), 8192);
+    channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+    channel.force(true);
+    assertEquals(8192, channel.size());
+    byte[] written = Files.readAllBytes(file.toPath());
+    assertEquals(3, written[2]);
+    assertEquals(0, written[3]);
+    channel.close();
+  }
+
+  @Test
+  public void testForceWhileAppending() throws Exception {
+    File file = tempFolder.newFile();
+    final BitSet forced = new BitSet();
+    final MappedWriteChannel channel = new MappedWriteChannel(new RandomAccessFile(file, "rw").getChannel(), 4 * 1024 * 1024) {
+      @Override
+      void forceMapped(MappedByteBuffer target, int from, int to) throws IOException {
+        super.forceMapped(target, from, to);
+        synchronized (forced) {
+          forced.set(from, to);
+        }
+      }
+    };
+    byte[] expect = new byte[2 * 1024 * 1024];
+    new Random(17).nextBytes(expect);
+    
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    Thread syncer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          while (!done.get()) {
+            channel.force(false);
+          }
+        } catch (Throwable t) {
+          error.set(t);
+        }
+      }
+    };
+    syncer.start();
+    int pos = 0;
+    while (pos < expect.length) {
+      int len = Math.min(expect.length - pos, 333);
+      channel.write(ByteBuffer.wrap(expect, pos, len));
+      pos += len;
+    }
+    done.set(true);
+    syncer.join();
+    assertNull(error.get());
+    channel.force(false);
+    
+    //  every byte copied in was forced by one sync or the other
+    assertEquals(expect.length, forced.nextClearBit(0));
+    channel.truncate(expect.length);
+    channel.close();
+    assertArrayEquals(expect, Files.readAllBytes(file.toPath()));
+  }
+}
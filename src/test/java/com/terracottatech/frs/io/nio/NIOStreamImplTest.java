@@ -107,6 +107,124 @@ public class NIOStreamImplTest {
     assertThat(foundChunks, is(numChunks));
   }
 
+  @Test
+  public void testGatherWrites() throws Exception {
+    stream.useGatherWrites(true);
+    long marker = Constants.FIRST_LSN;
+    List<Long> sizes = new ArrayList<Long>();
+    for (int x=0;x<64;x++) {
+      long s = 1 + r.nextInt(256 * 1024);
+      assertThat(stream.append(newChunk(s),marker+=100), is(CHUNK_OVERHEAD + s));
+      sizes.add(s);
+    }
+    stream.close();
+
+    NIOStreamImpl nioStream = new NIOStreamImpl(workArea, NIOAccessMethod.getDefault(), MAX_SEGMENT_SIZE,  new HeapBufferSource(512*1024*1024),null);
+    nioStream.seek(-1);
+    Collections.reverse(sizes);
+    for (long s : sizes) {
+      Chunk c = nioStream.read(Direction.REVERSE);
+      assertThat(c.length(), is(s));
+    }
+    assertThat(nioStream.read(Direction.REVERSE), is((Chunk)null));
+    nioStream.close();
+  }
+
+  @Test
+  public void testPipelinedSync() throws Exception {
+    stream.usePipelinedSync(true);
+    long marker = Constants.FIRST_LSN;
+    List<Long> sizes = new ArrayList<Long>();
+    for (int x=0;x<64;x++) {
+      long s = 1 + r.nextInt(512 * 1024);
+      stream.append(newChunk(s),marker+=100);
+      sizes.add(s);
+      if ( x % 8 == 0 ) {
+        stream.sync();
+        stream.waitForSyncOf(marker);
+        assertThat(stream.getSyncdMarker() >= marker, is(true));
+      }
+    }
+    stream.sync();
+    stream.waitForSyncOf(marker);
+    assertThat(stream.getSyncdMarker(), is(marker));
+    stream.close();
+
+    NIOStreamImpl nioStream = new NIOStreamImpl(workArea, NIOAccessMethod.getDefault(), MAX_SEGMENT_SIZE,  new HeapBufferSource(512*1024*1024),null);
+    nioStream.seek(-1);
+    Collections.reverse(sizes);
+    for (long s : sizes) {
+      Chunk c = nioStream.read(Direction.REVERSE);
+      assertThat(c.length(), is(s));
+    }
+    assertThat(nioStream.read(Direction.REVERSE), is((Chunk)null));
+    nioStream.close();
+  }
+
+  @Test
+  public void testPipelinedSyncMappedWrites() throws Exception {
+    stream.useMappedWrites(true);
+    stream.usePipelinedSync(true);
+    long marker = Constants.FIRST_LSN;
+    List<Long> sizes = new ArrayList<Long>();
+    for (int x=0;x<256;x++) {
+      long s = 1 + r.nextInt(128 * 1024);
+      stream.append(newChunk(s),marker+=100);
+      sizes.add(s);
+      stream.sync();
+      if ( x % 8 == 0 ) {
+        stream.waitForSyncOf(marker);
+        assertThat(stream.getSyncdMarker() >= marker, is(true));
+      }
+    }
+    stream.waitForSyncOf(marker);
+    assertThat(stream.getSyncdMarker(), is(marker));
+    stream.close();
+
+    NIOStreamImpl nioStream = new NIOStreamImpl(workArea, NIOAccessMethod.getDefault(), MAX_SEGMENT_SIZE,  new HeapBufferSource(512*1024*1024),null);
+    nioStream.seek(-1);
+    Collections.reverse(sizes);
+    for (long s : sizes) {
+      Chunk c = nioStream.read(Direction.REVERSE);
+      assertThat(c.length(), is(s));
+    }
+    assertThat(nioStream.read(Direction.REVERSE), is((Chunk)null));
+    nioStream.close();
+  }
+
+  @Test
+  public void testRecoverPreallocatedTail() throws Exception {
+    stream.preallocateSegments(1);
+    while ( stream.getSegmentAllocator().available() == 0 ) {
+      Thread.sleep(10);
+    }
+    long marker = Constants.FIRST_LSN;
+    List<Long> sizes = new ArrayList<Long>();
+    for (int x=0;x<16;x++) {
+      long s = 1 + r.nextInt(64 * 1024);
+      stream.append(newChunk(s),marker+=100);
+      sizes.add(s);
+    }
+    stream.sync();
+    // no close, the head is left preallocated the way a crash would leave it
+    File head = new NIOSegmentList(workArea).getEndFile();
+    long padded = head.length();
+    assertTrue(padded >= MAX_SEGMENT_SIZE);
+
+    NIOStreamImpl nioStream = new NIOStreamImpl(workArea, NIOAccessMethod.getDefault(), MAX_SEGMENT_SIZE,  new HeapBufferSource(512*1024*1024),null);
+    nioStream.open();
+    assertThat(nioStream.getMarker(), is(marker));
+    assertTrue(head.length() < padded);
+    nioStream.seek(-1);
+    Collections.reverse(sizes);
+    for (long s : sizes) {
+      Chunk c = nioStream.read(Direction.REVERSE);
+      assertThat(c.length(), is(s));
+    }
+    assertThat(nioStream.read(Direction.REVERSE), is((Chunk)null));
+    nioStream.close();
+  }
+
   @Test
   public void testReadWithInterrupt() throws Exception {
     long size = 50 * 1024 * 1024;
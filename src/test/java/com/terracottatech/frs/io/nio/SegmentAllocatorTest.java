@@ -0,0 +1,141 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import com.terracottatech.frs.io.Direction;
+import com.terracottatech.frs.util.JUnitTestFolder;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author mscott
+ */
+public class SegmentAllocatorTest {
+  private static final long SEGMENT_SIZE = 256 * 1024;
+
+  @Rule
+  public JUnitTestFolder tempFolder = new JUnitTestFolder();
+
+  private File directory;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = tempFolder.newFolder();
+  }
+
+  @Test
+  public void testClaim() throws Exception {
+    SegmentAllocator allocator = new SegmentAllocator(directory, SEGMENT_SIZE, 0);
+    awaitSpare(allocator);
+    File seg = new File(directory, NIOConstants.convertToSegmentFileName(0));
+    assertTrue(allocator.claim(seg));
+    assertEquals(SEGMENT_SIZE, seg.length());
+    assertZeros(seg);
+    // the next spare is on its way
+    awaitSpare(allocator);
+    allocator.close();
+    assertEquals(0, directory.listFiles(SegmentAllocator.SPARE_FILENAME_FILTER).length);
+    assertTrue(seg.exists());
+  }
+
+  @Test
+  public void testRecycleTrimmedSegments() throws Exception {
+    for (int x=0;x<4;x++) {
+      NIOSegmentListTest.writeSomeData(new byte[] {1,2,3,4,5,6,7,8}, new File(directory, NIOConstants.convertToSegmentFileName(x)));
+    }
+    SegmentAllocator allocator = new SegmentAllocator(directory, SEGMENT_SIZE, 2);
+    awaitSpare(allocator);
+    NIOSegmentList list = new NIOSegmentList(directory);
+    list.recycleWith(allocator);
+    list.setReadPosition(0);
+    for (int x=0;x<4;x++) {
+      list.nextReadFile(Direction.FORWARD);
+    }
+    list.removeFilesFromTail();
+    assertEquals(1, list.getCount());
+    assertEquals(1, directory.listFiles(NIOConstants.SEGMENT_FILENAME_FILTER).length);
+    // one ready spare plus one recycled, the other trimmed segments are deleted
+    assertEquals(2, directory.listFiles(SegmentAllocator.SPARE_FILENAME_FILTER).length);
+    while ( allocator.available() < 2 ) {
+      Thread.sleep(10);
+    }
+    for (int x=0;x<2;x++) {
+      File seg = new File(directory, NIOConstants.convertToSegmentFileName(10 + x));
+      assertTrue(allocator.claim(seg));
+      assertEquals(SEGMENT_SIZE, seg.length());
+      assertZeros(seg);
+    }
+    allocator.close();
+  }
+
+  @Test
+  public void testNoRecycling() throws Exception {
+    for (int x=0;x<2;x++) {
+      NIOSegmentListTest.writeSomeData(new byte[] {1,2,3,4,5,6,7,8}, new File(directory, NIOConstants.convertToSegmentFileName(x)));
+    }
+    SegmentAllocator allocator = new SegmentAllocator(directory, SEGMENT_SIZE, 0);
+    awaitSpare(allocator);
+    NIOSegmentList list = new NIOSegmentList(directory);
+    list.recycleWith(allocator);
+    list.setReadPosition(0);
+    for (int x=0;x<2;x++) {
+      list.nextReadFile(Direction.FORWARD);
+    }
+    list.removeFilesFromTail();
+    assertEquals(1, list.getCount());
+    // only the ready spare, the trimmed segment is deleted
+    assertEquals(1, directory.listFiles(SegmentAllocator.SPARE_FILENAME_FILTER).length);
+    allocator.close();
+  }
+
+  @Test
+  public void testLeftoverSparesRemoved() throws Exception {
+    NIOSegmentListTest.writeSomeData(new byte[] {1,2,3,4}, new File(directory, String.format(SegmentAllocator.SPARE_NAME_FORMAT, 7)));
+    SegmentAllocator allocator = new SegmentAllocator(directory, SEGMENT_SIZE, 0);
+    awaitSpare(allocator);
+    File[] spares = directory.listFiles(SegmentAllocator.SPARE_FILENAME_FILTER);
+    assertEquals(1, spares.length);
+    assertEquals(SEGMENT_SIZE, spares[0].length());
+    allocator.close();
+  }
+
+  private static void awaitSpare(SegmentAllocator allocator) throws InterruptedException {
+    while ( allocator.available() == 0 ) {
+      Thread.sleep(10);
+    }
+  }
+
+  private static void assertZeros(File f) throws IOException {
+    FileInputStream in = new FileInputStream(f);
+    try {
+      byte[] block = new byte[8192];
+      int read;
+      while ( (read = in.read(block)) > 0 ) {
+        for (int x=0;x<read;x++) {
+          assertEquals(0, block[x]);
+        }
+      }
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import com.terracottatech.frs.Constants;
+import com.terracottatech.frs.io.Chunk;
+import com.terracottatech.frs.io.Direction;
+import com.terracottatech.frs.io.HeapBufferSource;
+import com.terracottatech.frs.log.BufferListWrapper;
+import com.terracottatech.frs.util.JUnitTestFolder;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author mscott
+ */
+public class SegmentPrefetcherTest {
+  private static final long SEGMENT_SIZE = 64 * 1024;
+  private static final int CHUNKS = 200;
+
+  @Rule
+  public JUnitTestFolder folder = new JUnitTestFolder();
+
+  private File workArea;
+
+  @Before
+  public void setUp() throws Exception {
+    workArea = folder.newFolder();
+    NIOStreamImpl stream = openStream();
+    stream.setMinimumMarker(Constants.FIRST_LSN);
+    Random r = new Random(CHUNKS);
+    long marker = Constants.FIRST_LSN;
+    for (int x=0;x<CHUNKS;x++) {
+      ByteBuffer chunk = ByteBuffer.allocate(8 + r.nextInt(16 * 1024));
+      chunk.putLong(0, x);
+      stream.append(new BufferListWrapper(Collections.singletonList(chunk)), marker+=100);
+    }
+    stream.close();
+    assertTrue(workArea.listFiles(NIOConstants.SEGMENT_FILENAME_FILTER).length > 8);
+  }
+
+  @Test
+  public void testReverseReadAhead() throws Exception {
+    NIOStreamImpl stream = openStream();
+    stream.useReadAhead(4 * SEGMENT_SIZE, 3);
+    stream.seek(-1);
+    for (int x=CHUNKS-1;x>=0;x--) {
+      assertEquals(x, stream.read(Direction.REVERSE).getLong(0));
+    }
+    assertNull(stream.read(Direction.REVERSE));
+    stream.close();
+  }
+
+  @Test
+  public void testBudgetSmallerThanSegment() throws Exception {
+    NIOStreamImpl stream = openStream();
+    stream.useReadAhead(1, 4);
+    stream.seek(-1);
+    for (int x=CHUNKS-1;x>=0;x--) {
+      assertEquals(x, stream.read(Direction.REVERSE).getLong(0));
+    }
+    assertNull(stream.read(Direction.REVERSE));
+    stream.close();
+  }
+
+  @Test
+  public void testForwardReadAhead() throws Exception {
+    List<Long> expected = new ArrayList<Long>();
+    NIOStreamImpl stream = openStream();
+    stream.seek(0);
+    for (Chunk c = stream.read(Direction.FORWARD);c != null;c = stream.read(Direction.FORWARD)) {
+      expected.add(c.getLong(0));
+    }
+    stream.close();
+    assertFalse(expected.isEmpty());
+
+    stream = openStream();
+    stream.useReadAhead(4 * SEGMENT_SIZE, 3);
+    stream.seek(0);
+    for (long x : expected) {
+      assertEquals(x, stream.read(Direction.FORWARD).getLong(0));
+    }
+    assertNull(stream.read(Direction.FORWARD));
+    stream.close();
+  }
+
+  @Test
+  public void testCloseWithSegmentsAhead() throws Exception {
+    NIOStreamImpl stream = openStream();
+    stream.useReadAhead(4 * SEGMENT_SIZE, 3);
+    stream.seek(-1);
+    for (int x=CHUNKS-1;x>=CHUNKS/2;x--) {
+      assertEquals(x, stream.read(Direction.REVERSE).getLong(0));
+    }
+    stream.close();
+  }
+
+  private NIOStreamImpl openStream() throws Exception {
+    return new NIOStreamImpl(workArea, NIOAccessMethod.getDefault(), SEGMENT_SIZE, new HeapBufferSource(64 * 1024 * 1024), null);
+  }
+}
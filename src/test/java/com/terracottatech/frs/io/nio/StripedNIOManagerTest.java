@@ -0,0 +1,167 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.io.nio;
+
+import com.terracottatech.frs.Constants;
+import com.terracottatech.frs.config.Configuration;
+import com.terracottatech.frs.config.FrsProperty;
+import com.terracottatech.frs.io.BufferSource;
+import com.terracottatech.frs.io.Chunk;
+import com.terracottatech.frs.io.Direction;
+import com.terracottatech.frs.io.IOManager;
+import com.terracottatech.frs.io.MaskingBufferSource;
+import com.terracottatech.frs.io.SplittingBufferSource;
+import com.terracottatech.frs.log.DummyLogRecord;
+import com.terracottatech.frs.log.LogRecord;
+import com.terracottatech.frs.log.LogRegionPacker;
+import com.terracottatech.frs.log.Signature;
+import com.terracottatech.frs.util.JUnitTestFolder;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ *
+ * @author mscott
+ */
+public class StripedNIOManagerTest {
+
+    private static final String FORMAT = (String) FrsProperty.FORCE_LOG_REGION_FORMAT.defaultValue();
+
+    @Rule
+    public JUnitTestFolder folder = new JUnitTestFolder();
+
+    private File home;
+    private BufferSource src;
+
+    @Before
+    public void setUp() throws IOException {
+        home = folder.newFolder();
+        src = new MaskingBufferSource(new SplittingBufferSource(16, 8 * 1024 * 1024));
+    }
+
+    private Configuration config() throws IOException {
+        Properties props = new Properties();
+        props.setProperty(FrsProperty.IO_NIO_LANES.shortName(), "lane1" + File.pathSeparator + "lane2");
+        props.setProperty(FrsProperty.IO_NIO_SEGMENT_SIZE.shortName(), Long.toString(64L * 1024));
+        return Configuration.getConfiguration(home, props);
+    }
+
+    private static Chunk region(long from, long to) throws IOException {
+        List<LogRecord> records = new ArrayList<LogRecord>();
+        for ( long lsn = from; lsn <= to; lsn++ ) {
+            DummyLogRecord record = new DummyLogRecord(16, 64);
+            record.updateLsn(lsn);
+            records.add(record);
+        }
+        return new LogRegionPacker(Signature.NONE, FORMAT).pack(records);
+    }
+
+    private static long[] range(Chunk c) throws IOException {
+        try {
+            return LogRegionPacker.peekLsnRange(FORMAT, c);
+        } finally {
+            if ( c instanceof Closeable ) {
+                ((Closeable)c).close();
+            }
+        }
+    }
+
+    @Test
+    public void testLanesFromConfiguration() throws Exception {
+        Configuration config = config();
+        List<File> dirs = StripedNIOManager.laneDirectories(config);
+        assertEquals(3, dirs.size());
+        assertEquals(home, dirs.get(0));
+        assertEquals(new File(home, "lane2"), dirs.get(2));
+        assertEquals(true, StripedNIOManager.isStriped(config));
+        assertEquals(false, StripedNIOManager.isStriped(Configuration.getConfiguration(home, new Properties())));
+    }
+
+    @Test
+    public void testMergedReadback() throws Exception {
+        StripedNIOManager striped = new StripedNIOManager(config(), src);
+        long lsn = Constants.FIRST_LSN;
+        for ( int x = 0; x < 30; x++ ) {
+            striped.write(x % striped.getLaneCount(), region(lsn, lsn + x % 4), lsn + x % 4);
+            lsn += x % 4 + 1;
+        }
+        striped.sync();
+        striped.close();
+
+        striped = new StripedNIOManager(config(), src);
+        assertEquals(lsn - 1, striped.getCurrentMarker());
+
+        striped.seek(IOManager.Seek.END.getValue());
+        long expected = lsn - 1;
+        Chunk c = striped.read(Direction.REVERSE);
+        while ( c != null ) {
+            long[] r = range(c);
+            assertEquals(expected, r[1]);
+            expected = r[0] - 1;
+            c = striped.read(Direction.REVERSE);
+        }
+        assertEquals(Constants.GENESIS_LSN, expected);
+
+        long[] r = range(striped.scan(Constants.FIRST_LSN + 20));
+        assertEquals(true, r[0] <= Constants.FIRST_LSN + 20 && r[1] >= Constants.FIRST_LSN + 20);
+        striped.close();
+    }
+
+    @Test
+    public void testLanesAreCutBackToContiguousEnd() throws Exception {
+        StripedNIOManager striped = new StripedNIOManager(config(), src);
+        striped.write(0, region(100, 104), 104);
+        striped.write(1, region(105, 109), 109);
+        striped.write(2, region(110, 114), 114);
+        striped.write(0, region(115, 119), 119);
+        //  region 120-124 was lost on lane 1
+        striped.write(2, region(125, 129), 129);
+        striped.write(0, region(130, 134), 134);
+        striped.sync();
+        striped.close();
+
+        striped = new StripedNIOManager(config(), src);
+        assertEquals(119, striped.getCurrentMarker());
+
+        striped.seek(IOManager.Seek.END.getValue());
+        assertEquals(119, range(striped.read(Direction.REVERSE))[1]);
+        assertEquals(114, range(striped.read(Direction.REVERSE))[1]);
+        assertEquals(109, range(striped.read(Direction.REVERSE))[1]);
+        assertEquals(104, range(striped.read(Direction.REVERSE))[1]);
+        assertNull(striped.read(Direction.REVERSE));
+
+        //  the log continues from the cut
+        striped.write(1, region(120, 124), 124);
+        striped.sync();
+        striped.close();
+
+        striped = new StripedNIOManager(config(), src);
+        assertEquals(124, striped.getCurrentMarker());
+        striped.close();
+    }
+}
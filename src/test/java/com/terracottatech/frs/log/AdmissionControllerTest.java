@@ -0,0 +1,101 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * @author mscott
+ */
+public class AdmissionControllerTest {
+
+    @Test
+    public void testRejectUntilLowWatermark() throws Exception {
+        AdmissionController controller = new AdmissionController(1000, 0.5, AdmissionController.Policy.REJECT, 0, TimeUnit.MILLISECONDS, null);
+        assertTrue(controller.admit(400));
+        assertTrue(controller.admit(400));
+        assertFalse(controller.admit(400));
+        assertTrue(controller.isThrottled());
+        //  fits now but still throttled, nothing goes in until the low watermark
+        controller.release(100);
+        assertFalse(controller.admit(100));
+        controller.release(200);
+        assertFalse(controller.isThrottled());
+        assertTrue(controller.admit(400));
+        assertEquals(900, controller.outstanding());
+        assertEquals(0.9, controller.pressure(), 0.0001);
+        assertEquals(2, controller.rejected());
+    }
+
+    @Test
+    public void testOversizedRecordAdmittedWhenEmpty() throws Exception {
+        AdmissionController controller = new AdmissionController(1000, 0.5, AdmissionController.Policy.REJECT, 0, TimeUnit.MILLISECONDS, null);
+        assertTrue(controller.admit(5000));
+        assertFalse(controller.admit(1));
+        controller.release(5000);
+        assertTrue(controller.admit(1));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        AdmissionController controller = new AdmissionController(1000, 0.5, AdmissionController.Policy.TIMEOUT, 50, TimeUnit.MILLISECONDS, null);
+        assertTrue(controller.admit(1000));
+        long start = System.nanoTime();
+        assertFalse(controller.admit(1));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, controller.blocked());
+        assertEquals(1, controller.rejected());
+    }
+
+    @Test
+    public void testBlockedWriterResumesAtLowWatermark() throws Exception {
+        final AdmissionController controller = new AdmissionController(1000, 0.5, AdmissionController.Policy.BLOCK, 0, TimeUnit.MILLISECONDS, null);
+        assertTrue(controller.admit(600));
+        assertTrue(controller.admit(300));
+        final CountDownLatch admitted = new CountDownLatch(1);
+        final AtomicBoolean result = new AtomicBoolean();
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    result.set(controller.admit(200));
+                    admitted.countDown();
+                } catch ( InterruptedException ie ) {
+                    throw new RuntimeException(ie);
+                }
+            }
+        };
+        writer.start();
+        assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+        //  room for the writer but above the low watermark
+        controller.release(100);
+        assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+        controller.release(300);
+        assertTrue(admitted.await(10, TimeUnit.SECONDS));
+        assertTrue(result.get());
+        assertEquals(700, controller.outstanding());
+        writer.join();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * @author mscott
+ */
+public class BackgroundShareTest {
+
+    private final AtomicBoolean saturated = new AtomicBoolean();
+    private final AtomicLong lsn = new AtomicLong(100);
+
+    @Test
+    public void testNoWaitWhileIdle() throws Exception {
+        BackgroundShare share = new BackgroundShare(0.1, 1, TimeUnit.SECONDS, saturated::get, lsn::get);
+        for ( int x = 0; x < 100; x++ ) {
+            share.await();
+            lsn.incrementAndGet();
+        }
+        assertEquals(0, share.yielded());
+    }
+
+    @Test
+    public void testMinimumShareWhileSaturated() throws Exception {
+        final BackgroundShare share = new BackgroundShare(0.25, 10, TimeUnit.SECONDS, saturated::get, lsn::get);
+        saturated.set(true);
+        //  one background record per sealed list goes in regardless
+        share.await();
+        lsn.incrementAndGet();
+        //  six foreground records, the second background record fits in a quarter
+        lsn.addAndGet(6);
+        share.await();
+        lsn.incrementAndGet();
+        assertEquals(0, share.yielded());
+
+        final CountDownLatch through = new CountDownLatch(1);
+        Thread compactor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    share.await();
+                    through.countDown();
+                } catch ( InterruptedException ie ) {
+                    throw new RuntimeException(ie);
+                }
+            }
+        };
+        compactor.start();
+        assertFalse(through.await(100, TimeUnit.MILLISECONDS));
+        //  a seal starts a new share
+        share.sealed();
+        assertTrue(through.await(10, TimeUnit.SECONDS));
+        assertEquals(1, share.yielded());
+        compactor.join();
+    }
+
+    @Test
+    public void testResumesWhenNoLongerSaturated() throws Exception {
+        final BackgroundShare share = new BackgroundShare(0.5, 20, TimeUnit.MILLISECONDS, saturated::get, lsn::get);
+        saturated.set(true);
+        share.await();
+        final CountDownLatch through = new CountDownLatch(1);
+        Thread compactor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    share.await();
+                    through.countDown();
+                } catch ( InterruptedException ie ) {
+                    throw new RuntimeException(ie);
+                }
+            }
+        };
+        compactor.start();
+        assertFalse(through.await(100, TimeUnit.MILLISECONDS));
+        saturated.set(false);
+        assertTrue(through.await(10, TimeUnit.SECONDS));
+        compactor.join();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import com.terracottatech.frs.io.Chunk;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static com.terracottatech.frs.config.FrsProperty.FORCE_LOG_REGION_FORMAT;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author mscott
+ */
+public class ChunkProcessingTest {
+
+  private static final String FORMAT = (String) FORCE_LOG_REGION_FORMAT.defaultValue();
+
+  @Test
+  public void testUnpackInReverse() throws Exception {
+    List<LogRecord> records = new ChunkProcessing(region(16), FORMAT).call();
+    assertEquals(16, records.size());
+    for (int x = 0; x < 16; x++) {
+      assertEquals(1015L - x, records.get(x).getLsn());
+      assertFalse(records.get(x) instanceof Decoded);
+    }
+  }
+
+  @Test
+  public void testDecodeEachRecord() throws Exception {
+    final List<Long> decoded = Collections.synchronizedList(new ArrayList<Long>());
+    RecordDecoder decoder = new RecordDecoder() {
+      @Override
+      public LogRecord decode(LogRecord record) {
+        decoded.add(record.getLsn());
+        return new Decoded(record);
+      }
+    };
+    List<LogRecord> records = new ChunkProcessing(region(16), FORMAT, decoder).call();
+    assertEquals(16, records.size());
+    assertEquals(16, decoded.size());
+    for (int x = 0; x < 16; x++) {
+      LogRecord record = records.get(x);
+      assertTrue(record instanceof Decoded);
+      assertEquals(1015L - x, record.getLsn());
+      assertEquals(100 + 15 - x, record.getPayload()[0].remaining());
+    }
+  }
+
+  private static Chunk region(int count) {
+    ArrayList<LogRecord> list = new ArrayList<LogRecord>();
+    for (int x = 0; x < count; x++) {
+      LogRecord record = new LogRecordImpl(new ByteBuffer[] {ByteBuffer.allocate(100 + x)}, null);
+      record.updateLsn(1000 + x);
+      list.add(record);
+    }
+    Chunk packed = new LogRegionPacker(Signature.ADLER32, FORMAT).pack(list);
+    ByteBuffer copy = ByteBuffer.allocate((int) packed.length());
+    for (ByteBuffer b : packed.getBuffers()) {
+      copy.put(b.duplicate());
+    }
+    copy.flip();
+    return new BufferListWrapper(Collections.singletonList(copy));
+  }
+
+  private static class Decoded implements LogRecord {
+    private final LogRecord record;
+
+    Decoded(LogRecord record) {
+      this.record = record;
+    }
+
+    @Override
+    public long getLsn() {
+      return record.getLsn();
+    }
+
+    @Override
+    public void updateLsn(long lsn) {
+      record.updateLsn(lsn);
+    }
+
+    @Override
+    public ByteBuffer[] getPayload() {
+      return record.getPayload();
+    }
+
+    @Override
+    public void close() throws IOException {
+      record.close();
+    }
+  }
+}
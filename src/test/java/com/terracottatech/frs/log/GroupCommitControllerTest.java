@@ -0,0 +1,95 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * @author mscott
+ */
+public class GroupCommitControllerTest {
+
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private long now = 1;
+
+    //  one adjustment period of batches arriving every gap nanos
+    private void run(GroupCommitController controller, long records, long gap, long sync, long commit) {
+        for ( int x = 0; x < GroupCommitController.ADJUST_INTERVAL; x++ ) {
+            controller.synced(sync);
+            controller.committed(commit);
+            now += gap;
+            controller.sealed(records, now);
+        }
+    }
+
+    @Test
+    public void testHoldGrowsUnderTargetWithTraffic() {
+        GroupCommitController controller = new GroupCommitController(TARGET, 4096);
+        assertEquals(0, controller.holdNanos());
+        //  100 records every 100us, fast fsyncs and commits well under target
+        run(controller, 100, TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MICROSECONDS.toNanos(200));
+        long first = controller.holdNanos();
+        assertTrue(first > 0);
+        run(controller, 100, TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MICROSECONDS.toNanos(200));
+        assertTrue(controller.holdNanos() > first);
+        assertTrue(controller.holdNanos() <= TARGET);
+        assertTrue(controller.window() >= GroupCommitController.MINIMUM_WINDOW);
+        assertTrue(controller.window() <= 4096);
+    }
+
+    @Test
+    public void testHoldBacksOffWhenTargetMissed() {
+        GroupCommitController controller = new GroupCommitController(TARGET, 4096);
+        for ( int x = 0; x < 4; x++ ) {
+            run(controller, 100, TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MICROSECONDS.toNanos(200));
+        }
+        long held = controller.holdNanos();
+        assertTrue(held > 0);
+        run(controller, 100, TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(held / 2, controller.holdNanos());
+    }
+
+    @Test
+    public void testNoHoldWithoutTraffic() {
+        GroupCommitController controller = new GroupCommitController(TARGET, 4096);
+        run(controller, 100, TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MICROSECONDS.toNanos(200));
+        assertTrue(controller.holdNanos() > 0);
+        //  one record every 100ms, waiting would never gather a second record
+        run(controller, 1, TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MICROSECONDS.toNanos(200));
+        assertEquals(0, controller.holdNanos());
+        assertEquals(GroupCommitController.MINIMUM_WINDOW, controller.window());
+    }
+
+    @Test
+    public void testWindowTracksArrivals() {
+        GroupCommitController controller = new GroupCommitController(TARGET, 1024);
+        //  10 records per microsecond with 1ms fsyncs needs far more than the maximum
+        run(controller, 1000, TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MICROSECONDS.toNanos(500));
+        assertEquals(1024, controller.window());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTargetMustBePositive() {
+        new GroupCommitController(0, 1024);
+    }
+}
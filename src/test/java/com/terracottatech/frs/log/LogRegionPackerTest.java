@@ -20,7 +20,11 @@ import com.terracottatech.frs.io.Chunk;
 import com.terracottatech.frs.io.CopyingChunk;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -116,6 +120,85 @@ public class LogRegionPackerTest {
     verify(mock, times(8192)).getLsn();
   }  
   
+  @Test
+  public void testSignatures() throws Exception {
+    for (Signature sig : Signature.values()) {
+      ArrayList<LogRecord> list = new ArrayList<LogRecord>();
+      for (int x=0;x<64;x++) {
+        ByteBuffer payload = ( x % 2 == 0 ) ? ByteBuffer.allocateDirect(100 + x) : ByteBuffer.allocate(100 + x);
+        while (payload.hasRemaining()) {
+          payload.put((byte)x);
+        }
+        payload.flip();
+        LogRecord record = new LogRecordImpl(new ByteBuffer[] {payload}, null);
+        record.updateLsn(1000 + x);
+        list.add(record);
+      }
+      Chunk packed = new LogRegionPacker(sig, (String) FORCE_LOG_REGION_FORMAT.defaultValue()).pack(list);
+      ByteBuffer copy = ByteBuffer.allocate((int)packed.length());
+      for (ByteBuffer b : packed.getBuffers()) {
+        copy.put(b.duplicate());
+      }
+      copy.flip();
+      assertEquals(sig == Signature.NONE || sig == Signature.ADLER32 ? LogRegionPacker.REGION_VERSION : LogRegionPacker.SIGNED_REGION_VERSION, copy.getShort(0));
+
+      List<LogRecord> records = LogRegionPacker.unpack(sig, (String) FORCE_LOG_REGION_FORMAT.defaultValue(), new BufferListWrapper(Collections.singletonList(copy.duplicate())));
+      assertEquals(64, records.size());
+      assertEquals(1000L, records.get(0).getLsn());
+
+      copy.put(copy.limit() - 1, (byte)-1);
+      try {
+        LogRegionPacker.unpack(sig, (String) FORCE_LOG_REGION_FORMAT.defaultValue(), new BufferListWrapper(Collections.singletonList(copy.duplicate())));
+        assertTrue(sig + " should have caught the corruption", sig == Signature.NONE);
+      } catch ( FormatException format ) {
+        assertTrue(sig != Signature.NONE);
+      }
+    }
+  }
+  
+  @Test
+  public void testCompressedRegion() throws Exception {
+    String format = (String) FORCE_LOG_REGION_FORMAT.defaultValue();
+    Random r = new Random();
+    for (boolean compressible : new boolean[] {true, false}) {
+      ArrayList<LogRecord> list = new ArrayList<LogRecord>();
+      for (int x=0;x<100;x++) {
+        byte[] value = new byte[256];
+        if ( compressible ) {
+          Arrays.fill(value, (byte)(x % 4));
+        } else {
+          r.nextBytes(value);
+        }
+        LogRecord record = new LogRecordImpl(new ByteBuffer[] {ByteBuffer.wrap(value)}, null);
+        record.updateLsn(1000 + x);
+        list.add(record);
+      }
+      Chunk packed = new LogRegionPacker(Signature.ADLER32, null, format, true).pack(list);
+      ByteBuffer copy = ByteBuffer.allocate((int)packed.length());
+      for (ByteBuffer b : packed.getBuffers()) {
+        copy.put(b.duplicate());
+      }
+      copy.flip();
+      byte[] expected = compressible ? LogRegionPacker.COMPRESSED_REGION_FORMAT : LogRegionPacker.NEW_REGION_FORMAT;
+      assertEquals(expected[0], copy.get(LogRegionPacker.LOG_REGION_HEADER_SIZE - 2));
+      assertEquals(expected[1], copy.get(LogRegionPacker.LOG_REGION_HEADER_SIZE - 1));
+      assertEquals(compressible, copy.remaining() < 100 * 256);
+
+      long[] range = LogRegionPacker.peekLsnRange(format, new BufferListWrapper(Collections.singletonList(copy.duplicate())));
+      assertEquals(1000L, range[0]);
+      assertEquals(1099L, range[1]);
+
+      List<LogRecord> records = LogRegionPacker.unpack(Signature.ADLER32, format, new BufferListWrapper(Collections.singletonList(copy.duplicate())));
+      assertEquals(100, records.size());
+      for (int x=0;x<100;x++) {
+        assertEquals(list.get(x).getPayload()[0], records.get(x).getPayload()[0]);
+      }
+
+      LogRecord found = LogRegionPacker.extract(Signature.ADLER32, format, new BufferListWrapper(Collections.singletonList(copy.duplicate())), 1077);
+      assertEquals(1077L, found.getLsn());
+    }
+  }
+
   private boolean verifyChunkHeader(Chunk c) {
     assertEquals(c.getShort(), LogRegionPacker.REGION_VERSION);
     assertEquals(c.getLong(), c.getLong());
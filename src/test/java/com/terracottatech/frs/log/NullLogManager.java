@@ -15,13 +15,17 @@
  */
 package com.terracottatech.frs.log;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.Snapshot;
 import com.terracottatech.frs.io.IOStatistics;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author tim
@@ -46,6 +50,14 @@ public class NullLogManager implements LogManager {
       return reader();
   }
 
+  @Override
+  public void decodeRecovery(RecordDecoder decoder) {
+  }
+
+  @Override
+  public void limitRecovery(long lsn) {
+  }
+
   @Override
   public void shutdown() {
   }
@@ -60,6 +72,26 @@ public class NullLogManager implements LogManager {
     return null;
   }
 
+  @Override
+  public CompletableFuture<Void> appendAsync(LogRecord record) {
+    return null;
+  }
+
+  @Override
+  public CompletableFuture<Void> appendAndSyncAsync(LogRecord record) {
+    return null;
+  }
+
+  @Override
+  public CompletableFuture<Durability> appendAsync(LogRecord record, Durability durability) {
+    return null;
+  }
+
+  @Override
+  public Future<Void> appendAll(List<LogRecord> records, boolean sync) {
+    return null;
+  }
+
   private Iterator<LogRecord> reader() {
     return Collections.<LogRecord>emptyList().iterator();
   }
@@ -78,6 +110,30 @@ public class NullLogManager implements LogManager {
   public IOStatistics getIOStatistics() {
       return null;      
   }
+
+  @Override
+  public void awaitBackgroundTurn() {
+  }
+
+  @Override
+  public long writtenLsn() {
+    return 0;
+  }
+
+  @Override
+  public long durableLsn() {
+    return 0;
+  }
+
+  @Override
+  public boolean awaitDurable(long lsn, long timeout, TimeUnit unit) {
+    return true;
+  }
+
+  @Override
+  public double writePressure() {
+      return 0;
+  }
   
   
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import com.terracottatech.frs.SnapshotRequest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author mscott
+ */
+public class RingCommitListTest {
+  private CommitList commitList;
+
+  @Before
+  public void setUp() throws Exception {
+    commitList = new RingCommitList(10, 10, 2000, RingCommitList.WaitStrategy.PARK);
+  }
+
+  @Test
+  public void testBasicAppend() throws Exception {
+    LogRecord record0 = record(10);
+    assertThat(commitList.append(record0,false), is(true));
+    // Test re-append
+    assertThat(commitList.append(record0,false), is(false));
+
+    // Test outside of range
+    assertThat(commitList.append(record(21),false), is(false));
+
+    commitList.close(10);
+    for (LogRecord record : commitList) {
+      assertThat(record, is(record0));
+    }
+  }
+
+  @Test
+  public void testLongSnapshot() throws Exception {
+    CommitList current = commitList;
+    long lsn = 10;
+    while ( current == commitList ) {
+      current = append(record(lsn++));
+    }
+    current = append(snapshot(lsn++));
+
+    assertThat("make sure commitlist is closed", current.getEndLsn() == lsn-1);
+  }
+
+  @Test
+  public void testOneElementSync() throws Exception {
+    final long time = System.currentTimeMillis();
+    new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(1);
+        } catch ( InterruptedException ie ) {
+
+        }
+        commitList.append(record(10), true);
+      }
+    }.start();
+    commitList.waitForContiguous();
+    commitList.written();
+    commitList.getWriteFuture().get();
+    assertThat(System.currentTimeMillis()-time,lessThan(2000l));
+  }
+
+  @Test
+  public void testBasicClose() throws Exception {
+    LogRecord record0 = record(10);
+    assertThat(commitList.append(record0,false), is(true));
+    LogRecord record1 = record(11);
+    assertThat(commitList.append(record1,false), is(true));
+
+    assertThat(commitList.close(10), is(true));
+    for (LogRecord record : commitList) {
+      assertThat(record, is(record0));
+    }
+
+    LogRecord record2 = record(12);
+    assertThat(commitList.append(record2,true), is(false));
+
+  // the extra record is already sitting in the ring for the next list
+    commitList.next().close(11);
+    for (LogRecord record : commitList.next()) {
+      assertThat(record, is(record1));
+    }
+  }
+
+  @Test
+  public void testSyncRequestStaysWithItsList() throws Exception {
+    assertThat(commitList.append(record(10),false), is(true));
+    assertThat(commitList.close(10), is(true));
+    assertThat(commitList.append(record(11),true), is(false));
+    assertThat(commitList.next().append(record(11),true), is(true));
+
+    commitList.waitForContiguous();
+    assertThat(commitList.isSyncRequested(), is(false));
+    commitList.written();
+    assertThat(commitList.getWriteFuture().isDone(), is(true));
+
+    CommitList next = commitList.next();
+    next.close(11);
+    next.waitForContiguous();
+    assertThat(next.isSyncRequested(), is(true));
+  }
+
+  @Test
+  public void testRecordPastRacingClose() throws Exception {
+  //  published while the list was still open, then closed below it
+    assertThat(commitList.append(record(11),true), is(true));
+    assertThat(commitList.close(10), is(true));
+    assertThat(commitList.append(record(10),false), is(true));
+
+    commitList.waitForContiguous();
+    assertThat(commitList.isSyncRequested(), is(false));
+    commitList.written();
+    assertThat(commitList.getWriteFuture().isDone(), is(false));
+
+  //  the record and its sync request went out with the next list
+    CommitList next = commitList.next();
+    next.close(11);
+    next.waitForContiguous();
+    for (LogRecord record : next) {
+      assertThat(record.getLsn(), is(11L));
+    }
+    assertThat(next.isSyncRequested(), is(true));
+    next.written();
+    assertThat(commitList.getWriteFuture().isDone(), is(true));
+  }
+
+  @Test
+  public void testClosePublishRace() throws Exception {
+    commitList = new RingCommitList(10, 10, 1, RingCommitList.WaitStrategy.YIELD);
+    final AtomicLong lsn = new AtomicLong(10);
+    final AtomicLong writtenThrough = new AtomicLong(9);
+    final AtomicLong syncedThrough = new AtomicLong(9);
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    final AtomicReference<CommitList> head = new AtomicReference<CommitList>(commitList);
+    final int perProducer = 5000;
+    Thread[] producers = new Thread[4];
+    for (int x=0;x<producers.length;x++) {
+      producers[x] = new Thread() {
+        @Override
+        public void run() {
+          for (int i=0;i<perProducer;i++) {
+            long next = lsn.getAndIncrement();
+            boolean sync = i % 3 == 0;
+  //  every reserved lsn has to be appended or the consumer stalls
+            CommitList l = append(head.get(), record(next), sync);
+            try {
+              l.getWriteFuture().get();
+  //  a list only reports written once every record it accepted is out
+              assertThat(writtenThrough.get() >= next, is(true));
+              if ( sync ) {
+                assertThat(syncedThrough.get() >= next, is(true));
+              }
+            } catch (Throwable t) {
+              error.compareAndSet(null, t);
+            }
+          }
+        }
+      };
+      producers[x].start();
+    }
+    long expected = 10;
+    CommitList current = commitList;
+    while ( expected < 10 + producers.length * perProducer ) {
+  //  close as early as possible to race the producers
+      current.close(expected);
+      current.waitForContiguous();
+      for (LogRecord record : current) {
+        assertThat(record.getLsn(), is(expected++));
+      }
+      writtenThrough.set(current.getEndLsn());
+      if ( current.isSyncRequested() ) {
+        syncedThrough.set(current.getEndLsn());
+      }
+      current.written();
+      current = current.next();
+      head.set(current);
+    }
+    for (Thread t : producers) {
+      t.join();
+    }
+    assertThat(error.get(), nullValue());
+  }
+
+  @Test
+  public void testWaitForContiguous() throws Exception {
+    assertThat(commitList.append(record(15),false), is(true));
+    assertThat(commitList.close(15), is(true));
+
+    final AtomicReference<Exception> error = new AtomicReference<Exception>();
+    final AtomicBoolean waitComplete = new AtomicBoolean(false);
+    Thread waiter = new Thread() {
+      @Override
+      public void run() {
+        try {
+          commitList.waitForContiguous();
+          waitComplete.set(true);
+        } catch (Exception e) {
+          error.set(e);
+        }
+      }
+    };
+    waiter.start();
+    waiter.join(1000);
+    assertThat(waitComplete.get(), is(false));
+
+    for (int i = 16; i < 21; i++) {
+      assertThat(commitList.append(record(i),false), is(false));
+      assertThat(commitList.next().append(record(i),false), is(true));
+    }
+
+    waiter.join(1000);
+    assertThat(waitComplete.get(), is(false));
+
+    for (int i = 10; i < 15; i++) {
+      assertThat(commitList.append(record(i),false), is(true));
+    }
+
+    waiter.join(5 * 1000);
+    assertThat(waitComplete.get(), is(true));
+    assertThat(error.get(), nullValue());
+  }
+
+  @Test
+  public void testSlotsReused() throws Exception {
+  //  the ring holds 128 slots, push several laps of records through it
+    for (RingCommitList.WaitStrategy strategy : RingCommitList.WaitStrategy.values()) {
+      commitList = new RingCommitList(10, 10, 20, strategy);
+      final AtomicLong lsn = new AtomicLong(10);
+      final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+      Thread[] producers = new Thread[4];
+      for (int x=0;x<producers.length;x++) {
+        producers[x] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              for (int i=0;i<250;i++) {
+                append(record(lsn.getAndIncrement()), i % 10 == 0);
+              }
+            } catch (Throwable t) {
+              error.set(t);
+            }
+          }
+        };
+        producers[x].start();
+      }
+      long expected = 10;
+      CommitList current = commitList;
+      while ( expected < 1010 ) {
+        current.waitForContiguous();
+        for (LogRecord record : current) {
+          assertThat(record.getLsn(), is(expected++));
+        }
+        current.written();
+        current = current.next();
+      }
+      for (Thread t : producers) {
+        t.join();
+      }
+      assertThat(error.get(), nullValue());
+    }
+  }
+
+  @Test
+  public void testThrowingException() throws Exception {
+    new Thread() {
+      public void run() {
+        commitList.exceptionThrown(new IOException());
+      }
+    }.start();
+
+    try {
+      commitList.getWriteFuture().get();
+      fail();
+    } catch ( ExecutionException ex ) {
+      assertThat(ex.getCause() instanceof IOException, is(true));
+    }
+  }
+
+  private LogRecord snapshot(long lsn) {
+    LogRecord record = mock(SnapshotRecord.class);
+    when(record.getLsn()).thenReturn(lsn);
+    return record;
+  }
+
+  private LogRecord record(long lsn) {
+    LogRecord record = mock(LogRecord.class);
+    when(record.getLsn()).thenReturn(lsn);
+    return record;
+  }
+
+  private CommitList append(LogRecord record) {
+    return append(record, false);
+  }
+
+  private CommitList append(LogRecord record, boolean sync) {
+    return append(commitList, record, sync);
+  }
+
+  private CommitList append(CommitList from, LogRecord record, boolean sync) {
+    CommitList l = from;
+    while (!l.append(record,sync)) {
+      l = l.next();
+    }
+    return l;
+  }
+
+  private static abstract class SnapshotRecord implements LogRecord, SnapshotRequest {
+
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import com.terracottatech.frs.RestartStoreFactory;
+import com.terracottatech.frs.config.Configuration;
+import com.terracottatech.frs.config.FrsProperty;
+import com.terracottatech.frs.flash.ReadManager;
+import com.terracottatech.frs.util.ByteBufferUtils;
+import com.terracottatech.frs.util.JUnitTestFolder;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ * @author mscott
+ */
+public class SharedLogManagerTest {
+
+    @Rule
+    public JUnitTestFolder folder = new JUnitTestFolder();
+
+    @Test
+    public void testAppendTagsRecordsWithStore() throws Exception {
+        final List<LogRecord> appended = new ArrayList<LogRecord>();
+        LogManager physical = new NullLogManager() {
+            @Override
+            public Future<Void> append(LogRecord record) {
+                appended.add(record);
+                return null;
+            }
+        };
+        SharedLogManager shared = new SharedLogManager(configuration(16), physical, null, null);
+        LogManager one = shared.open(1);
+        LogManager two = shared.open(2);
+
+        one.append(record(100, 11));
+        two.append(record(101, 22));
+
+        ByteBuffer[] first = appended.get(0).getPayload();
+        assertEquals(1, ByteBufferUtils.getInt(first));
+        assertEquals(11, ByteBufferUtils.getInt(first));
+        ByteBuffer[] second = appended.get(1).getPayload();
+        assertEquals(2, ByteBufferUtils.getInt(second));
+        assertEquals(22, ByteBufferUtils.getInt(second));
+    }
+
+    @Test
+    public void testRecoveryHandsEachStoreItsOwnRecords() throws Exception {
+        final List<LogRecord> onDisk = new ArrayList<LogRecord>();
+        final Map<Long, LogRecord> byLsn = new HashMap<Long, LogRecord>();
+        //  newest first, the way the log is read back.  store 3 is not opened
+        for (long lsn = 130; lsn >= 100; lsn--) {
+            LogRecord record = tagged((int) (lsn % 3) + 1, lsn, (int) lsn);
+            onDisk.add(record);
+            byLsn.put(lsn, tagged((int) (lsn % 3) + 1, lsn, (int) lsn));
+        }
+        LogManager physical = new NullLogManager() {
+            @Override
+            public Iterator<LogRecord> startup() {
+                return onDisk.iterator();
+            }
+
+            @Override
+            public long lowestLsn() {
+                return 100;
+            }
+        };
+        ReadManager reads = new ReadManager() {
+            @Override
+            public LogRecord get(long marker) {
+                return byLsn.get(marker);
+            }
+        };
+        //  buffer two records per store, the rest are read again by lsn
+        SharedLogManager shared = new SharedLogManager(configuration(2), physical, reads, null);
+        LogManager one = shared.open(1);
+        LogManager two = shared.open(2);
+
+        checkRecovered(one.startup(), 129, 0);
+        checkRecovered(two.startup(), 130, 1);
+        assertEquals(102, one.lowestLsn());
+        assertEquals(100, two.lowestLsn());
+    }
+
+    @Test
+    public void testUnopenedStoreSurvivesCompaction() throws Exception {
+        File home = folder.newFolder();
+        Properties properties = new Properties();
+        properties.setProperty(FrsProperty.IO_NIO_SEGMENT_SIZE.shortName(), "65536");
+
+        SharedLogManager shared = RestartStoreFactory.createSharedLog(home, properties);
+        LogManager one = shared.open(1);
+        LogManager two = shared.open(2);
+        drain(one.startup());
+        drain(two.startup());
+        for (int x = 0; x < 200; x++) {
+            two.append(padded(x));
+        }
+        for (int x = 0; x < 500; x++) {
+            one.append(padded(x));
+        }
+        one.appendAndSync(padded(500)).get();
+        one.shutdown();
+        two.shutdown();
+
+        //  only store 1 comes back, and compacts everything it has
+        shared = RestartStoreFactory.createSharedLog(home, properties);
+        one = shared.open(1);
+        drain(one.startup());
+        for (int x = 0; x < 500; x++) {
+            one.append(padded(x));
+        }
+        one.appendAndSync(padded(500)).get();
+        one.updateLowestLsn(one.currentLsn());
+        //  the new lowest lsn reaches disk with the next segments
+        for (int x = 0; x < 500; x++) {
+            one.append(padded(x));
+        }
+        one.appendAndSync(padded(500)).get();
+        one.updateLowestLsn(one.currentLsn());
+        one.shutdown();
+
+        shared = RestartStoreFactory.createSharedLog(home, properties);
+        one = shared.open(1);
+        two = shared.open(2);
+        drain(one.startup());
+        Iterator<LogRecord> records = two.startup();
+        int expected = 200;
+        while (records.hasNext()) {
+            assertEquals(--expected, ByteBufferUtils.getInt(records.next().getPayload()));
+        }
+        assertEquals(0, expected);
+        one.shutdown();
+        two.shutdown();
+    }
+
+    @Test
+    public void testLsnGapPolicyRejected() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(FrsProperty.COMPACTOR_POLICY.shortName(), "LSNGapCompactionPolicy");
+        try {
+            new SharedLogManager(Configuration.getConfiguration(new File("foo"), properties), new NullLogManager(), null, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            //  expected
+        }
+    }
+
+    private static void drain(Iterator<LogRecord> records) {
+        while (records.hasNext()) {
+            records.next();
+        }
+    }
+
+    private static void checkRecovered(Iterator<LogRecord> records, long newest, int store) {
+        long expected = newest;
+        while (records.hasNext()) {
+            LogRecord record = records.next();
+            assertEquals(expected, record.getLsn());
+            assertEquals(expected, ByteBufferUtils.getInt(record.getPayload()));
+            assertEquals(store, expected % 3);
+            expected -= 3;
+        }
+        assertFalse(expected >= 100);
+    }
+
+    private static Configuration configuration(int recoveryBuffer) {
+        Properties properties = new Properties();
+        properties.setProperty("log.shared.recoveryBuffer", Integer.toString(recoveryBuffer));
+        return Configuration.getConfiguration(new File("foo"), properties);
+    }
+
+    private static LogRecord record(long lsn, int value) {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        buffer.putInt(0, value);
+        LogRecord record = new LogRecordImpl(new ByteBuffer[] { buffer }, null);
+        record.updateLsn(lsn);
+        return record;
+    }
+
+    //  big enough that a few hundred of them span several segments
+    private static LogRecord padded(int value) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.putInt(0, value);
+        return new LogRecordImpl(new ByteBuffer[] { buffer }, null);
+    }
+
+    private static LogRecord tagged(int store, long lsn, int value) {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putInt(0, store).putInt(4, value);
+        LogRecord record = new LogRecordImpl(new ByteBuffer[] { buffer }, null);
+        record.updateLsn(lsn);
+        return record;
+    }
+}
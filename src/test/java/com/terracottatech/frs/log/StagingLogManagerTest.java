@@ -16,25 +16,36 @@
 package com.terracottatech.frs.log;
 
 import com.terracottatech.frs.Constants;
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.Snapshot;
 import com.terracottatech.frs.SnapshotRequest;
+import com.terracottatech.frs.config.Configuration;
+import com.terracottatech.frs.util.JUnitTestFolder;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 
 import com.terracottatech.frs.io.Chunk;
 import com.terracottatech.frs.io.Direction;
 import com.terracottatech.frs.io.IOManager;
 import com.terracottatech.frs.io.IOStatistics;
+import com.terracottatech.frs.io.MaskingBufferSource;
+import com.terracottatech.frs.io.SplittingBufferSource;
+import com.terracottatech.frs.io.nio.StripedNIOManager;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Properties;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -45,6 +56,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 import junit.framework.Assert;
 
 import static com.terracottatech.frs.config.FrsProperty.FORCE_LOG_REGION_FORMAT;
+import static com.terracottatech.frs.config.FrsProperty.IO_NIO_LANES;
+import static com.terracottatech.frs.config.FrsProperty.IO_PACKING_THREADS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -64,6 +79,10 @@ import static org.mockito.Mockito.verify;
 public class StagingLogManagerTest {
 
     private static final long LOG_REGION_WRITE_TIMEOUT = 10;
+
+    @Rule
+    public JUnitTestFolder folder = new JUnitTestFolder();
+
     private DummyIOManager ioManager;
     private StagingLogManager logManager;
     private boolean startThrowing = false;
@@ -94,6 +113,102 @@ public class StagingLogManagerTest {
         verify(ioManager).write(any(Chunk.class),any(Long.class));
     }
 
+    @Test
+    public void testAppendAndSyncAsync() throws Exception {
+        final AtomicInteger completions = new AtomicInteger();
+        logManager.setCompletionExecutor(r -> {
+            completions.incrementAndGet();
+            r.run();
+        });
+        logManager.startup();
+        CompletableFuture<Void> f = logManager.appendAndSyncAsync(newRecord());
+        f.get(LOG_REGION_WRITE_TIMEOUT, SECONDS);
+        verify(ioManager).write(any(Chunk.class),any(Long.class));
+        assertThat(completions.get(), is(1));
+    }
+
+    @Test
+    public void testAppendAsyncException() throws Exception {
+        logManager.startup();
+        ioManager.haltWrites();
+        CompletableFuture<Void> f = logManager.appendAndSyncAsync(newRecord());
+        ioManager.throwException(new IOException("disk full"));
+        try {
+            f.get(LOG_REGION_WRITE_TIMEOUT, SECONDS);
+            fail();
+        } catch ( ExecutionException ee ) {
+            assertThat(f.isCompletedExceptionally(), is(true));
+        }
+    }
+
+    @Test
+    public void testFailedLaneFailsQueuedRegions() throws Exception {
+        final CountDownLatch laneZeroBlocked = new CountDownLatch(1);
+        final CountDownLatch laneZeroRelease = new CountDownLatch(1);
+        final AtomicInteger laneOneWrites = new AtomicInteger();
+        Properties props = new Properties();
+        props.setProperty(IO_NIO_LANES.shortName(), "lane1");
+        StripedNIOManager striped = new StripedNIOManager(Configuration.getConfiguration(folder.newFolder(), props), 
+                new MaskingBufferSource(new SplittingBufferSource(16, 8 * 1024 * 1024))) {
+            @Override
+            public long write(int lane, Chunk region, long marker) throws IOException {
+                if ( lane == 0 ) {
+                    laneZeroBlocked.countDown();
+                    try {
+                        laneZeroRelease.await();
+                    } catch ( InterruptedException ie ) {
+                        throw new RuntimeException(ie);
+                    }
+                } else if ( laneOneWrites.incrementAndGet() == 2 ) {
+                    throw new IOException("lane failed");
+                }
+                return super.write(lane, region, marker);
+            }
+        };
+        logManager = new StagingLogManager(striped);
+        logManager.startup();
+
+        //  lane 0 holds the first region, the third queues behind it while 
+        //  lane 1 writes the second and fails on the fourth
+        Future<Void> first = logManager.append(newRecord());
+        laneZeroBlocked.await();
+        Future<Void> second = appendSealed(newRecord());
+        Future<Void> third = appendSealed(newRecord());
+        Future<Void> fourth = logManager.append(newRecord());
+        try {
+            fourth.get(LOG_REGION_WRITE_TIMEOUT, SECONDS);
+            fail();
+        } catch ( ExecutionException ee ) {
+            assertThat(ee.getCause().getMessage(), is("lane failed"));
+        }
+        laneZeroRelease.countDown();
+
+        //  the first two may or may not have reached disk, they only have to complete
+        for ( Future<Void> f : Arrays.asList(first, second) ) {
+            try {
+                f.get(LOG_REGION_WRITE_TIMEOUT, SECONDS);
+            } catch ( ExecutionException ee ) {
+                assertThat(ee.getCause().getMessage(), is("lane failed"));
+            }
+        }
+        try {
+            third.get(LOG_REGION_WRITE_TIMEOUT, SECONDS);
+            fail();
+        } catch ( ExecutionException ee ) {
+            assertThat(ee.getCause().getMessage(), is("lane failed"));
+        }
+        logManager.shutdown();
+    }
+
+    //  each record goes out in a region of its own
+    private Future<Void> appendSealed(LogRecord record) throws InterruptedException {
+        Future<Void> f = logManager.append(record);
+        while ( logManager.firstCommitListLsn() <= record.getLsn() ) {
+            Thread.sleep(1);
+        }
+        return f;
+    }
+
     /**
      * Test of append method, of class StagingLogManager.
      */
@@ -109,6 +224,118 @@ public class StagingLogManagerTest {
         verify(ioManager, atLeastOnce()).write(any(Chunk.class),any(Long.class));
     }
     
+    @Test
+    public void testAppendAll() throws Exception {
+        logManager.startup();
+        logManager.append(newRecord());
+        //  more than one commit list worth
+        List<LogRecord> batch = new ArrayList<LogRecord>();
+        for (int x = 0; x < 2500; x++) {
+            batch.add(spy(newRecord()));
+        }
+        logManager.appendAll(batch, true).get(LOG_REGION_WRITE_TIMEOUT, SECONDS);
+        for (int x = 0; x < batch.size(); x++) {
+            verify(batch.get(x)).updateLsn(101 + x);
+        }
+        assertThat(logManager.currentLsn(), is(101L + batch.size()));
+        verify(ioManager, atLeastOnce()).sync();
+        logManager.shutdown();
+    }
+    
+    @Test
+    public void testConcurrentPackingKeepsLsnOrder() throws Exception {
+        final List<long[]> written = Collections.synchronizedList(new ArrayList<long[]>());
+        ioManager = new DummyIOManager() {
+            @Override
+            public long write(Chunk region, long lsn) throws IOException {
+                written.add(LogRegionPacker.peekLsnRange((String) FORCE_LOG_REGION_FORMAT.defaultValue(), region));
+                return super.write(region, lsn);
+            }
+        };
+        Properties props = new Properties();
+        props.setProperty(IO_PACKING_THREADS.shortName(), "4");
+        logManager = new StagingLogManager(ioManager, null, Configuration.getConfiguration(folder.newFolder(), props));
+        logManager.startup();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Callable<List<Future<Void>>>> appenders = new ArrayList<Callable<List<Future<Void>>>>();
+        for (int i = 0; i < 8; i++) {
+            appenders.add(new Callable<List<Future<Void>>>() {
+                @Override
+                public List<Future<Void>> call() {
+                    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+                    for (int x = 0; x < 2000; x++) {
+                        futures.add(( x % 100 == 0 ) ? logManager.appendAndSync(newRecord()) : logManager.append(newRecord()));
+                    }
+                    return futures;
+                }
+            });
+        }
+        for (Future<List<Future<Void>>> appender : executorService.invokeAll(appenders)) {
+            for (Future<Void> f : appender.get()) {
+                f.get(LOG_REGION_WRITE_TIMEOUT, SECONDS);
+            }
+        }
+        executorService.shutdown();
+        logManager.shutdown();
+
+        long expected = Constants.FIRST_LSN;
+        for (long[] range : written) {
+            assertThat(range[0], is(expected));
+            expected = range[1] + 1;
+        }
+        assertThat(expected, is(Constants.FIRST_LSN + 8 * 2000));
+    }
+
+    @Test
+    public void testBoundedDelaySyncsWithoutFurtherTraffic() throws Exception {
+        final CountDownLatch written = new CountDownLatch(1);
+        final CountDownLatch synced = new CountDownLatch(1);
+        ioManager = new DummyIOManager() {
+            @Override
+            public long write(Chunk region, long lsn) throws IOException {
+                long w = super.write(region, lsn);
+                written.countDown();
+                return w;
+            }
+
+            @Override
+            public void sync() throws IOException {
+                if ( written.getCount() == 0 ) {
+                    synced.countDown();
+                }
+            }
+        };
+        logManager = new StagingLogManager(ioManager);
+        logManager.startup();
+
+        //  once the record is placed appendAsync only goes on after the io 
+        //  thread has written it, nothing after it is left to wake the io thread
+        LogRecord record = new LogRecordImpl(new ByteBuffer[0], mock(LSNEventListener.class)) {
+            @Override
+            public long getLsn() {
+                if ( new Throwable().getStackTrace()[1].getMethodName().equals("appendAsync") ) {
+                    try {
+                        written.await();
+                        //  let the io thread go back to waiting for the next package
+                        Thread.sleep(50);
+                    } catch ( InterruptedException ie ) {
+                        throw new RuntimeException(ie);
+                    }
+                }
+                return super.getLsn();
+            }
+        };
+        long delay = MILLISECONDS.toNanos(500);
+        long start = System.nanoTime();
+        CompletableFuture<Durability> f = logManager.appendAsync(record, Durability.boundedDelay(delay, NANOSECONDS));
+        assertThat(f.get(LOG_REGION_WRITE_TIMEOUT, SECONDS), is(Durability.OS_WRITE));
+        //  a little slack for the io thread to be scheduled
+        long left = start + delay + MILLISECONDS.toNanos(250) - System.nanoTime();
+        assertThat(synced.await(left, NANOSECONDS), is(true));
+        logManager.shutdown();
+    }
+
     @Test
     public void testQueueClearOnException() throws Exception {
         logManager.startup();
@@ -0,0 +1,92 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.log;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * @author mscott
+ */
+public class SyncDeadlinesTest {
+
+    @Test
+    public void testNothingDueWithoutRequests() {
+        SyncDeadlines deadlines = new SyncDeadlines();
+        assertFalse(deadlines.isDue(Long.MAX_VALUE, 1000));
+        assertEquals(-1, deadlines.nanosUntilDue(0, 1000));
+    }
+
+    @Test
+    public void testDueOnceWrittenAndPastDeadline() {
+        SyncDeadlines deadlines = new SyncDeadlines();
+        deadlines.request(105, 1000);
+        deadlines.synced(100);
+        //  not written yet, a sync now would not cover it
+        assertEquals(-1, deadlines.nanosUntilDue(0, 100));
+        assertFalse(deadlines.isDue(2000, 100));
+        assertEquals(1000, deadlines.nanosUntilDue(0, 105));
+        assertFalse(deadlines.isDue(999, 105));
+        assertTrue(deadlines.isDue(1000, 105));
+        deadlines.synced(105);
+        assertFalse(deadlines.isDue(2000, 110));
+    }
+
+    @Test
+    public void testEarliestDeadlineStandsUntilAllCovered() {
+        SyncDeadlines deadlines = new SyncDeadlines();
+        deadlines.request(110, 5000);
+        deadlines.request(120, 1000);
+        //  a sync covering only the first leaves the earlier deadline standing
+        deadlines.synced(110);
+        assertTrue(deadlines.isDue(1000, 120));
+        deadlines.synced(120);
+        assertFalse(deadlines.isDue(10000, 130));
+    }
+
+    @Test
+    public void testRequestAlreadySynced() {
+        SyncDeadlines deadlines = new SyncDeadlines();
+        deadlines.synced(200);
+        deadlines.request(150, 0);
+        assertFalse(deadlines.isDue(10, 300));
+    }
+
+    @Test
+    public void testReservationStandsUntilPlaced() {
+        SyncDeadlines deadlines = new SyncDeadlines();
+        deadlines.reserve(1000);
+        //  written and synced before the appender learned its lsn
+        deadlines.synced(105);
+        assertEquals(1000, deadlines.nanosUntilDue(0, 110));
+        deadlines.placed(110);
+        assertTrue(deadlines.isDue(1000, 110));
+        deadlines.synced(110);
+        assertFalse(deadlines.isDue(2000, 120));
+    }
+
+    @Test
+    public void testUnplacedReservationDropped() {
+        SyncDeadlines deadlines = new SyncDeadlines();
+        deadlines.reserve(1000);
+        deadlines.placed(0);
+        assertFalse(deadlines.isDue(2000, 100));
+    }
+}
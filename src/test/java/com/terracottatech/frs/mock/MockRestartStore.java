@@ -15,6 +15,7 @@
  */
 package com.terracottatech.frs.mock;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.NotPausedException;
 import com.terracottatech.frs.RestartStore;
 import com.terracottatech.frs.RestartStoreException;
@@ -39,6 +40,7 @@ import com.terracottatech.frs.transaction.TransactionManager;
 import com.terracottatech.frs.util.NullFuture;
 
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -77,6 +79,16 @@ public class MockRestartStore implements RestartStore<Long, String, String> {
     throw new UnsupportedOperationException("Mock doesn't support auto-commit transactions");
   }
 
+  @Override
+  public Transaction<Long, String, String> beginTransaction(Durability durability) {
+    return beginTransaction(durability.getLevel() == Durability.Level.FSYNC);
+  }
+
+  @Override
+  public Transaction<Long, String, String> beginAutoCommitTransaction(Durability durability) {
+    return beginAutoCommitTransaction(durability.getLevel() == Durability.Level.FSYNC);
+  }
+
   public static MockRestartStore create(MockObjectManager<Long, String, String> objManager, IOManager ioManager) throws
           InterruptedException, RecoveryException {
     LogManager logManager = new MockLogManager(ioManager);
@@ -111,6 +123,21 @@ public class MockRestartStore implements RestartStore<Long, String, String> {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public long writtenLsn() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long durableLsn() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean awaitDurable(long lsn, long timeout, TimeUnit unit) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public Future<Future<Snapshot>> pause() {
     throw new UnsupportedOperationException();
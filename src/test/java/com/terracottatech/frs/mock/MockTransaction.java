@@ -21,6 +21,8 @@ import com.terracottatech.frs.object.ObjectManager;
 import com.terracottatech.frs.transaction.TransactionHandle;
 import com.terracottatech.frs.transaction.TransactionManager;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  *
  * @author cdennis
@@ -59,5 +61,10 @@ class MockTransaction implements Transaction<Long, String, String> {
   public void commit() throws TransactionException {
     txnManager.commit(txnHandle, true);
   }
+
+  @Override
+  public CompletableFuture<Void> commitAsync() throws TransactionException {
+    return txnManager.commitAsync(txnHandle, true);
+  }
   
 }
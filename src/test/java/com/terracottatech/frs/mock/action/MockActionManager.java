@@ -15,8 +15,11 @@
  */
 package com.terracottatech.frs.mock.action;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.action.ActionManager;
 import com.terracottatech.frs.log.LogManager;
 import com.terracottatech.frs.action.Action;
@@ -75,4 +78,28 @@ public class MockActionManager implements ActionManager {
   public Future<Void> syncHappened(Action action) {
     return happened(action);
   }
+
+  @Override
+  public Future<Void> happenedAll(List<Action> actions, boolean sync) {
+    Future<Void> written = null;
+    for (Action action : actions) {
+      written = happened(action);
+    }
+    return written;
+  }
+
+  @Override
+  public CompletableFuture<Void> happenedAsync(Action action) {
+    return logManager.appendAsync(new MockLogRecord(action));
+  }
+
+  @Override
+  public CompletableFuture<Void> syncHappenedAsync(Action action) {
+    return happenedAsync(action);
+  }
+
+  @Override
+  public CompletableFuture<Durability> happenedAsync(Action action, Durability durability) {
+    return happenedAsync(action).thenApply(v -> durability.getLevel() == Durability.Level.BOUNDED_DELAY ? Durability.OS_WRITE : durability);
+  }
 }
@@ -16,6 +16,7 @@
 package com.terracottatech.frs.mock.log;
 
 import com.terracottatech.frs.Constants;
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.Snapshot;
 import com.terracottatech.frs.io.Chunk;
 import com.terracottatech.frs.io.Direction;
@@ -25,6 +26,7 @@ import com.terracottatech.frs.log.BufferListWrapper;
 import com.terracottatech.frs.log.LogManager;
 import com.terracottatech.frs.log.LogRecord;
 import com.terracottatech.frs.log.LogRegionFactory;
+import com.terracottatech.frs.log.RecordDecoder;
 import com.terracottatech.frs.mock.MockFuture;
 
 import java.io.ByteArrayInputStream;
@@ -40,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -109,6 +112,14 @@ public class MockLogManager implements LogManager {
       return reader();
   }
 
+  @Override
+  public void decodeRecovery(RecordDecoder decoder) {
+  }
+
+  @Override
+  public void limitRecovery(long lsn) {
+  }
+
     @Override
     public void shutdown() {
     }
@@ -134,6 +145,32 @@ public class MockLogManager implements LogManager {
         return new MockFuture();
     }
 
+    @Override
+    public Future<Void> appendAll(List<LogRecord> records, boolean sync) {
+        for (LogRecord record : records) {
+            append(record);
+        }
+        return new MockFuture();
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAsync(LogRecord record) {
+        append(record);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAndSyncAsync(LogRecord record) {
+        appendAndSync(record);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Durability> appendAsync(LogRecord record, Durability durability) {
+        append(record);
+        return CompletableFuture.completedFuture(durability.getLevel() == Durability.Level.BOUNDED_DELAY ? Durability.OS_WRITE : durability);
+    }
+
     private Iterator<LogRecord> reader() {
         try {
             ioManager.seek(IOManager.Seek.END.getValue());
@@ -208,6 +245,31 @@ public class MockLogManager implements LogManager {
     public IOStatistics getIOStatistics() {
       throw new UnsupportedOperationException("Not supported yet.");
     }
+
+    @Override
+    public void awaitBackgroundTurn() {
+    }
+
+  //  records are written as they are appended
+    @Override
+    public long writtenLsn() {
+      return currentLsn.get() - 1;
+    }
+
+    @Override
+    public long durableLsn() {
+      return currentLsn.get() - 1;
+    }
+
+    @Override
+    public boolean awaitDurable(long lsn, long timeout, TimeUnit unit) {
+      return lsn < currentLsn.get();
+    }
+
+    @Override
+    public double writePressure() {
+      return 0;
+    }
     
     
 }
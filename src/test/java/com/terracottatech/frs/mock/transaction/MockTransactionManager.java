@@ -15,6 +15,7 @@
  */
 package com.terracottatech.frs.mock.transaction;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.action.Action;
 import com.terracottatech.frs.action.ActionManager;
 import com.terracottatech.frs.transaction.TransactionHandle;
@@ -24,6 +25,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -71,6 +73,18 @@ public class MockTransactionManager implements TransactionManager {
     }
   }
 
+  @Override
+  public CompletableFuture<Void> commitAsync(TransactionHandle handle, boolean synchronous) {
+    commit(handle, synchronous);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  @Override
+  public CompletableFuture<Durability> commitAsync(TransactionHandle handle, Durability durability) {
+    commit(handle, durability.getLevel() == Durability.Level.FSYNC);
+    return CompletableFuture.completedFuture(durability.getLevel() == Durability.Level.BOUNDED_DELAY ? Durability.OS_WRITE : durability);
+  }
+
   @Override
   public void happened(TransactionHandle handle, Action action) {
     rcdManager.happened(new MockTransactionalAction(getIdAndValidateHandle(handle), action));
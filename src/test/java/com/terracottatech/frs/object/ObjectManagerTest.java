@@ -148,6 +148,17 @@ public abstract class ObjectManagerTest {
     assertThat(objMgr.acquireCompactionEntry(Long.MAX_VALUE), nullValue());
   }
 
+  @Test
+  public void deletedIdNotContainedTest() {
+    ObjectManager<String, String, String> objMgr = createObjectManager();
+
+    objMgr.put("foo", "bar", "baz", 1);
+    assertThat(objMgr.contains("foo"), is(true));
+
+    objMgr.delete("foo");
+    assertThat(objMgr.contains("foo"), is(false));
+  }
+
   @Test
   public void basicReplayTest() {
     ObjectManager<String, String, String> objMgr = createObjectManager();
@@ -0,0 +1,220 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.recovery;
+
+import com.terracottatech.frs.Disposable;
+import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.ActionCodec;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author mscott
+ */
+public class ReplayShardTest {
+
+  @Test
+  public void testReplaysInQueueOrder() throws Exception {
+    AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    ReplayShard shard = new ReplayShard("test", 4, error);
+    List<Long> replayed = Collections.synchronizedList(new ArrayList<Long>());
+    for (long lsn = 1000; lsn > 0; lsn--) {
+      shard.offer(new RecordingAction(replayed), lsn, -1, null);
+    }
+    shard.close();
+    assertTrue(shard.awaitTermination(30, TimeUnit.SECONDS));
+    assertNull(error.get());
+    assertEquals(1000, replayed.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(1000L - i, (long) replayed.get(i));
+    }
+    assertEquals(1000L, shard.completed());
+  }
+
+  @Test
+  public void testFullShardHoldsProducer() throws Exception {
+    AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    ReplayShard shard = new ReplayShard("test", 2, error);
+    final CountDownLatch release = new CountDownLatch(1);
+    Action blocking = new RecordingAction(new ArrayList<Long>()) {
+      @Override
+      public void replay(long lsn) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+      }
+    };
+    shard.offer(blocking, 1, -1, null);
+    shard.offer(new RecordingAction(new ArrayList<Long>()), 2, -1, null);
+    Thread producer = new Thread(() -> shard.offer(new RecordingAction(new ArrayList<Long>()), 3, -1, null));
+    producer.start();
+    producer.join(200);
+    assertTrue(producer.isAlive());
+    release.countDown();
+    producer.join(TimeUnit.SECONDS.toMillis(30));
+    assertTrue(!producer.isAlive());
+    shard.close();
+    assertTrue(shard.awaitTermination(30, TimeUnit.SECONDS));
+    assertEquals(3L, shard.completed());
+  }
+
+  @Test
+  public void testDisposesAfterLastEntry() throws Exception {
+    AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    ReplayShard first = new ReplayShard("first", 8, error);
+    ReplayShard second = new ReplayShard("second", 8, error);
+    DisposableMultiAction action = new DisposableMultiAction();
+    AtomicInteger remaining = new AtomicInteger(2);
+    first.offer(action, 10, 0, remaining);
+    second.offer(action, 10, 1, remaining);
+    first.close();
+    second.close();
+    assertTrue(first.awaitTermination(30, TimeUnit.SECONDS));
+    assertTrue(second.awaitTermination(30, TimeUnit.SECONDS));
+    assertEquals(2, action.entries.get());
+    assertEquals(1, action.disposed.get());
+  }
+
+  @Test
+  public void testErrorIsRecordedAndShardDrains() throws Exception {
+    AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    ReplayShard shard = new ReplayShard("test", 4, error);
+    final RuntimeException failure = new RuntimeException("replay failure");
+    List<Long> replayed = Collections.synchronizedList(new ArrayList<Long>());
+    shard.offer(new RecordingAction(replayed) {
+      @Override
+      public void replay(long lsn) {
+        throw failure;
+      }
+    }, 100, -1, null);
+    for (long lsn = 99; lsn > 0; lsn--) {
+      shard.offer(new RecordingAction(replayed), lsn, -1, null);
+    }
+    shard.close();
+    assertTrue(shard.awaitTermination(30, TimeUnit.SECONDS));
+    assertSame(failure, error.get());
+    assertTrue(replayed.isEmpty());
+    assertEquals(100L, shard.completed());
+  }
+
+  private static class RecordingAction implements Action {
+    private final List<Long> replayed;
+
+    RecordingAction(List<Long> replayed) {
+      this.replayed = replayed;
+    }
+
+    @Override
+    public void record(long lsn) {
+    }
+
+    @Override
+    public void replay(long lsn) {
+      replayed.add(lsn);
+    }
+
+    @Override
+    public ByteBuffer[] getPayload(ActionCodec codec) {
+      return new ByteBuffer[0];
+    }
+  }
+
+  private static class DisposableMultiAction implements com.terracottatech.frs.action.MultiEntryAction, Disposable {
+    private final AtomicInteger entries = new AtomicInteger();
+    private final AtomicInteger disposed = new AtomicInteger();
+
+    @Override
+    public int getEntryCount() {
+      return 2;
+    }
+
+    @Override
+    public long getEntryHash(int entry) {
+      return entry;
+    }
+
+    @Override
+    public long getInvalidatedLsn(int entry) {
+      return -1;
+    }
+
+    @Override
+    public void skipEntry(int entry) {
+    }
+
+    @Override
+    public boolean isSkipped(int entry) {
+      return false;
+    }
+
+    @Override
+    public void guardEntries() {
+    }
+
+    @Override
+    public int replayConcurrency(int entry) {
+      return entry;
+    }
+
+    @Override
+    public void replayEntry(int entry, long lsn) {
+      assertEquals(0, disposed.get());
+      entries.incrementAndGet();
+    }
+
+    @Override
+    public java.util.Set<Long> getInvalidatedLsns() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public void record(long lsn) {
+    }
+
+    @Override
+    public void replay(long lsn) {
+    }
+
+    @Override
+    public ByteBuffer[] getPayload(ActionCodec codec) {
+      return new ByteBuffer[0];
+    }
+
+    @Override
+    public void dispose() {
+      disposed.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
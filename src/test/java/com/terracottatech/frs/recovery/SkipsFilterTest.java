@@ -16,7 +16,9 @@
 package com.terracottatech.frs.recovery;
 
 import com.terracottatech.frs.action.Action;
+import com.terracottatech.frs.action.EntryAction;
 import com.terracottatech.frs.action.InvalidatingAction;
+import com.terracottatech.frs.action.MultiEntryAction;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -30,6 +32,7 @@ import static org.hamcrest.core.Is.is;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -88,6 +91,61 @@ public class SkipsFilterTest {
     assertThat(filter.filter(action5, 5, false), is(true));
   }
 
+  @Test
+  public void testRemovedEntryOfMultiEntryAction() throws Exception {
+    MultiEntryAction action6 = mock(MultiEntryAction.class);
+    doReturn(2).when(action6).getEntryCount();
+    doReturn(11L).when(action6).getEntryHash(0);
+    doReturn(12L).when(action6).getEntryHash(1);
+    doReturn(-1L).when(action6).getInvalidatedLsn(anyInt());
+    doReturn(Collections.singleton(-1L)).when(action6).getInvalidatedLsns();
+    doReturn(true).when(delegate).filter(eq(action6), anyLong(), eq(false));
+
+    EntryAction action8 = mock(EntryAction.class);
+    doReturn(true).when(action8).isRemove();
+    doReturn(11L).when(action8).getEntryHash();
+    doReturn(6L).when(action8).getInvalidatedLsn();
+    doReturn(Collections.singleton(6L)).when(action8).getInvalidatedLsns();
+    doReturn(true).when(delegate).filter(eq(action8), anyLong(), eq(false));
+
+    assertThat(filter.filter(action8, 8, false), is(true));
+    assertThat(filter.filter(action6, 6, false), is(true));
+    verify(action6).skipEntry(0);
+    verify(action6, never()).skipEntry(1);
+    verify(action6).guardEntries();
+    verify(delegate).filter(action6, 6L, false);
+  }
+
+  @Test
+  public void testUnrecoveredEntrySupersedesOlderRecords() throws Exception {
+    EntryAction action9 = mock(EntryAction.class);
+    doReturn(11L).when(action9).getEntryHash();
+    doReturn(EntryAction.UNRECOVERED).when(action9).getInvalidatedLsn();
+    doReturn(Collections.singleton(EntryAction.UNRECOVERED)).when(action9).getInvalidatedLsns();
+    doReturn(true).when(delegate).filter(eq(action9), anyLong(), eq(false));
+
+    EntryAction action7 = mock(EntryAction.class);
+    doReturn(11L).when(action7).getEntryHash();
+    doReturn(-1L).when(action7).getInvalidatedLsn();
+    doReturn(Collections.singleton(-1L)).when(action7).getInvalidatedLsns();
+    doReturn(true).when(delegate).filter(eq(action7), anyLong(), eq(false));
+
+    MultiEntryAction action6 = mock(MultiEntryAction.class);
+    doReturn(2).when(action6).getEntryCount();
+    doReturn(11L).when(action6).getEntryHash(0);
+    doReturn(12L).when(action6).getEntryHash(1);
+    doReturn(-1L).when(action6).getInvalidatedLsn(anyInt());
+    doReturn(Collections.singleton(-1L)).when(action6).getInvalidatedLsns();
+    doReturn(true).when(delegate).filter(eq(action6), anyLong(), eq(false));
+
+    assertThat(filter.filter(action9, 9, false), is(true));
+    assertThat(filter.filter(action7, 7, false), is(false));
+    verify(delegate).filter(action7, 7L, true);
+    assertThat(filter.filter(action6, 6, false), is(true));
+    verify(action6).skipEntry(0);
+    verify(action6, never()).skipEntry(1);
+  }
+
   private Action createAction(boolean replayReturn) {
     Action action = mock(Action.class);
     doReturn(replayReturn).when(delegate).filter(eq(action), anyLong(), eq(false));
@@ -15,9 +15,12 @@
  */
 package com.terracottatech.frs.transaction;
 
+import com.terracottatech.frs.Durability;
 import com.terracottatech.frs.TransactionException;
 import com.terracottatech.frs.action.Action;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author tim
  */
@@ -32,6 +35,16 @@ public class NullTransactionManager implements TransactionManager {
   public void commit(TransactionHandle handle, boolean synchronous) throws TransactionException {
   }
 
+  @Override
+  public CompletableFuture<Void> commitAsync(TransactionHandle handle, boolean synchronous) {
+    return null;
+  }
+
+  @Override
+  public CompletableFuture<Durability> commitAsync(TransactionHandle handle, Durability durability) {
+    return null;
+  }
+
   @Override
   public void happened(TransactionHandle handle, Action action) {
   }
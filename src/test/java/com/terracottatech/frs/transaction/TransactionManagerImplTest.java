@@ -86,6 +86,26 @@ public class TransactionManagerImplTest {
             new TransactionCommitAction(handle, true));
   }
 
+  @Test
+  public void testCommitAsync() throws Exception {
+    TransactionHandle handle = transactionManager.begin();
+    transactionManager.happened(handle, action);
+    transactionManager.commitAsync(handle, true);
+    verify(actionManager).syncHappenedAsync(
+            new TransactionCommitAction(handle, false));
+    verify(actionManager, never()).syncHappened(any(Action.class));
+    try {
+      transactionManager.commitAsync(handle, true);
+      fail("Committing a handle twice should fail.");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    handle = transactionManager.begin();
+    transactionManager.commitAsync(handle, false);
+    verify(actionManager).happenedAsync(
+            new TransactionCommitAction(handle, true));
+  }
+
   @Test
   public void testHappened() throws Exception {
     TransactionHandle handle = transactionManager.begin();
@@ -125,6 +125,21 @@ public class Log2LatencyBinsTest {
     System.out.println(lb.toString());
   }
 
+  @Test
+  public void testPercentile() {
+    Log2LatencyBins lb = new Log2LatencyBins("test1", 10, 16);
+    assertThat(lb.percentile(0.99), is(0L));
+    for (int i = 0; i < 99; i++) {
+      lb.record(1000L);
+    }
+    lb.record(1L << 20);
+    assertThat(lb.percentile(0.5), is(1L << 17));
+    assertThat(lb.percentile(0.99), is(1L << 17));
+    assertThat(lb.percentile(1.0), is(1L << 21));
+    lb.record(Long.MAX_VALUE);
+    assertThat(lb.percentile(1.0), is(lb.nanosMinForBin(9)));
+  }
+
   @Test
   public void testSingleCallback() {
     Log2LatencyBins lb = new Log2LatencyBins("test1", 10, 16);
@@ -0,0 +1,97 @@
+/*
+ * Copyright IBM Corp. 2024, 2025
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.terracottatech.frs.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author mscott
+ */
+public class LsnWatermarkTest {
+
+  @Test
+  public void testAdvanceOnlyMovesForward() {
+    LsnWatermark mark = new LsnWatermark(100);
+    mark.advance(110);
+    mark.advance(105);
+    assertEquals(110, mark.get());
+    mark.reset(50);
+    assertEquals(50, mark.get());
+  }
+
+  @Test
+  public void testAwaitTimesOutBelowMark() throws Exception {
+    LsnWatermark mark = new LsnWatermark(100);
+    assertTrue(mark.await(100, 0, TimeUnit.MILLISECONDS));
+    assertFalse(mark.await(101, 10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testAdvanceWakesOnlySatisfiedWaiters() throws Exception {
+    final LsnWatermark mark = new LsnWatermark(100);
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      final CountDownLatch started = new CountDownLatch(2);
+      Future<Boolean> low = pool.submit(() -> {
+        started.countDown();
+        return mark.await(110, 10, TimeUnit.SECONDS);
+      });
+      Future<Boolean> high = pool.submit(() -> {
+        started.countDown();
+        return mark.await(200, 200, TimeUnit.MILLISECONDS);
+      });
+      started.await();
+      mark.advance(150);
+      assertTrue(low.get());
+      assertFalse(high.get());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReleaseWakesEveryWaiter() throws Exception {
+    final LsnWatermark mark = new LsnWatermark(100);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      final CountDownLatch started = new CountDownLatch(1);
+      Future<Boolean> waiter = pool.submit(() -> {
+        started.countDown();
+        return mark.await(200);
+      });
+      started.await();
+      mark.release();
+      assertFalse(waiter.get(10, TimeUnit.SECONDS));
+      assertTrue(mark.isReleased());
+      //  a released mark no longer blocks
+      assertFalse(mark.await(300));
+      mark.reset(100);
+      assertFalse(mark.isReleased());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}